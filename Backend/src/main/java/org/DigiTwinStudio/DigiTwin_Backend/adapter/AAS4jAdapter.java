@@ -1,29 +1,43 @@
 package org.DigiTwinStudio.DigiTwin_Backend.adapter;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AasxAttachment;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.DeserializationException;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonDeserializer;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.xml.XmlSerializer;
 import org.eclipse.digitaltwin.aas4j.v3.model.Submodel;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
 import org.eclipse.digitaltwin.aas4j.v3.model.Environment;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.AASXSerializer;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.util.UriUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Adapter for working with AAS4j v3 Asset Administration Shell objects and serialization.
@@ -31,10 +45,22 @@ import java.util.stream.Collectors;
 @Component
 public class AAS4jAdapter {
 
+    // package layout written by the AASX serializer of AAS4j
+    private static final String AASX_RELTYPE_NAMESPACE = "http://admin-shell.io/aasx/relationships";
+    private static final String AASX_ORIGIN_RELTYPE = AASX_RELTYPE_NAMESPACE + "/aasx-origin";
+    private static final String AASX_SPEC_RELTYPE = AASX_RELTYPE_NAMESPACE + "/aas-spec";
+    private static final String AASX_SUPPL_RELTYPE = AASX_RELTYPE_NAMESPACE + "/aas-suppl";
+    private static final String AASX_ORIGIN_PATH = "aasx/aasx-origin";
+    private static final String AASX_ORIGIN_CONTENT = "Intentionally empty.";
+    private static final String AASX_XML_PATH = "aasx/xml/content.xml";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
     private final JsonDeserializer jsonDeserializer = new JsonDeserializer();
 
     private final JsonSerializer jsonSerializer = new JsonSerializer();
-    private final AASXSerializer aasxSerializer = new AASXSerializer();
+    // the codec of the mapping factory writes the JSON trees of the serializer
+    private final JsonFactory jsonFactory = new MappingJsonFactory();
+    private final XmlSerializer xmlSerializer = new XmlSerializer();
 
     /**
      * Serializes an AAS object to a JSON string.
@@ -51,21 +77,125 @@ public class AAS4jAdapter {
     }
 
     /**
-     * Serializes an {@link Environment} and associated files to the AASX format.
+     * Serializes an {@link Environment} to JSON, writing it incrementally to the stream.
+     * Only one shell, submodel or concept description is held as a JSON tree at a time, so memory use and the time until
+     * the first bytes are written do not grow with the size of the environment. The stream is not closed.
+     *
+     * @param environment  the AAS environment
+     * @param outputStream the output stream to write to
+     * @throws SerializationException if serialization fails
+     */
+    public void serializeToJsonStream(Environment environment, OutputStream outputStream) throws SerializationException {
+        if (environment == null) {
+            throw new SerializationException("AAS object is null");
+        }
+        try (JsonGenerator generator = this.jsonFactory.createGenerator(StreamUtils.nonClosing(outputStream), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            // empty lists are left out, like the AAS4j serializer does
+            writeJsonArray(generator, "assetAdministrationShells", environment.getAssetAdministrationShells());
+            writeJsonArray(generator, "submodels", environment.getSubmodels());
+            writeJsonArray(generator, "conceptDescriptions", environment.getConceptDescriptions());
+            generator.writeEndObject();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Failed to serialize environment to JSON", e);
+        }
+    }
+
+    private void writeJsonArray(JsonGenerator generator, String fieldName, List<?> elements) throws IOException {
+        if (elements == null || elements.isEmpty()) {
+            return;
+        }
+        generator.writeArrayFieldStart(fieldName);
+        for (Object element : elements) {
+            generator.writeTree(this.jsonSerializer.toNode(element));
+            // hand each element to the stream before the next one is serialized
+            generator.flush();
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Serializes an {@link Environment} and associated files to the AASX format, writing the package directly to the stream.
+     * The environment is serialized as XML straight into the package and every file is copied from its source through
+     * a small buffer, so the package is never held in memory as a whole. The stream is not closed.
      *
      * @param environment the AAS environment
-     * @param files       files to include in the package
+     * @param files       files to include in the package; a path used twice is only included once
      * @param outputStream the output stream to write to
      * @throws SerializationException if serialization fails
      */
-    public void serializeToAASX(Environment environment, Collection<InMemoryFile> files, OutputStream outputStream) throws SerializationException {
+    public void serializeToAASX(Environment environment, Collection<AasxAttachment> files, OutputStream outputStream) throws SerializationException {
+        Map<String, AasxAttachment> parts = new LinkedHashMap<>();
+        for (AasxAttachment file : files) {
+            parts.putIfAbsent(UriUtils.encodePath(file.path().startsWith("/") ? file.path().substring(1) : file.path(), StandardCharsets.UTF_8), file);
+        }
+        // files must not replace the parts of the package itself
+        parts.remove(AASX_ORIGIN_PATH);
+        parts.remove(AASX_XML_PATH);
         try {
-            this.aasxSerializer.write(environment, files, outputStream);
+            ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(outputStream));
+            writeEntry(zip, "[Content_Types].xml", contentTypes(parts.keySet()));
+            writeEntry(zip, "_rels/.rels", relationships(AASX_ORIGIN_RELTYPE, List.of(AASX_ORIGIN_PATH)));
+            writeEntry(zip, AASX_ORIGIN_PATH, AASX_ORIGIN_CONTENT);
+            writeEntry(zip, "aasx/_rels/aasx-origin.rels", relationships(AASX_SPEC_RELTYPE, List.of(AASX_XML_PATH)));
+
+            zip.putNextEntry(new ZipEntry(AASX_XML_PATH));
+            // the serializer closes its target, which must not finish the package
+            this.xmlSerializer.write(StreamUtils.nonClosing(zip), environment);
+            zip.closeEntry();
+            writeEntry(zip, "aasx/xml/_rels/content.xml.rels", relationships(AASX_SUPPL_RELTYPE, parts.keySet()));
+
+            for (Map.Entry<String, AasxAttachment> part : parts.entrySet()) {
+                zip.putNextEntry(new ZipEntry(part.getKey()));
+                try (InputStream content = part.getValue().content().getInputStream()) {
+                    content.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+            zip.finish();
         } catch (IOException e) {
             throw new SerializationException("Failed to serialize environment to AASX", e);
         }
     }
 
+    private static void writeEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    // content types of the fixed parts by extension, of the supplementary files per part
+    private static String contentTypes(Collection<String> partNames) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"text/xml\"/>")
+                .append("<Override PartName=\"/").append(AASX_ORIGIN_PATH).append("\" ContentType=\"text/plain\"/>");
+        for (String partName : partNames) {
+            MediaType mediaType = MediaTypeFactory.getMediaType(partName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            xml.append("<Override PartName=\"/").append(escapeXml(partName))
+                    .append("\" ContentType=\"").append(escapeXml(mediaType.toString())).append("\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private static String relationships(String type, Collection<String> targets) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        int id = 0;
+        for (String target : targets) {
+            xml.append("<Relationship Type=\"").append(type).append("\" Target=\"/").append(escapeXml(target))
+                    .append("\" Id=\"r").append(id++).append("\"/>");
+        }
+        return xml.append("</Relationships>").toString();
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&apos;");
+    }
+
     /**
      * Create a new DefaultEnvironment and embed the given AASModels DefaultAAS with its Submodels
      *
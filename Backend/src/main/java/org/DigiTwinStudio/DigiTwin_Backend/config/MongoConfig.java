@@ -1,13 +1,17 @@
 package org.DigiTwinStudio.DigiTwin_Backend.config;
 
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import java.util.List;
 
 /**
- * Spring configuration for MongoDB custom conversions.
+ * Spring configuration for MongoDB custom conversions and GridFS.
  * <p>
  * Registers converters for mapping between Jackson {@code JsonNode} and MongoDB {@code Document}.
  * </p>
@@ -29,4 +33,15 @@ public class MongoConfig {
     ) {
         return new MongoCustomConversions(List.of(readConverter, writeConverter));
     }
+
+    /**
+     * Provides the default GridFS bucket, the one {@code GridFsTemplate} uses, for files that are written as a stream.
+     *
+     * @param databaseFactory the factory of the application database
+     * @return the {@code fs} bucket of the application database
+     */
+    @Bean
+    public GridFSBucket gridFsBucket(MongoDatabaseFactory databaseFactory) {
+        return GridFSBuckets.create(databaseFactory.getMongoDatabase());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package org.DigiTwinStudio.DigiTwin_Backend.config;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SubmodelDocument;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.SubmodelDocumentRepository;
+
+import org.bson.types.ObjectId;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the externalized submodel layout consistent whenever a whole {@link AASModel} is saved.
+ * <p>
+ * For models with {@code submodelRefs} the submodels are not written into the model document; instead they are
+ * written to the submodel collection as new documents before the model is saved, and the model references them.
+ * The documents it referenced before are left to the orphan cleanup of
+ * {@link org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelStorageService}, so a failed save keeps the stored content.
+ * A model saved without loaded submodels keeps its stored submodels untouched.
+ * New models use the layout configured by {@code digitwin.submodel-storage.layout} ({@code embedded} or {@code external}).
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class SubmodelStorageListener extends AbstractMongoEventListener<AASModel> {
+
+    private final SubmodelDocumentRepository submodelDocumentRepository;
+
+    @Value("${digitwin.submodel-storage.layout:embedded}")
+    private String layout;
+
+    @Override
+    public void onBeforeConvert(@NonNull BeforeConvertEvent<AASModel> event) {
+        AASModel model = event.getSource();
+        // adopted models share the submodels of their snapshot and get their own layout only when materialized
+        if (model.getId() == null && model.getSubmodelRefs() == null && model.getSourceSnapshotId() == null
+                && "external".equalsIgnoreCase(layout)) {
+            model.setSubmodelRefs(new ArrayList<>());
+        }
+        if (model.getSubmodelRefs() != null && model.getSubmodels() != null) {
+            if (model.getId() == null) {
+                // the documents need the model ID before the model is inserted
+                model.setId(new ObjectId().toHexString());
+            }
+            List<SubmodelDocument> documents = model.getSubmodels().stream()
+                    .map(submodel -> SubmodelDocument.of(model.getId(), submodel, model.getVersion()))
+                    .toList();
+            submodelDocumentRepository.insert(documents);
+            model.setSubmodelRefs(new ArrayList<>(model.getSubmodels().stream().map(DefaultSubmodel::getId).toList()));
+            model.setSubmodelDocumentIds(new ArrayList<>(documents.stream().map(SubmodelDocument::getId).toList()));
+        }
+    }
+
+    @Override
+    public void onBeforeSave(@NonNull BeforeSaveEvent<AASModel> event) {
+        if (event.getSource().getSubmodelRefs() != null && event.getDocument() != null) {
+            event.getDocument().remove("submodels");
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import lombok.RequiredArgsConstructor;
 
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelSummaryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationResultDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
 
+import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelBulkService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.ETagUtil;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -22,6 +33,7 @@ import java.util.List;
 public class AASModelController {
 
     private final AASModelService aasModelService;
+    private final AASModelBulkService aasModelBulkService;
 
     /**
      * Returns a list of all AAS models owned by the authenticated user.
@@ -35,17 +47,44 @@ public class AASModelController {
         return ResponseEntity.ok(models);
     }
 
+    /**
+     * Returns one page of lightweight summaries of the authenticated user's models,
+     * most recently updated first. Full models are loaded via {@code GET /models/{id}}.
+     *
+     * @param cursor the nextCursor of the previous page (optional, omit for the first page)
+     * @param limit  the page size (default 20, max 100)
+     * @param jwt    the authentication token (to extract user id)
+     * @return the page of model summaries with the cursor of the next page (200 OK), or 400 for an invalid cursor
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<CursorPageDto<AASModelSummaryDto>> listAASModelSummaries(@RequestParam(required = false) String cursor,
+                                                                                  @RequestParam(defaultValue = "20") int limit,
+                                                                                  @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(aasModelService.getModelSummariesForUser(jwt.getSubject(), cursor, limit));
+    }
+
     /**
      * Retrieves a specific AAS model by its id if the user is the owner.
+     * If the If-None-Match header names the current version, only the version is looked up and 304 is returned.
      *
-     * @param id  the id of the model
-     * @param jwt the authentication token (to extract user id)
-     * @return the requested AASModelDto (200 OK), or 404/403 if not found/not permitted
+     * @param id          the id of the model
+     * @param ifNoneMatch the ETags of the model versions the client has cached (optional)
+     * @param jwt         the authentication token (to extract user id)
+     * @return the requested AASModelDto with its ETag (200 OK), 304 if the cached version is current, or 404/403 if not found/not permitted
      */
     @GetMapping("/{id}")
-    public ResponseEntity<AASModelDto> getAASModel(@PathVariable String id, @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<AASModelDto> getAASModel(@PathVariable String id,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @AuthenticationPrincipal Jwt jwt) {
+        if (ifNoneMatch != null) {
+            long version = aasModelService.getModelVersion(id, jwt.getSubject());
+            if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(ETagUtil.toETag(version)).cacheControl(ETagUtil.revalidate()).build();
+            }
+        }
         AASModelDto model = aasModelService.getModelById(id, jwt.getSubject());
-        return ResponseEntity.ok(model);
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(model.getVersion())).cacheControl(ETagUtil.revalidate()).body(model);
     }
 
     /**
@@ -61,18 +100,56 @@ public class AASModelController {
         return ResponseEntity.ok(saved);
     }
 
+    /**
+     * Executes many create, save, delete and publish operations on the authenticated user's models at once.
+     * Each operation is checked on its own; the response reports the status of every operation in request order.
+     *
+     * @param operations the operations (at most 500)
+     * @param jwt        the authentication token (to extract user id)
+     * @return one result per operation (200 OK), or 400 if no or too many operations are given
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkOperationResultDto>> bulkOperations(@RequestBody List<BulkOperationDto> operations,
+                                                                       @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(aasModelBulkService.execute(jwt.getSubject(), operations));
+    }
+
     /**
      * Updates and saves an existing AAS model owned by the authenticated user.
+     * If an If-Match header is sent, the model is only saved if it still has that version.
      *
-     * @param id  the id of the model to update
-     * @param dto the updated model data
-     * @param jwt the authentication token (to extract user id)
-     * @return the saved AASModelDto (200 OK)
+     * @param id      the id of the model to update
+     * @param dto     the updated model data
+     * @param ifMatch the ETag of the model version the client has read (optional)
+     * @param jwt     the authentication token (to extract user id)
+     * @return the saved AASModelDto with its new ETag (200 OK), or 412 if the model was modified in the meantime
      */
     @PutMapping("/{id}/save")
-    public ResponseEntity<AASModelDto> saveAASModel(@PathVariable String id, @RequestBody AASModelDto dto, @AuthenticationPrincipal Jwt jwt) {
-        AASModelDto saved = aasModelService.saveModel(id, jwt.getSubject(), dto);
-        return ResponseEntity.ok(saved);
+    public ResponseEntity<AASModelDto> saveAASModel(@PathVariable String id, @RequestBody AASModelDto dto,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                    @AuthenticationPrincipal Jwt jwt) {
+        Long expectedVersion = ETagUtil.parseIfMatch(ifMatch, () -> aasModelService.getModelVersion(id, jwt.getSubject()));
+        AASModelDto saved = aasModelService.saveModel(id, jwt.getSubject(), dto, expectedVersion);
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(saved.getVersion())).body(saved);
+    }
+
+    /**
+     * Applies a JSON Patch (RFC 6902) to an AAS model owned by the authenticated user.
+     * Only the parts of the model touched by the patch are validated and written.
+     *
+     * @param id      the id of the model to patch
+     * @param patch   the JSON Patch operations
+     * @param ifMatch the ETag of the model version the client has read (optional)
+     * @param jwt     the authentication token (to extract user id)
+     * @return 204 No Content with the new ETag, or 412 if the model was modified in the meantime
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchAASModel(@PathVariable String id, @RequestBody JsonNode patch,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @AuthenticationPrincipal Jwt jwt) {
+        Long expectedVersion = ETagUtil.parseIfMatch(ifMatch, () -> aasModelService.getModelVersion(id, jwt.getSubject()));
+        long version = aasModelService.patchModel(id, jwt.getSubject(), patch, expectedVersion);
+        return ResponseEntity.noContent().eTag(ETagUtil.toETag(version)).build();
     }
 
     /**
@@ -3,15 +3,24 @@ package org.DigiTwinStudio.DigiTwin_Backend.controller;
 import lombok.RequiredArgsConstructor;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJob;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkExportRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.ExportJobDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+import org.DigiTwinStudio.DigiTwin_Backend.services.BulkExportService;
+import org.DigiTwinStudio.DigiTwin_Backend.services.ExportJobService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.ExportService;
 
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * REST controller for exporting AAS models as downloadable files.
@@ -22,6 +31,8 @@ import org.springframework.web.bind.annotation.*;
 public class ExportController {
 
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
+    private final BulkExportService bulkExportService;
 
     /**
      * Exports a stored AAS model as a downloadable file in the specified format.
@@ -30,11 +41,11 @@ public class ExportController {
      * @param name    the desired filename (without extension)
      * @param format  the export format (e.g., JSON or AASX)
      * @param jwt     the authentication token (to extract user id)
-     * @return HTTP response with download headers and model bytes
+     * @return HTTP response with download headers, writing the model while it is sent
      * @throws ExportException if the model cannot be exported
      */
     @GetMapping("/models/{id}/{name}/export/{format}")
-    public ResponseEntity<byte[]> exportModel(
+    public ResponseEntity<StreamingResponseBody> exportModel(
             @PathVariable String id,
             @PathVariable String name,
             @PathVariable ExportFormat format,
@@ -48,6 +59,93 @@ public class ExportController {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;" +
                         " filename=\"" + exported.filename() + "\"")
                 .header(HttpHeaders.CONTENT_TYPE, exported.contentType())
-                .body(exported.bytes());
+                .body(exported.content());
+    }
+
+    /**
+     * Exports several stored AAS models as one ZIP archive with a file in the specified format per model.
+     *
+     * @param request the model IDs to export, or all models of the user
+     * @param format  the export format of the archive entries (e.g., JSON or AASX)
+     * @param jwt     the authentication token (to extract user id)
+     * @return HTTP response with download headers, writing the archive while it is sent
+     * @throws ExportException if a model cannot be exported
+     */
+    @PostMapping("/models/bulk/export/{format}")
+    public ResponseEntity<StreamingResponseBody> exportModels(
+            @RequestBody BulkExportRequestDto request,
+            @PathVariable ExportFormat format,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        ExportedFile exported = bulkExportService.export(request, format, jwt.getSubject());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;" +
+                        " filename=\"" + exported.filename() + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, exported.contentType())
+                .body(exported.content());
+    }
+
+    /**
+     * Starts exporting a stored AAS model in the background, for large exports that should not hold the request.
+     *
+     * @param id      the ID of the stored AAS model
+     * @param format  the export format (e.g., JSON or AASX)
+     * @param name    the desired filename (without extension), the model ID if omitted
+     * @param jwt     the authentication token (to extract user id)
+     * @return 202 Accepted with the queued job and its location, 429 if the user has too many export jobs,
+     * or 503 if too many exports are in progress
+     */
+    @PostMapping("/models/{id}/exports")
+    public ResponseEntity<ExportJobDto> startExportJob(
+            @PathVariable String id,
+            @RequestParam ExportFormat format,
+            @RequestParam(required = false) String name,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        ExportJobDto job = exportJobService.start(id, name, format, jwt.getSubject());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/exports/{jobId}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .body(job);
+    }
+
+    /**
+     * Returns state and progress of an export job, e.g. to poll until it completed.
+     *
+     * @param jobId   the ID of the export job
+     * @param jwt     the authentication token (to extract user id)
+     * @return the job, or 404 if the user has no such job
+     */
+    @GetMapping("/exports/{jobId}")
+    public ResponseEntity<ExportJobDto> getExportJob(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        return ResponseEntity.ok(exportJobService.getJob(jobId, jwt.getSubject()));
+    }
+
+    /**
+     * Downloads the file of a completed export job.
+     *
+     * @param jobId   the ID of the export job
+     * @param jwt     the authentication token (to extract user id)
+     * @return HTTP response with download headers and the exported file, or 409 if the job has not completed
+     */
+    @GetMapping("/exports/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        ExportJob job = exportJobService.getCompletedJob(jobId, jwt.getSubject());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;" +
+                        " filename=\"" + job.getFilename() + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, job.getFormat().getContentType())
+                .contentLength(job.getBytesWritten())
+                .body(new InputStreamResource(exportJobService.openFile(job)));
     }
 }
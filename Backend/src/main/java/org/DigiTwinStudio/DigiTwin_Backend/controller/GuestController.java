@@ -1,5 +1,7 @@
 package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import lombok.RequiredArgsConstructor;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
@@ -10,11 +12,14 @@ import org.DigiTwinStudio.DigiTwin_Backend.dtos.TemplateDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.UploadResponseDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 import org.DigiTwinStudio.DigiTwin_Backend.services.*;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.ETagUtil;
 
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -62,14 +67,14 @@ public class GuestController {
      *
      * @param modelId the ID of the AAS model
      * @param dto     the submodel data to attach
-     * @return the updated AAS model
+     * @return the attached submodel
      */
     @PostMapping("/models/{modelId}/submodels")
-    public ResponseEntity<AASModelDto> addSubmodelToModel(
+    public ResponseEntity<SubmodelDto> addSubmodelToModel(
             @PathVariable String modelId,
             @RequestBody SubmodelDto dto) {
-        AASModelDto updated = aasModelService.attachSubmodel(modelId, dto, "GUEST");
-        return ResponseEntity.ok(updated);
+        SubmodelDto attached = aasModelService.attachSubmodel(modelId, dto, "GUEST");
+        return ResponseEntity.ok(attached);
     }
 
     /**
@@ -94,14 +99,14 @@ public class GuestController {
      * @param modelId    the ID of the AAS model
      * @param submodelId the ID of the submodel
      * @param dto        the updated submodel data
-     * @return the updated AAS model
+     * @return the updated submodel
      */
     @PutMapping("/models/{modelId}/submodels/{submodelId}")
-    public ResponseEntity<AASModelDto> updateSubmodel(
+    public ResponseEntity<SubmodelDto> updateSubmodel(
             @PathVariable String modelId,
             @PathVariable String submodelId,
             @RequestBody SubmodelDto dto) {
-        AASModelDto updated = aasModelService.updateSubmodel(modelId, submodelId, dto, "GUEST");
+        SubmodelDto updated = aasModelService.updateSubmodel(modelId, submodelId, dto, "GUEST");
         return ResponseEntity.ok(updated);
     }
 
@@ -114,7 +119,7 @@ public class GuestController {
      * @return HTTP 204 No Content if successful
      */
     @DeleteMapping("/models/{modelId}/submodels/{submodelId}")
-    public ResponseEntity<AASModelDto> removeSubmodelFromModel(
+    public ResponseEntity<Void> removeSubmodelFromModel(
             @PathVariable String modelId,
             @PathVariable String submodelId) {
         aasModelService.removeSubmodel(modelId, submodelId, "GUEST");
@@ -137,16 +142,38 @@ public class GuestController {
      * Saves the AAS model for a guest user.
      * Guest user is identified as "GUEST".
      *
-     * @param id  the model ID
-     * @param dto the model data to save
-     * @return the saved model
+     * @param id      the model ID
+     * @param dto     the model data to save
+     * @param ifMatch the ETag of the model version the client has read (optional)
+     * @return the saved model with its new ETag, or 412 if the model was modified in the meantime
      */
     @PutMapping("/models/{id}/save")
     public ResponseEntity<AASModelDto> saveAASModelAsGuest(
             @PathVariable String id,
-            @RequestBody AASModelDto dto) {
-        AASModelDto saved = aasModelService.saveModel(id, "GUEST", dto);
-        return ResponseEntity.ok(saved);
+            @RequestBody AASModelDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ETagUtil.parseIfMatch(ifMatch, () -> aasModelService.getModelVersion(id, "GUEST"));
+        AASModelDto saved = aasModelService.saveModel(id, "GUEST", dto, expectedVersion);
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(saved.getVersion())).body(saved);
+    }
+
+    /**
+     * Applies a JSON Patch (RFC 6902) to the AAS model of a guest user.
+     * Guest user is identified as "GUEST".
+     *
+     * @param id      the model ID
+     * @param patch   the JSON Patch operations
+     * @param ifMatch the ETag of the model version the client has read (optional)
+     * @return 204 No Content with the new ETag, or 412 if the model was modified in the meantime
+     */
+    @PatchMapping(value = "/models/{id}", consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchAASModelAsGuest(
+            @PathVariable String id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ETagUtil.parseIfMatch(ifMatch, () -> aasModelService.getModelVersion(id, "GUEST"));
+        long version = aasModelService.patchModel(id, "GUEST", patch, expectedVersion);
+        return ResponseEntity.noContent().eTag(ETagUtil.toETag(version)).build();
     }
 
     /**
@@ -184,11 +211,11 @@ public class GuestController {
      * @param id      the ID of the stored AAS model
      * @param name    the desired filename (without extension) for the exported file
      * @param format  the export format (e.g., JSON or AASX)
-     * @return a {@link ResponseEntity} containing the model as a byte stream, download headers, and content type
+     * @return a {@link ResponseEntity} streaming the model, with download headers and content type
      * @throws ExportException if the model cannot be exported
      */
     @GetMapping("/models/{id}/{name}/export/{format}")
-    public ResponseEntity<byte[]> exportModel(
+    public ResponseEntity<StreamingResponseBody> exportModel(
             @PathVariable String id,
             @PathVariable String name,
             @PathVariable ExportFormat format) {
@@ -199,6 +226,6 @@ public class GuestController {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;" +
                         " filename=\"" + exported.filename() + "\"")
                 .header(HttpHeaders.CONTENT_TYPE, exported.contentType())
-                .body(exported.bytes());
+                .body(exported.content());
     }
 }
@@ -2,13 +2,23 @@ package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import lombok.RequiredArgsConstructor;
 
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedArtifact;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceFacetedSearchDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.SuggestionDto;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.MarketPlaceService;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.ETagUtil;
 
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -27,24 +37,68 @@ public class MarketplaceController {
     private final AASModelService aasModelService;
 
     /**
-     * Lists all published marketplace entries.
+     * Lists published marketplace entries one page at a time, newest first unless another order is requested.
      *
-     * @return all marketplace entries as DTOs
+     * @param sort   "newest", "downloads" or "trending" (optional, default newest)
+     * @param cursor the nextCursor of the previous page (optional, omit for the first page)
+     * @param limit  the page size (default 20, max 100)
+     * @return the page of marketplace entries with the cursor of the next page, or 400 for an invalid sort order or cursor
      */
     @GetMapping()
-    public ResponseEntity<List<MarketplaceEntryDto>> listAllEntries() {
-        return ResponseEntity.ok(marketPlaceService.listAllEntries());
+    public ResponseEntity<CursorPageDto<MarketplaceEntryDto>> listAllEntries(@RequestParam(required = false) String sort,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(marketPlaceService.listAllEntries(sort, cursor, limit));
     }
 
     /**
      * Gets the published AAS model for a marketplace entry.
+     * The model version is returned as strong ETag; a matching If-None-Match is answered with 304 without loading the model.
      *
-     * @param entryId the marketplace entry ID
-     * @return the published AAS model as DTO
+     * @param entryId     the marketplace entry ID
+     * @param ifNoneMatch the ETag of the client's cached copy (optional)
+     * @return the published AAS model as DTO, or 304 if the client's copy is current
      */
     @GetMapping("/{entryId}")
-    public ResponseEntity<AASModelDto> getModelByEntryId(@PathVariable String entryId) {
-        return ResponseEntity.ok(marketPlaceService.getPublishedModel(entryId));
+    public ResponseEntity<AASModelDto> getModelByEntryId(@PathVariable String entryId,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            long version = marketPlaceService.getPublishedVersion(entryId);
+            if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(ETagUtil.toETag(version)).cacheControl(ETagUtil.published()).build();
+            }
+        }
+        AASModelDto model = marketPlaceService.getPublishedModel(entryId);
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(model.getVersion())).cacheControl(ETagUtil.published()).body(model);
+    }
+
+    /**
+     * Downloads the published AAS model of a marketplace entry as JSON or AASX file.
+     * The file is rendered once per published version and streamed from storage; its SHA-256 digest is the strong ETag.
+     *
+     * @param entryId     the marketplace entry ID
+     * @param format      the export format (JSON or AASX)
+     * @param ifNoneMatch the ETag of the client's cached copy (optional)
+     * @return the file, or 304 if the client's copy is current
+     */
+    @GetMapping("/{entryId}/export/{format}")
+    public ResponseEntity<Resource> downloadEntry(@PathVariable String entryId,
+                                                  @PathVariable ExportFormat format,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PublishedArtifact artifact = marketPlaceService.getPublishedArtifact(entryId, format);
+        String eTag = ETagUtil.toContentETag(artifact.sha256());
+        if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(ETagUtil.published()).build();
+        }
+        Resource content = marketPlaceService.downloadPublishedArtifact(entryId, artifact);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(ETagUtil.published())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + artifact.filename() + "\"")
+                .contentType(MediaType.parseMediaType(artifact.contentType()))
+                .contentLength(artifact.size())
+                .body(content);
     }
 
     /**
@@ -72,13 +126,47 @@ public class MarketplaceController {
     }
 
     /**
-     * Searches marketplace entries using optional text, date, and tag filters.
+     * Returns typeahead suggestions for the search box: entry names, authors and tag names with a word starting
+     * with the typed text, most popular first.
+     *
+     * @param q     the typed text
+     * @param limit the number of suggestions (default 8, max 10)
+     * @return the suggestions, empty for blank input
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(@RequestParam(defaultValue = "") String q,
+                                                       @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(marketPlaceService.suggest(q, limit));
+    }
+
+    /**
+     * Searches marketplace entries using optional text, date, and tag filters, one page at a time.
      *
      * @param request search parameters
-     * @return list of matching entries as DTOs
+     * @param cursor  the nextCursor of the previous page of the same search (optional, omit for the first page)
+     * @param limit   the page size (default 20, max 100)
+     * @return the page of matching entries with the cursor of the next page, or 400 for an invalid cursor
      */
     @PostMapping("/search")
-    public ResponseEntity<List<MarketplaceEntryDto>> search(@RequestBody MarketplaceSearchRequest request) {
-        return ResponseEntity.ok(marketPlaceService.search(request));
+    public ResponseEntity<CursorPageDto<MarketplaceEntryDto>> search(@RequestBody MarketplaceSearchRequest request,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(marketPlaceService.search(request, cursor, limit));
+    }
+
+    /**
+     * Searches marketplace entries like {@link #search} and returns the facet counts of the whole result set with the page:
+     * the total number of hits, the hits per tag (ignoring the selected tags) and per publishing month.
+     *
+     * @param request search parameters
+     * @param cursor  the nextCursor of the previous page of the same search (optional, omit for the first page)
+     * @param limit   the page size (default 20, max 100)
+     * @return the page of matching entries with the cursor of the next page and the facet counts, or 400 for an invalid cursor
+     */
+    @PostMapping("/search/facets")
+    public ResponseEntity<MarketplaceFacetedSearchDto> searchWithFacets(@RequestBody MarketplaceSearchRequest request,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(marketPlaceService.searchWithFacets(request, cursor, limit));
     }
 }
@@ -2,13 +2,15 @@ package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import lombok.RequiredArgsConstructor;
 
-import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.SubmodelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.TemplateDto;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.TemplateService;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.ETagUtil;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -58,25 +60,34 @@ public class SubmodelController {
      * @param modelId the ID of the AAS model
      * @param dto the submodel to attach
      * @param jwt the JWT token of the authenticated user
-     * @return the updated AASModelDto
+     * @return the attached SubmodelDto
      */
     @PostMapping("/models/{modelId}/submodels")
-    public ResponseEntity<AASModelDto> addSubmodelToModel(@PathVariable String modelId, @RequestBody SubmodelDto dto, @AuthenticationPrincipal Jwt jwt) {
-        AASModelDto updated = aasModelService.attachSubmodel(modelId, dto, jwt.getSubject());
-        return ResponseEntity.ok(updated);
+    public ResponseEntity<SubmodelDto> addSubmodelToModel(@PathVariable String modelId, @RequestBody SubmodelDto dto, @AuthenticationPrincipal Jwt jwt) {
+        SubmodelDto attached = aasModelService.attachSubmodel(modelId, dto, jwt.getSubject());
+        return ResponseEntity.ok(attached);
     }
 
     /**
      * Retrieves a specific submodel by model ID and submodel ID.
+     * The ETag is the version of the model; if the If-None-Match header names it, 304 is returned without loading the submodel.
      *
      * @param modelId the ID of the AAS model
      * @param submodelId the ID of the submodel to retrieve
-     * @return the requested SubmodelDto
+     * @param ifNoneMatch the ETags the client has cached (optional)
+     * @return the requested SubmodelDto with its ETag, or 304 if the cached version is current
      */
     @GetMapping("/models/{modelId}/submodels/{submodelId}")
-    public ResponseEntity<SubmodelDto> getSubmodel(@PathVariable String modelId, @PathVariable String submodelId) {
+    public ResponseEntity<SubmodelDto> getSubmodel(@PathVariable String modelId, @PathVariable String submodelId,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // read before the submodel, so the ETag is never newer than the returned content
+        long version = submodelService.getModelVersion(modelId);
+        if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(ETagUtil.toETag(version)).cacheControl(ETagUtil.revalidate()).build();
+        }
         SubmodelDto dto = submodelService.getSubmodel(modelId, submodelId);
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(version)).cacheControl(ETagUtil.revalidate()).body(dto);
     }
 
     /**
@@ -87,11 +98,11 @@ public class SubmodelController {
      * @param submodelId the ID of the submodel to update
      * @param dto the updated submodel
      * @param jwt the JWT token of the authenticated user
-     * @return the updated AASModelDto
+     * @return the updated SubmodelDto
      */
     @PutMapping("/models/{modelId}/submodels/{submodelId}")
-    public ResponseEntity<AASModelDto> updateSubmodel(@PathVariable String modelId, @PathVariable String submodelId, @RequestBody SubmodelDto dto, @AuthenticationPrincipal Jwt jwt) {
-        AASModelDto updated = aasModelService.updateSubmodel(modelId, submodelId, dto, jwt.getSubject());
+    public ResponseEntity<SubmodelDto> updateSubmodel(@PathVariable String modelId, @PathVariable String submodelId, @RequestBody SubmodelDto dto, @AuthenticationPrincipal Jwt jwt) {
+        SubmodelDto updated = aasModelService.updateSubmodel(modelId, submodelId, dto, jwt.getSubject());
         return ResponseEntity.ok(updated);
     }
 
@@ -104,7 +115,7 @@ public class SubmodelController {
      * @return HTTP 204 No Content if removal was successful
      */
     @DeleteMapping("/models/{modelId}/submodels/{submodelId}")
-    public ResponseEntity<AASModelDto> removeSubmodelFromModel(@PathVariable String modelId, @PathVariable String submodelId, @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<Void> removeSubmodelFromModel(@PathVariable String modelId, @PathVariable String submodelId, @AuthenticationPrincipal Jwt jwt) {
         aasModelService.removeSubmodel(modelId, submodelId, jwt.getSubject());
         return ResponseEntity.noContent().build();
     }
@@ -6,6 +6,8 @@ import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShe
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -15,6 +17,14 @@ import java.util.List;
  * Represents an Asset Administration Shell (AAS) model entity stored in the database.
  */
 @Document("AASModels")
+@CompoundIndexes({
+        // serves the owner's model listing sorted by last update (keyset pagination)
+        @CompoundIndex(name = "owner_updatedAt_id", def = "{'ownerId': 1, 'updatedAt': -1, '_id': -1}"),
+        // finds the models with marketplace side effects to dispatch; models without pending events are not indexed
+        @CompoundIndex(name = "pendingEvents_nextAttemptAt", def = "{'pendingEvents.0.nextAttemptAt': 1}", sparse = true),
+        // finds the adopted models that still read from a published snapshot; other models are not indexed
+        @CompoundIndex(name = "sourceSnapshotId", def = "{'sourceSnapshotId': 1}", sparse = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,6 +40,18 @@ public class AASModel {
 
     private List<DefaultSubmodel> submodels;
 
+    // IDs of the submodels stored in the separate submodel collection; null while submodels are embedded
+    private List<String> submodelRefs;
+
+    // IDs of the submodel documents in the order of submodelRefs; null for models externalized before documents were versioned
+    private List<String> submodelDocumentIds;
+
+    // published snapshot this model was adopted from; its submodels are read from there until the first edit, null afterwards
+    private String sourceSnapshotId;
+
+    // number of submodels of the source snapshot, so listings do not have to read the snapshot; null once materialized
+    private Integer snapshotSubmodelCount;
+
     private PublishMetadata publishMetadata;
 
     private boolean published;
@@ -37,4 +59,10 @@ public class AASModel {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    // revision counter, incremented on every write and used as optimistic concurrency guard
+    private long version;
+
+    // transactional outbox: marketplace side effects of publish and unpublish that are not applied yet, oldest first
+    private List<OutboxEvent> pendingEvents;
 }
@@ -0,0 +1,29 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of an {@link AASModel} used for listings.
+ * Contains only the fields needed to render a model list, not the shell or submodel contents.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AASModelSummary {
+
+    private String id;
+
+    // idShort of the asset administration shell
+    private String idShort;
+
+    private int submodelCount;
+
+    private boolean published;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * Represents a supplementary file of an AASX package: its path in the package and its content,
+ * which is only opened while the file is written into the package.
+ */
+public record AasxAttachment(String path, InputStreamSource content) {
+}
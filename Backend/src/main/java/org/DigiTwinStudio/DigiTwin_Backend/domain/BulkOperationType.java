@@ -0,0 +1,27 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Operations that can be combined in one bulk request on AAS models.
+ */
+public enum BulkOperationType {
+
+    /**
+     * Creates a new model.
+     */
+    CREATE,
+
+    /**
+     * Replaces shell and submodels of an existing model.
+     */
+    SAVE,
+
+    /**
+     * Permanently deletes a model and its files.
+     */
+    DELETE,
+
+    /**
+     * Publishes a model in the marketplace.
+     */
+    PUBLISH
+}
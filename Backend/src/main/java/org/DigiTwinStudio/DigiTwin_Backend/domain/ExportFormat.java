@@ -1,18 +1,26 @@
 package org.DigiTwinStudio.DigiTwin_Backend.domain;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
 /**
  * Supported export formats for AAS models.
  */
+@Getter
+@RequiredArgsConstructor
 public enum ExportFormat {
 
     /**
      * JSON file format.
      */
-    JSON,
+    JSON("json", "application/json"),
 
     /**
      * AASX file format.
      */
-    AASX
-}
+    AASX("aasx", "application/asset-administration-shell-package");
 
+    private final String fileExtension;
+
+    private final String contentType;
+}
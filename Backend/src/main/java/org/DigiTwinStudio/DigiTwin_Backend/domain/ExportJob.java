@@ -0,0 +1,113 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An export of a stored model that runs in the background and writes its result to a local file.
+ * The export thread updates status and progress while requests read them, so all mutable state is thread-safe.
+ */
+@Getter
+public class ExportJob implements ExportProgress {
+
+    private final String id;
+    private final String modelId;
+    private final String ownerId;
+    private final ExportFormat format;
+    private final String filename;
+    private final Path file;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    private final AtomicInteger filesPacked = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    // guarded by this: the file is only deleted once the job is removed and no download reads it anymore
+    private int openDownloads;
+    private boolean removed;
+
+    public ExportJob(String id, String modelId, String ownerId, ExportFormat format, String filename, Path file) {
+        this.id = id;
+        this.modelId = modelId;
+        this.ownerId = ownerId;
+        this.format = format;
+        this.filename = filename;
+        this.file = file;
+    }
+
+    public int getFilesPacked() {
+        return filesPacked.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public void filePacked() {
+        filesPacked.incrementAndGet();
+    }
+
+    public void addBytesWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void markRunning() {
+        status = ExportJobStatus.RUNNING;
+    }
+
+    public void markCompleted() {
+        finishedAt = LocalDateTime.now();
+        status = ExportJobStatus.COMPLETED;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = ExportJobStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == ExportJobStatus.COMPLETED || status == ExportJobStatus.FAILED;
+    }
+
+    /**
+     * Registers a download that starts reading the file.
+     *
+     * @return false if the job was removed in the meantime, so its file is gone
+     */
+    public synchronized boolean openDownload() {
+        if (removed) {
+            return false;
+        }
+        openDownloads++;
+        return true;
+    }
+
+    /**
+     * Ends a download registered by {@link #openDownload()}.
+     *
+     * @return true if the job was removed and this was its last download, so the file can be deleted
+     */
+    public synchronized boolean closeDownload() {
+        openDownloads--;
+        return removed && openDownloads == 0;
+    }
+
+    /**
+     * Marks the job as removed, so no further downloads start.
+     *
+     * @return true if no download reads the file, so it can be deleted right away
+     */
+    public synchronized boolean markRemoved() {
+        removed = true;
+        return openDownloads == 0;
+    }
+}
@@ -0,0 +1,27 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * States of an asynchronous export job.
+ */
+public enum ExportJobStatus {
+
+    /**
+     * The job waits for a free export thread.
+     */
+    QUEUED,
+
+    /**
+     * The export file is being written.
+     */
+    RUNNING,
+
+    /**
+     * The export file is complete and can be downloaded.
+     */
+    COMPLETED,
+
+    /**
+     * The export failed; the job keeps the error message.
+     */
+    FAILED
+}
@@ -0,0 +1,18 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Receives the progress of an export while it is written.
+ */
+@FunctionalInterface
+public interface ExportProgress {
+
+    /**
+     * Ignores all progress, for exports nobody observes.
+     */
+    ExportProgress NONE = () -> { };
+
+    /**
+     * Called after an uploaded file was copied into an AASX package.
+     */
+    void filePacked();
+}
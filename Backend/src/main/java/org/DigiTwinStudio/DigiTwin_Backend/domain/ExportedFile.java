@@ -1,7 +1,10 @@
 package org.DigiTwinStudio.DigiTwin_Backend.domain;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 /**
- * Represents a file to be exported, including its bytes, filename, and content type.
+ * Represents a file to be exported, including its content, filename, and content type.
+ * The content is written directly to the HTTP response, so large files are never held in memory as a whole.
  */
-public record ExportedFile(byte[] bytes, String filename, String contentType) {
+public record ExportedFile(StreamingResponseBody content, String filename, String contentType) {
 }
@@ -3,6 +3,8 @@ package org.DigiTwinStudio.DigiTwin_Backend.domain;
 import lombok.*;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.IndexDirection;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.index.TextIndexed;
@@ -16,6 +18,12 @@ import java.util.List;
  * Entity for a marketplace entry referencing an AAS model.
  */
 @Document("marketplaceEntries")
+@CompoundIndexes({
+        @CompoundIndex(name = "publishedAt_id", def = "{'publishedAt': -1, '_id': -1}"),
+        // serve the popularity orders directly from the index
+        @CompoundIndex(name = "downloadCount_id", def = "{'downloadCount': -1, '_id': -1}"),
+        @CompoundIndex(name = "trendingScore_id", def = "{'trendingScore': -1, '_id': -1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,7 +54,10 @@ public class MarketplaceEntry {
 
     private int downloadCount;
 
-    // relevance for search
+    // time-decayed download score, see TrendingScoreUtil
+    private double trendingScore;
+
+    // relevance for search, Double so it round-trips exactly through pagination cursors
     @TextScore
-    private Float score;
+    private Double score;
 }
@@ -0,0 +1,27 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Orders in which marketplace entries can be listed and searched.
+ */
+public enum MarketplaceSortOrder {
+
+    /**
+     * Most recently published first; the default without search text.
+     */
+    NEWEST,
+
+    /**
+     * Best text match first; the default with search text.
+     */
+    RELEVANCE,
+
+    /**
+     * Most downloaded first.
+     */
+    DOWNLOADS,
+
+    /**
+     * Most downloaded recently first, see {@link org.DigiTwinStudio.DigiTwin_Backend.utils.TrendingScoreUtil}.
+     */
+    TRENDING
+}
@@ -0,0 +1,39 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marketplace side effect of a publish or unpublish, stored in the outbox of the model document.
+ * It is written by the same single-document update as the change itself, so either both or neither are stored,
+ * and applied afterwards by {@link org.DigiTwinStudio.DigiTwin_Backend.services.MarketplaceOutboxDispatcher}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    private String id;
+
+    private OutboxEventType type;
+
+    // the published metadata, or for UNPUBLISHED the metadata being withdrawn
+    private PublishMetadata publishMetadata;
+
+    // name of the marketplace entry, taken from the shell idShort when publishing
+    private String name;
+
+    private LocalDateTime createdAt;
+
+    // failed dispatch attempts; the dispatcher waits until nextAttemptAt before retrying
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private String lastError;
+}
@@ -0,0 +1,17 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Kinds of marketplace side effects recorded in the outbox of a model.
+ */
+public enum OutboxEventType {
+
+    /**
+     * The model was published: create its marketplace entry and count its tags.
+     */
+    PUBLISHED,
+
+    /**
+     * The model was unpublished: remove its marketplace entry and uncount its tags.
+     */
+    UNPUBLISHED
+}
@@ -27,4 +27,8 @@ public class PublishMetadata {
     private List<String> tagIds;
 
     private LocalDateTime publishedAt;
+
+    // model version that was published, its content is kept in the PublishedSnapshot of this version;
+    // null for models published before the published version was kept
+    private Long modelVersion;
 }
@@ -0,0 +1,7 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Describes a pre-rendered export file of a published marketplace entry, ready to be streamed from GridFS.
+ */
+public record PublishedArtifact(String storagePath, long size, String filename, String contentType, String sha256) {
+}
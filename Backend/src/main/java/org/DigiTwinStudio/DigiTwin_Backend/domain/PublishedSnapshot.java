@@ -0,0 +1,88 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.*;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of a published {@link AASModel} at one model version.
+ * Models adopted from the marketplace reference a snapshot instead of duplicating its content,
+ * and marketplace downloads stream the export files rendered once from it.
+ */
+@Document("publishedSnapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PublishedSnapshot {
+
+    // "<entryId>:<modelVersion>", deterministic so that concurrent adoptions share one snapshot
+    @Id
+    private String id;
+
+    @Indexed
+    private String entryId;
+
+    private long modelVersion;
+
+    private DefaultAssetAdministrationShell aas;
+
+    private List<DefaultSubmodel> submodels;
+
+    // number of submodels, so it can be read from the header; null for snapshots taken before it was stored
+    private Integer submodelCount;
+
+    private LocalDateTime createdAt;
+
+    // export files per format, rendered when the snapshot is created or on the first download
+    private Map<ExportFormat, SnapshotArtifact> artifacts;
+
+    /**
+     * Builds the snapshot ID of a published model version.
+     *
+     * @param entryId      the marketplace entry (and model) ID
+     * @param modelVersion the model version
+     * @return the snapshot ID
+     */
+    public static String idOf(String entryId, long modelVersion) {
+        return entryId + ":" + modelVersion;
+    }
+
+    /**
+     * Builds the ID of the snapshot holding the published content of a model.
+     * Models published before the published version was kept are served from the snapshot of their current version.
+     *
+     * @param model the published model, at least its header
+     * @return the snapshot ID
+     */
+    public static String publishedIdOf(AASModel model) {
+        PublishMetadata metadata = model.getPublishMetadata();
+        return idOf(model.getId(), metadata != null && metadata.getModelVersion() != null
+                ? metadata.getModelVersion() : model.getVersion());
+    }
+
+    /**
+     * Returns the model the snapshot was taken from, as far as exports and the marketplace need it.
+     * Uploaded files are looked up by the entry ID, which is the ID of the original model.
+     *
+     * @return the published model content
+     */
+    public AASModel toModel() {
+        return AASModel.builder()
+                .id(entryId)
+                .aas(aas)
+                .submodels(submodels == null ? List.of() : submodels)
+                .published(true)
+                .version(modelVersion)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.*;
+
+/**
+ * Export file of a {@link PublishedSnapshot}, rendered once and stored in GridFS.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SnapshotArtifact {
+
+    // GridFS file ID
+    private String storagePath;
+
+    private String contentType;
+
+    private long size;
+
+    // SHA-256 of the content, hex encoded; used as strong ETag
+    private String sha256;
+}
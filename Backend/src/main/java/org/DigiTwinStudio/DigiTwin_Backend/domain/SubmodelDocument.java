@@ -0,0 +1,77 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+import lombok.*;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A single submodel of an {@link AASModel} stored in its own document (externalized layout).
+ * The owning model only keeps the submodel IDs in {@link AASModel#getSubmodelRefs()} and the document IDs in
+ * {@link AASModel#getSubmodelDocumentIds()}.
+ * <p>
+ * Documents are never overwritten: a changed submodel is written as a new document, which the model references only
+ * after it was stored. Documents that no model references any more are removed by
+ * {@link org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelStorageService#removeOrphanedSubmodels()}.
+ * </p>
+ */
+@Document("submodels")
+@CompoundIndex(name = "model_idShort", def = "{'modelId': 1, 'idShort': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SubmodelDocument {
+
+    // "<modelId>:<submodelId>:<version>:<random>", unique per write; "<modelId>:<submodelId>" for documents written before
+    @Id
+    private String id;
+
+    @Indexed
+    private String modelId;
+
+    // copy of submodel.idShort for lookups by idShort
+    private String idShort;
+
+    private DefaultSubmodel submodel;
+
+    // unreferenced documents are only removed some time after they were written, so pending writes are not affected
+    @Indexed
+    private LocalDateTime createdAt;
+
+    /**
+     * Builds the document ID a submodel had before documents were versioned.
+     *
+     * @param modelId    the model ID
+     * @param submodelId the submodel ID
+     * @return the document ID
+     */
+    public static String idOf(String modelId, String submodelId) {
+        return modelId + ":" + submodelId;
+    }
+
+    /**
+     * Wraps a submodel into a new document belonging to the given model.
+     *
+     * @param modelId  the model ID
+     * @param submodel the submodel
+     * @param version  the model version the document is written for
+     * @return the submodel document with an ID that no other document has
+     */
+    public static SubmodelDocument of(String modelId, DefaultSubmodel submodel, long version) {
+        return SubmodelDocument.builder()
+                .id(idOf(modelId, submodel.getId()) + ":" + version + ":" + UUID.randomUUID())
+                .modelId(modelId)
+                .idShort(submodel.getIdShort())
+                .submodel(submodel)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package org.DigiTwinStudio.DigiTwin_Backend.domain;
+
+/**
+ * Kinds of marketplace search suggestions.
+ */
+public enum SuggestionType {
+
+    /**
+     * Name of a marketplace entry.
+     */
+    ENTRY,
+
+    /**
+     * Author of one or more marketplace entries.
+     */
+    AUTHOR,
+
+    /**
+     * Name of a tag.
+     */
+    TAG
+}
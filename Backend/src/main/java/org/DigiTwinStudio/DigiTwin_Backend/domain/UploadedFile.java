@@ -38,4 +38,7 @@ public class UploadedFile {
     private String ownerId;
 
     private LocalDateTime uploadedAt;
+
+    // number of additional references from published snapshots and adopted models; the file is deleted when the last one is released
+    private long sharedRefs;
 }
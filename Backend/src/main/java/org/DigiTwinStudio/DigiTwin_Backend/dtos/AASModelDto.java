@@ -30,4 +30,6 @@ public class AASModelDto {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    private long version;
 }
@@ -0,0 +1,27 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight data transfer object for listing AAS models without their contents.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AASModelSummaryDto {
+
+    private String id;
+
+    private String idShort;
+
+    private int submodelCount;
+
+    private boolean published;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
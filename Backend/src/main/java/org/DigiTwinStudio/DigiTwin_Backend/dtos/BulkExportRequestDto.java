@@ -0,0 +1,21 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO selecting the models of a bulk export: either a list of model IDs or all models of the user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkExportRequestDto {
+
+    // models to export, in the order of the archive entries; must be empty if allModels is set
+    private List<String> modelIds;
+
+    // export every model of the user, most recently updated first
+    private boolean allModels;
+}
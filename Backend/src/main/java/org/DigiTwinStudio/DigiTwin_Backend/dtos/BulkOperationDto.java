@@ -0,0 +1,29 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.BulkOperationType;
+
+/**
+ * DTO for a single operation of a bulk request on AAS models.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOperationDto {
+
+    private BulkOperationType type;
+
+    // target model, required for all operations except CREATE
+    private String modelId;
+
+    // model data for CREATE and SAVE
+    private AASModelDto model;
+
+    // publish metadata for PUBLISH
+    private PublishRequestDto publishRequest;
+
+    // version the client has read (like If-Match), optional
+    private Long expectedVersion;
+}
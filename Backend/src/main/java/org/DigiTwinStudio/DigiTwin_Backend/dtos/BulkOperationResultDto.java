@@ -0,0 +1,31 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.BulkOperationType;
+
+/**
+ * DTO for the outcome of a single operation of a bulk request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOperationResultDto {
+
+    // position of the operation in the request
+    private int index;
+
+    private BulkOperationType type;
+
+    private String modelId;
+
+    // HTTP status the operation would have had as a single request
+    private int status;
+
+    // new model version, null if the operation failed or deleted the model
+    private Long version;
+
+    // error message, null if the operation succeeded
+    private String error;
+}
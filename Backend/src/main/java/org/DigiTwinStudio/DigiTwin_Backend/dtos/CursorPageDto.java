@@ -0,0 +1,22 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param <T> the type of the listed items
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageDto<T> {
+
+    private List<T> items;
+
+    // opaque token to request the following page, null if this is the last page
+    private String nextCursor;
+}
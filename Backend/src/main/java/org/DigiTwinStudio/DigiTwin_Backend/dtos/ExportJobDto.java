@@ -0,0 +1,39 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJobStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the state and progress of an asynchronous export job.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExportJobDto {
+
+    private String id;
+
+    private String modelId;
+
+    private ExportFormat format;
+
+    private String filename;
+
+    private ExportJobStatus status;
+
+    // uploaded files already copied into the AASX package; stays 0 for JSON and for exports served from the export cache
+    private int filesPacked;
+
+    private long bytesWritten;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+
+    private String error;
+}
@@ -0,0 +1,20 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one bucket of a search facet, e.g. a tag or a publishing month, with its number of matching entries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetCountDto {
+
+    private String value;
+
+    private long count;
+}
@@ -0,0 +1,29 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * One page of a marketplace search together with the facet counts of the whole result set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MarketplaceFacetedSearchDto {
+
+    private List<MarketplaceEntryDto> items;
+
+    // opaque token to request the following page, null if this is the last page
+    private String nextCursor;
+
+    // number of entries matching the search
+    private long total;
+
+    // matching entries per tag, most frequent first; ignores the selected tags so other tags can be offered
+    private List<FacetCountDto> tags;
+
+    // matching entries per publishing month ("yyyy-MM"), oldest first
+    private List<FacetCountDto> publishedMonths;
+}
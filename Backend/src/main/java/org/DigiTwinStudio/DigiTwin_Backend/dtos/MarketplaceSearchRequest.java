@@ -22,4 +22,6 @@ public class MarketplaceSearchRequest {
     private LocalDateTime publishedAfter;   // "newer than"
 
     private List<String> tagIds;
+
+    private String sort;                    // "newest", "relevance", "downloads" or "trending"; null for the default
 }
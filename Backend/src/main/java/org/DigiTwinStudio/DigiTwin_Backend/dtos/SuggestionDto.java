@@ -0,0 +1,28 @@
+package org.DigiTwinStudio.DigiTwin_Backend.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SuggestionType;
+
+/**
+ * DTO for one typeahead suggestion of the marketplace search box.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionDto {
+
+    private String text;
+
+    private SuggestionType type;
+
+    // entry or tag ID, null for authors
+    private String id;
+
+    // download count of the entry or the author's entries, usage count of the tag
+    private long popularity;
+}
@@ -0,0 +1,18 @@
+package org.DigiTwinStudio.DigiTwin_Backend.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown to indicate a 412 Precondition Failed error, e.g. when an If-Match version no longer matches.
+ */
+public class PreconditionFailedException extends ValidationException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getHttpStatus() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+}
@@ -0,0 +1,18 @@
+package org.DigiTwinStudio.DigiTwin_Backend.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown to indicate a 503 Service Unavailable error, e.g. when the export queue is full.
+ */
+public class ServiceUnavailableException extends ValidationException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getHttpStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
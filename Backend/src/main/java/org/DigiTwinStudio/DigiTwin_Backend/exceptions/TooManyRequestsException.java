@@ -0,0 +1,18 @@
+package org.DigiTwinStudio.DigiTwin_Backend.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown to indicate a 429 Too Many Requests error, e.g. when a user has too many export jobs.
+ */
+public class TooManyRequestsException extends ValidationException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getHttpStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.services.TemplateService;
 
@@ -28,9 +29,10 @@ public class StartUp implements ApplicationListener<ApplicationReadyEvent> {
 
     private final TemplateService templateService;
     private final TagRepository tagRepository;
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
 
     /**
-     * Called when the application is ready; initializes templates and tags.
+     * Called when the application is ready; initializes templates, tags and marketplace trending scores.
      *
      * @param event the ready event
      */
@@ -60,6 +62,15 @@ public class StartUp implements ApplicationListener<ApplicationReadyEvent> {
             log.error("Tag initialization failed", e);
             log.warn("Tags may be out of date or not initialized!");
         }
+
+        log.info("Initialize marketplace trending scores.");
+        try {
+            long initialized = marketPlaceEntryRepository.initializeTrendingScores();
+            log.info("Initialized trending scores of {} marketplace entries.", initialized);
+        } catch (RuntimeException e) {
+            log.error("Trending score initialization failed", e);
+            log.warn("Older marketplace entries may be missing from the trending order!");
+        }
         log.info("StartUp completed.");
     }
 
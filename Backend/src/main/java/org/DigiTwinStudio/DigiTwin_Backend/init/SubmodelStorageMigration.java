@@ -0,0 +1,41 @@
+package org.DigiTwinStudio.DigiTwin_Backend.init;
+
+import com.mongodb.lang.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelStorageService;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves embedded submodels of existing models into the submodel collection when the application starts.
+ * Only active if {@code digitwin.submodel-storage.migrate=true}; models that are changed during the
+ * migration are skipped and converted on the next run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "digitwin.submodel-storage.migrate", havingValue = "true")
+public class SubmodelStorageMigration implements ApplicationRunner {
+
+    private final SubmodelStorageService submodelStorageService;
+
+    /**
+     * Runs the submodel migration.
+     *
+     * @param args the application arguments
+     */
+    @Override
+    public void run(@NonNull ApplicationArguments args) {
+        log.info("Migrating embedded submodels into the submodel collection.");
+        try {
+            submodelStorageService.externalizeAll();
+        } catch (RuntimeException e) {
+            log.error("Submodel migration failed", e);
+        }
+    }
+}
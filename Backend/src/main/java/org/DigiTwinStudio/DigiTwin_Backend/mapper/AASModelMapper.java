@@ -4,7 +4,9 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelSummaryDto;
 
 /**
  * Maps between AASModel entities and their DTOs.
@@ -29,4 +31,12 @@ public interface AASModelMapper {
      */
     @Mapping(target = "ownerId", ignore = true)
     AASModel fromDto(AASModelDto dto, String ownerId);
+
+    /**
+     * Converts a model summary projection to its DTO.
+     *
+     * @param summary the summary projection
+     * @return the summary DTO
+     */
+    AASModelSummaryDto toSummaryDto(AASModelSummary summary);
 }
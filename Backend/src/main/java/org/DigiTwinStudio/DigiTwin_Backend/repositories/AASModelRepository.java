@@ -12,9 +12,10 @@ import java.util.Optional;
 
 /**
  * Repository for accessing aas model data.
+ * Submodel-level in-place updates are provided by {@link AASModelRepositoryCustom}.
  */
 @Repository
-public interface AASModelRepository extends MongoRepository<AASModel, String> {
+public interface AASModelRepository extends MongoRepository<AASModel, String>, AASModelRepositoryCustom {
 
     /**
      * Retrieves a model by its unique ID.
@@ -0,0 +1,326 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEvent;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Custom persistence operations for aas models that modify a model in place
+ * instead of loading and rewriting the whole model document.
+ * <p>
+ * Every write is guarded by the model {@code version}: it only applies if the stored version still
+ * equals {@code expectedVersion} and increments it on success.
+ * </p>
+ */
+public interface AASModelRepositoryCustom {
+
+    /**
+     * New shell and submodels for one model of a bulk write.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param aas             the new asset administration shell
+     * @param submodels       the new submodels
+     */
+    record ContentReplacement(String modelId, long expectedVersion, DefaultAssetAdministrationShell aas,
+                              List<DefaultSubmodel> submodels) {
+    }
+
+    /**
+     * One model deletion of a bulk write.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     */
+    record Deletion(String modelId, long expectedVersion) {
+    }
+
+    /**
+     * Loads only the lightweight header of a model (owner, version, flags, timestamps, publish metadata, snapshot
+     * reference and submodel IDs of either storage layout), without the submodel contents.
+     *
+     * @param id the model ID
+     * @return an Optional containing the model header, or empty if not found
+     */
+    Optional<AASModel> findHeaderById(String id);
+
+    /**
+     * Loads only owner and version of a model, e.g. to answer conditional requests.
+     *
+     * @param id the model ID
+     * @return an Optional containing the model with owner and version set, or empty if not found
+     */
+    Optional<AASModel> findVersionById(String id);
+
+    /**
+     * Loads the headers of several models with a single query, see {@link #findHeaderById(String)}.
+     *
+     * @param ids the model IDs
+     * @return the headers of the models that exist, in no particular order
+     */
+    List<AASModel> findHeadersByIds(Collection<String> ids);
+
+    /**
+     * Finds which of the given published snapshots are still read by adopted models.
+     *
+     * @param snapshotIds the snapshot IDs
+     * @return the IDs of the snapshots referenced by at least one model
+     */
+    Set<String> findReferencedSnapshotIds(Collection<String> snapshotIds);
+
+    /**
+     * Replaces the content of models with embedded submodels and deletes models in a single unordered bulk write.
+     * Each replacement only applies if the model still has its expected version, belongs to the owner and
+     * neither stores its submodels externally nor references a published snapshot.
+     * Each deletion only applies if the model still has its expected version and belongs to the owner.
+     *
+     * @param ownerId      the owner all models must belong to
+     * @param replacements the content replacements
+     * @param deletions    the models to delete
+     * @param updatedAt    the new modification timestamp of the replaced models
+     * @return the result of the bulk write; fewer matches than replacements or fewer deletions than requested
+     *         mean that some operations did not apply
+     */
+    BulkWriteResult replaceAndDeleteInBulk(String ownerId, List<ContentReplacement> replacements,
+                                           List<Deletion> deletions, LocalDateTime updatedAt);
+
+    /**
+     * Appends a submodel to the model if no submodel with the same ID exists yet.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param submodel        the submodel to append
+     * @param updatedAt       the new modification timestamp
+     * @return true if the submodel was appended, false if the version did not match or the ID already exists
+     */
+    boolean pushSubmodel(String modelId, long expectedVersion, DefaultSubmodel submodel, LocalDateTime updatedAt);
+
+    /**
+     * Replaces the submodel with the given ID.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param submodelId      the ID of the submodel to replace
+     * @param submodel        the new submodel
+     * @param updatedAt       the new modification timestamp
+     * @return true if the submodel was replaced, false if the version did not match or the submodel is missing
+     */
+    boolean setSubmodel(String modelId, long expectedVersion, String submodelId, DefaultSubmodel submodel, LocalDateTime updatedAt);
+
+    /**
+     * Removes the submodel with the given ID.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param submodelId      the ID of the submodel to remove
+     * @param updatedAt       the new modification timestamp
+     * @return true if the submodel was removed, false if the version did not match or the submodel is missing
+     */
+    boolean pullSubmodel(String modelId, long expectedVersion, String submodelId, LocalDateTime updatedAt);
+
+    /**
+     * Loads a single submodel of a model without the other submodels.
+     *
+     * @param modelId    the model ID
+     * @param submodelId the submodel ID
+     * @return an Optional containing the submodel, or empty if the model or submodel does not exist
+     */
+    Optional<DefaultSubmodel> findSubmodel(String modelId, String submodelId);
+
+    /**
+     * Loads a single embedded submodel of a model by its idShort without the other submodels.
+     *
+     * @param modelId the model ID
+     * @param idShort the submodel idShort
+     * @return an Optional containing the submodel, or empty if the model or submodel does not exist
+     */
+    Optional<DefaultSubmodel> findSubmodelByIdShort(String modelId, String idShort);
+
+    /**
+     * Replaces shell and submodels of a model with embedded submodels owned by the given user in a single write,
+     * keeping its ID, creation date and publish state.
+     *
+     * @param modelId         the model ID
+     * @param ownerId         the owner the model must belong to
+     * @param expectedVersion the version the caller has read, or null to overwrite unconditionally
+     * @param aas             the new asset administration shell
+     * @param submodels       the new submodels
+     * @param updatedAt       the new modification timestamp
+     * @return an Optional containing the updated model, or empty if the model is missing, owned by someone else,
+     *         stores its submodels externally, still references a published snapshot or its version did not match
+     */
+    Optional<AASModel> replaceContent(String modelId, String ownerId, Long expectedVersion,
+                                      DefaultAssetAdministrationShell aas, List<DefaultSubmodel> submodels,
+                                      LocalDateTime updatedAt);
+
+    /**
+     * Loads only the asset administration shell of a model.
+     *
+     * @param modelId the model ID
+     * @return an Optional containing the shell, or empty if the model does not exist or has no shell
+     */
+    Optional<DefaultAssetAdministrationShell> findAas(String modelId);
+
+    /**
+     * Replaces the shell and/or individual embedded submodels of a model in a single write.
+     * Submodels that are not part of {@code submodels} are neither read nor written.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param aas             the new asset administration shell, or null to keep the stored one
+     * @param submodels       the new submodels by the ID of the submodel they replace
+     * @param updatedAt       the new modification timestamp
+     * @return true if the model was updated, false if the version did not match or the submodels are stored externally
+     */
+    boolean patchEmbeddedContent(String modelId, long expectedVersion, DefaultAssetAdministrationShell aas,
+                                 Map<String, DefaultSubmodel> submodels, LocalDateTime updatedAt);
+
+    /**
+     * Replaces the shell and/or the submodel references of a model with externally stored submodels
+     * and marks the model as modified. The referenced submodel documents must have been written before.
+     *
+     * @param modelId             the model ID
+     * @param expectedVersion     the version the caller has read
+     * @param aas                 the new asset administration shell, or null to keep the stored one
+     * @param submodelRefs        the new submodel IDs
+     * @param submodelDocumentIds the IDs of the documents holding the submodels, in the order of the submodel IDs
+     * @param updatedAt           the new modification timestamp
+     * @return true if the model was updated, false if the version did not match
+     */
+    boolean patchExternalContent(String modelId, long expectedVersion, DefaultAssetAdministrationShell aas,
+                                 List<String> submodelRefs, List<String> submodelDocumentIds, LocalDateTime updatedAt);
+
+    /**
+     * Lists summaries of the models of an owner, most recently updated first, using keyset pagination
+     * on {@code (ownerId, updatedAt, _id)}. Only the summary fields are returned by the database.
+     *
+     * @param ownerId        the owner's user ID
+     * @param afterUpdatedAt the updatedAt of the last model of the previous page, or null for the first page
+     * @param afterId        the ID of the last model of the previous page, or null for the first page
+     * @param limit          the maximum number of summaries to return
+     * @return the summaries following the given position
+     */
+    List<AASModelSummary> findSummariesByOwnerId(String ownerId, LocalDateTime afterUpdatedAt, String afterId, int limit);
+
+    /**
+     * Returns the summaries of the given models that belong to an owner, in no particular order.
+     * Models that do not exist or belong to someone else are missing from the result.
+     *
+     * @param ownerId the owner's user ID
+     * @param ids     the model IDs
+     * @return the summaries of the owner's models among the IDs
+     */
+    List<AASModelSummary> findSummariesByOwnerIdAndIds(String ownerId, Collection<String> ids);
+
+    /**
+     * Replaces shell and submodel references of a model with externally stored submodels in a single write.
+     * The referenced submodel documents must have been written before.
+     *
+     * @param modelId             the model ID
+     * @param ownerId             the owner the model must belong to
+     * @param expectedVersion     the version the caller has read, or null to overwrite unconditionally
+     * @param aas                 the new asset administration shell
+     * @param submodelRefs        the IDs of the new submodels
+     * @param submodelDocumentIds the IDs of the documents holding the submodels, in the order of the submodel IDs
+     * @param updatedAt           the new modification timestamp
+     * @return an Optional containing the updated model header, or empty if the model belongs to someone else
+     *         or the version did not match
+     */
+    Optional<AASModel> replaceExternalContent(String modelId, String ownerId, Long expectedVersion,
+                                              DefaultAssetAdministrationShell aas, List<String> submodelRefs,
+                                              List<String> submodelDocumentIds, LocalDateTime updatedAt);
+
+    /**
+     * Switches a model to the externalized layout: drops the embedded submodels and stores their IDs instead.
+     * The submodels must have been written to the submodel collection before.
+     *
+     * @param modelId             the model ID
+     * @param expectedVersion     the version the submodels were read at
+     * @param submodelRefs        the IDs of the externally stored submodels
+     * @param submodelDocumentIds the IDs of the documents holding the submodels, in the order of the submodel IDs
+     * @return true if the model was switched, false if it was modified in the meantime
+     */
+    boolean externalizeSubmodels(String modelId, long expectedVersion, List<String> submodelRefs, List<String> submodelDocumentIds);
+
+    /**
+     * Copies the submodels of a published snapshot into a model adopted from it and drops the snapshot reference.
+     *
+     * @param modelId    the model ID
+     * @param snapshotId the snapshot the model must still reference
+     * @param submodels  the submodels of the snapshot
+     * @return true if the model was materialized, false if it no longer references the snapshot
+     */
+    boolean materializeSnapshot(String modelId, String snapshotId, List<DefaultSubmodel> submodels);
+
+    /**
+     * Returns the IDs of all models that still embed their submodels.
+     *
+     * @return the model IDs
+     */
+    List<String> findIdsWithEmbeddedSubmodels();
+
+    /**
+     * Marks a model as published and appends the outbox event of its marketplace side effects in a single write.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param metadata        the publish metadata
+     * @param event           the outbox event
+     * @param updatedAt       the new modification timestamp
+     * @return true if the model was published, false if the version did not match or it is already published
+     */
+    boolean publishWithEvent(String modelId, long expectedVersion, PublishMetadata metadata, OutboxEvent event,
+                             LocalDateTime updatedAt);
+
+    /**
+     * Marks a model as unpublished, drops its publish metadata and appends the outbox event of its marketplace
+     * side effects in a single write.
+     *
+     * @param modelId         the model ID
+     * @param expectedVersion the version the caller has read
+     * @param event           the outbox event
+     * @param updatedAt       the new modification timestamp
+     * @return true if the model was unpublished, false if the version did not match or it is not published
+     */
+    boolean unpublishWithEvent(String modelId, long expectedVersion, OutboxEvent event, LocalDateTime updatedAt);
+
+    /**
+     * Loads models whose oldest outbox event is due, including their content.
+     *
+     * @param now   the current time; models deferred beyond it are skipped
+     * @param limit the maximum number of models to return
+     * @return the models
+     */
+    List<AASModel> findWithDueEvents(LocalDateTime now, int limit);
+
+    /**
+     * Removes dispatched outbox events from their models with a single unordered bulk write.
+     * Events appended in the meantime are kept.
+     *
+     * @param eventIds the IDs of the dispatched events per model ID
+     * @return the result of the bulk write; fewer matches than models mean that some models were deleted meanwhile
+     */
+    BulkWriteResult removeEvents(Map<String, List<String>> eventIds);
+
+    /**
+     * Postpones all outbox events of a model after a failed dispatch and records the failure on them.
+     *
+     * @param modelId       the model ID
+     * @param nextAttemptAt when to retry
+     * @param error         the failure message
+     */
+    void deferEvents(String modelId, LocalDateTime nextAttemptAt, String error);
+}
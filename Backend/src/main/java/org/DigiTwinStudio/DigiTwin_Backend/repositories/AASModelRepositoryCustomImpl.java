@@ -0,0 +1,326 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEvent;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+
+import org.bson.Document;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link AASModelRepositoryCustom}.
+ * Uses positional {@code $set}, {@code $push} and {@code $pull} updates so only the changed submodel is sent to the database,
+ * and a single conditional {@code findAndModify} for whole-model saves. Publishing changes the model and appends its outbox
+ * event in the same single-document update, which MongoDB applies atomically without a multi-document transaction.
+ */
+@RequiredArgsConstructor
+public class AASModelRepositoryCustomImpl implements AASModelRepositoryCustom {
+
+    private static final String[] HEADER_FIELDS = {
+            "ownerId", "version", "published", "createdAt", "updatedAt", "submodels.id", "submodelRefs",
+            "submodelDocumentIds", "sourceSnapshotId", "publishMetadata"};
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<AASModel> findHeaderById(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include(HEADER_FIELDS);
+        return Optional.ofNullable(mongoTemplate.findOne(query, AASModel.class));
+    }
+
+    @Override
+    public Optional<AASModel> findVersionById(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("ownerId", "version");
+        return Optional.ofNullable(mongoTemplate.findOne(query, AASModel.class));
+    }
+
+    @Override
+    public List<AASModel> findHeadersByIds(Collection<String> ids) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include(HEADER_FIELDS);
+        return mongoTemplate.find(query, AASModel.class);
+    }
+
+    @Override
+    public Set<String> findReferencedSnapshotIds(Collection<String> snapshotIds) {
+        Query query = Query.query(Criteria.where("sourceSnapshotId").in(snapshotIds));
+        return new HashSet<>(mongoTemplate.findDistinct(query, "sourceSnapshotId", AASModel.class, String.class));
+    }
+
+    @Override
+    public BulkWriteResult replaceAndDeleteInBulk(String ownerId, List<ContentReplacement> replacements,
+                                                  List<Deletion> deletions, LocalDateTime updatedAt) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AASModel.class);
+        for (ContentReplacement replacement : replacements) {
+            Query query = Query.query(versionGuard(replacement.modelId(), replacement.expectedVersion())
+                    .and("ownerId").is(ownerId)
+                    .and("submodelRefs").exists(false).and("sourceSnapshotId").exists(false));
+            bulk.updateOne(query, touch(updatedAt).set("aas", replacement.aas()).set("submodels", replacement.submodels()));
+        }
+        for (Deletion deletion : deletions) {
+            bulk.remove(Query.query(versionGuard(deletion.modelId(), deletion.expectedVersion()).and("ownerId").is(ownerId)));
+        }
+        return bulk.execute();
+    }
+
+    @Override
+    public boolean pushSubmodel(String modelId, long expectedVersion, DefaultSubmodel submodel, LocalDateTime updatedAt) {
+        // the $ne condition keeps submodel IDs unique even under concurrent attaches
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodels.id").ne(submodel.getId()));
+        Update update = touch(updatedAt).push("submodels", submodel);
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public boolean setSubmodel(String modelId, long expectedVersion, String submodelId, DefaultSubmodel submodel, LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodels.id").is(submodelId));
+        Update update = touch(updatedAt).set("submodels.$", submodel);
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public boolean pullSubmodel(String modelId, long expectedVersion, String submodelId, LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodels.id").is(submodelId));
+        Update update = touch(updatedAt).pull("submodels", new Document("id", submodelId));
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public Optional<DefaultSubmodel> findSubmodel(String modelId, String submodelId) {
+        return findEmbeddedSubmodel(modelId, Criteria.where("id").is(submodelId));
+    }
+
+    @Override
+    public Optional<DefaultSubmodel> findSubmodelByIdShort(String modelId, String idShort) {
+        return findEmbeddedSubmodel(modelId, Criteria.where("idShort").is(idShort));
+    }
+
+    @Override
+    public Optional<AASModel> replaceContent(String modelId, String ownerId, Long expectedVersion,
+                                             DefaultAssetAdministrationShell aas, List<DefaultSubmodel> submodels,
+                                             LocalDateTime updatedAt) {
+        Criteria criteria = expectedVersion == null
+                ? Criteria.where("_id").is(modelId)
+                : versionGuard(modelId, expectedVersion);
+        Query query = Query.query(criteria.and("ownerId").is(ownerId)
+                .and("submodelRefs").exists(false).and("sourceSnapshotId").exists(false));
+        Update update = touch(updatedAt).set("aas", aas).set("submodels", submodels);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), AASModel.class));
+    }
+
+    @Override
+    public Optional<DefaultAssetAdministrationShell> findAas(String modelId) {
+        Query query = Query.query(Criteria.where("_id").is(modelId));
+        query.fields().include("aas");
+        return Optional.ofNullable(mongoTemplate.findOne(query, AASModel.class)).map(AASModel::getAas);
+    }
+
+    @Override
+    public boolean patchEmbeddedContent(String modelId, long expectedVersion, DefaultAssetAdministrationShell aas,
+                                        Map<String, DefaultSubmodel> submodels, LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodelRefs").exists(false));
+        Update update = touch(updatedAt);
+        if (aas != null) {
+            update.set("aas", aas);
+        }
+        // one array filter per changed submodel, so all of them are replaced by the same update
+        int index = 0;
+        for (Map.Entry<String, DefaultSubmodel> entry : submodels.entrySet()) {
+            String identifier = "sm" + index++;
+            update.set("submodels.$[" + identifier + "]", entry.getValue())
+                    .filterArray(Criteria.where(identifier + ".id").is(entry.getKey()));
+        }
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public boolean patchExternalContent(String modelId, long expectedVersion, DefaultAssetAdministrationShell aas,
+                                        List<String> submodelRefs, List<String> submodelDocumentIds, LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodelRefs").exists(true));
+        Update update = touch(updatedAt).set("submodelRefs", submodelRefs).set("submodelDocumentIds", submodelDocumentIds);
+        if (aas != null) {
+            update.set("aas", aas);
+        }
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public List<AASModelSummary> findSummariesByOwnerId(String ownerId, LocalDateTime afterUpdatedAt, String afterId, int limit) {
+        Criteria criteria = Criteria.where("ownerId").is(ownerId);
+        if (afterUpdatedAt != null && afterId != null) {
+            // keyset condition: strictly after the last item in (updatedAt desc, _id desc) order
+            criteria = criteria.orOperator(
+                    Criteria.where("updatedAt").lt(afterUpdatedAt),
+                    Criteria.where("updatedAt").is(afterUpdatedAt).and("id").lt(afterId));
+        }
+        TypedAggregation<AASModel> aggregation = Aggregation.newAggregation(AASModel.class,
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "updatedAt", "id")),
+                Aggregation.limit(limit),
+                summaryProjection());
+        return mongoTemplate.aggregate(aggregation, AASModelSummary.class).getMappedResults();
+    }
+
+    @Override
+    public List<AASModelSummary> findSummariesByOwnerIdAndIds(String ownerId, Collection<String> ids) {
+        TypedAggregation<AASModel> aggregation = Aggregation.newAggregation(AASModel.class,
+                Aggregation.match(Criteria.where("ownerId").is(ownerId).and("id").in(ids)),
+                summaryProjection());
+        return mongoTemplate.aggregate(aggregation, AASModelSummary.class).getMappedResults();
+    }
+
+    // a model has exactly one of embedded submodels, submodel references or a stored snapshot submodel count
+    private static ProjectionOperation summaryProjection() {
+        return Aggregation.project("published", "createdAt", "updatedAt")
+                .and("aas.idShort").as("idShort")
+                .and(ArithmeticOperators.Add.valueOf(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("submodelRefs").thenValueOf(
+                                        ConditionalOperators.ifNull("submodels").then(Collections.emptyList()))))
+                        .add(ConditionalOperators.ifNull("snapshotSubmodelCount").then(0)))
+                .as("submodelCount");
+    }
+
+    @Override
+    public Optional<AASModel> replaceExternalContent(String modelId, String ownerId, Long expectedVersion,
+                                                     DefaultAssetAdministrationShell aas, List<String> submodelRefs,
+                                                     List<String> submodelDocumentIds, LocalDateTime updatedAt) {
+        Criteria criteria = expectedVersion == null
+                ? Criteria.where("_id").is(modelId)
+                : versionGuard(modelId, expectedVersion);
+        Query query = Query.query(criteria.and("ownerId").is(ownerId).and("submodelRefs").exists(true));
+        Update update = touch(updatedAt).set("aas", aas).set("submodelRefs", submodelRefs)
+                .set("submodelDocumentIds", submodelDocumentIds);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), AASModel.class));
+    }
+
+    @Override
+    public boolean externalizeSubmodels(String modelId, long expectedVersion, List<String> submodelRefs,
+                                        List<String> submodelDocumentIds) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("submodelRefs").exists(false));
+        // the content does not change, so updatedAt is kept; the version still moves so cached ETags are revalidated
+        Update update = new Update().set("submodelRefs", submodelRefs).set("submodelDocumentIds", submodelDocumentIds)
+                .unset("submodels").inc("version", 1);
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public boolean materializeSnapshot(String modelId, String snapshotId, List<DefaultSubmodel> submodels) {
+        Query query = Query.query(Criteria.where("_id").is(modelId).and("sourceSnapshotId").is(snapshotId));
+        // the content does not change, so neither updatedAt nor version move and ETags held by clients stay valid
+        Update update = new Update().set("submodels", submodels).unset("sourceSnapshotId").unset("snapshotSubmodelCount");
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public List<String> findIdsWithEmbeddedSubmodels() {
+        Query query = Query.query(Criteria.where("submodelRefs").exists(false).and("sourceSnapshotId").exists(false));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, AASModel.class).stream().map(AASModel::getId).toList();
+    }
+
+    @Override
+    public boolean publishWithEvent(String modelId, long expectedVersion, PublishMetadata metadata, OutboxEvent event,
+                                    LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("published").ne(true));
+        Update update = touch(updatedAt).set("published", true).set("publishMetadata", metadata).push("pendingEvents", event);
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public boolean unpublishWithEvent(String modelId, long expectedVersion, OutboxEvent event, LocalDateTime updatedAt) {
+        Query query = Query.query(versionGuard(modelId, expectedVersion).and("published").is(true));
+        Update update = touch(updatedAt).set("published", false).unset("publishMetadata").push("pendingEvents", event);
+        return applied(mongoTemplate.updateFirst(query, update, AASModel.class));
+    }
+
+    @Override
+    public List<AASModel> findWithDueEvents(LocalDateTime now, int limit) {
+        // events are applied in order, so only the oldest one decides whether a model is due
+        Query query = Query.query(Criteria.where("pendingEvents.0.nextAttemptAt").lte(now)).limit(limit);
+        return mongoTemplate.find(query, AASModel.class);
+    }
+
+    @Override
+    public BulkWriteResult removeEvents(Map<String, List<String>> eventIds) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AASModel.class);
+        eventIds.forEach((modelId, ids) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(modelId)),
+                new Update().pull("pendingEvents", Query.query(Criteria.where("id").in(ids)))));
+        return bulk.execute();
+    }
+
+    @Override
+    public void deferEvents(String modelId, LocalDateTime nextAttemptAt, String error) {
+        // all events are postponed, as those appended later are only applied after the failing one
+        Update update = new Update()
+                .set("pendingEvents.$[].nextAttemptAt", nextAttemptAt)
+                .set("pendingEvents.$[].lastError", error)
+                .inc("pendingEvents.$[].attempts", 1);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(modelId)), update, AASModel.class);
+    }
+
+    private Optional<DefaultSubmodel> findEmbeddedSubmodel(String modelId, Criteria submodelCriteria) {
+        Query query = Query.query(Criteria.where("_id").is(modelId));
+        query.fields().elemMatch("submodels", submodelCriteria);
+        AASModel model = mongoTemplate.findOne(query, AASModel.class);
+        if (model == null || model.getSubmodels() == null || model.getSubmodels().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(model.getSubmodels().getFirst());
+    }
+
+    /**
+     * Matches the model only if its stored version equals the expected one.
+     * Documents written before versioning was introduced have no version field and count as version 0.
+     */
+    private static Criteria versionGuard(String modelId, long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(modelId);
+        if (expectedVersion == 0) {
+            return criteria.orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false));
+        }
+        return criteria.and("version").is(expectedVersion);
+    }
+
+    private static Update touch(LocalDateTime updatedAt) {
+        return new Update().set("updatedAt", updatedAt).inc("version", 1);
+    }
+
+    private static boolean applied(UpdateResult result) {
+        return result.getModifiedCount() > 0;
+    }
+}
@@ -11,9 +11,10 @@ import java.util.Optional;
 
 /**
  * Repository for accessing marketplace entry data.
+ * Keyset-paginated listing and search are provided by {@link MarketPlaceEntryRepositoryCustom}.
  */
 @Repository
-public interface MarketPlaceEntryRepository extends MongoRepository<MarketplaceEntry, String> {
+public interface MarketPlaceEntryRepository extends MongoRepository<MarketplaceEntry, String>, MarketPlaceEntryRepositoryCustom {
 
     /**
      * Finds a marketplace entry by its ID.
@@ -0,0 +1,98 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated listing and faceted search of marketplace entries, and batched counter updates.
+ * The listing methods return the entries strictly after the given position, so the cost of a page does not depend on how far the client has paged.
+ */
+public interface MarketPlaceEntryRepositoryCustom {
+
+    /**
+     * Loads entries newest first, in {@code (publishedAt desc, _id desc)} order.
+     *
+     * @param publishedAfter   only entries published after this time (optional)
+     * @param tagIds           only entries with at least one of these tags (optional)
+     * @param afterPublishedAt publishedAt of the last entry of the previous page, or null for the first page
+     * @param afterId          ID of the last entry of the previous page, or null for the first page
+     * @param limit            maximum number of entries to return
+     * @return the matching entries
+     */
+    List<MarketplaceEntry> findNewestPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                          LocalDateTime afterPublishedAt, String afterId, int limit);
+
+    /**
+     * Loads entries most downloaded first, in {@code (downloadCount desc, _id desc)} order.
+     *
+     * @param publishedAfter      only entries published after this time (optional)
+     * @param tagIds              only entries with at least one of these tags (optional)
+     * @param afterDownloadCount  downloadCount of the last entry of the previous page, or null for the first page
+     * @param afterId             ID of the last entry of the previous page, or null for the first page
+     * @param limit               maximum number of entries to return
+     * @return the matching entries
+     */
+    List<MarketplaceEntry> findMostDownloadedPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                                  Integer afterDownloadCount, String afterId, int limit);
+
+    /**
+     * Loads entries trending first, in {@code (trendingScore desc, _id desc)} order.
+     *
+     * @param publishedAfter     only entries published after this time (optional)
+     * @param tagIds             only entries with at least one of these tags (optional)
+     * @param afterTrendingScore trendingScore of the last entry of the previous page, or null for the first page
+     * @param afterId            ID of the last entry of the previous page, or null for the first page
+     * @param limit              maximum number of entries to return
+     * @return the matching entries
+     */
+    List<MarketplaceEntry> findTrendingPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                            Double afterTrendingScore, String afterId, int limit);
+
+    /**
+     * Loads one page of a search together with its facet counts in a single {@code $facet} aggregation.
+     * With search text the page is in {@code (score desc, _id desc)} order and the text score is set on the entries,
+     * otherwise in {@code (publishedAt desc, _id desc)} order.
+     * The tag counts ignore {@code tagIds}, so they show how selecting another tag would change the result.
+     *
+     * @param searchText       the search text (optional)
+     * @param publishedAfter   only entries published after this time (optional)
+     * @param tagIds           only entries with at least one of these tags (optional)
+     * @param afterScore       text score of the last entry of the previous page, or null
+     * @param afterPublishedAt publishedAt of the last entry of the previous page, or null
+     * @param afterId          ID of the last entry of the previous page, or null for the first page
+     * @param limit            maximum number of entries to return
+     * @return the entries and facet counts
+     */
+    FacetedPage findFacetedPage(String searchText, LocalDateTime publishedAfter, List<String> tagIds,
+                                Double afterScore, LocalDateTime afterPublishedAt, String afterId, int limit);
+
+    /**
+     * Adds download counts to several entries with a single unordered bulk write, and adds the current
+     * trending weight per download to their trending scores. Entries that no longer exist are skipped.
+     *
+     * @param increments the number of new downloads per entry ID
+     */
+    void incrementDownloadCounts(Map<String, Long> increments);
+
+    /**
+     * Sets the trending score of entries created before it existed to zero, so keyset conditions on it match them.
+     *
+     * @return the number of updated entries
+     */
+    long initializeTrendingScores();
+
+    /**
+     * Result of {@link #findFacetedPage}.
+     *
+     * @param entries     the page of entries
+     * @param total       number of entries matching all filters
+     * @param tagCounts   matching entries per tag ID, most frequent first
+     * @param monthCounts matching entries per publishing month ({@code yyyy-MM}), oldest first
+     */
+    record FacetedPage(List<MarketplaceEntry> entries, long total,
+                       Map<String, Long> tagCounts, Map<String, Long> monthCounts) {
+    }
+}
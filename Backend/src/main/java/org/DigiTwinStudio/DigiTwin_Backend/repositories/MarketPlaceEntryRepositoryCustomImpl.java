@@ -0,0 +1,178 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.TrendingScoreUtil;
+
+import org.bson.Document;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link MarketPlaceEntryRepositoryCustom}.
+ * Listing uses the {@code (publishedAt, _id)}, {@code (downloadCount, _id)} or {@code (trendingScore, _id)} index.
+ * Faceted search runs the page, the total and the facet counts as sub-pipelines of one {@code $facet} stage; with search text it materializes the text score with {@code $addFields}
+ * so the keyset condition can compare against it.
+ */
+@RequiredArgsConstructor
+public class MarketPlaceEntryRepositoryCustomImpl implements MarketPlaceEntryRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<MarketplaceEntry> findNewestPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                                 LocalDateTime afterPublishedAt, String afterId, int limit) {
+        return findPage("publishedAt", publishedAfter, tagIds, afterPublishedAt, afterId, limit);
+    }
+
+    @Override
+    public List<MarketplaceEntry> findMostDownloadedPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                                         Integer afterDownloadCount, String afterId, int limit) {
+        return findPage("downloadCount", publishedAfter, tagIds, afterDownloadCount, afterId, limit);
+    }
+
+    @Override
+    public List<MarketplaceEntry> findTrendingPage(LocalDateTime publishedAfter, List<String> tagIds,
+                                                   Double afterTrendingScore, String afterId, int limit) {
+        return findPage("trendingScore", publishedAfter, tagIds, afterTrendingScore, afterId, limit);
+    }
+
+    // one page in (sortField desc, _id desc) order, served by the matching compound index
+    private List<MarketplaceEntry> findPage(String sortField, LocalDateTime publishedAfter, List<String> tagIds,
+                                            Object afterValue, String afterId, int limit) {
+        List<Criteria> criteria = filters(publishedAfter, tagIds);
+        if (afterValue != null && afterId != null) {
+            // keyset condition: strictly after the last entry in (sortField desc, _id desc) order
+            criteria.add(new Criteria().orOperator(
+                    Criteria.where(sortField).lt(afterValue),
+                    Criteria.where(sortField).is(afterValue).and("id").lt(afterId)));
+        }
+        Query query = Query.query(allOf(criteria))
+                .with(Sort.by(Sort.Direction.DESC, sortField, "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, MarketplaceEntry.class);
+    }
+
+    @Override
+    public FacetedPage findFacetedPage(String searchText, LocalDateTime publishedAfter, List<String> tagIds,
+                                       Double afterScore, LocalDateTime afterPublishedAt, String afterId, int limit) {
+        boolean hasText = searchText != null;
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (hasText) {
+            stages.add(Aggregation.match(TextCriteria.forDefaultLanguage().matching(searchText)));
+        }
+        List<Criteria> shared = filters(publishedAfter, null);
+        if (!shared.isEmpty()) {
+            stages.add(Aggregation.match(allOf(shared)));
+        }
+        if (hasText) {
+            // the text score is only available through $meta, so it is copied into a field before it can be compared
+            stages.add(context -> new Document("$addFields", new Document("score", new Document("$meta", "textScore"))));
+        }
+
+        // the tag filter is applied per facet, so the tag counts can ignore it
+        Criteria tagFilter = allOf(filters(null, tagIds));
+        List<Criteria> pageCriteria = new ArrayList<>(filters(null, tagIds));
+        if (afterId != null && (hasText ? afterScore != null : afterPublishedAt != null)) {
+            String sortField = hasText ? "score" : "publishedAt";
+            Object afterValue = hasText ? afterScore : afterPublishedAt;
+            pageCriteria.add(new Criteria().orOperator(
+                    Criteria.where(sortField).lt(afterValue),
+                    Criteria.where(sortField).is(afterValue).and("id").lt(afterId)));
+        }
+        Sort sort = Sort.by(Sort.Direction.DESC, hasText ? "score" : "publishedAt", "id");
+
+        stages.add(Aggregation.facet(
+                        Aggregation.match(allOf(pageCriteria)), Aggregation.sort(sort), Aggregation.limit(limit)).as("entries")
+                .and(Aggregation.match(tagFilter), Aggregation.count().as("count")).as("total")
+                .and(Aggregation.unwind("tagIds"), Aggregation.sortByCount("tagIds")).as("tags")
+                .and(Aggregation.match(tagFilter),
+                        Aggregation.project().and(DateOperators.DateToString.dateOf("publishedAt").toString("%Y-%m")).as("month"),
+                        Aggregation.group("month").count().as("count"),
+                        Aggregation.sort(Sort.Direction.ASC, "_id")).as("publishedMonths"));
+
+        TypedAggregation<MarketplaceEntry> aggregation = Aggregation.newAggregation(MarketplaceEntry.class, stages);
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            return new FacetedPage(List.of(), 0, Map.of(), Map.of());
+        }
+
+        List<MarketplaceEntry> entries = result.getList("entries", Document.class).stream()
+                .map(document -> mongoTemplate.getConverter().read(MarketplaceEntry.class, document))
+                .toList();
+        List<Document> total = result.getList("total", Document.class);
+        return new FacetedPage(entries,
+                total.isEmpty() ? 0 : total.getFirst().get("count", Number.class).longValue(),
+                buckets(result.getList("tags", Document.class)),
+                buckets(result.getList("publishedMonths", Document.class)));
+    }
+
+    @Override
+    public void incrementDownloadCounts(Map<String, Long> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        double trendingWeight = TrendingScoreUtil.weightAt(Instant.now());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MarketplaceEntry.class);
+        // downloadCount is an int field; one flush interval never comes close to its range
+        increments.forEach((entryId, count) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(entryId)),
+                new Update()
+                        .inc("downloadCount", Math.toIntExact(count))
+                        .inc("trendingScore", count * trendingWeight)));
+        bulk.execute();
+    }
+
+    @Override
+    public long initializeTrendingScores() {
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where("trendingScore").exists(false)),
+                new Update().set("trendingScore", 0.0),
+                MarketplaceEntry.class).getModifiedCount();
+    }
+
+    private static List<Criteria> filters(LocalDateTime publishedAfter, List<String> tagIds) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (publishedAfter != null) {
+            criteria.add(Criteria.where("publishedAt").gt(publishedAfter));
+        }
+        if (tagIds != null && !tagIds.isEmpty()) {
+            criteria.add(Criteria.where("tagIds").in(tagIds));
+        }
+        return criteria;
+    }
+
+    // {_id, count} documents to an ordered value -> count map; entries without a value (e.g. no publishedAt) are skipped
+    private static Map<String, Long> buckets(List<Document> documents) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Document document : documents) {
+            Object value = document.get("_id");
+            if (value != null) {
+                counts.put(value.toString(), document.get("count", Number.class).longValue());
+            }
+        }
+        return counts;
+    }
+
+    private static Criteria allOf(List<Criteria> criteria) {
+        return criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria);
+    }
+}
@@ -0,0 +1,26 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for immutable snapshots of published models.
+ * Pre-rendered export files are attached through {@link PublishedSnapshotRepositoryCustom}.
+ */
+@Repository
+public interface PublishedSnapshotRepository extends MongoRepository<PublishedSnapshot, String>, PublishedSnapshotRepositoryCustom {
+
+    /**
+     * Finds a snapshot without loading its submodels.
+     *
+     * @param id the snapshot ID
+     * @return an Optional containing the snapshot with shell and metadata only
+     */
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'submodels': 0 }")
+    Optional<PublishedSnapshot> findHeaderById(String id);
+}
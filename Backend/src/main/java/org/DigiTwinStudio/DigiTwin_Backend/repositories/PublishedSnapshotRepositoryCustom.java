@@ -0,0 +1,45 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SnapshotArtifact;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Attaches pre-rendered export files to published snapshots, finds the snapshots that may be reclaimed and loads
+ * the fields the search index needs.
+ */
+public interface PublishedSnapshotRepositoryCustom {
+
+    /**
+     * Stores the export file of a format on a snapshot unless the snapshot already has one.
+     *
+     * @param snapshotId the snapshot ID
+     * @param format     the export format
+     * @param artifact   the stored export file
+     * @return true if the file was attached, false if the snapshot is missing or another file was attached first
+     */
+    boolean setArtifactIfAbsent(String snapshotId, ExportFormat format, SnapshotArtifact artifact);
+
+    /**
+     * Loads one page of the snapshots created before a point in time, ordered by ID, with ID, entry, version and export files only.
+     *
+     * @param createdBefore only snapshots created before this time are returned
+     * @param afterId       the ID of the last snapshot of the previous page, or null for the first page
+     * @param limit         the page size
+     * @return the snapshot headers without shell and submodels
+     */
+    List<PublishedSnapshot> findHeadersCreatedBefore(LocalDateTime createdBefore, String afterId, int limit);
+
+    /**
+     * Loads several snapshots with a single query, with the fields indexed for search only:
+     * entry, version, the idShort of the shell and the semantic IDs of the submodels.
+     *
+     * @param ids the snapshot IDs
+     * @return the snapshots that exist, in no particular order
+     */
+    List<PublishedSnapshot> findSearchFieldsByIds(Collection<String> ids);
+}
@@ -0,0 +1,52 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SnapshotArtifact;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link PublishedSnapshotRepositoryCustom}.
+ * The artifact is set with a conditional update, so concurrent renderings of the same file keep the first one.
+ */
+@RequiredArgsConstructor
+public class PublishedSnapshotRepositoryCustomImpl implements PublishedSnapshotRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean setArtifactIfAbsent(String snapshotId, ExportFormat format, SnapshotArtifact artifact) {
+        String field = "artifacts." + format.name();
+        Query query = Query.query(Criteria.where("_id").is(snapshotId).and(field).exists(false));
+        return mongoTemplate.updateFirst(query, new Update().set(field, artifact), PublishedSnapshot.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public List<PublishedSnapshot> findHeadersCreatedBefore(LocalDateTime createdBefore, String afterId, int limit) {
+        Criteria criteria = Criteria.where("createdAt").lt(createdBefore);
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(afterId);
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        query.fields().include("entryId", "modelVersion", "createdAt", "artifacts");
+        return mongoTemplate.find(query, PublishedSnapshot.class);
+    }
+
+    @Override
+    public List<PublishedSnapshot> findSearchFieldsByIds(Collection<String> ids) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("entryId", "modelVersion", "aas.idShort", "submodels.semanticId");
+        return mongoTemplate.find(query, PublishedSnapshot.class);
+    }
+}
@@ -0,0 +1,32 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SubmodelDocument;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for submodels stored outside their model document.
+ * The orphan cleanup queries are provided by {@link SubmodelDocumentRepositoryCustom}.
+ */
+@Repository
+public interface SubmodelDocumentRepository extends MongoRepository<SubmodelDocument, String>, SubmodelDocumentRepositoryCustom {
+
+    /**
+     * Finds the stored submodels of a model with the given idShort, including documents the model no longer references.
+     *
+     * @param modelId the model ID
+     * @param idShort the submodel idShort
+     * @return the matching submodel documents
+     */
+    List<SubmodelDocument> findByModelIdAndIdShort(String modelId, String idShort);
+
+    /**
+     * Deletes all submodels of a model.
+     *
+     * @param modelId the model ID
+     */
+    void deleteByModelId(String modelId);
+}
@@ -0,0 +1,30 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom queries for removing externally stored submodels that no model references.
+ */
+public interface SubmodelDocumentRepositoryCustom {
+
+    /**
+     * Finds the models that have submodel documents written before the given time.
+     * Documents written before documents were versioned have no write time and are always included.
+     *
+     * @param writtenBefore the latest write time
+     * @return the distinct model IDs
+     */
+    List<String> findModelIdsWithDocumentsBefore(LocalDateTime writtenBefore);
+
+    /**
+     * Deletes the submodel documents of a model that are not referenced and were written before the given time.
+     *
+     * @param modelId       the model ID
+     * @param referencedIds the document IDs the model references
+     * @param writtenBefore the latest write time of deleted documents
+     * @return the number of deleted documents
+     */
+    long deleteUnreferenced(String modelId, Collection<String> referencedIds, LocalDateTime writtenBefore);
+}
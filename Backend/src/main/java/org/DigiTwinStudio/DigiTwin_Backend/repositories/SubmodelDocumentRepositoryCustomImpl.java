@@ -0,0 +1,41 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SubmodelDocument;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link SubmodelDocumentRepositoryCustom}.
+ */
+@RequiredArgsConstructor
+public class SubmodelDocumentRepositoryCustomImpl implements SubmodelDocumentRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<String> findModelIdsWithDocumentsBefore(LocalDateTime writtenBefore) {
+        return mongoTemplate.findDistinct(Query.query(writtenBefore(writtenBefore)), "modelId", SubmodelDocument.class, String.class);
+    }
+
+    @Override
+    public long deleteUnreferenced(String modelId, Collection<String> referencedIds, LocalDateTime writtenBefore) {
+        Query query = Query.query(new Criteria().andOperator(
+                Criteria.where("modelId").is(modelId).and("_id").nin(referencedIds),
+                writtenBefore(writtenBefore)));
+        return mongoTemplate.remove(query, SubmodelDocument.class).getDeletedCount();
+    }
+
+    private static Criteria writtenBefore(LocalDateTime writtenBefore) {
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(writtenBefore),
+                Criteria.where("createdAt").exists(false));
+    }
+}
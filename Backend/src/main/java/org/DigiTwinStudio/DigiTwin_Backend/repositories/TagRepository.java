@@ -10,9 +10,10 @@ import java.util.Optional;
 
 /**
  * Repository for managing tag entities.
+ * Usage counts are maintained atomically by {@link TagRepositoryCustom}.
  */
 @Repository
-public interface TagRepository extends MongoRepository<Tag, String> {
+public interface TagRepository extends MongoRepository<Tag, String>, TagRepositoryCustom {
 
     /**
      * Finds a tag by name, ignoring case.
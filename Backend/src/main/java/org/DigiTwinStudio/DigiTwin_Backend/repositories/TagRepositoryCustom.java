@@ -0,0 +1,40 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Atomic maintenance of tag usage counts.
+ * Counts are changed with server-side {@code $inc} updates instead of rewriting tag documents, so concurrent publishing never loses an update.
+ */
+public interface TagRepositoryCustom {
+
+    /**
+     * Adds one usage to each of the given tags in a single update.
+     *
+     * @param tagIds the tag IDs
+     */
+    void incrementUsageCounts(Collection<String> tagIds);
+
+    /**
+     * Removes one usage from each of the given tags in a single update; counts never drop below zero.
+     *
+     * @param tagIds the tag IDs
+     */
+    void decrementUsageCounts(Collection<String> tagIds);
+
+    /**
+     * Changes the usage counts of many tags by the given amounts in a single bulk write; counts never drop below zero.
+     *
+     * @param deltas the change per tag ID; zero changes are skipped
+     */
+    void applyUsageCountDeltas(Map<String, Integer> deltas);
+
+    /**
+     * Recomputes the usage count of every tag from the tag IDs of the marketplace entries and corrects the tags that drifted.
+     * A publish running concurrently may be overwritten; the next reconciliation corrects it again.
+     *
+     * @return the number of tags whose count was corrected
+     */
+    long reconcileUsageCounts();
+}
@@ -0,0 +1,103 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+
+import org.bson.Document;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link TagRepositoryCustom}.
+ * Each publish or unpublish changes all of its tags with one {@code updateMulti}, a dispatched batch of them with one
+ * ordered bulk write; reconciliation counts entries per tag
+ * with an aggregation over {@code marketplaceEntries.tagIds} and writes the corrections in one bulk write.
+ */
+@RequiredArgsConstructor
+public class TagRepositoryCustomImpl implements TagRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void incrementUsageCounts(Collection<String> tagIds) {
+        if (tagIds == null || tagIds.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(tagIds));
+        mongoTemplate.updateMulti(query, new Update().inc("usageCount", 1), Tag.class);
+    }
+
+    @Override
+    public void decrementUsageCounts(Collection<String> tagIds) {
+        if (tagIds == null || tagIds.isEmpty()) {
+            return;
+        }
+        // tags already at zero do not match, so counts never become negative
+        Query query = Query.query(Criteria.where("_id").in(tagIds).and("usageCount").gt(0));
+        mongoTemplate.updateMulti(query, new Update().inc("usageCount", -1), Tag.class);
+    }
+
+    @Override
+    public void applyUsageCountDeltas(Map<String, Integer> deltas) {
+        if (deltas == null || deltas.values().stream().allMatch(delta -> delta == 0)) {
+            return;
+        }
+        // ordered, so a count clamped to zero is not decremented again by the second operation of its tag
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Tag.class);
+        deltas.forEach((tagId, delta) -> {
+            if (delta > 0) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(tagId)), new Update().inc("usageCount", delta));
+            } else if (delta < 0) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(tagId).and("usageCount").lt(-delta).gt(0)),
+                        new Update().set("usageCount", 0));
+                bulk.updateOne(Query.query(Criteria.where("_id").is(tagId).and("usageCount").gte(-delta)),
+                        new Update().inc("usageCount", delta));
+            }
+        });
+        bulk.execute();
+    }
+
+    @Override
+    public long reconcileUsageCounts() {
+        Map<String, Integer> counts = countEntriesPerTag();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tag.class);
+        counts.forEach((tagId, count) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(tagId).and("usageCount").ne(count)),
+                new Update().set("usageCount", count)));
+        // tags no entry refers to anymore
+        bulk.updateMulti(
+                Query.query(Criteria.where("_id").nin(counts.keySet()).and("usageCount").ne(0)),
+                new Update().set("usageCount", 0));
+        return bulk.execute().getModifiedCount();
+    }
+
+    // number of distinct entries per tag ID; an entry listing a tag twice counts once
+    private Map<String, Integer> countEntriesPerTag() {
+        TypedAggregation<MarketplaceEntry> aggregation = Aggregation.newAggregation(MarketplaceEntry.class,
+                Aggregation.unwind("tagIds"),
+                Aggregation.group("tagIds").addToSet("id").as("entryIds"),
+                Aggregation.project().and(ArrayOperators.Size.lengthOfArray("entryIds")).as("count"));
+        List<Document> results = mongoTemplate.aggregate(aggregation, Document.class).getMappedResults();
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document result : results) {
+            counts.put(result.getString("_id"), result.getInteger("count"));
+        }
+        return counts;
+    }
+}
@@ -9,9 +9,10 @@ import java.util.List;
 
 /**
  * Repository for managing uploaded file entities.
+ * Reference counting of shared files is provided by {@link UploadedFileRepositoryCustom}.
  */
 @Repository
-public interface UploadedFileRepository extends MongoRepository<UploadedFile, String> {
+public interface UploadedFileRepository extends MongoRepository<UploadedFile, String>, UploadedFileRepositoryCustom {
 
     /**
      * Finds all uploaded files by model ID.
@@ -0,0 +1,25 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import java.util.Collection;
+
+/**
+ * Reference counting for uploaded files shared between published snapshots and adopted models.
+ * The first reference is the model the file was uploaded for; every further one is counted in {@code sharedRefs}.
+ */
+public interface UploadedFileRepositoryCustom {
+
+    /**
+     * Adds one shared reference to each of the given files in a single update.
+     *
+     * @param fileIds the file IDs
+     */
+    void acquireSharedReferences(Collection<String> fileIds);
+
+    /**
+     * Drops one shared reference of a file if it has any.
+     *
+     * @param fileId the file ID
+     * @return true if a shared reference was dropped, false if the caller held the last reference and may delete the file
+     */
+    boolean releaseSharedReference(String fileId);
+}
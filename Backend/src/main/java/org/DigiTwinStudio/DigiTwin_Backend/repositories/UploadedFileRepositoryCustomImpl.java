@@ -0,0 +1,37 @@
+package org.DigiTwinStudio.DigiTwin_Backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+/**
+ * {@link MongoTemplate} based implementation of {@link UploadedFileRepositoryCustom}.
+ * Counters are changed with atomic {@code $inc} updates, so concurrent adoptions and deletions never lose a reference.
+ */
+@RequiredArgsConstructor
+public class UploadedFileRepositoryCustomImpl implements UploadedFileRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void acquireSharedReferences(Collection<String> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(fileIds));
+        mongoTemplate.updateMulti(query, new Update().inc("sharedRefs", 1), UploadedFile.class);
+    }
+
+    @Override
+    public boolean releaseSharedReference(String fileId) {
+        Query query = Query.query(Criteria.where("_id").is(fileId).and("sharedRefs").gt(0));
+        return mongoTemplate.updateFirst(query, new Update().inc("sharedRefs", -1), UploadedFile.class).getModifiedCount() > 0;
+    }
+}
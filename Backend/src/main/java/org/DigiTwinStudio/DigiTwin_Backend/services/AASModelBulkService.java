@@ -0,0 +1,446 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.adapter.MultipartFileAdapter;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.BulkOperationType;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationResultDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ValidationException;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepositoryCustom.ContentReplacement;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepositoryCustom.Deletion;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.FileReferenceUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.validation.AASModelValidator;
+import org.DigiTwinStudio.DigiTwin_Backend.validation.FileUploadValidator;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Executes many create, save, delete and publish operations on AAS models in one request.
+ * <p>
+ * All referenced models and files are looked up with one query each, the models are validated in parallel,
+ * creations are inserted together and saves and deletions are sent as a single unordered bulk write.
+ * Every operation is checked like its single-model endpoint and reports its own result; a failing operation
+ * does not affect the others. Saves and deletions only apply to the version that was read; operations whose model
+ * was modified meanwhile report {@code 412 Precondition Failed}, like the single-model endpoints.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AASModelBulkService {
+
+    static final int MAX_BULK_OPERATIONS = 500;
+
+    private final AASModelRepository aasModelRepository;
+    private final AASModelValidator aasModelValidator;
+    private final UploadedFileRepository uploadedFileRepository;
+    private final FileUploadValidator fileUploadValidator;
+    private final MarketPlaceService marketPlaceService;
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final MarketplaceCache marketplaceCache;
+    private final MarketplaceSearchIndex marketplaceSearchIndex;
+    private final MarketplaceSuggestions marketplaceSuggestions;
+    private final SubmodelStorageService submodelStorageService;
+    private final ExportCache exportCache;
+
+    // state of one operation while the bulk request is processed
+    private static final class Pending {
+        private final int index;
+        private final BulkOperationDto operation;
+        private AASModel header;
+        private AASModel model;
+        private ValidationException error;
+
+        private Pending(int index, BulkOperationDto operation) {
+            this.index = index;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Executes the operations for a user and reports the outcome of each of them.
+     *
+     * @param userId     user ID
+     * @param operations the operations, at most {@value #MAX_BULK_OPERATIONS}
+     * @return one result per operation, in request order
+     * @throws BadRequestException if no or too many operations are given
+     */
+    public List<BulkOperationResultDto> execute(String userId, List<BulkOperationDto> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new BadRequestException("At least one bulk operation is required.");
+        }
+        if (operations.size() > MAX_BULK_OPERATIONS) {
+            throw new BadRequestException("At most " + MAX_BULK_OPERATIONS + " operations are allowed per bulk request.");
+        }
+        // stored dates have millisecond precision; needed to recognize our own writes below
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        BulkOperationResultDto[] results = new BulkOperationResultDto[operations.size()];
+
+        List<Pending> pending = prepare(userId, operations, now, results);
+        loadFullModels(pending);
+        validate(pending, results);
+
+        writeCreations(pending, results);
+        writeSavesAndDeletions(userId, pending, now, results);
+        writePublications(pending, results);
+        return Arrays.asList(results);
+    }
+
+    // checks everything that only needs the model headers, which are loaded with one query
+    private List<Pending> prepare(String userId, List<BulkOperationDto> operations, LocalDateTime now,
+                                  BulkOperationResultDto[] results) {
+        Set<String> modelIds = operations.stream()
+                .filter(Objects::nonNull)
+                .map(BulkOperationDto::getModelId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, AASModel> headers = modelIds.isEmpty() ? Map.of() : aasModelRepository.findHeadersByIds(modelIds).stream()
+                .collect(Collectors.toMap(AASModel::getId, Function.identity()));
+
+        List<Pending> pending = new ArrayList<>(operations.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Pending item = new Pending(i, operations.get(i) == null ? new BulkOperationDto() : operations.get(i));
+            try {
+                prepareOperation(item, userId, headers, seen, now);
+                pending.add(item);
+            } catch (ValidationException e) {
+                results[i] = failure(item, e);
+            }
+        }
+        return pending;
+    }
+
+    private void prepareOperation(Pending item, String userId, Map<String, AASModel> headers, Set<String> seen,
+                                  LocalDateTime now) {
+        BulkOperationDto operation = item.operation;
+        if (operation.getType() == null) {
+            throw new BadRequestException("Bulk operation type is required.");
+        }
+        if (operation.getType() == BulkOperationType.CREATE) {
+            item.model = buildModel(userId, operation, now);
+            return;
+        }
+
+        String modelId = operation.getModelId();
+        if (modelId == null || modelId.isBlank()) {
+            throw new BadRequestException("Bulk operation " + operation.getType() + " requires a modelId.");
+        }
+        if (!seen.add(modelId)) {
+            throw new BadRequestException("Model " + modelId + " appears in more than one bulk operation.");
+        }
+        AASModel header = headers.get(modelId);
+        if (header == null) {
+            throw new NotFoundException("Model with ID '" + modelId + "' not found.");
+        }
+        if (!header.getOwnerId().equals(userId)) {
+            throw new ForbiddenException("Access denied: model does not belong to user.");
+        }
+        if (operation.getExpectedVersion() != null && operation.getExpectedVersion() != header.getVersion()) {
+            throw new PreconditionFailedException("Model " + modelId + " was modified in the meantime (current version "
+                    + header.getVersion() + "). Please reload and try again.");
+        }
+        item.header = header;
+
+        switch (operation.getType()) {
+            case SAVE -> item.model = buildModel(userId, operation, now);
+            case PUBLISH -> {
+                if (header.isPublished()) {
+                    throw new ConflictException("Model is already published.");
+                }
+                if (operation.getPublishRequest() == null) {
+                    throw new BadRequestException("Bulk operation PUBLISH requires a publishRequest.");
+                }
+            }
+            default -> {
+                // DELETE needs no further data
+            }
+        }
+    }
+
+    // models to publish or delete are needed completely; adopted models are materialized before they are published
+    private void loadFullModels(List<Pending> pending) {
+        List<Pending> targets = pending.stream()
+                .filter(item -> item.operation.getType() == BulkOperationType.PUBLISH
+                        || item.operation.getType() == BulkOperationType.DELETE)
+                .toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+        for (Pending item : targets) {
+            if (item.operation.getType() == BulkOperationType.PUBLISH && submodelStorageService.isAdopted(item.header)) {
+                submodelStorageService.materialize(item.header);
+            }
+        }
+        Map<String, AASModel> models = new HashMap<>();
+        aasModelRepository.findAllById(targets.stream().map(item -> item.header.getId()).toList())
+                .forEach(model -> models.put(model.getId(), model));
+        for (Pending item : targets) {
+            AASModel model = models.get(item.header.getId());
+            if (model == null) {
+                item.error = new ConflictException("Model " + item.header.getId() + " was modified concurrently. Please reload and try again.");
+                continue;
+            }
+            // deletions and publications act on the loaded model, so it must still be the version the client has read
+            Long expectedVersion = item.operation.getExpectedVersion();
+            if (expectedVersion != null && expectedVersion != model.getVersion()) {
+                item.error = concurrentModification(item);
+                continue;
+            }
+            submodelStorageService.resolveSubmodels(model);
+            item.model = model;
+        }
+    }
+
+    // validates all models to be written in parallel; referenced files are resolved with one $in lookup
+    private void validate(List<Pending> pending, BulkOperationResultDto[] results) {
+        List<Pending> toValidate = pending.stream()
+                .filter(item -> item.error == null && item.operation.getType() != BulkOperationType.DELETE)
+                .toList();
+        Set<String> fileIds = new HashSet<>();
+        toValidate.forEach(item -> fileIds.addAll(FileReferenceUtil.collectFileIds(item.model.getSubmodels())));
+        Map<String, UploadedFile> filesById = new HashMap<>();
+        if (!fileIds.isEmpty()) {
+            uploadedFileRepository.findAllById(fileIds).forEach(file -> filesById.put(file.getId(), file));
+        }
+
+        toValidate.parallelStream().forEach(item -> {
+            try {
+                for (String fileId : FileReferenceUtil.collectFileIds(item.model.getSubmodels())) {
+                    UploadedFile file = filesById.get(fileId);
+                    if (file == null) {
+                        throw new NotFoundException("Referenced file not found: " + fileId);
+                    }
+                    fileUploadValidator.validate(new MultipartFileAdapter(file));
+                }
+                aasModelValidator.validate(item.model);
+            } catch (ValidationException e) {
+                item.error = e;
+            }
+        });
+
+        pending.removeIf(item -> {
+            if (item.error != null) {
+                results[item.index] = failure(item, item.error);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // all new models are inserted with one insertMany
+    private void writeCreations(List<Pending> pending, BulkOperationResultDto[] results) {
+        List<Pending> creations = ofType(pending, BulkOperationType.CREATE);
+        if (creations.isEmpty()) {
+            return;
+        }
+        aasModelRepository.saveAll(creations.stream().map(item -> item.model).toList());
+        for (Pending item : creations) {
+            results[item.index] = success(item, item.model.getId(), HttpStatus.CREATED, item.model.getVersion());
+        }
+    }
+
+    private void writeSavesAndDeletions(String userId, List<Pending> pending, LocalDateTime now,
+                                        BulkOperationResultDto[] results) {
+        List<Pending> saves = ofType(pending, BulkOperationType.SAVE);
+        List<Pending> deletions = ofType(pending, BulkOperationType.DELETE);
+
+        // externalized and adopted models need more than one write and go through the storage service
+        List<Pending> bulkSaves = new ArrayList<>();
+        for (Pending item : saves) {
+            if (submodelStorageService.isExternal(item.header) || submodelStorageService.isAdopted(item.header)) {
+                saveSingle(userId, item, now, results);
+            } else {
+                bulkSaves.add(item);
+            }
+        }
+        if (bulkSaves.isEmpty() && deletions.isEmpty()) {
+            return;
+        }
+
+        List<ContentReplacement> replacements = bulkSaves.stream()
+                .map(item -> new ContentReplacement(item.header.getId(), item.header.getVersion(),
+                        item.model.getAas(), item.model.getSubmodels()))
+                .toList();
+        // the loaded model is deleted, so its resources are released only if it was not modified meanwhile
+        List<Deletion> guardedDeletions = deletions.stream()
+                .map(item -> new Deletion(item.header.getId(), item.model.getVersion()))
+                .toList();
+        BulkWriteResult written = aasModelRepository.replaceAndDeleteInBulk(userId, replacements, guardedDeletions, now);
+
+        // the bulk result only counts matches and deletions, so the models are only read again if some did not apply
+        boolean savesMissed = written.getMatchedCount() < bulkSaves.size();
+        boolean deletionsMissed = written.getDeletedCount() < deletions.size();
+        Map<String, AASModel> current = new HashMap<>();
+        if (savesMissed || deletionsMissed) {
+            List<String> ids = new ArrayList<>();
+            if (savesMissed) {
+                bulkSaves.forEach(item -> ids.add(item.header.getId()));
+            }
+            if (deletionsMissed) {
+                deletions.forEach(item -> ids.add(item.header.getId()));
+            }
+            aasModelRepository.findHeadersByIds(ids).forEach(header -> current.put(header.getId(), header));
+        }
+        reportSaves(bulkSaves, savesMissed, current, now, results);
+        reportDeletions(deletions, written.getDeletedCount(), current, results);
+    }
+
+    private void saveSingle(String userId, Pending item, LocalDateTime now, BulkOperationResultDto[] results) {
+        String modelId = item.header.getId();
+        try {
+            AASModel saved = submodelStorageService.replaceContent(modelId, userId, item.header.getVersion(),
+                            item.model.getAas(), item.model.getSubmodels(), now)
+                    .orElseThrow(() -> concurrentModification(item));
+            results[item.index] = success(item, modelId, HttpStatus.OK, saved.getVersion());
+        } catch (ValidationException e) {
+            results[item.index] = failure(item, e);
+        }
+    }
+
+    // a save applied if the model carries our timestamp and version; current is only filled if some saves missed
+    private void reportSaves(List<Pending> saves, boolean missed, Map<String, AASModel> current, LocalDateTime now,
+                             BulkOperationResultDto[] results) {
+        for (Pending item : saves) {
+            long newVersion = item.header.getVersion() + 1;
+            AASModel header = current.get(item.header.getId());
+            boolean applied = !missed
+                    || (header != null && header.getVersion() == newVersion && now.equals(header.getUpdatedAt()));
+            results[item.index] = applied
+                    ? success(item, item.header.getId(), HttpStatus.OK, newVersion)
+                    : failure(item, concurrentModification(item));
+        }
+    }
+
+    // a model that still exists did not match its version; current is only filled if some deletions missed
+    private void reportDeletions(List<Pending> deletions, int deleted, Map<String, AASModel> current,
+                                 BulkOperationResultDto[] results) {
+        List<Pending> gone = deletions.stream().filter(item -> !current.containsKey(item.header.getId())).toList();
+        // fewer deletions than gone models: another request deleted some of them and released their files itself
+        boolean deletedByUs = gone.size() == deleted;
+        if (!deletedByUs) {
+            log.warn("{} of {} models were deleted concurrently; their file references are left unchanged.",
+                    gone.size() - deleted, gone.size());
+        }
+        for (Pending item : deletions) {
+            if (current.containsKey(item.header.getId())) {
+                results[item.index] = failure(item, concurrentModification(item));
+            } else {
+                releaseResources(item.model, deletedByUs);
+                results[item.index] = success(item, item.header.getId(), HttpStatus.NO_CONTENT, null);
+            }
+        }
+    }
+
+    // publishing also maintains tags and marketplace entries, so it reuses the single-model path
+    private void writePublications(List<Pending> pending, BulkOperationResultDto[] results) {
+        for (Pending item : ofType(pending, BulkOperationType.PUBLISH)) {
+            try {
+                marketPlaceService.publish(item.operation.getPublishRequest(), item.model);
+                results[item.index] = success(item, item.model.getId(), HttpStatus.OK, item.model.getVersion());
+            } catch (ValidationException e) {
+                results[item.index] = failure(item, e);
+            }
+        }
+    }
+
+    // removes marketplace entry, cached exports, externally stored submodels and the file references of a deleted model;
+    // only the file references are counted, everything else can be removed twice
+    private void releaseResources(AASModel model, boolean releaseFiles) {
+        exportCache.invalidateModel(model.getId());
+        // pending outbox events are deleted with the model, so an undispatched unpublish cannot remove the entry anymore
+        if (model.isPublished() || (model.getPendingEvents() != null && !model.getPendingEvents().isEmpty())) {
+            marketPlaceEntryRepository.deleteById(model.getId());
+            marketplaceSearchIndex.remove(model.getId());
+            marketplaceSuggestions.markStale();
+            marketplaceCache.invalidateCatalog();
+        }
+        if (submodelStorageService.isExternal(model)) {
+            submodelStorageService.deleteSubmodels(model.getId());
+        }
+        // an adopted model that was never edited holds no file references of its own
+        if (!releaseFiles || submodelStorageService.isAdopted(model)) {
+            return;
+        }
+        List<String> unused = new ArrayList<>();
+        for (String fileId : FileReferenceUtil.collectFileIds(model.getSubmodels())) {
+            if (!uploadedFileRepository.releaseSharedReference(fileId)) {
+                unused.add(fileId);
+            }
+        }
+        if (!unused.isEmpty()) {
+            uploadedFileRepository.deleteAllById(unused);
+        }
+    }
+
+    private AASModel buildModel(String userId, BulkOperationDto operation, LocalDateTime now) {
+        if (operation.getModel() == null) {
+            throw new BadRequestException("Bulk operation " + operation.getType() + " requires a model.");
+        }
+        return AASModel.builder()
+                .ownerId(userId)
+                .createdAt(now)
+                .updatedAt(now)
+                .published(false)
+                .aas(operation.getModel().getAas())
+                .submodels(operation.getModel().getSubmodels())
+                .build();
+    }
+
+    private static List<Pending> ofType(List<Pending> pending, BulkOperationType type) {
+        return pending.stream().filter(item -> item.operation.getType() == type).toList();
+    }
+
+    // same status as a rejected single-model save or patch
+    private static PreconditionFailedException concurrentModification(Pending item) {
+        return new PreconditionFailedException("Model " + item.header.getId() + " was modified in the meantime. Please reload and try again.");
+    }
+
+    private static BulkOperationResultDto success(Pending item, String modelId, HttpStatus status, Long version) {
+        return BulkOperationResultDto.builder()
+                .index(item.index)
+                .type(item.operation.getType())
+                .modelId(modelId)
+                .status(status.value())
+                .version(version)
+                .build();
+    }
+
+    private static BulkOperationResultDto failure(Pending item, ValidationException error) {
+        return BulkOperationResultDto.builder()
+                .index(item.index)
+                .type(item.operation.getType())
+                .modelId(item.operation.getModelId())
+                .status(error.getHttpStatus().value())
+                .error(error.getMessage())
+                .build();
+    }
+}
@@ -1,38 +1,58 @@
 package org.DigiTwinStudio.DigiTwin_Backend.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import lombok.RequiredArgsConstructor;
 
 import org.DigiTwinStudio.DigiTwin_Backend.adapter.MultipartFileAdapter;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelSummaryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.SubmodelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.SubmodelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.CursorUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.DateTimeUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.FileReferenceUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.JsonPatchUtil;
 import org.DigiTwinStudio.DigiTwin_Backend.validation.AASModelValidator;
 import org.DigiTwinStudio.DigiTwin_Backend.validation.FileUploadValidator;
 
-import org.eclipse.digitaltwin.aas4j.v3.model.File;
-import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.DeserializationException;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonDeserializer;
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Handles AAS model CRUD, file management, and publishing.
@@ -50,6 +70,15 @@ public class AASModelService {
     private final SubmodelMapper submodelMapper;
     private final MarketPlaceService marketPlaceService;
     private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final MarketplaceCache marketplaceCache;
+    private final MarketplaceSearchIndex marketplaceSearchIndex;
+    private final MarketplaceSuggestions marketplaceSuggestions;
+    private final SubmodelStorageService submodelStorageService;
+    private final ExportCache exportCache;
+    private final JsonSerializer jsonSerializer = new JsonSerializer();
+    private final JsonDeserializer jsonDeserializer = new JsonDeserializer();
+
+    static final int MAX_SUMMARY_PAGE_SIZE = 100;
 
     /**
      * Returns all AAS models for a user.
@@ -60,9 +89,49 @@ public class AASModelService {
     @Transactional(readOnly = true)
     public List<AASModelDto> getAllModelsForUser(String userId) {
         List<AASModel> models = aasModelRepository.findByOwnerId(userId);
+        models.forEach(submodelStorageService::resolveSubmodels);
         return models.stream().map(aasModelMapper::toDto).toList();
     }
 
+    /**
+     * Returns one page of model summaries for a user, most recently updated first.
+     * Only the summary fields are loaded; full models are fetched on demand via {@link #getModelById}.
+     *
+     * @param userId the user ID
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the requested page size, capped at {@value #MAX_SUMMARY_PAGE_SIZE}
+     * @return the page of {@link AASModelSummaryDto} with the cursor of the next page
+     * @throws BadRequestException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<AASModelSummaryDto> getModelSummariesForUser(String userId, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_SUMMARY_PAGE_SIZE);
+        LocalDateTime afterUpdatedAt = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorUtil.decode(cursor, 2);
+            try {
+                afterUpdatedAt = DateTimeUtil.parseIsoLocalDateTime(position[0]);
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new BadRequestException("Invalid pagination cursor.", e);
+            }
+            afterId = position[1];
+        }
+
+        // fetch one extra summary to know whether another page follows
+        List<AASModelSummary> summaries = aasModelRepository.findSummariesByOwnerId(userId, afterUpdatedAt, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            AASModelSummary last = summaries.getLast();
+            nextCursor = CursorUtil.encode(DateTimeUtil.formatIsoLocalDateTime(last.getUpdatedAt()), last.getId());
+        }
+        return CursorPageDto.<AASModelSummaryDto>builder()
+                .items(summaries.stream().map(aasModelMapper::toSummaryDto).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     /**
      * Returns a specific AAS model for a user.
      *
@@ -77,29 +146,152 @@ public class AASModelService {
         return aasModelMapper.toDto(model);
     }
 
+    /**
+     * Returns the current version of a model owned by the user without loading its content.
+     *
+     * @param id model ID
+     * @param userId user ID
+     * @return the model version
+     * @throws NotFoundException if the model does not exist
+     * @throws ForbiddenException if the model is not owned by the user
+     */
+    @Transactional(readOnly = true)
+    public long getModelVersion(String id, String userId) {
+        AASModel model = aasModelRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Model with ID '" + id + "' not found."));
+        validateOwnership(model, userId);
+        return model.getVersion();
+    }
+
     /**
      * Updates and saves an existing AAS model for a user.
+     * The model is replaced in place with a single conditional write, so its ID stays stable.
      *
      * @param id model ID
      * @param userId user ID
      * @param aasModelDto updated model data
+     * @param expectedVersion the version the client has read (from If-Match), or null to overwrite unconditionally
      * @return updated {@link AASModelDto}
-     * @throws NotFoundException if the model does not exist or is not owned by the user
+     * @throws NotFoundException if the model does not exist
+     * @throws ForbiddenException if the model is not owned by the user
+     * @throws PreconditionFailedException if the model was modified since the client read it
      * @throws BadRequestException if the model is invalid
      */
-    public AASModelDto saveModel(String id, String userId, AASModelDto aasModelDto) {
+    public AASModelDto saveModel(String id, String userId, AASModelDto aasModelDto, Long expectedVersion) {
         AASModel modelToSave = buildModelFromDto(userId, aasModelDto);
         // validate
         aasModelValidator.validate(modelToSave);
         validateModelWithFiles(modelToSave);
-        // check if model exists and delete adn save new
-        if (aasModelRepository.existsById(id)) {
-            aasModelRepository.save(modelToSave);
-            aasModelRepository.deleteById(id);
-            return aasModelMapper.toDto(modelToSave);
-        } else {
-            throw new NotFoundException("Model with id " + id + " not found");
+
+        return submodelStorageService.replaceContent(id, userId, expectedVersion,
+                        modelToSave.getAas(), modelToSave.getSubmodels(), modelToSave.getUpdatedAt())
+                .map(aasModelMapper::toDto)
+                .orElseThrow(() -> rejectedSave(id, userId));
+    }
+
+    /**
+     * Applies a JSON Patch (RFC 6902) to a model owned by the user.
+     * Paths address the AAS JSON of the model as {@code /aas/...} and {@code /submodels/<index>/...}.
+     * Only the shell and the submodels touched by the patch are loaded, validated and written back;
+     * patches that add, remove or reorder submodels replace the whole model like {@link #saveModel}.
+     *
+     * @param id model ID
+     * @param userId user ID
+     * @param patch the JSON Patch document
+     * @param expectedVersion the version the client has read (from If-Match), or null to patch the current version
+     * @return the new model version
+     * @throws NotFoundException if the model does not exist
+     * @throws ForbiddenException if the model is not owned by the user
+     * @throws PreconditionFailedException if the model was modified since the client read it
+     * @throws ConflictException if a test operation fails or the model was modified concurrently
+     * @throws BadRequestException if the patch is malformed or the patched model is invalid
+     */
+    public long patchModel(String id, String userId, JsonNode patch, Long expectedVersion) {
+        List<JsonPatchUtil.Operation> operations = JsonPatchUtil.parse(patch);
+        AASModel header = getModelHeaderOrThrow(id, userId);
+        if (expectedVersion != null && expectedVersion != header.getVersion()) {
+            throw new PreconditionFailedException("Model " + id + " was modified in the meantime (current version "
+                    + header.getVersion() + "). Please reload and try again.");
+        }
+        if (operations.isEmpty()) {
+            return header.getVersion();
         }
+
+        List<String> submodelIds = submodelStorageService.submodelIds(header);
+        boolean touchesAas = false;
+        boolean structural = false;
+        Set<Integer> touchedSubmodels = new TreeSet<>();
+        for (JsonPatchUtil.Operation operation : operations) {
+            List<List<String>> paths = operation.from() == null
+                    ? List.of(operation.path())
+                    : List.of(operation.path(), operation.from());
+            for (List<String> path : paths) {
+                if (path.isEmpty()) {
+                    structural = true;
+                } else if (path.getFirst().equals("aas")) {
+                    touchesAas = true;
+                } else if (!path.getFirst().equals("submodels")) {
+                    throw new BadRequestException("JSON Patch paths must start with /aas or /submodels: /" + String.join("/", path));
+                } else if (path.size() == 1 || (path.size() == 2 && !operation.op().equals("replace") && !operation.op().equals("test"))) {
+                    // the submodel list itself changes
+                    structural = true;
+                } else {
+                    int index = JsonPatchUtil.parseIndex(path.get(1));
+                    if (index < 0 || index >= submodelIds.size()) {
+                        throw new BadRequestException("JSON Patch path does not exist: /" + String.join("/", path));
+                    }
+                    touchedSubmodels.add(index);
+                }
+            }
+        }
+
+        if (structural) {
+            return patchWholeModel(id, userId, operations);
+        }
+
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        if (touchesAas) {
+            document.set("aas", toJson(aasModelRepository.findAas(id).orElse(null)));
+        }
+        ArrayNode submodels = document.putArray("submodels");
+        submodelIds.forEach(submodelId -> submodels.addNull());
+        for (int index : touchedSubmodels) {
+            DefaultSubmodel submodel = submodelStorageService.findSubmodel(header, submodelIds.get(index))
+                    .orElseThrow(() -> new ConflictException("Model " + id + " was modified concurrently. Please reload and try again."));
+            submodels.set(index, toJson(submodel));
+        }
+
+        JsonNode patched = JsonPatchUtil.apply(document, operations);
+
+        DefaultAssetAdministrationShell aas = null;
+        if (touchesAas && !patched.path("aas").equals(document.get("aas"))) {
+            aas = readAas(patched.get("aas"));
+            aasModelValidator.validateAas(aas);
+        }
+        Map<String, DefaultSubmodel> changed = new LinkedHashMap<>();
+        for (int index : touchedSubmodels) {
+            JsonNode node = patched.get("submodels").get(index);
+            if (node.equals(submodels.get(index))) {
+                continue;
+            }
+            DefaultSubmodel submodel = readSubmodel(node);
+            aasModelValidator.validateSubmodel(submodel);
+            String submodelId = submodelIds.get(index);
+            if (!Objects.equals(submodelId, submodel.getId()) && submodelIds.contains(submodel.getId())) {
+                throw new ConflictException("Submodel with ID " + submodel.getId() + " already exists.");
+            }
+            changed.put(submodelId, submodel);
+        }
+        if (aas == null && changed.isEmpty()) {
+            // only test operations or no-op changes
+            return header.getVersion();
+        }
+        validateModelWithFiles(AASModel.builder().submodels(new ArrayList<>(changed.values())).build());
+
+        if (!submodelStorageService.patchContent(header, aas, changed, LocalDateTime.now())) {
+            throw new ConflictException("Model " + id + " was modified concurrently. Please reload and try again.");
+        }
+        return header.getVersion() + 1;
     }
 
     /**
@@ -135,6 +327,7 @@ public class AASModelService {
 
     /**
      * Permanently deletes a model and all referenced files.
+     * Files shared with published snapshots or other models only lose one reference.
      *
      * @param id model ID
      * @param userId user ID
@@ -144,32 +337,30 @@ public class AASModelService {
     public void hardDeleteModel(String id, String userId) {
         AASModel model = getModelOrThrow(id, userId);
 
-        // Delete marketplace entry as well if model is published
-        if (model.isPublished()) {
+        // Delete marketplace entry as well if model is published, or an undispatched unpublish would leave it behind
+        if (model.isPublished() || (model.getPendingEvents() != null && !model.getPendingEvents().isEmpty())) {
             try {
                 marketPlaceEntryRepository.deleteById(model.getId());
+                marketplaceSearchIndex.remove(model.getId());
+                marketplaceSuggestions.markStale();
+                marketplaceCache.invalidateCatalog();
             } catch (Exception e) {
                 throw new BadRequestException("Failed to delete marketplace entry for model: " + model.getId(), e);
             }
         }
 
-        if (model.getSubmodels() != null && !model.getSubmodels().isEmpty()) {
-            for (DefaultSubmodel submodel : model.getSubmodels()) {
-                for (String fileId : findFileIdsInSubmodel(submodel)) {
-                    try {
-                        uploadedFileRepository.deleteById(fileId);
-                    } catch (Exception e) {
-                        throw new BadRequestException("Failed to delete uploaded file: " + fileId, e);
-                    }
-                }
-            }
+        // an adopted model that was never edited holds no file references of its own
+        if (!submodelStorageService.isAdopted(model)) {
+            FileReferenceUtil.collectFileIds(model.getSubmodels()).forEach(this::releaseFile);
         }
 
         try {
             aasModelRepository.deleteById(model.getId());
+            submodelStorageService.deleteSubmodels(model.getId());
         } catch (Exception e) {
             throw new BadRequestException("Failed to delete model: " + model.getId(), e);
         }
+        exportCache.invalidateModel(model.getId());
     }
 
     /**
@@ -188,6 +379,11 @@ public class AASModelService {
         if (model.isPublished()) {
             throw new ConflictException("Model is already published.");
         }
+        // a published model is indexed and snapshotted from its own submodels, so an adopted model gets them first
+        if (submodelStorageService.isAdopted(model)) {
+            submodelStorageService.materialize(model);
+            model = getModelOrThrow(id, userId);
+        }
 
         validateModelWithFiles(model);
         aasModelValidator.validate(model);
@@ -213,132 +409,195 @@ public class AASModelService {
     }
 
     /**
-     * Creates a new empty model for a user and copies a published marketplace entry into it.
+     * Adds a published marketplace entry to the models of a user.
+     * The new model only stores its own shell and references the published snapshot for its submodels;
+     * it is materialized into a full copy when the user first modifies it.
      *
      * @param entryId marketplace entry ID
      * @param userId user ID
      * @throws BadRequestException if the published model does not exist
      */
     public void addEntryModelToUser(String entryId, String userId)  throws BadRequestException {
-        AASModel newModel = buildModelFromDto(userId, this.marketPlaceService.getPublishedModel(entryId));
-        // remove publish data
-        newModel.setPublished(false);
-        LocalDateTime now = LocalDateTime.now();
-        newModel.setUpdatedAt(now);
-        newModel.setCreatedAt(now);
-        newModel.setPublishMetadata(null);
+        PublishedSnapshot snapshot = this.marketPlaceService.getOrCreateSnapshot(entryId);
+        DefaultAssetAdministrationShell aas = snapshot.getAas();
         // mark as: "from ModelHub"
-        newModel.getAas().setIdShort(newModel.getAas().getIdShort().concat(" - ModelHub"));
-        newModel.setAas(newModel.getAas());
+        aas.setIdShort(aas.getIdShort().concat(" - ModelHub"));
+        LocalDateTime now = LocalDateTime.now();
+        AASModel newModel = AASModel.builder()
+                .ownerId(userId)
+                .createdAt(now)
+                .updatedAt(now)
+                .published(false)
+                .aas(aas)
+                .sourceSnapshotId(snapshot.getId())
+                // the snapshot header has no submodels to count
+                .snapshotSubmodelCount(snapshot.getSubmodelCount())
+                .build();
         this.aasModelRepository.save(newModel);
         this.marketPlaceService.incrementDownloadCount(entryId);
     }
 
     /**
      * Adds a submodel to a model if not already present.
+     * Only the new submodel is validated and appended in place; the rest of the model is neither loaded nor rewritten.
      *
      * @param modelId model ID
      * @param dto submodel data
      * @param userId user ID
-     * @return updated {@link AASModelDto}
-     * @throws ConflictException if submodel with the same ID exists
+     * @return the attached {@link SubmodelDto}
+     * @throws ConflictException if submodel with the same ID exists or the model was modified concurrently
      * @throws NotFoundException if the model does not exist or is not owned by the user
-     * @throws BadRequestException if the model is invalid
+     * @throws BadRequestException if the submodel is invalid
      */
-    public AASModelDto attachSubmodel(String modelId, SubmodelDto dto, String userId) {
-        AASModel model = getModelOrThrow(modelId, userId);
+    public SubmodelDto attachSubmodel(String modelId, SubmodelDto dto, String userId) {
+        AASModel header = getModelHeaderOrThrow(modelId, userId);
         DefaultSubmodel submodel = submodelMapper.fromDto(dto);
 
         // to prevent adding the same submodel (by ID) multiple times to one AAS model (necessary?)
-        doesSubmodelExist(model, submodel);
+        doesSubmodelExist(header, submodel);
 
-        model.getSubmodels().add(submodel);
-        model.setUpdatedAt(LocalDateTime.now());
+        aasModelValidator.validateSubmodel(submodel);
 
-        aasModelValidator.validate(model);
-
-        return aasModelMapper.toDto(aasModelRepository.save(model));
+        if (!submodelStorageService.pushSubmodel(header, submodel, LocalDateTime.now())) {
+            throw new ConflictException("Model " + modelId + " was modified concurrently. Please reload and try again.");
+        }
+        return submodelMapper.toDto(submodel);
     }
 
     /**
      * Updates a submodel in a model.
+     * Only the changed submodel is validated and replaced in place.
      *
      * @param modelId model ID
      * @param submodelId submodel ID
      * @param dto updated submodel data
      * @param userId user ID
-     * @return updated {@link AASModelDto}
+     * @return the updated {@link SubmodelDto}
      * @throws NotFoundException if the model or submodel does not exist or is not owned by the user
-     * @throws BadRequestException if the model is invalid
+     * @throws ConflictException if the model was modified concurrently
+     * @throws BadRequestException if the submodel is invalid
      */
-    public AASModelDto updateSubmodel(String modelId, String submodelId, SubmodelDto dto, String userId) {
-        AASModel model = getModelOrThrow(modelId, userId);
+    public SubmodelDto updateSubmodel(String modelId, String submodelId, SubmodelDto dto, String userId) {
+        AASModel header = getModelHeaderOrThrow(modelId, userId);
 
-        replaceSubmodel(model, submodelId, dto);
-
-        model.setUpdatedAt(LocalDateTime.now());
+        if (!containsSubmodel(header, submodelId)) {
+            throw new NotFoundException("Submodel with ID " + submodelId + " not found.");
+        }
 
-        aasModelValidator.validate(model);
+        DefaultSubmodel updated = submodelMapper.fromDto(dto);
+        aasModelValidator.validateSubmodel(updated);
 
-        return aasModelMapper.toDto(aasModelRepository.save(model));
+        if (!submodelStorageService.setSubmodel(header, submodelId, updated, LocalDateTime.now())) {
+            throw new ConflictException("Model " + modelId + " was modified concurrently. Please reload and try again.");
+        }
+        return submodelMapper.toDto(updated);
     }
 
     /**
-     * Removes a submodel from a model by its ID.
+     * Removes a submodel from a model by its ID and deletes the files it references.
      *
      * @param id model ID
      * @param submodelId submodel ID
      * @param userId user ID
-     * @return updated {@link AASModelDto}
      * @throws NotFoundException if the submodel does not exist in the model
+     * @throws ConflictException if the model was modified concurrently
      */
-    public AASModelDto removeSubmodel(String id, String submodelId, String userId) {
-        AASModel model = getModelOrThrow(id, userId);
+    public void removeSubmodel(String id, String submodelId, String userId) {
+        AASModel header = getModelHeaderOrThrow(id, userId);
 
-        if (model.getSubmodels() == null || model.getSubmodels().isEmpty()) {
-            throw new NotFoundException("No submodels present in this model.");
+        if (!containsSubmodel(header, submodelId)) {
+            throw new NotFoundException("Submodel with ID " + submodelId + " not found.");
         }
 
-        DefaultSubmodel toRemove = null;
-        for (DefaultSubmodel submodel : model.getSubmodels()) {
-            if (Objects.equals(submodel.getId(), submodelId)) {
-                toRemove = submodel;
-                break;
-            }
-        }
+        DefaultSubmodel toRemove = submodelStorageService.findSubmodel(header, submodelId)
+                .orElseThrow(() -> new NotFoundException("Submodel with ID " + submodelId + " not found."));
 
-        if (toRemove == null) {
-            throw new NotFoundException("Submodel with ID " + submodelId + " not found.");
+        if (!submodelStorageService.pullSubmodel(header, submodelId, LocalDateTime.now())) {
+            throw new ConflictException("Model " + id + " was modified concurrently. Please reload and try again.");
         }
 
-        for (String fileId : findFileIdsInSubmodel(toRemove)) {
-            try {
+        FileReferenceUtil.collectFileIds(toRemove).forEach(this::releaseFile);
+    }
+
+    // drops one reference of a file and deletes it once no published snapshot or other model uses it anymore
+    private void releaseFile(String fileId) {
+        try {
+            if (!uploadedFileRepository.releaseSharedReference(fileId)) {
                 uploadedFileRepository.deleteById(fileId);
-            } catch (Exception e) {
-                throw new BadRequestException("Failed to delete uploaded file: " + fileId, e);
             }
+        } catch (Exception e) {
+            throw new BadRequestException("Failed to delete uploaded file: " + fileId, e);
         }
-
-        model.getSubmodels().remove(toRemove);
-        model.setUpdatedAt(LocalDateTime.now());
-        return aasModelMapper.toDto(aasModelRepository.save(model));
     }
 
+    // resolves every file referenced anywhere in the model with a single $in lookup
     private void validateModelWithFiles(AASModel model) {
-        if (model.getSubmodels() != null && !model.getSubmodels().isEmpty()) {
-            for (DefaultSubmodel submodel : model.getSubmodels()) {
-                for (String fileId : findFileIdsInSubmodel(submodel)) {
-                    validateFileReference(fileId);
-                }
+        Set<String> fileIds = FileReferenceUtil.collectFileIds(model.getSubmodels());
+        if (fileIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, UploadedFile> filesById = new HashMap<>();
+        for (UploadedFile file : uploadedFileRepository.findAllById(fileIds)) {
+            filesById.put(file.getId(), file);
+        }
+
+        for (String fileId : fileIds) {
+            UploadedFile file = filesById.get(fileId);
+            if (file == null) {
+                throw new NotFoundException("Referenced file not found: " + fileId);
             }
+            fileUploadValidator.validate(new MultipartFileAdapter(file));
+        }
+    }
+
+    // fallback for patches that change the submodel list: patch the complete model and save it as a whole
+    private long patchWholeModel(String id, String userId, List<JsonPatchUtil.Operation> operations) {
+        AASModel model = getModelOrThrow(id, userId);
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        document.set("aas", toJson(model.getAas()));
+        ArrayNode submodels = document.putArray("submodels");
+        if (model.getSubmodels() != null) {
+            model.getSubmodels().forEach(submodel -> submodels.add(toJson(submodel)));
+        }
+
+        JsonNode patched = JsonPatchUtil.apply(document, operations);
+        if (!patched.path("submodels").isArray()) {
+            throw new BadRequestException("Patched model must contain a submodels array");
         }
+        List<DefaultSubmodel> patchedSubmodels = new ArrayList<>();
+        patched.get("submodels").forEach(node -> patchedSubmodels.add(readSubmodel(node)));
+
+        AASModelDto dto = new AASModelDto();
+        dto.setAas(readAas(patched.get("aas")));
+        dto.setSubmodels(patchedSubmodels);
+        return saveModel(id, userId, dto, model.getVersion()).getVersion();
     }
 
-    private void validateFileReference(String fileId) {
-        UploadedFile file = uploadedFileRepository.findById(fileId)
-                .orElseThrow(() -> new NotFoundException("Referenced file not found: " + fileId));
-        MultipartFile multipartFile = new MultipartFileAdapter(file);
-        fileUploadValidator.validate(multipartFile);
+    private JsonNode toJson(Object aasObject) {
+        return aasObject == null ? JsonNodeFactory.instance.nullNode() : jsonSerializer.toNode(aasObject);
+    }
+
+    private DefaultAssetAdministrationShell readAas(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        try {
+            return jsonDeserializer.read(node, DefaultAssetAdministrationShell.class);
+        } catch (DeserializationException | RuntimeException e) {
+            throw new BadRequestException("Patched shell is not a valid AssetAdministrationShell: " + e.getMessage(), e);
+        }
+    }
+
+    private DefaultSubmodel readSubmodel(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            throw new BadRequestException("Patched submodel must be a JSON object");
+        }
+        try {
+            return jsonDeserializer.read(node, DefaultSubmodel.class);
+        } catch (DeserializationException | RuntimeException e) {
+            throw new BadRequestException("Patched submodel is not a valid Submodel: " + e.getMessage(), e);
+        }
     }
 
     private AASModel buildModelFromDto(String userId, AASModelDto dto) {
@@ -367,55 +626,47 @@ public class AASModelService {
                 .build();
     }
 
-    private List<String> findFileIdsInSubmodel(DefaultSubmodel submodel) {
-        List<String> fileIds = new ArrayList<>();
-        if (submodel.getSubmodelElements() != null && !submodel.getSubmodelElements().isEmpty()) {
-            for (SubmodelElement element : submodel.getSubmodelElements()) {
-                if (element instanceof File fileElem) {
-                    String fileId = fileElem.getValue();
-                    if (fileId != null && !fileId.isBlank()) {
-                        fileIds.add(fileId);
-                    }
-                }
-            }
-        }
-        return fileIds;
-    }
-
     private void doesSubmodelExist(AASModel model, DefaultSubmodel submodel) {
-        boolean exists = model.getSubmodels().stream()
-                .anyMatch(existing -> existing.getId().equals(submodel.getId()));
-
-        if (exists) {
+        if (containsSubmodel(model, submodel.getId())) {
             throw new ConflictException("Submodel with ID " + submodel.getId() + " already exists.");
         }
     }
 
-    private void replaceSubmodel(AASModel model, String submodelId, SubmodelDto dto) {
-        DefaultSubmodel updated = submodelMapper.fromDto(dto);
-        List<DefaultSubmodel> submodels = model.getSubmodels();
-
-        boolean replaced = false;
-        for (int i = 0; i < submodels.size(); i++) {
-            if (Objects.equals(submodels.get(i).getId(), submodelId)) {
-                submodels.set(i, updated);
-                replaced = true;
-                break;
-            }
-        }
-
-        if (!replaced) {
-            throw new NotFoundException("Submodel with ID " + submodelId + " not found.");
+    private boolean containsSubmodel(AASModel model, String submodelId) {
+        if (model.getSubmodelRefs() != null) {
+            return model.getSubmodelRefs().contains(submodelId);
         }
+        return model.getSubmodels() != null && model.getSubmodels().stream()
+                .anyMatch(existing -> Objects.equals(existing.getId(), submodelId));
     }
 
     private AASModel getModelOrThrow(String id, String userId) {
         AASModel model = aasModelRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Model with ID '" + id + "' not found."));
         validateOwnership(model, userId);
+        submodelStorageService.resolveSubmodels(model);
         return model;
     }
 
+    // explains why a conditional save matched nothing; only runs on the failure path
+    private RuntimeException rejectedSave(String id, String userId) {
+        AASModel header = getModelHeaderOrThrow(id, userId);
+        return new PreconditionFailedException("Model " + id + " was modified in the meantime (current version "
+                + header.getVersion() + "). Please reload and try again.");
+    }
+
+    // every caller is about to modify the model, so an adopted model is materialized and its header read again
+    private AASModel getModelHeaderOrThrow(String id, String userId) {
+        AASModel header = aasModelRepository.findHeaderById(id)
+                .orElseThrow(() -> new NotFoundException("Model with ID '" + id + "' not found."));
+        validateOwnership(header, userId);
+        if (submodelStorageService.isAdopted(header)) {
+            submodelStorageService.materialize(header);
+            return getModelHeaderOrThrow(id, userId);
+        }
+        return header;
+    }
+
     private void validateOwnership(AASModel model, String userId) {
         if (!model.getOwnerId().equals(userId)) {
             throw new ForbiddenException("Access denied: model does not belong to user.");
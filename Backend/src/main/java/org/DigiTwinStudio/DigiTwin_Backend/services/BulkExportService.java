@@ -0,0 +1,241 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkExportRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports several models of a user as one ZIP archive with one JSON or AASX file per model.
+ * <p>
+ * The models are checked when the export is requested; the archive is written while it is streamed to the client.
+ * Up to {@code digitwin.bulk-export.threads} entries are exported ahead on a shared worker pool, each through
+ * {@link ExportService} (so unchanged models come from the {@link ExportCache}) into its own temporary file.
+ * The entries are copied into the archive in order and their files deleted right away, so neither the archive nor
+ * more than a window of entries is ever held, in memory or on disk. AASX packages are already compressed and are
+ * stored without compressing them again. If an entry fails, the archive is aborted, like a failed single export.
+ * The worker pool is exposed as {@code executor.*} metrics with the tag {@code name=export.bulk}.
+ * </p>
+ */
+@Slf4j
+@Service
+public class BulkExportService {
+
+    static final int MAX_MODELS = 500;
+    private static final int SUMMARY_PAGE_SIZE = 500;
+
+    private final ExportService exportService;
+    private final AASModelRepository aasModelRepository;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public BulkExportService(ExportService exportService, AASModelRepository aasModelRepository, MeterRegistry meterRegistry,
+                             @Value("${digitwin.bulk-export.threads:4}") int threads) {
+        this.exportService = exportService;
+        this.aasModelRepository = aasModelRepository;
+        this.parallelism = threads;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "bulk-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), "export.bulk");
+    }
+
+    /**
+     * Exports the selected models of a user as a ZIP archive.
+     * The models are resolved and checked right away; the archive is only written when the content is streamed to the client.
+     *
+     * @param request the models to export: at most {@value #MAX_MODELS} model IDs, or all models of a user with at most that many
+     * @param format  the export format of the entries (JSON or AASX)
+     * @param userId  the user ID requesting the export
+     * @return the archive as an {@link ExportedFile}
+     * @throws BadRequestException if the selection is empty, ambiguous or too large
+     * @throws NotFoundException   if a model does not exist or does not belong to the user
+     * @throws ExportException     if a model could not be exported while the archive is written
+     */
+    public ExportedFile export(BulkExportRequestDto request, ExportFormat format, String userId) {
+        List<AASModelSummary> models = resolveModels(request, userId);
+        Map<String, String> entryNames = entryNames(models, format);
+
+        return new ExportedFile(out -> writeArchive(models, entryNames, format, userId, out),
+                "models.zip", "application/zip");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<AASModelSummary> resolveModels(BulkExportRequestDto request, String userId) {
+        List<String> modelIds = request == null || request.getModelIds() == null ? List.of() : request.getModelIds();
+        boolean allModels = request != null && request.isAllModels();
+        if (allModels == !modelIds.isEmpty()) {
+            throw new BadRequestException("Either model IDs or all models must be selected for a bulk export.");
+        }
+        if (allModels) {
+            return findAllSummaries(userId);
+        }
+        if (modelIds.size() > MAX_MODELS) {
+            throw new BadRequestException("At most " + MAX_MODELS + " models can be exported at once.");
+        }
+
+        Set<String> distinctIds = new LinkedHashSet<>(modelIds);
+        Map<String, AASModelSummary> owned = aasModelRepository.findSummariesByOwnerIdAndIds(userId, distinctIds).stream()
+                .collect(Collectors.toMap(AASModelSummary::getId, Function.identity()));
+        List<String> missing = distinctIds.stream().filter(id -> !owned.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new NotFoundException("Could not find models with given Ids: " + String.join(", ", missing));
+        }
+        return distinctIds.stream().map(owned::get).toList();
+    }
+
+    // pages through the summaries, so no full model is loaded before its entry is written; keyset paging can return a model
+    // updated in the meantime twice, so the summaries are collected by ID
+    private List<AASModelSummary> findAllSummaries(String userId) {
+        Map<String, AASModelSummary> all = new LinkedHashMap<>();
+        AASModelSummary last = null;
+        List<AASModelSummary> page;
+        do {
+            page = aasModelRepository.findSummariesByOwnerId(userId,
+                    last == null ? null : last.getUpdatedAt(), last == null ? null : last.getId(), SUMMARY_PAGE_SIZE);
+            page.forEach(summary -> all.putIfAbsent(summary.getId(), summary));
+            if (all.size() > MAX_MODELS) {
+                throw new BadRequestException("At most " + MAX_MODELS + " models can be exported at once; select the models to export.");
+            }
+            if (!page.isEmpty()) {
+                last = page.getLast();
+            }
+        } while (page.size() == SUMMARY_PAGE_SIZE);
+        return new ArrayList<>(all.values());
+    }
+
+    // entries are named after the shell's idShort; names used more than once get the model ID appended
+    private static Map<String, String> entryNames(List<AASModelSummary> models, ExportFormat format) {
+        Map<String, Long> counts = models.stream()
+                .collect(Collectors.groupingBy(BulkExportService::baseName, Collectors.counting()));
+        return models.stream().collect(Collectors.toMap(AASModelSummary::getId, model -> {
+            String name = baseName(model);
+            if (counts.get(name) > 1) {
+                name = name + "_" + model.getId().replaceAll("[^A-Za-z0-9_-]", "_");
+            }
+            return name + "." + format.getFileExtension();
+        }));
+    }
+
+    private static String baseName(AASModelSummary model) {
+        String idShort = model.getIdShort();
+        return idShort == null || idShort.isBlank()
+                ? model.getId().replaceAll("[^A-Za-z0-9_-]", "_")
+                : idShort.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private void writeArchive(List<AASModelSummary> models, Map<String, String> entryNames, ExportFormat format,
+                              String userId, OutputStream out) throws IOException {
+        Iterator<AASModelSummary> remaining = models.iterator();
+        Deque<PendingEntry> window = new ArrayDeque<>();
+        try {
+            ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(out));
+            zip.setLevel(format == ExportFormat.AASX ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            while (remaining.hasNext() || !window.isEmpty()) {
+                while (window.size() < parallelism && remaining.hasNext()) {
+                    AASModelSummary model = remaining.next();
+                    window.add(submit(model.getId(), entryNames.get(model.getId()), format, userId));
+                }
+                PendingEntry entry = window.poll();
+                try {
+                    await(entry);
+                    zip.putNextEntry(new ZipEntry(entry.name()));
+                    Files.copy(entry.file(), zip);
+                    zip.closeEntry();
+                } finally {
+                    deleteFile(entry.file());
+                }
+            }
+            zip.finish();
+        } finally {
+            // the client went away or an entry failed: stop the entries exported ahead
+            for (PendingEntry entry : window) {
+                entry.future().cancel(true);
+                deleteFile(entry.file());
+            }
+        }
+    }
+
+    private PendingEntry submit(String modelId, String name, ExportFormat format, String userId) throws IOException {
+        Path file = Files.createTempFile("digitwin-bulk-export-", "." + format.getFileExtension());
+        // the file is created here and only opened for writing by the worker, so a file deleted after a cancellation is not created again
+        Future<?> future = executor.submit(() -> {
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                exportService.export(modelId, modelId, format, userId).content().writeTo(fileOut);
+            }
+            return null;
+        });
+        return new PendingEntry(modelId, name, file, future);
+    }
+
+    private static void await(PendingEntry entry) throws IOException {
+        try {
+            entry.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting model " + entry.modelId());
+        } catch (ExecutionException e) {
+            log.error("Bulk export of model {} failed", entry.modelId(), e.getCause());
+            throw new ExportException("Failed to export model " + entry.modelId(), e.getCause());
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete bulk export file {}", file, e);
+        }
+    }
+
+    private record PendingEntry(String modelId, String name, Path file, Future<?> future) {
+    }
+}
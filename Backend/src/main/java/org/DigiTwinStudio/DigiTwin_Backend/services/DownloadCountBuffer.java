@@ -0,0 +1,84 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers marketplace download counts in memory and writes them to the database in batches.
+ * <p>
+ * Every download only increments a {@link LongAdder} of its entry, so concurrent downloads of the same entry
+ * neither wait for each other nor for the database. The buffered counts are flushed every
+ * {@code digitwin.download-counts.flush-interval} milliseconds and on shutdown, with one unordered bulk write
+ * of {@code $inc} updates. Counts of a failed flush stay buffered and are written with the next one.
+ * The adder of an entry is kept once created, even while idle: removing it could race with a download that
+ * already holds it, and an adder takes only a few bytes per downloaded entry.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DownloadCountBuffer {
+
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final MarketplaceCache marketplaceCache;
+    private final MarketplaceSearchIndex marketplaceSearchIndex;
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Counts one download of a marketplace entry.
+     *
+     * @param entryId marketplace entry ID
+     */
+    public void record(String entryId) {
+        pending.computeIfAbsent(entryId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Writes all buffered download counts to the database and the search index, and drops the cached marketplace pages showing them.
+     */
+    @Scheduled(fixedDelayString = "${digitwin.download-counts.flush-interval:5000}")
+    public synchronized void flush() {
+        Map<String, Long> increments = new HashMap<>();
+        pending.forEach((entryId, adder) -> {
+            // a download counted concurrently either is part of this sum or stays in the adder for the next flush
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                increments.put(entryId, count);
+            }
+        });
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        try {
+            marketPlaceEntryRepository.incrementDownloadCounts(increments);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush download counts of {} entries, retrying with the next flush.", increments.size(), e);
+            increments.forEach((entryId, count) -> pending.computeIfAbsent(entryId, id -> new LongAdder()).add(count));
+            return;
+        }
+        marketplaceSearchIndex.addDownloads(increments);
+        marketplaceCache.invalidateDownloadCounts(increments.keySet());
+    }
+
+    /**
+     * Writes the remaining buffered download counts before the application stops.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
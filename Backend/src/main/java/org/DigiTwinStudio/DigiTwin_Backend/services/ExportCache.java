@@ -0,0 +1,212 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+
+import org.apache.commons.io.output.TeeOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Local disk cache for rendered exports of stored models, keyed by model ID, model version and format.
+ * <p>
+ * Every write of a model increments its version, so a cached file is never served for content it does not match;
+ * files of older versions are dropped as soon as a newer version of the model is cached. Uploaded files are part of
+ * AASX packages without changing the model version, so {@link FileStorageService} invalidates the model on uploads
+ * and deletions, as does deleting the model itself.
+ * </p>
+ * <p>
+ * A miss renders the export once and writes it to the client and to a new file in {@code digitwin.export-cache.directory}
+ * at the same time; the file is only cached if the export completed, under the version the renderer actually loaded,
+ * as the model may have been saved again since the key was built. Hits are copied from the file without loading
+ * or serializing the model. The total size of the files is bounded by {@code digitwin.export-cache.max-size}, evicting
+ * with Caffeine's W-TinyLFU policy. The directory is emptied on startup and must not be shared with other data.
+ * Statistics are exposed as {@code cache.*} metrics with the tag {@code cache=export.artifacts}, the occupied
+ * disk space as {@code digitwin.export.cache.bytes}.
+ * </p>
+ */
+@Slf4j
+@Component
+public class ExportCache {
+
+    // incremented on every invalidation; an export rendered meanwhile may contain invalidated files and is not kept
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Path directory;
+    private final long maxBytes;
+    private final Cache<Key, Artifact> artifacts;
+
+    public ExportCache(MeterRegistry meterRegistry,
+                       @Value("${digitwin.export-cache.directory:${java.io.tmpdir}/digitwin-export-cache}") String directory,
+                       @Value("${digitwin.export-cache.max-size:1GB}") DataSize maxSize) {
+        this.directory = Path.of(directory);
+        this.maxBytes = maxSize.toBytes();
+        this.artifacts = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, Artifact artifact) -> (int) Math.min(artifact.size(), Integer.MAX_VALUE))
+                // delete files in the calling thread, so an evicted file is gone when put or invalidate returns
+                .executor(Runnable::run)
+                .removalListener((Key key, Artifact artifact, RemovalCause cause) -> {
+                    if (artifact != null) {
+                        deleteFile(artifact.path());
+                    }
+                })
+                .recordStats()
+                .build();
+        clearDirectory();
+        CaffeineCacheMetrics.monitor(meterRegistry, artifacts, "export.artifacts");
+        Gauge.builder("digitwin.export.cache.bytes", artifacts,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Disk space occupied by cached export files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes an export to the client, from the cached file if there is one and rendered otherwise.
+     * A rendered export is cached once it was written completely; a failure of the renderer or the client is passed on
+     * and nothing is cached.
+     *
+     * @param key      the model ID, version and format of the export
+     * @param out      the stream to write to; it is not closed
+     * @param renderer renders the export if it is not cached, and reports the model version it rendered
+     * @throws IOException if writing to the client failed
+     */
+    public void write(Key key, OutputStream out, Renderer renderer) throws IOException {
+        Artifact cached = artifacts.getIfPresent(key);
+        if (cached != null && copy(cached, out)) {
+            return;
+        }
+        render(key, out, renderer);
+    }
+
+    /**
+     * Drops all cached exports of a model, e.g. after it was deleted or its uploaded files changed.
+     *
+     * @param modelId the model ID
+     */
+    public void invalidateModel(String modelId) {
+        invalidations.incrementAndGet();
+        artifacts.asMap().keySet().removeIf(key -> key.modelId().equals(modelId));
+    }
+
+    // returns false if the file was evicted since the lookup
+    private boolean copy(Artifact artifact, OutputStream out) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(artifact.path(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // an open file stays readable when it is evicted meanwhile
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            while (position < artifact.size()) {
+                position += channel.transferTo(position, artifact.size() - position, target);
+            }
+        }
+        return true;
+    }
+
+    private void render(Key key, OutputStream out, Renderer renderer) throws IOException {
+        long generation = invalidations.get();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(UUID.randomUUID() + "." + key.format().getFileExtension());
+        boolean complete = false;
+        long renderedVersion;
+        try {
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file))) {
+                renderedVersion = renderer.render(new TeeOutputStream(out, fileOut));
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                deleteFile(file);
+            }
+        }
+
+        long size = Files.size(file);
+        if (size > maxBytes) {
+            deleteFile(file);
+            return;
+        }
+        // the model was saved between building the key and loading it: the file holds the newer version
+        Key rendered = renderedVersion == key.version() ? key : new Key(key.modelId(), renderedVersion, key.format());
+        artifacts.put(rendered, new Artifact(file, size));
+        if (invalidations.get() != generation) {
+            artifacts.invalidate(rendered);
+            return;
+        }
+        artifacts.asMap().keySet().removeIf(other -> other.modelId().equals(rendered.modelId()) && other.version() < rendered.version());
+    }
+
+    private void clearDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach(this::deleteFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clear export cache directory " + directory, e);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached export file {}", file, e);
+        }
+    }
+
+    /**
+     * Identifies a rendered export: one model version in one format.
+     */
+    public record Key(String modelId, long version, ExportFormat format) {
+    }
+
+    /**
+     * Renders an export to the given stream.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+
+        /**
+         * Renders the export.
+         *
+         * @param out the stream to write to
+         * @return the version of the model that was rendered
+         * @throws IOException if writing failed
+         */
+        long render(OutputStream out) throws IOException;
+    }
+
+    private record Artifact(Path path, long size) {
+    }
+}
@@ -0,0 +1,319 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJob;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJobStatus;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.ExportJobDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ServiceUnavailableException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.TooManyRequestsException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs exports of stored models in the background, so large AASX packages do not hold a request thread while they are written.
+ * <p>
+ * Jobs run on a dedicated pool of {@code digitwin.export-jobs.threads} threads with a queue of at most
+ * {@code digitwin.export-jobs.queue-capacity} waiting jobs; further jobs are rejected with 503 instead of piling up.
+ * A user can have at most {@code digitwin.export-jobs.max-per-user} jobs, running or finished and retained, so a single
+ * user can neither fill the queue nor the disk; further jobs of the user are rejected with 429.
+ * A job writes its export through {@link ExportService}, so unchanged models are served from the {@link ExportCache},
+ * into a file in {@code digitwin.export-jobs.directory} while counting the packed files and written bytes.
+ * Finished jobs and their files are removed {@code digitwin.export-jobs.retention} after they finished; a file that is
+ * being downloaded at that time is deleted once its download ends.
+ * Jobs are kept in memory; they are lost on restart, when the directory is emptied. Assumes a single application instance.
+ * Pool and queue are exposed as {@code executor.*} metrics with the tag {@code name=export.jobs}.
+ * </p>
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+
+    private final ExportService exportService;
+    private final Path directory;
+    private final Duration retention;
+    private final int maxJobsPerUser;
+    private final ExecutorService executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportJobService(ExportService exportService, MeterRegistry meterRegistry,
+                            @Value("${digitwin.export-jobs.directory:${java.io.tmpdir}/digitwin-export-jobs}") String directory,
+                            @Value("${digitwin.export-jobs.threads:2}") int threads,
+                            @Value("${digitwin.export-jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${digitwin.export-jobs.retention:PT1H}") Duration retention,
+                            @Value("${digitwin.export-jobs.max-per-user:5}") int maxJobsPerUser) {
+        this.exportService = exportService;
+        this.directory = Path.of(directory);
+        this.retention = retention;
+        this.maxJobsPerUser = maxJobsPerUser;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "export-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "export.jobs");
+        clearDirectory();
+    }
+
+    /**
+     * Starts an export of a stored model in the background.
+     * Ownership is checked right away, the export itself runs once a thread of the export pool is free.
+     *
+     * @param modelId the model ID
+     * @param name    the desired export file name (without extension), the model ID if null or blank
+     * @param format  the export format (JSON or AASX)
+     * @param userId  the user ID requesting the export
+     * @return the queued job
+     * @throws NotFoundException           if the model does not exist
+     * @throws ForbiddenException          if the model does not belong to the user
+     * @throws TooManyRequestsException    if the user already has the maximum number of jobs
+     * @throws ServiceUnavailableException if the export queue is full
+     */
+    public ExportJobDto start(String modelId, String name, ExportFormat format, String userId) {
+        String id = UUID.randomUUID().toString();
+        String baseName = name == null || name.isBlank() ? modelId : name;
+        ExportJob job = new ExportJob(id, modelId, userId, format, baseName + "." + format.getFileExtension(),
+                directory.resolve(id + "." + format.getFileExtension()));
+        ExportedFile exported = exportService.export(modelId, baseName, format, userId, job);
+
+        // counting and adding under one lock, so concurrent requests of a user cannot exceed the limit together
+        synchronized (jobs) {
+            long userJobs = jobs.values().stream().filter(other -> other.getOwnerId().equals(userId)).count();
+            if (userJobs >= maxJobsPerUser) {
+                throw new TooManyRequestsException("Too many export jobs, please try again once earlier exports have expired");
+            }
+            jobs.put(id, job);
+        }
+        try {
+            executor.execute(() -> run(job, exported));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            throw new ServiceUnavailableException("Too many exports in progress, please try again later");
+        }
+        return toDto(job);
+    }
+
+    /**
+     * Returns state and progress of an export job.
+     *
+     * @param jobId  the job ID
+     * @param userId the user ID requesting the state
+     * @return the job
+     * @throws NotFoundException if there is no such job of the user
+     */
+    public ExportJobDto getJob(String jobId, String userId) {
+        return toDto(getOwnedJob(jobId, userId));
+    }
+
+    /**
+     * Returns a completed export job, whose file can be downloaded.
+     *
+     * @param jobId  the job ID
+     * @param userId the user ID requesting the download
+     * @return the completed job
+     * @throws NotFoundException if there is no such job of the user
+     * @throws ConflictException if the job has not completed (yet)
+     */
+    public ExportJob getCompletedJob(String jobId, String userId) {
+        ExportJob job = getOwnedJob(jobId, userId);
+        if (job.getStatus() != ExportJobStatus.COMPLETED) {
+            throw new ConflictException("Export job has not completed, its status is " + job.getStatus());
+        }
+        return job;
+    }
+
+    /**
+     * Opens the file of a completed export job for download.
+     * The file is kept until the returned stream is closed, even if the job expires while it is downloaded.
+     *
+     * @param job the completed job, as returned by {@link #getCompletedJob(String, String)}
+     * @return the content of the file, to be closed once it is read
+     * @throws NotFoundException if the job was removed in the meantime
+     * @throws ExportException   if the file could not be opened
+     */
+    public InputStream openFile(ExportJob job) {
+        if (!job.openDownload()) {
+            throw new NotFoundException("Could not find export job with given Id");
+        }
+        try {
+            return new DownloadInputStream(Files.newInputStream(job.getFile()), job);
+        } catch (IOException e) {
+            closeDownload(job);
+            throw new ExportException("Failed to read export job file", e);
+        }
+    }
+
+    /**
+     * Scheduled removal of jobs and files that finished longer than the retention ago.
+     * Files that are being downloaded are deleted when their last download ends.
+     */
+    @Scheduled(fixedDelayString = "${digitwin.export-jobs.cleanup-interval:60000}")
+    public void removeExpiredJobs() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getFinishedAt().isAfter(expiredBefore)) {
+                return false;
+            }
+            if (job.markRemoved()) {
+                deleteFile(job.getFile());
+            }
+            return true;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ExportJob job, ExportedFile exported) {
+        job.markRunning();
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(job.getFile())), job)) {
+                exported.content().writeTo(out);
+            }
+            job.markCompleted();
+            log.info("Export job {} of model {} completed: {} bytes", job.getId(), job.getModelId(), job.getBytesWritten());
+        } catch (IOException | RuntimeException e) {
+            log.error("Export job {} of model {} failed", job.getId(), job.getModelId(), e);
+            deleteFile(job.getFile());
+            job.markFailed("Failed to export the model");
+        }
+    }
+
+    private void closeDownload(ExportJob job) {
+        if (job.closeDownload()) {
+            deleteFile(job.getFile());
+        }
+    }
+
+    private ExportJob getOwnedJob(String jobId, String userId) {
+        ExportJob job = jobs.get(jobId);
+        // jobs of other users are reported as missing, so job IDs cannot be probed
+        if (job == null || !job.getOwnerId().equals(userId)) {
+            throw new NotFoundException("Could not find export job with given Id");
+        }
+        return job;
+    }
+
+    private void clearDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach(this::deleteFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clear export job directory " + directory, e);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export job file {}", file, e);
+        }
+    }
+
+    private static ExportJobDto toDto(ExportJob job) {
+        return ExportJobDto.builder()
+                .id(job.getId())
+                .modelId(job.getModelId())
+                .format(job.getFormat())
+                .filename(job.getFilename())
+                .status(job.getStatus())
+                .filesPacked(job.getFilesPacked())
+                .bytesWritten(job.getBytesWritten())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .error(job.getError())
+                .build();
+    }
+
+    // counts the bytes of the export as they are written, for the progress of the job
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final ExportJob job;
+
+        CountingOutputStream(OutputStream out, ExportJob job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.addBytesWritten(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            job.addBytesWritten(len);
+        }
+    }
+
+    // ends the download of a job when the client has read the file or went away, so an expired job's file can be deleted
+    private final class DownloadInputStream extends FilterInputStream {
+
+        private final ExportJob job;
+        private boolean closed;
+
+        DownloadInputStream(InputStream in, ExportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                closeDownload(job);
+            }
+        }
+    }
+}
@@ -5,9 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.DigiTwinStudio.DigiTwin_Backend.adapter.AAS4jAdapter;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AasxAttachment;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
-import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportProgress;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
@@ -15,15 +16,15 @@ import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 
-import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -38,19 +39,19 @@ public class ExportService {
     private final AAS4jAdapter aas4jAdapter;
     private final FileStorageService fileStorageService;
     private final AASModelRepository aasModelRepository;
-    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final SubmodelStorageService submodelStorageService;
+    private final ExportCache exportCache;
 
     /**
-     * Exports given model to a JSON file
+     * Writes given model as a JSON file directly to a stream, one submodel after the other.
      * @param model to be parsed to JSON
-     * @return JSON-format of the model as byte[]
+     * @param out the stream to write to; it is not closed
      * @throws ExportException if serialization failed
      */
-    public byte[] exportAsJson(AASModel model) {
+    public void writeAsJson(AASModel model, OutputStream out) {
         DefaultEnvironment environment = aas4jAdapter.aasModelToDefaultEnvironment(model);
         try {
-            String jsonString = aas4jAdapter.serializeToJsonString(environment);
-            return jsonString.getBytes(StandardCharsets.UTF_8);
+            aas4jAdapter.serializeToJsonStream(environment, out);
         } catch (SerializationException e) {
             log.error("Failed to serialize AAS object to JSON", e);
             throw new ExportException("Failed to serialize AAS object to JSON");
@@ -58,105 +59,124 @@ public class ExportService {
     }
 
     /**
-     * Exports given model to an AASX file
+     * Writes given model as an AASX file directly to a stream.
+     * Attached files are copied from GridFS while they are written, so memory use does not grow with the package size.
      * @param model to be parsed to AASX
-     * @return AASX-format of the model as byte[]
+     * @param out the stream to write to; it is not closed
      * @throws ExportException if serialization failed
      */
-    public byte[] exportAsAasx(AASModel model) throws ExportException {
-        DefaultEnvironment environment = aas4jAdapter.aasModelToDefaultEnvironment(model);
-
-        // NEU: Korrekte Pfade mit InMemoryFile-Objekten
-        List<InMemoryFile> inMemoryFiles = fileStorageService.getInMemoryFilesByModelId(model.getId());
+    public void writeAsAasx(AASModel model, OutputStream out) throws ExportException {
+        writeAsAasx(model, out, ExportProgress.NONE);
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] result;
+    /**
+     * Writes given model as an AASX file directly to a stream, reporting every file copied into the package.
+     * @param model to be parsed to AASX
+     * @param out the stream to write to; it is not closed
+     * @param progress notified after each attached file was written
+     * @throws ExportException if serialization failed
+     */
+    public void writeAsAasx(AASModel model, OutputStream out, ExportProgress progress) throws ExportException {
+        DefaultEnvironment environment = aas4jAdapter.aasModelToDefaultEnvironment(model);
+        List<AasxAttachment> attachments = fileStorageService.getAasxAttachmentsByModelId(model.getId());
+        if (progress != ExportProgress.NONE) {
+            attachments = attachments.stream().map(attachment -> reporting(attachment, progress)).toList();
+        }
         try {
-            this.aas4jAdapter.serializeToAASX(environment, inMemoryFiles, baos);
-            result = baos.toByteArray();
-            log.info("AASX-Export erfolgreich – Dateigröße: {} Bytes", result.length);
+            this.aas4jAdapter.serializeToAASX(environment, attachments, out);
         } catch (SerializationException e) {
-            log.error("Fehler beim Export nach AASX", e);
+            log.error("Failed to serialize AAS object to AASX", e);
             throw new ExportException("Failed to serialize AAS object to AASX");
         }
-
-        return result;
     }
 
+    // the package closes the content of an attachment once it is copied
+    private static AasxAttachment reporting(AasxAttachment attachment, ExportProgress progress) {
+        return new AasxAttachment(attachment.path(), () -> new FilterInputStream(attachment.content().getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                progress.filePacked();
+            }
+        });
+    }
 
-    /**
-     * Export a stored model. Retrieves model from repository.
-     * @param modelId of stored model to be exported
-     * @param format JSON or AASX
-     * @return contents of an exported file as byte[]
-     */
-    public byte[] exportStoredModel(String modelId, ExportFormat format, String userId) {
+    private AASModel loadOwnedModel(String modelId, String userId) {
         AASModel model = this.aasModelRepository.findById(modelId).orElseThrow(() -> new NotFoundException("Could not find model with given Id"));
 
         if (!model.getOwnerId().equals(userId)) {
             throw new ForbiddenException("Access denied: model does not belong to user.");
         }
-
-        return switch (format) {
-            case JSON -> exportAsJson(model);
-            case AASX -> exportAsAasx(model);
-        };
+        submodelStorageService.resolveSubmodels(model);
+        return model;
     }
 
     /**
      * Exports a stored model in the specified format for a given user.
+     * Ownership is checked right away; the file is only written when the content is streamed to the client.
+     * An unchanged model is served from the {@link ExportCache}, otherwise it is loaded, serialized and cached.
      *
      * @param id the model ID
      * @param name the desired export file name (without extension)
      * @param format the export format (JSON or AASX)
      * @param userId the user ID requesting the export
      * @return the exported file as an {@link ExportedFile}
-     * @throws ExportException if the format is not supported
+     * @throws NotFoundException if the model does not exist
+     * @throws ForbiddenException if the model does not belong to the user
+     * @throws ExportException if serialization failed
      */
     public ExportedFile export(String id, String name, ExportFormat format, String userId) {
-        byte[] content = exportStoredModel(id, format, userId);
-
-        String fileExtension = switch (format) {
-            case JSON -> "json";
-            case AASX -> "aasx";
-        };
+        return export(id, name, format, userId, ExportProgress.NONE);
+    }
 
-        String contentType = switch (format) {
-            case JSON -> "application/json";
-            case AASX -> "application/asset-administration-shell-package";
-        };
+    /**
+     * Exports a stored model like {@link #export(String, String, ExportFormat, String)}, reporting the files packed
+     * while the content is written. Exports served from the {@link ExportCache} report no files.
+     *
+     * @param id the model ID
+     * @param name the desired export file name (without extension)
+     * @param format the export format (JSON or AASX)
+     * @param userId the user ID requesting the export
+     * @param progress notified while the content is written
+     * @return the exported file as an {@link ExportedFile}
+     * @throws NotFoundException if the model does not exist
+     * @throws ForbiddenException if the model does not belong to the user
+     */
+    public ExportedFile export(String id, String name, ExportFormat format, String userId, ExportProgress progress) {
+        AASModel header = this.aasModelRepository.findVersionById(id).orElseThrow(() -> new NotFoundException("Could not find model with given Id"));
+        if (!header.getOwnerId().equals(userId)) {
+            throw new ForbiddenException("Access denied: model does not belong to user.");
+        }
 
-        String filename = name + "." + fileExtension;
-        return new ExportedFile(content, filename, contentType);
+        ExportCache.Key key = new ExportCache.Key(id, header.getVersion(), format);
+        StreamingResponseBody content = out -> exportCache.write(key, out, target -> {
+            AASModel model = loadOwnedModel(id, userId);
+            switch (format) {
+                case JSON -> writeAsJson(model, target);
+                case AASX -> writeAsAasx(model, target, progress);
+            }
+            return model.getVersion();
+        });
+        String filename = name + "." + format.getFileExtension();
+        return new ExportedFile(content, filename, format.getContentType());
     }
 
     /**
      * Export a model that has been edited by a Guest and therefore is not saved in the repository.
+     * The file is only written when the content is streamed to the client.
      * @param dto temporary modelDTO
+     * @param name the desired export file name (without extension)
      * @param format JSON or AASX
-     * @return content of an exported file as byte[]
+     * @return the exported file as an {@link ExportedFile}
      */
-    public byte[] exportTransientModel(AASModelDto dto, ExportFormat format) {
+    public ExportedFile exportTransientModel(AASModelDto dto, String name, ExportFormat format) {
         AASModel model = this.aasModelMapper.fromDto(dto, "GUEST");
-        return switch (format) {
-            case JSON -> exportAsJson(model);
-            case AASX -> exportAsAasx(model);
-        };
-    }
-
-    /**
-     * Export a model referenced by a marketplace-entry
-     * @param entryId marketplace-entry-id
-     * @param format JSON or AASX
-     * @return content of an exported file as byte[]
-     */
-    public byte[] exportMarketplaceModel(String entryId, ExportFormat format) {
-        MarketplaceEntry marketplaceEntry = this.marketPlaceEntryRepository.findById(entryId).orElseThrow(() -> new NotFoundException("Could not find entry with given Id"));
-        AASModel model = this.aasModelRepository.findById(marketplaceEntry.getId()).orElseThrow(()  -> new NotFoundException("Could not find model with given Id"));
-        return switch (format) {
-            case JSON -> exportAsJson(model);
-            case AASX -> exportAsAasx(model);
+        StreamingResponseBody content = out -> {
+            switch (format) {
+                case JSON -> writeAsJson(model, out);
+                case AASX -> writeAsAasx(model, out);
+            }
         };
-
+        return new ExportedFile(content, name + "." + format.getFileExtension(), format.getContentType());
     }
 }
@@ -1,31 +1,42 @@
 package org.DigiTwinStudio.DigiTwin_Backend.services;
 
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSUploadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 
 import lombok.RequiredArgsConstructor;
 
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AasxAttachment;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SnapshotArtifact;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.FileStorageException;
 
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
-
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.stereotype.Service;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
+import org.apache.commons.io.output.CountingOutputStream;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.UUID;
 import java.util.List;
 
@@ -38,9 +49,12 @@ public class FileStorageService {
 
     private final UploadedFileRepository uploadedFileRepository;
     private final GridFsTemplate gridFsTemplate;
+    private final GridFSBucket gridFsBucket;
+    private final ExportCache exportCache;
 
     /**
      * Stores the uploaded file in MongoDB GridFS and saves metadata in a separate Mongo collection.
+     * Cached exports of the model are dropped, since its AASX package now contains the file.
      *
      * @param file    the uploaded file (PDF, JSON, etc.)
      * @param ownerId the ID of the user who is uploading the file
@@ -71,7 +85,9 @@ public class FileStorageService {
                     .uploadedAt(LocalDateTime.now())
                     .build();
 
-            return uploadedFileRepository.save(uploadedFile);
+            UploadedFile saved = uploadedFileRepository.save(uploadedFile);
+            exportCache.invalidateModel(modelId);
+            return saved;
 
         } catch (IOException e) {
             throw new FileStorageException("Could not store file in GridFS", e);
@@ -80,6 +96,8 @@ public class FileStorageService {
 
     /**
      * Deletes the file from GridFS and its metadata if the current user is the owner.
+     * A file still shared with published snapshots or adopted models only loses one reference and is kept.
+     * Cached exports of the model the file belonged to are dropped once it is deleted.
      *
      * @param fileId  the metadata ID stored in your UploadedFile document
      * @param ownerId the ID of the authenticated user
@@ -94,6 +112,10 @@ public class FileStorageService {
             throw new FileStorageException("Access denied: not the file owner");
         }
 
+        if (uploadedFileRepository.releaseSharedReference(fileId)) {
+            return;
+        }
+
         try {
             // Delete binary data from GridFS using the ObjectId
             ObjectId gridFsId = new ObjectId(file.getStoragePath());
@@ -105,18 +127,20 @@ public class FileStorageService {
         } catch (Exception e) {
             throw new FileStorageException("Error deleting file from GridFS", e);
         }
+        exportCache.invalidateModel(file.getModelId());
     }
 
     /**
-     * Retrieves all uploaded files for the given model and loads them as {@link InMemoryFile} objects from GridFS.
+     * Lists all files associated with the given model ID as supplementary files of an AASX package.
+     * Only the GridFS metadata is read here; the contents are streamed from GridFS while the package is written.
      *
-     * @param modelId the model ID whose files are to be loaded
-     * @return list of {@link InMemoryFile} for use in AASX export
-     * @throws RuntimeException if a file cannot be read from GridFS
+     * @param modelId the model ID whose files are to be exported
+     * @return list of {@link AasxAttachment} for use in AASX export
+     * @throws RuntimeException if a file has an invalid storage path
      */
-    public List<InMemoryFile> getInMemoryFilesByModelId(String modelId) {
+    public List<AasxAttachment> getAasxAttachmentsByModelId(String modelId) {
         List<UploadedFile> uploadedFiles = uploadedFileRepository.findAllByModelId(modelId);
-        List<InMemoryFile> inMemoryFiles = new ArrayList<>();
+        List<AasxAttachment> attachments = new ArrayList<>();
 
         for (UploadedFile file : uploadedFiles) {
             try {
@@ -124,22 +148,19 @@ public class FileStorageService {
                 GridFSFile gridFSFile = gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(gridFsId)));
 
                 if (gridFSFile != null) {
-                    GridFsResource resource = gridFsTemplate.getResource(gridFSFile);
-                    byte[] content = resource.getInputStream().readAllBytes();
-
                     // Use a standardized path, e.g., "aasx/mydoc.pdf"
                     String aasxPath = "aasx/" + file.getFilename();
 
-                    inMemoryFiles.add(new InMemoryFile(content, aasxPath));
+                    attachments.add(new AasxAttachment(aasxPath, gridFsTemplate.getResource(gridFSFile)));
                 } else {
                     System.err.println("GridFS file not found for ID: " + file.getStoragePath());
                 }
-            } catch (IOException | IllegalArgumentException e) {
-                throw new RuntimeException("Error reading file content from GridFS for ID: " + file.getStoragePath(), e);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid GridFS ID of file: " + file.getStoragePath(), e);
             }
         }
 
-        return inMemoryFiles;
+        return attachments;
     }
 
     /**
@@ -236,4 +257,74 @@ public class FileStorageService {
             throw new FileStorageException("Unexpected error while checking file existence", e);
         }
     }
+
+    /**
+     * Stores a generated export file (e.g., the rendered AASX of a published snapshot) in GridFS.
+     * The content is streamed into GridFS chunk by chunk while its size and SHA-256 digest are computed, so the file is
+     * never held in memory as a whole; if writing fails, the upload is aborted and the chunks written so far are removed.
+     * Unlike uploads, generated files have no {@link UploadedFile} metadata; the caller keeps the returned description.
+     *
+     * @param content     writes the file content
+     * @param filename    the file name stored with the GridFS file
+     * @param contentType the MIME type of the content
+     * @return the GridFS ID, size and SHA-256 digest of the stored file
+     * @throws FileStorageException if the content could not be written to GridFS
+     */
+    public SnapshotArtifact storeArtifact(StreamingResponseBody content, String filename, String contentType) {
+        MessageDigest digest = sha256();
+        // "_contentType" is where GridFsTemplate keeps the content type, so GridFsResource reports it
+        GridFSUploadStream upload = gridFsBucket.openUploadStream(filename,
+                new GridFSUploadOptions().metadata(new Document("_contentType", contentType)));
+        CountingOutputStream out = new CountingOutputStream(new DigestOutputStream(StreamUtils.nonClosing(upload), digest));
+        try {
+            content.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            upload.abort();
+            throw new FileStorageException("Failed to store generated file " + filename, e);
+        } catch (RuntimeException e) {
+            upload.abort();
+            throw e;
+        }
+        upload.close();
+        return SnapshotArtifact.builder()
+                .storagePath(upload.getObjectId().toHexString())
+                .contentType(contentType)
+                .size(out.getByteCount())
+                .sha256(HexFormat.of().formatHex(digest.digest()))
+                .build();
+    }
+
+    /**
+     * Returns a generated export file for streaming; the content is only read when the stream is opened.
+     *
+     * @param storagePath the GridFS ID returned by {@link #storeArtifact}
+     * @return the GridFS resource
+     * @throws NotFoundException if the GridFS file does not exist
+     */
+    public GridFsResource loadArtifact(String storagePath) {
+        GridFSFile gridFSFile = gridFsTemplate.findOne(query(where("_id").is(new ObjectId(storagePath))));
+        if (gridFSFile == null) {
+            throw new NotFoundException("GridFS file not found for ID: " + storagePath);
+        }
+        return gridFsTemplate.getResource(gridFSFile);
+    }
+
+    /**
+     * Deletes a generated export file from GridFS.
+     *
+     * @param storagePath the GridFS ID returned by {@link #storeArtifact}
+     */
+    public void deleteArtifact(String storagePath) {
+        gridFsTemplate.delete(query(where("_id").is(new ObjectId(storagePath))));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -6,8 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
-
-import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.FileReferenceUtil;
 
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -25,6 +24,8 @@ public class GuestCleanupService {
 
     private final AASModelRepository aasModelRepository;
     private final UploadedFileRepository uploadedFileRepository;
+    private final SubmodelStorageService submodelStorageService;
+    private final ExportCache exportCache;
 
     /**
      * Scheduled cleanup of guest models older than 2 hours.
@@ -45,28 +46,27 @@ public class GuestCleanupService {
         for (AASModel model : expiredGuestModels) {
             log.info("Hard-deleting guest model: {}", model.getId());
 
-            if (model.getSubmodels() != null) {
-                model.getSubmodels().forEach(submodel -> {
-                    if (submodel.getSubmodelElements() != null) {
-                        for (SubmodelElement element : submodel.getSubmodelElements()) {
-                            if (element instanceof org.eclipse.digitaltwin.aas4j.v3.model.File fileElem) {
-                                String fileId = fileElem.getValue();
-                                if(fileId != null) {
-                                    try {
-                                        uploadedFileRepository.deleteById(fileId);
-                                        log.info("Deleted uploaded file: {}", fileId);
-                                    } catch (Exception e) {
-                                        log.warn("Failed to delete uploaded file: {}", fileId, e);
-                                    }
-                                }
-                            }
+            // an adopted model that was never edited holds no file references of its own
+            if (!submodelStorageService.isAdopted(model)) {
+                submodelStorageService.resolveSubmodels(model);
+                for (String fileId : FileReferenceUtil.collectFileIds(model.getSubmodels())) {
+                    try {
+                        if (uploadedFileRepository.releaseSharedReference(fileId)) {
+                            log.info("Released shared uploaded file: {}", fileId);
+                        } else {
+                            uploadedFileRepository.deleteById(fileId);
+                            log.info("Deleted uploaded file: {}", fileId);
                         }
+                    } catch (Exception e) {
+                        log.warn("Failed to delete uploaded file: {}", fileId, e);
                     }
-                });
+                }
             }
 
             try {
                 aasModelRepository.deleteById(model.getId());
+                submodelStorageService.deleteSubmodels(model.getId());
+                exportCache.invalidateModel(model.getId());
                 log.info("Deleted guest model: {}", model.getId());
             } catch (Exception e) {
                 log.warn("Failed to delete guest model: {}", model.getId(), e);
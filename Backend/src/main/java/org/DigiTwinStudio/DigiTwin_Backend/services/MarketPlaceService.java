@@ -1,32 +1,50 @@
 package org.DigiTwinStudio.DigiTwin_Backend.services;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceSortOrder;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEvent;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEventType;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedArtifact;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SnapshotArtifact;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.FacetCountDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceFacetedSearchDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.SuggestionDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.MarketplaceMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepositoryCustom;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.CursorUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.DateTimeUtil;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.FileReferenceUtil;
 
-import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.core.query.TextCriteria;
-import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
@@ -34,69 +52,86 @@ import java.util.*;
 /**
  * Handles publishing, searching, and managing marketplace entries and tags.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class MarketPlaceService {
+
+    static final int MAX_ENTRY_PAGE_SIZE = 100;
+    static final int MAX_SUGGESTIONS = MarketplaceSuggestions.MAX_SUGGESTIONS;
+    // snapshots younger than this are kept, so a publish or adoption in progress does not lose its snapshot
+    static final Duration SNAPSHOT_GRACE_PERIOD = Duration.ofHours(1);
+    private static final int SNAPSHOT_CLEANUP_BATCH_SIZE = 500;
+
+    // cursor kinds, so a cursor of one ordering cannot be replayed against another
+    private static final String NEWEST_CURSOR = "newest";
+    // relevance from the in-process search index
+    private static final String RELEVANCE_CURSOR = "relevance";
+    // MongoDB text score, used by the faceted search
+    private static final String TEXT_SCORE_CURSOR = "textscore";
+    private static final String DOWNLOADS_CURSOR = "downloads";
+    private static final String TRENDING_CURSOR = "trending";
+
     private final MarketPlaceEntryRepository marketPlaceEntryRepository;
     private final AASModelRepository aasModelRepository;
     private final TagRepository tagRepository;
     private final MarketplaceMapper marketplaceMapper;
     private final AASModelMapper aasModelMapper;
-    private final MongoTemplate mongoTemplate;
+    private final SubmodelStorageService submodelStorageService;
+    private final PublishedSnapshotRepository publishedSnapshotRepository;
+    private final UploadedFileRepository uploadedFileRepository;
+    private final MarketplaceCache marketplaceCache;
+    private final DownloadCountBuffer downloadCountBuffer;
+    private final MarketplaceSearchIndex marketplaceSearchIndex;
+    private final MarketplaceSuggestions marketplaceSuggestions;
+    private final ExportService exportService;
+    private final FileStorageService fileStorageService;
 
     /**
-     * Publishes a model: sets publish metadata, updates tags, and saves the model as published.
-     * Creates MarketplaceEntry
+     * Publishes a model: sets publish metadata and marks the model as published.
+     * The content is kept in the {@link PublishedSnapshot} of the published version first, so later edits of the model
+     * do not change what the marketplace serves. The marketplace entry, tag counters, search index and the export files
+     * are created afterwards by {@link MarketplaceOutboxDispatcher}, from the event stored by the same update as the model.
      * @param request publish info including author, description, and tag IDs
-     * @param model the model to publish
+     * @param model the model to publish, with its submodels
      * @throws BadRequestException if any tag ID is invalid
+     * @throws ConflictException if the model was modified concurrently
      */
     public void publish(PublishRequestDto request, AASModel model) throws BadRequestException {
         // update Metadata
         validateTagIds(request.getTagIds());
         LocalDateTime now = LocalDateTime.now();
+        long publishedVersion = model.getVersion() + 1;
         PublishMetadata metadata = PublishMetadata.builder()
                 .publishedAt(now)
                 .author(request.getAuthor())
                 .shortDescription(request.getShortDescription())
-                .tagIds(request.getTagIds())
+                .tagIds(request.getTagIds().stream().distinct().toList())
+                .modelVersion(publishedVersion)
                 .build();
+        OutboxEvent event = outboxEvent(OutboxEventType.PUBLISHED, metadata, model.getAas().getIdShort(), now);
+
+        // a publish that fails below leaves a snapshot that no model references, removed by removeUnreferencedSnapshots
+        insertSnapshot(model, publishedVersion, now);
+
+        // model change and event are written together, so the side effects are neither lost nor applied without it
+        if (!aasModelRepository.publishWithEvent(model.getId(), model.getVersion(), metadata, event, now)) {
+            throw new ConflictException("Model " + model.getId() + " was modified concurrently. Please reload and try again.");
+        }
         model.setPublishMetadata(metadata);
         model.setPublished(true);
         model.setUpdatedAt(now);
-
-        // save model changes in the database
-        aasModelRepository.save(model);
-
-        //update tag counters
-        List<Tag> tagsToUpdate = tagRepository.findByIdIn(request.getTagIds());
-
-        tagsToUpdate.forEach(tag -> {
-            tag.setUsageCount(tag.getUsageCount() + 1);
-        });
-        tagRepository.saveAll(tagsToUpdate);
-
-        // create public marketPlaceEntry
-        this.marketPlaceEntryRepository.save(
-                MarketplaceEntry.builder()
-                .publishedAt(now)
-                .author(request.getAuthor())
-                .id(model.getId())
-                .name(model.getAas().getIdShort())
-                .downloadCount(0)
-                .shortDescription(request.getShortDescription())
-                .tagIds(request.getTagIds())
-                .build()
-                );
+        model.setVersion(model.getVersion() + 1);
     }
 
     /**
-     * Unpublishes a model, resets publish metadata, and updates tag usage counts.
-     * Deletes MarketplaceEntry
+     * Unpublishes a model and resets publish metadata.
+     * The marketplace entry is deleted and the tag usage counts are updated afterwards by {@link MarketplaceOutboxDispatcher}.
      *
      * @param userId user performing the operation
      * @param model the model to unpublish
      * @throws ForbiddenException if the user does not own the model
+     * @throws ConflictException if the model was modified concurrently
      */
     public void unpublish(String userId, AASModel model) {
         if (!Objects.equals(userId, model.getOwnerId())) {
@@ -106,52 +141,313 @@ public class MarketPlaceService {
             throw new BadRequestException("Model is not published.");
         }
 
-        // Decrement usage count for each tag (if any)
-        if (model.getPublishMetadata() != null && model.getPublishMetadata().getTagIds() != null) {
-            List<String> tagIds = model.getPublishMetadata().getTagIds();
-            List<Tag> tagsToUpdate = tagRepository.findByIdIn(tagIds);
-
-            tagsToUpdate.forEach(tag -> {
-                int currentCount = tag.getUsageCount();
-                tag.setUsageCount(Math.max(currentCount - 1, 0)); // Avoid negative values
-            });
-
-            tagRepository.saveAll(tagsToUpdate);
+        // the event keeps the withdrawn metadata, so the dispatcher knows which tags to uncount
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = outboxEvent(OutboxEventType.UNPUBLISHED, model.getPublishMetadata(), model.getAas().getIdShort(), now);
+        if (!aasModelRepository.unpublishWithEvent(model.getId(), model.getVersion(), event, now)) {
+            throw new ConflictException("Model " + model.getId() + " was modified concurrently. Please reload and try again.");
         }
-
-        // Unpublish model
         model.setPublished(false);
         model.setPublishMetadata(null);
-        model.setUpdatedAt(LocalDateTime.now());
-        aasModelRepository.save(model);
+        model.setUpdatedAt(now);
+        model.setVersion(model.getVersion() + 1);
+    }
 
-        //remove marketPlaceEntry
-        MarketplaceEntry marketplaceEntry = marketPlaceEntryRepository.findById(model.getId()).orElseThrow(() -> new NotFoundException("Marketplace entry with id " + model.getId() + " not found."));
-        this.marketPlaceEntryRepository.delete(marketplaceEntry);
+    private static OutboxEvent outboxEvent(OutboxEventType type, PublishMetadata metadata, String name, LocalDateTime now) {
+        return OutboxEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .type(type)
+                .publishMetadata(metadata)
+                .name(name)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    /**
+     * Returns one page of marketplace entries, newest first.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the requested page size, capped at {@value #MAX_ENTRY_PAGE_SIZE}
+     * @return the page of marketplace entries with the cursor of the next page
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public CursorPageDto<MarketplaceEntryDto> listAllEntries(String cursor, int limit) {
+        return listAllEntries(null, cursor, limit);
     }
 
     /**
-     * Returns all marketplace entries as DTOs.
+     * Returns one page of marketplace entries in the given order.
      *
-     * @return all marketplace entries
+     * @param sort   "newest", "downloads" or "trending"; null for newest first
+     * @param cursor the cursor returned with the previous page of the same order, or null for the first page
+     * @param limit  the requested page size, capped at {@value #MAX_ENTRY_PAGE_SIZE}
+     * @return the page of marketplace entries with the cursor of the next page
+     * @throws BadRequestException if the sort order is unknown or the cursor is malformed
      */
-    public List<MarketplaceEntryDto> listAllEntries() {
-        return this.marketPlaceEntryRepository.findAll().stream().map(this.marketplaceMapper::toDto).toList();
+    public CursorPageDto<MarketplaceEntryDto> listAllEntries(String sort, String cursor, int limit) {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSort(sort);
+        return search(req, cursor, limit);
     }
 
     /**
      * Returns the published model associated with a marketplace entry.
+     * The content is read from the {@link PublishedSnapshot} of the published version, not from the model,
+     * which its owner may have edited since.
      *
      * @param entryId marketplace entry ID
-     * @return published model as DTO
+     * @return published model as DTO, with the published version as version
      * @throws BadRequestException if no model exists for the given ID
      */
     public AASModelDto getPublishedModel(String entryId) throws BadRequestException {
-        AASModel model = this.aasModelRepository.findById(entryId).orElseThrow(() -> new BadRequestException("No entry found for id: " + entryId));
-        if (!model.isPublished()) {
+        AASModel header = findPublishedHeader(entryId);
+        PublishedSnapshot snapshot = this.publishedSnapshotRepository.findById(getOrCreateSnapshot(header).getId())
+                .orElseThrow(() -> new NotFoundException("Published snapshot of entry " + entryId + " not found."));
+        AASModel published = snapshot.toModel();
+        published.setPublishMetadata(header.getPublishMetadata());
+        published.setCreatedAt(header.getCreatedAt());
+        published.setUpdatedAt(snapshot.getCreatedAt());
+        return this.aasModelMapper.toDto(published);
+    }
+
+    /**
+     * Returns the published version of a marketplace entry, without loading its content.
+     *
+     * @param entryId marketplace entry ID
+     * @return the model version that was published
+     * @throws BadRequestException if no published model exists for the given ID
+     */
+    public long getPublishedVersion(String entryId) throws BadRequestException {
+        AASModel header = findPublishedHeader(entryId);
+        PublishMetadata metadata = header.getPublishMetadata();
+        return metadata != null && metadata.getModelVersion() != null ? metadata.getModelVersion() : header.getVersion();
+    }
+
+    /**
+     * Returns the pre-rendered export file of the published version of a marketplace entry.
+     * The file is rendered once per version, when publishing or on the first download, and stored in GridFS.
+     *
+     * @param entryId marketplace entry ID
+     * @param format  the export format
+     * @return the description of the stored file, including its SHA-256 digest
+     * @throws BadRequestException if no published model exists for the given ID
+     * @throws ExportException     if the file has to be rendered and rendering fails
+     */
+    public PublishedArtifact getPublishedArtifact(String entryId, ExportFormat format) throws BadRequestException {
+        PublishedSnapshot snapshot = getOrCreateSnapshot(entryId);
+        SnapshotArtifact artifact = snapshot.getArtifacts() == null ? null : snapshot.getArtifacts().get(format);
+        if (artifact == null) {
+            // rendering failed when the snapshot was created, or the snapshot predates pre-rendered files
+            PublishedSnapshot content = this.publishedSnapshotRepository.findById(snapshot.getId())
+                    .orElseThrow(() -> new NotFoundException("Published snapshot " + snapshot.getId() + " not found."));
+            artifact = renderArtifact(content.getId(), content.toModel(), format);
+        }
+        String name = snapshot.getAas() != null && snapshot.getAas().getIdShort() != null ? snapshot.getAas().getIdShort() : entryId;
+        return new PublishedArtifact(artifact.getStoragePath(), artifact.getSize(),
+                name + "." + format.getFileExtension(), artifact.getContentType(), artifact.getSha256());
+    }
+
+    /**
+     * Opens a pre-rendered export file for streaming and counts the download.
+     *
+     * @param entryId  marketplace entry ID
+     * @param artifact the file returned by {@link #getPublishedArtifact}
+     * @return the file content, read from GridFS while it is streamed
+     * @throws NotFoundException if the stored file is missing
+     */
+    public Resource downloadPublishedArtifact(String entryId, PublishedArtifact artifact) {
+        Resource content = fileStorageService.loadArtifact(artifact.storagePath());
+        incrementDownloadCount(entryId);
+        return content;
+    }
+
+    /**
+     * Returns the immutable snapshot of the published version of a marketplace entry, without its submodels.
+     * The snapshot is created when publishing; it takes one shared reference on every file its submodels use,
+     * so the files outlive the deletion of the original model. Models published before the published version was kept
+     * get the snapshot of their current version on the first request.
+     *
+     * @param entryId marketplace entry ID
+     * @return the snapshot header (ID and shell)
+     * @throws BadRequestException if no published model exists for the given ID
+     * @throws NotFoundException   if the snapshot of the published version is missing
+     */
+    public PublishedSnapshot getOrCreateSnapshot(String entryId) throws BadRequestException {
+        return getOrCreateSnapshot(findPublishedHeader(entryId));
+    }
+
+    private PublishedSnapshot getOrCreateSnapshot(AASModel header) {
+        String snapshotId = PublishedSnapshot.publishedIdOf(header);
+        Optional<PublishedSnapshot> snapshot = this.publishedSnapshotRepository.findHeaderById(snapshotId);
+        if (snapshot.isPresent()) {
+            return snapshot.get();
+        }
+        if (header.getPublishMetadata() != null && header.getPublishMetadata().getModelVersion() != null) {
+            throw new NotFoundException("Published snapshot " + snapshotId + " not found.");
+        }
+        AASModel model = this.aasModelRepository.findById(header.getId())
+                .orElseThrow(() -> new BadRequestException("No entry found for id: " + header.getId()));
+        submodelStorageService.resolveSubmodels(model);
+        return insertSnapshot(model, model.getVersion(), LocalDateTime.now());
+    }
+
+    /**
+     * Renders the export files of the published version of a marketplace entry that are not stored yet,
+     * so downloads only stream them. A file that fails is rendered again on its first download.
+     *
+     * @param entryId marketplace entry ID
+     * @throws BadRequestException if no published model exists for the given ID
+     */
+    public void renderMissingArtifacts(String entryId) throws BadRequestException {
+        PublishedSnapshot snapshot = getOrCreateSnapshot(entryId);
+        List<ExportFormat> missing = Arrays.stream(ExportFormat.values())
+                .filter(format -> snapshot.getArtifacts() == null || !snapshot.getArtifacts().containsKey(format))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        AASModel model = this.publishedSnapshotRepository.findById(snapshot.getId())
+                .orElseThrow(() -> new NotFoundException("Published snapshot " + snapshot.getId() + " not found."))
+                .toModel();
+        for (ExportFormat format : missing) {
+            try {
+                renderArtifact(snapshot.getId(), model, format);
+            } catch (RuntimeException e) {
+                log.warn("Rendering the {} export of snapshot {} failed; it is rendered on the first download.", format, snapshot.getId(), e);
+            }
+        }
+    }
+
+    // stores the content of a model version and takes the shared file references, unless the snapshot exists already
+    private PublishedSnapshot insertSnapshot(AASModel model, long version, LocalDateTime now) {
+        PublishedSnapshot snapshot = PublishedSnapshot.builder()
+                .id(PublishedSnapshot.idOf(model.getId(), version))
+                .entryId(model.getId())
+                .modelVersion(version)
+                .aas(model.getAas())
+                .submodels(model.getSubmodels())
+                .submodelCount(model.getSubmodels() == null ? 0 : model.getSubmodels().size())
+                .createdAt(now)
+                .build();
+        try {
+            this.publishedSnapshotRepository.insert(snapshot);
+        } catch (DuplicateKeyException e) {
+            // created concurrently from the same model version, which also took the file references
+            return snapshot;
+        }
+        this.uploadedFileRepository.acquireSharedReferences(FileReferenceUtil.collectFileIds(model.getSubmodels()));
+        return snapshot;
+    }
+
+    private AASModel findPublishedHeader(String entryId) {
+        AASModel header = this.aasModelRepository.findHeaderById(entryId).orElseThrow(() -> new BadRequestException("No entry found for id: " + entryId));
+        if (!header.isPublished()) {
             throw new BadRequestException("Model is not published.");
         }
-        return this.aasModelMapper.toDto(model);
+        return header;
+    }
+
+    /**
+     * Renders one export file of a snapshot, streams it into GridFS and attaches it to the snapshot.
+     *
+     * @param snapshotId the snapshot ID
+     * @param model      the model holding the snapshot content
+     * @param format     the export format
+     * @return the attached file; the one of a concurrent rendering if that was attached first
+     */
+    private SnapshotArtifact renderArtifact(String snapshotId, AASModel model, ExportFormat format) {
+        SnapshotArtifact artifact = fileStorageService.storeArtifact(out -> {
+            switch (format) {
+                case JSON -> exportService.writeAsJson(model, out);
+                case AASX -> exportService.writeAsAasx(model, out);
+            }
+        }, snapshotId + "." + format.getFileExtension(), format.getContentType());
+        if (this.publishedSnapshotRepository.setArtifactIfAbsent(snapshotId, format, artifact)) {
+            return artifact;
+        }
+        fileStorageService.deleteArtifact(artifact.getStoragePath());
+        return this.publishedSnapshotRepository.findHeaderById(snapshotId)
+                .map(PublishedSnapshot::getArtifacts)
+                .map(artifacts -> artifacts.get(format))
+                .orElseThrow(() -> new NotFoundException("Published snapshot " + snapshotId + " not found."));
+    }
+
+    /**
+     * Scheduled removal of the published snapshots that neither a published model nor an adopted model references anymore,
+     * e.g. those of earlier published versions, of unpublished models or of a publish that failed.
+     * Snapshots younger than {@link #SNAPSHOT_GRACE_PERIOD} are kept. The export files of a removed snapshot are deleted
+     * and the shared references it held on uploaded files are released; files no one else uses are deleted.
+     * Assumes a single application instance.
+     *
+     * @return the number of removed snapshots
+     */
+    @Scheduled(fixedDelayString = "${digitwin.published-snapshots.cleanup-interval:3600000}")
+    public long removeUnreferencedSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(SNAPSHOT_GRACE_PERIOD);
+        long removed = 0;
+        List<PublishedSnapshot> page;
+        String afterId = null;
+        do {
+            page = this.publishedSnapshotRepository.findHeadersCreatedBefore(cutoff, afterId, SNAPSHOT_CLEANUP_BATCH_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            Set<String> referenced = referencedSnapshotIds(page);
+            for (PublishedSnapshot snapshot : page) {
+                if (!referenced.contains(snapshot.getId())) {
+                    try {
+                        removed += removeSnapshot(snapshot) ? 1 : 0;
+                    } catch (RuntimeException e) {
+                        log.warn("Removing unreferenced snapshot {} failed.", snapshot.getId(), e);
+                    }
+                }
+            }
+            afterId = page.getLast().getId();
+        } while (page.size() == SNAPSHOT_CLEANUP_BATCH_SIZE);
+        if (removed > 0) {
+            log.info("Removed {} unreferenced published snapshots.", removed);
+        }
+        return removed;
+    }
+
+    // the snapshots of the page that a published model serves or an adopted model reads its submodels from
+    private Set<String> referencedSnapshotIds(List<PublishedSnapshot> snapshots) {
+        Set<String> entryIds = new HashSet<>();
+        List<String> snapshotIds = new ArrayList<>();
+        for (PublishedSnapshot snapshot : snapshots) {
+            entryIds.add(snapshot.getEntryId());
+            snapshotIds.add(snapshot.getId());
+        }
+        Set<String> referenced = new HashSet<>(this.aasModelRepository.findReferencedSnapshotIds(snapshotIds));
+        for (AASModel header : this.aasModelRepository.findHeadersByIds(entryIds)) {
+            if (header.isPublished()) {
+                referenced.add(PublishedSnapshot.publishedIdOf(header));
+            }
+        }
+        return referenced;
+    }
+
+    // the snapshot is deleted before its references are released, so a failure leaks files instead of deleting shared ones
+    private boolean removeSnapshot(PublishedSnapshot header) {
+        Optional<PublishedSnapshot> snapshot = this.publishedSnapshotRepository.findById(header.getId());
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        this.publishedSnapshotRepository.deleteById(header.getId());
+        if (header.getArtifacts() != null) {
+            header.getArtifacts().values().forEach(artifact -> fileStorageService.deleteArtifact(artifact.getStoragePath()));
+        }
+        List<String> unused = new ArrayList<>();
+        for (String fileId : FileReferenceUtil.collectFileIds(snapshot.get().getSubmodels())) {
+            if (!this.uploadedFileRepository.releaseSharedReference(fileId)) {
+                unused.add(fileId);
+            }
+        }
+        if (!unused.isEmpty()) {
+            this.uploadedFileRepository.deleteAllById(unused);
+        }
+        return true;
     }
 
     /**
@@ -165,8 +461,8 @@ public class MarketPlaceService {
             throw new BadRequestException("At least one tag must be provided to publish a model.");
         }
 
-        List<String> existingTagIds = tagRepository.findByIdIn(requestedTagIds)
-                .stream()
+        List<Tag> existingTags = tagRepository.findByIdIn(requestedTagIds);
+        List<String> existingTagIds = existingTags.stream()
                 .map(Tag::getId)
                 .toList();
 
@@ -180,66 +476,239 @@ public class MarketPlaceService {
     }
 
     /**
-     * Returns all tags in the system.
+     * Returns all tags in the system, served from {@link MarketplaceCache} until the next publish or unpublish.
      *
      * @return all tags
      */
     public List<Tag> getAllTags() {
-        return tagRepository.findAll();
+        return marketplaceCache.getTags(tagRepository::findAll);
+    }
+
+    /**
+     * Scheduled recomputation of all tag usage counts from the marketplace entries.
+     * Corrects counts that drifted, e.g. because a published model was deleted without unpublishing it.
+     */
+    @Scheduled(cron = "${digitwin.tag-usage.reconcile-cron:0 30 0 * * *}", zone = "Europe/Berlin")
+    public void reconcileTagUsage() {
+        long corrected = tagRepository.reconcileUsageCounts();
+        if (corrected > 0) {
+            log.info("Corrected usage counts of {} tags.", corrected);
+            marketplaceSuggestions.markStale();
+            marketplaceCache.invalidateCatalog();
+        }
+    }
+
+    /**
+     * Returns typeahead suggestions for the marketplace search box: entry names, authors and tag names
+     * with a word starting with the typed text, most downloaded or used first. Served from memory by {@link MarketplaceSuggestions}.
+     *
+     * @param query the typed text
+     * @param limit the requested number of suggestions, capped at {@value #MAX_SUGGESTIONS}
+     * @return the suggestions
+     */
+    public List<SuggestionDto> suggest(String query, int limit) {
+        return marketplaceSuggestions.suggest(query, limit);
     }
 
     /**
      * Increments the download count for a marketplace entry.
+     * The download is only counted in memory; {@link DownloadCountBuffer} writes the counts to the database in batches.
      *
      * @param entryId marketplace entry ID
-     * @throws BadRequestException if the entry does not exist
      */
-    public void incrementDownloadCount(String entryId) throws BadRequestException {
-        MarketplaceEntry marketplaceEntry = this.marketPlaceEntryRepository.findById(entryId).orElseThrow(() -> new BadRequestException("No entry found for id: " + entryId));
-        marketplaceEntry.setDownloadCount(marketplaceEntry.getDownloadCount() + 1);
-        this.marketPlaceEntryRepository.save(marketplaceEntry);
+    public void incrementDownloadCount(String entryId) {
+        downloadCountBuffer.record(entryId);
     }
 
     /**
-     * Searches marketplace entries by text, tags, and/or date.
+     * Searches marketplace entries by text, tags, and/or date, one page at a time.
      *
      * <p>
-     * If {@code searchText} is provided, uses full-text search and sorts by relevance;
-     * otherwise filters by published date and tags and sorts by date (newest first).
+     * If {@code searchText} is provided, searches the in-process {@link MarketplaceSearchIndex} with prefix and
+     * typo-tolerant matching and sorts by relevance; otherwise filters by published date and tags and sorts by
+     * {@code sort}: newest first (default), most downloaded first, or trending first.
+     * The cursor holds the sort key of the last returned entry (e.g. {@code (score, _id)} or {@code (publishedAt, _id)}),
+     * so the next page continues right after it. Pages are served from {@link MarketplaceCache} when possible,
+     * so download-based orders may lag behind the latest downloads until the cached page expires.
      * </p>
      *
-     * @param req search parameters
-     * @return list of matching marketplace entries
+     * @param req    search parameters
+     * @param cursor the cursor returned with the previous page of the same search, or null for the first page
+     * @param limit  the requested page size, capped at {@value #MAX_ENTRY_PAGE_SIZE}
+     * @return the page of matching marketplace entries with the cursor of the next page
+     * @throws BadRequestException if the sort order is unknown or not available for the search,
+     *                             or if the cursor is malformed or belongs to a different kind of search
      */
-    public List<MarketplaceEntryDto> search(MarketplaceSearchRequest req) {
-        boolean hasText = req.getSearchText() != null && !req.getSearchText().isBlank();
-        boolean hasTags = req.getTagIds() != null && !req.getTagIds().isEmpty();
-        boolean hasDate = req.getPublishedAfter() != null;
+    public CursorPageDto<MarketplaceEntryDto> search(MarketplaceSearchRequest req, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_ENTRY_PAGE_SIZE);
+        return marketplaceCache.getPage(req, cursor, pageSize, () -> loadPage(req, cursor, pageSize));
+    }
 
-        if (hasText) { // textQuery
-            TextCriteria textCriteria = TextCriteria.forDefaultLanguage().matching(req.getSearchText());
-            TextQuery textQuery = TextQuery.queryText(textCriteria).sortByScore(); // sort by relevance
+    private CursorPageDto<MarketplaceEntryDto> loadPage(MarketplaceSearchRequest req, String cursor, int pageSize) {
+        String searchText = searchText(req);
+        MarketplaceSortOrder sortOrder = sortOrder(req, searchText);
+        String ordering = switch (sortOrder) {
+            case NEWEST -> NEWEST_CURSOR;
+            case RELEVANCE -> RELEVANCE_CURSOR;
+            case DOWNLOADS -> DOWNLOADS_CURSOR;
+            case TRENDING -> TRENDING_CURSOR;
+        };
+        SearchPosition position = SearchPosition.of(cursor, ordering);
 
-            if (hasDate) {
-                textQuery.addCriteria(Criteria.where("publishedAt").gt(req.getPublishedAfter())); // add a time query
-            }
-            if (hasTags) {
-                textQuery.addCriteria(Criteria.where("tagIds").in(req.getTagIds())); // add a tag query
-            }
+        // fetch one extra entry to know whether another page follows
+        List<MarketplaceEntry> entries = switch (sortOrder) {
+            case RELEVANCE -> marketplaceSearchIndex.search(searchText, req.getPublishedAfter(), req.getTagIds(),
+                    position.afterScore(), position.afterId(), pageSize + 1);
+            case NEWEST -> marketPlaceEntryRepository.findNewestPage(req.getPublishedAfter(), req.getTagIds(),
+                    position.afterPublishedAt(), position.afterId(), pageSize + 1);
+            case DOWNLOADS -> marketPlaceEntryRepository.findMostDownloadedPage(req.getPublishedAfter(), req.getTagIds(),
+                    position.afterDownloadCount(), position.afterId(), pageSize + 1);
+            case TRENDING -> marketPlaceEntryRepository.findTrendingPage(req.getPublishedAfter(), req.getTagIds(),
+                    position.afterTrendingScore(), position.afterId(), pageSize + 1);
+        };
+
+        return CursorPageDto.<MarketplaceEntryDto>builder()
+                .items(entries.stream().limit(pageSize).map(marketplaceMapper::toDto).toList())
+                .nextCursor(nextCursor(entries, pageSize, ordering))
+                .build();
+    }
+
+    /**
+     * Searches marketplace entries like {@link #search}, and additionally returns the total number of hits,
+     * the number of hits per tag and per publishing month, all computed by one aggregation.
+     * The tag counts ignore the selected tags, so the filter sidebar can offer switching to other tags.
+     * Text is matched with the MongoDB text index here, so text search cursors are not interchangeable with {@link #search}.
+     * Only the default orders are supported: relevance with search text, newest first without.
+     *
+     * @param req    search parameters
+     * @param cursor the cursor returned with the previous page of the same search, or null for the first page
+     * @param limit  the requested page size, capped at {@value #MAX_ENTRY_PAGE_SIZE}
+     * @return the page of matching marketplace entries with the cursor of the next page and the facet counts
+     * @throws BadRequestException if another sort order is requested,
+     *                             or if the cursor is malformed or belongs to a different kind of search
+     */
+    public MarketplaceFacetedSearchDto searchWithFacets(MarketplaceSearchRequest req, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_ENTRY_PAGE_SIZE);
+        String searchText = searchText(req);
+        MarketplaceSortOrder sortOrder = sortOrder(req, searchText);
+        if (sortOrder == MarketplaceSortOrder.DOWNLOADS || sortOrder == MarketplaceSortOrder.TRENDING) {
+            throw new BadRequestException("Sort order " + req.getSort() + " is not supported by the faceted search.");
+        }
+        String ordering = searchText != null ? TEXT_SCORE_CURSOR : NEWEST_CURSOR;
+        SearchPosition position = SearchPosition.of(cursor, ordering);
+
+        MarketPlaceEntryRepositoryCustom.FacetedPage page = marketPlaceEntryRepository.findFacetedPage(
+                searchText, req.getPublishedAfter(), req.getTagIds(),
+                position.afterScore(), position.afterPublishedAt(), position.afterId(), pageSize + 1);
+
+        return MarketplaceFacetedSearchDto.builder()
+                .items(page.entries().stream().limit(pageSize).map(marketplaceMapper::toDto).toList())
+                .nextCursor(nextCursor(page.entries(), pageSize, ordering))
+                .total(page.total())
+                .tags(facetCounts(page.tagCounts()))
+                .publishedMonths(facetCounts(page.monthCounts()))
+                .build();
+    }
 
-            return mongoTemplate.find(textQuery, MarketplaceEntry.class).stream().map(marketplaceMapper::toDto).toList();
-        } else {    // no text, but time and tag queries
-            Query query = new Query();
+    private static String searchText(MarketplaceSearchRequest req) {
+        return req.getSearchText() != null && !req.getSearchText().isBlank() ? req.getSearchText() : null;
+    }
+
+    /**
+     * Resolves the requested sort order. Text search results are always sorted by relevance,
+     * and relevance needs search text.
+     *
+     * @param req        search parameters
+     * @param searchText the search text, or null
+     * @return the sort order
+     * @throws BadRequestException if the sort order is unknown or does not fit the search
+     */
+    private static MarketplaceSortOrder sortOrder(MarketplaceSearchRequest req, String searchText) {
+        if (req.getSort() == null || req.getSort().isBlank()) {
+            return searchText != null ? MarketplaceSortOrder.RELEVANCE : MarketplaceSortOrder.NEWEST;
+        }
+        MarketplaceSortOrder sortOrder;
+        try {
+            sortOrder = MarketplaceSortOrder.valueOf(req.getSort().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown sort order: " + req.getSort(), e);
+        }
+        if ((searchText != null) != (sortOrder == MarketplaceSortOrder.RELEVANCE)) {
+            throw new BadRequestException(searchText != null
+                    ? "Search results with text are sorted by relevance only."
+                    : "Sorting by relevance requires search text.");
+        }
+        return sortOrder;
+    }
 
-            if (hasDate) {
-                query.addCriteria(Criteria.where("publishedAt").gt(req.getPublishedAfter()));
+    /**
+     * Builds the cursor of the page following the given entries.
+     *
+     * @param entries  the loaded entries, including the one extra entry if another page follows
+     * @param pageSize the page size
+     * @param ordering the cursor kind of the ordering of the entries
+     * @return the cursor, or null if this is the last page
+     */
+    private static String nextCursor(List<MarketplaceEntry> entries, int pageSize, String ordering) {
+        if (entries.size() <= pageSize) {
+            return null;
+        }
+        MarketplaceEntry last = entries.get(pageSize - 1);
+        String sortKey = switch (ordering) {
+            case NEWEST_CURSOR -> DateTimeUtil.formatIsoLocalDateTime(last.getPublishedAt());
+            case DOWNLOADS_CURSOR -> Integer.toString(last.getDownloadCount());
+            case TRENDING_CURSOR -> Double.toString(last.getTrendingScore());
+            default -> Double.toString(last.getScore());
+        };
+        return CursorUtil.encode(ordering, sortKey, last.getId());
+    }
+
+    private static List<FacetCountDto> facetCounts(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(count -> new FacetCountDto(count.getKey(), count.getValue()))
+                .toList();
+    }
+
+    /**
+     * Sort key of the last entry of the previous page; all fields are null for the first page.
+     */
+    private record SearchPosition(Double afterScore, LocalDateTime afterPublishedAt, Integer afterDownloadCount,
+                                  Double afterTrendingScore, String afterId) {
+
+        private static final SearchPosition FIRST_PAGE = new SearchPosition(null, null, null, null, null);
+
+        static SearchPosition of(String cursor, String ordering) {
+            if (cursor == null || cursor.isBlank()) {
+                return FIRST_PAGE;
             }
-            if (hasTags) {
-                query.addCriteria(Criteria.where("tagIds").in(req.getTagIds()));
+            String[] position = decodeCursor(cursor, ordering);
+            try {
+                return switch (ordering) {
+                    case NEWEST_CURSOR -> new SearchPosition(null, DateTimeUtil.parseIsoLocalDateTime(position[0]), null, null, position[1]);
+                    case DOWNLOADS_CURSOR -> new SearchPosition(null, null, Integer.valueOf(position[0]), null, position[1]);
+                    case TRENDING_CURSOR -> new SearchPosition(null, null, null, Double.valueOf(position[0]), position[1]);
+                    default -> new SearchPosition(Double.valueOf(position[0]), null, null, null, position[1]);
+                };
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException
+                throw new BadRequestException("Invalid pagination cursor.", e);
             }
+        }
+    }
 
-            query.with(Sort.by(Sort.Order.desc("publishedAt"))); // sort by date, newest first
-            return mongoTemplate.find(query, MarketplaceEntry.class).stream().map(marketplaceMapper::toDto).toList();
+    /**
+     * Decodes a search cursor and checks that it was issued for the same ordering.
+     *
+     * @param cursor       the cursor token
+     * @param expectedKind the ordering of the current search
+     * @return the sort key value and the ID of the last entry of the previous page
+     * @throws BadRequestException if the cursor is malformed or of another kind
+     */
+    private static String[] decodeCursor(String cursor, String expectedKind) {
+        String[] parts = CursorUtil.decode(cursor, 3);
+        if (!expectedKind.equals(parts[0])) {
+            throw new BadRequestException("Invalid pagination cursor.");
         }
+        return new String[] {parts[1], parts[2]};
     }
 }
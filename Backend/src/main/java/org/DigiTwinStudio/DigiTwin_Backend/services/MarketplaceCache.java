@@ -0,0 +1,134 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process read-through cache for marketplace listing and search pages and the tag list.
+ * <p>
+ * Both caches are size-bounded Caffeine caches (W-TinyLFU eviction), so frequently requested pages such as the
+ * landing page stay cached while one-off searches are evicted first. Publishing, unpublishing and deleting entries
+ * invalidate the whole catalog; a download count change drops the cached pages that contain the entry and all pages
+ * ordered by downloads or trending score, since the entry may move into them.
+ * Entries additionally expire after {@code digitwin.marketplace-cache.expire-after-write}, which bounds staleness
+ * when several backend instances share one database.
+ * Statistics are exposed as {@code cache.*} metrics with the tags {@code cache=marketplace.pages} and {@code cache=marketplace.tags}.
+ * </p>
+ */
+@Component
+public class MarketplaceCache {
+
+    // sort orders whose ranking depends on download counts
+    private static final Set<String> DOWNLOAD_SORTS = Set.of("downloads", "trending");
+
+    // incremented on every catalog invalidation; part of every key, so a page loaded before the invalidation is never returned after it
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<PageKey, CursorPageDto<MarketplaceEntryDto>> pages;
+    private final Cache<Long, List<Tag>> tags;
+
+    public MarketplaceCache(MeterRegistry meterRegistry,
+                            @Value("${digitwin.marketplace-cache.max-pages:1000}") long maxPages,
+                            @Value("${digitwin.marketplace-cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.tags = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "marketplace.pages");
+        CaffeineCacheMetrics.monitor(meterRegistry, tags, "marketplace.tags");
+    }
+
+    /**
+     * Returns a cached listing or search page, loading it on a miss.
+     * Exceptions of the loader are passed on and nothing is cached.
+     *
+     * @param request the search parameters
+     * @param cursor  the page cursor, or null for the first page
+     * @param limit   the effective page size
+     * @param loader  loads the page from the database
+     * @return the page
+     */
+    public CursorPageDto<MarketplaceEntryDto> getPage(MarketplaceSearchRequest request, String cursor, int limit,
+                                                      Supplier<CursorPageDto<MarketplaceEntryDto>> loader) {
+        return pages.get(PageKey.of(generation.get(), request, cursor, limit), key -> loader.get());
+    }
+
+    /**
+     * Returns the cached tag list, loading it on a miss.
+     *
+     * @param loader loads all tags from the database
+     * @return all tags
+     */
+    public List<Tag> getTags(Supplier<List<Tag>> loader) {
+        return tags.get(generation.get(), key -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Drops all cached pages and the tag list, e.g. after an entry was published or removed.
+     */
+    public void invalidateCatalog() {
+        generation.incrementAndGet();
+        pages.invalidateAll();
+        tags.invalidateAll();
+    }
+
+    /**
+     * Drops the cached pages affected by changed download counts: every page ordered by downloads or trending score,
+     * and every other page that contains one of the entries.
+     *
+     * @param entryIds the IDs of the marketplace entries whose download count changed
+     */
+    public void invalidateDownloadCounts(Collection<String> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        pages.asMap().entrySet().removeIf(page -> DOWNLOAD_SORTS.contains(page.getKey().sort())
+                || page.getValue().getItems().stream().anyMatch(entry -> entryIds.contains(entry.getId())));
+    }
+
+    /**
+     * Cache key of a page; search text, tag IDs and sort order are normalized so equivalent requests share one entry.
+     */
+    record PageKey(long generation, String searchText, LocalDateTime publishedAfter, List<String> tagIds,
+                   String sort, String cursor, int limit) {
+
+        static PageKey of(long generation, MarketplaceSearchRequest request, String cursor, int limit) {
+            String text = request.getSearchText() == null || request.getSearchText().isBlank()
+                    ? null
+                    : request.getSearchText().trim();
+            List<String> tagIds = request.getTagIds() == null
+                    ? List.of()
+                    : request.getTagIds().stream().distinct().sorted().toList();
+            String sort = request.getSort() == null || request.getSort().isBlank()
+                    ? null
+                    : request.getSort().trim().toLowerCase(Locale.ROOT);
+            return new PageKey(generation, text, request.getPublishedAfter(), tagIds, sort,
+                    cursor == null || cursor.isBlank() ? null : cursor, limit);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEvent;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEventType;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies the marketplace side effects of publish and unpublish from the outbox events stored in the model documents.
+ * <p>
+ * Every {@code digitwin.outbox.dispatch-delay} milliseconds, the models whose oldest event is due are loaded in batches of
+ * {@value #BATCH_SIZE}. All events of a model are applied in order: marketplace entry and search index are updated per
+ * model, while the tag counters of the whole batch are changed with one bulk write and the catalog caches are dropped once.
+ * The search index gets the content of the published version from its {@link PublishedSnapshot}, not the model as it is now.
+ * Dispatched events are then removed from their models with one bulk write, and the export files of the published snapshots are rendered.
+ * The events of a model that fails are kept and retried with exponential backoff, up to {@link #MAX_BACKOFF}.
+ * </p>
+ * <p>
+ * Applying an event is idempotent except for the tag counters: a crash between applying and removing the events
+ * counts their tags twice, which the scheduled tag usage reconciliation corrects. Assumes a single application instance.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MarketplaceOutboxDispatcher {
+
+    static final int BATCH_SIZE = 100;
+    static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final AASModelRepository aasModelRepository;
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final PublishedSnapshotRepository publishedSnapshotRepository;
+    private final TagRepository tagRepository;
+    private final SubmodelStorageService submodelStorageService;
+    private final MarketplaceSearchIndex marketplaceSearchIndex;
+    private final MarketplaceSuggestions marketplaceSuggestions;
+    private final MarketplaceCache marketplaceCache;
+    private final MarketPlaceService marketPlaceService;
+
+    /**
+     * Dispatches all due outbox events, one batch of models after the other.
+     */
+    @Scheduled(fixedDelayString = "${digitwin.outbox.dispatch-delay:500}")
+    public synchronized void dispatch() {
+        List<AASModel> batch;
+        boolean progress;
+        do {
+            batch = aasModelRepository.findWithDueEvents(LocalDateTime.now(), BATCH_SIZE);
+            // a batch that failed completely is left to the next run, in case the failures could not be deferred
+            progress = !batch.isEmpty() && dispatchBatch(batch);
+        } while (progress && batch.size() == BATCH_SIZE);
+    }
+
+    // returns whether the events of any model were dispatched
+    private boolean dispatchBatch(List<AASModel> models) {
+        Map<String, Tag> tags = loadTags(models);
+        Map<String, Integer> tagDeltas = new HashMap<>();
+        Map<String, List<String>> dispatched = new LinkedHashMap<>();
+        List<String> published = new ArrayList<>();
+
+        for (AASModel model : models) {
+            List<OutboxEvent> events = model.getPendingEvents();
+            Map<String, Integer> modelDeltas = new HashMap<>();
+            try {
+                for (OutboxEvent event : events) {
+                    apply(model, event, tags, modelDeltas);
+                }
+            } catch (RuntimeException e) {
+                defer(model, events, e);
+                continue;
+            }
+            modelDeltas.forEach((tagId, delta) -> tagDeltas.merge(tagId, delta, Integer::sum));
+            dispatched.put(model.getId(), events.stream().map(OutboxEvent::getId).toList());
+            if (events.getLast().getType() == OutboxEventType.PUBLISHED) {
+                published.add(model.getId());
+            }
+        }
+        if (dispatched.isEmpty()) {
+            return false;
+        }
+
+        tagRepository.applyUsageCountDeltas(tagDeltas);
+        BulkWriteResult result = aasModelRepository.removeEvents(dispatched);
+        if (result.getMatchedCount() < dispatched.size()) {
+            removeEntriesOfDeletedModels(dispatched.keySet());
+        }
+        marketplaceSuggestions.markStale();
+        marketplaceCache.invalidateCatalog();
+
+        // render the export files now, so downloads only stream them; retried on the first download if this fails
+        for (String modelId : published) {
+            try {
+                marketPlaceService.renderMissingArtifacts(modelId);
+            } catch (RuntimeException e) {
+                log.warn("Rendering the export files of published model {} failed.", modelId, e);
+            }
+        }
+        return true;
+    }
+
+    private void apply(AASModel model, OutboxEvent event, Map<String, Tag> tags, Map<String, Integer> tagDeltas) {
+        PublishMetadata metadata = event.getPublishMetadata();
+        // a tag listed twice is counted once; publish drops duplicates, but events stored before may still contain them
+        List<String> tagIds = metadata == null || metadata.getTagIds() == null
+                ? List.of() : metadata.getTagIds().stream().distinct().toList();
+        switch (event.getType()) {
+            case PUBLISHED -> {
+                MarketplaceEntry entry = marketPlaceEntryRepository.save(MarketplaceEntry.builder()
+                        .id(model.getId())
+                        .publishedAt(metadata.getPublishedAt())
+                        .author(metadata.getAuthor())
+                        .name(event.getName())
+                        .downloadCount(0)
+                        .shortDescription(metadata.getShortDescription())
+                        .tagIds(tagIds)
+                        .build());
+                marketplaceSearchIndex.put(entry, publishedContent(model, metadata),
+                        tagIds.stream().map(tags::get).filter(Objects::nonNull).toList());
+                tagIds.forEach(tagId -> tagDeltas.merge(tagId, 1, Integer::sum));
+            }
+            case UNPUBLISHED -> {
+                marketPlaceEntryRepository.deleteById(model.getId());
+                marketplaceSearchIndex.remove(model.getId());
+                tagIds.forEach(tagId -> tagDeltas.merge(tagId, -1, Integer::sum));
+            }
+        }
+    }
+
+    // the content of the version the event published; events stored before the version was kept index the current model
+    private AASModel publishedContent(AASModel model, PublishMetadata metadata) {
+        if (metadata.getModelVersion() != null) {
+            Optional<PublishedSnapshot> snapshot = publishedSnapshotRepository.findById(
+                    PublishedSnapshot.idOf(model.getId(), metadata.getModelVersion()));
+            if (snapshot.isPresent()) {
+                return snapshot.get().toModel();
+            }
+            log.warn("Published snapshot of model {} version {} not found, indexing the current model.", model.getId(), metadata.getModelVersion());
+        }
+        submodelStorageService.resolveSubmodels(model);
+        return model;
+    }
+
+    private void defer(AASModel model, List<OutboxEvent> events, RuntimeException e) {
+        int attempts = events.getFirst().getAttempts();
+        Duration backoff = Collections.min(List.of(Duration.ofSeconds(1L << Math.min(attempts, 16)), MAX_BACKOFF));
+        log.warn("Dispatching {} outbox events of model {} failed (attempt {}), retrying in {}.",
+                events.size(), model.getId(), attempts + 1, backoff, e);
+        try {
+            aasModelRepository.deferEvents(model.getId(), LocalDateTime.now().plus(backoff), e.getMessage());
+        } catch (RuntimeException deferFailure) {
+            log.warn("Deferring the outbox events of model {} failed.", model.getId(), deferFailure);
+        }
+    }
+
+    // tags of all published events of the batch, loaded with one query for the search index
+    private Map<String, Tag> loadTags(List<AASModel> models) {
+        Set<String> tagIds = new HashSet<>();
+        for (AASModel model : models) {
+            for (OutboxEvent event : model.getPendingEvents()) {
+                if (event.getType() == OutboxEventType.PUBLISHED && event.getPublishMetadata() != null
+                        && event.getPublishMetadata().getTagIds() != null) {
+                    tagIds.addAll(event.getPublishMetadata().getTagIds());
+                }
+            }
+        }
+        Map<String, Tag> tags = new HashMap<>();
+        if (!tagIds.isEmpty()) {
+            tagRepository.findByIdIn(new ArrayList<>(tagIds)).forEach(tag -> tags.put(tag.getId(), tag));
+        }
+        return tags;
+    }
+
+    // a model deleted while its events were applied must not leave a marketplace entry behind
+    private void removeEntriesOfDeletedModels(Set<String> modelIds) {
+        Set<String> deleted = new HashSet<>(modelIds);
+        aasModelRepository.findHeadersByIds(modelIds).forEach(header -> deleted.remove(header.getId()));
+        for (String modelId : deleted) {
+            marketPlaceEntryRepository.deleteById(modelId);
+            marketplaceSearchIndex.remove(modelId);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Key;
+import org.eclipse.digitaltwin.aas4j.v3.model.Submodel;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index for full-text search over the published marketplace entries.
+ * <p>
+ * Indexes the entry name, author and short description, the names of its tags, and the idShort and submodel
+ * semantic IDs of the published model. Query terms match index terms exactly, as prefix, or with one edit
+ * (two for terms of eight or more characters), weighted in that order; matches in the name count more than
+ * matches in the description. Searches are answered from memory without database access.
+ * </p>
+ * <p>
+ * The index is updated on publish and unpublish, built when the application is ready, and rebuilt from the
+ * database every {@code digitwin.search-index.rebuild-interval} milliseconds to pick up changes made by other
+ * backend instances. Updates made while a rebuild is loading are replayed onto the rebuilt index.
+ * A rebuild reads the published content from the {@link PublishedSnapshot}s in batches of {@value #REBUILD_BATCH_SIZE},
+ * with the indexed fields only, so neither all models nor their full submodels are held at once.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MarketplaceSearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern CAMEL_CASE = Pattern.compile("(?<=\\p{Ll})(?=\\p{Lu})|(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+
+    private static final float NAME_WEIGHT = 4f;
+    private static final float ID_SHORT_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 3f;
+    private static final float AUTHOR_WEIGHT = 2f;
+    private static final float SEMANTIC_ID_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final float FUZZY_FACTOR = 0.35f;
+
+    static final int REBUILD_BATCH_SIZE = 500;
+
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final AASModelRepository aasModelRepository;
+    private final PublishedSnapshotRepository publishedSnapshotRepository;
+    private final TagRepository tagRepository;
+    private final SubmodelStorageService submodelStorageService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+    private boolean loaded;
+    // non-null while a rebuild is loading; updates made meanwhile are replayed onto the rebuilt index
+    private List<Runnable> pendingUpdates;
+
+    /**
+     * Builds the index when the application is ready; a failure is logged and the build is retried on the first search.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Building the marketplace search index failed, retrying on the first search.", e);
+        }
+    }
+
+    /**
+     * Scheduled rebuild of the index from the database.
+     */
+    @Scheduled(fixedDelayString = "${digitwin.search-index.rebuild-interval:3600000}",
+            initialDelayString = "${digitwin.search-index.rebuild-interval:3600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding the marketplace search index failed, keeping the current index.", e);
+        }
+    }
+
+    /**
+     * Rebuilds the index from all marketplace entries, tags and the published content of their models.
+     * Searches are served from the previous index while the data is loaded.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingUpdates = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = new Index();
+        try {
+            Map<String, String> tagNames = new HashMap<>();
+            tagRepository.findAll().forEach(tag -> tagNames.put(tag.getId(), tag.getName()));
+            List<MarketplaceEntry> entries = marketPlaceEntryRepository.findAll();
+            for (int from = 0; from < entries.size(); from += REBUILD_BATCH_SIZE) {
+                List<MarketplaceEntry> batch = entries.subList(from, Math.min(from + REBUILD_BATCH_SIZE, entries.size()));
+                Map<String, AASModel> models = loadPublishedContent(batch.stream().map(MarketplaceEntry::getId).toList());
+                for (MarketplaceEntry entry : batch) {
+                    rebuilt.put(entry, entryTerms(entry, models.get(entry.getId()), tagNames));
+                }
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingUpdates = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Index previous = index;
+            index = rebuilt;
+            pendingUpdates.forEach(Runnable::run);
+            pendingUpdates = null;
+            loaded = true;
+            log.info("Built marketplace search index with {} entries and {} terms (previously {} entries).",
+                    rebuilt.entries.size(), rebuilt.postings.size(), previous.entries.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the indexed fields of the published version per entry ID; models published before their version was kept
+    // have no snapshot until their first download and are read in full
+    private Map<String, AASModel> loadPublishedContent(List<String> entryIds) {
+        List<AASModel> headers = aasModelRepository.findHeadersByIds(entryIds);
+        Map<String, AASModel> models = new HashMap<>();
+        if (!headers.isEmpty()) {
+            publishedSnapshotRepository.findSearchFieldsByIds(headers.stream().map(PublishedSnapshot::publishedIdOf).toList())
+                    .forEach(snapshot -> models.put(snapshot.getEntryId(), snapshot.toModel()));
+        }
+        List<String> withoutSnapshot = headers.stream().map(AASModel::getId).filter(id -> !models.containsKey(id)).toList();
+        if (!withoutSnapshot.isEmpty()) {
+            aasModelRepository.findAllById(withoutSnapshot).forEach(model -> {
+                submodelStorageService.resolveSubmodels(model);
+                models.put(model.getId(), model);
+            });
+        }
+        return models;
+    }
+
+    /**
+     * Adds or replaces the entry of a published model.
+     *
+     * @param entry the marketplace entry
+     * @param model the published model with its submodels
+     * @param tags  the tags of the entry
+     */
+    public void put(MarketplaceEntry entry, AASModel model, Collection<Tag> tags) {
+        Map<String, String> tagNames = new HashMap<>();
+        tags.forEach(tag -> tagNames.put(tag.getId(), tag.getName()));
+        Map<String, Float> terms = entryTerms(entry, model, tagNames);
+        update(() -> index.put(entry, terms));
+    }
+
+    /**
+     * Removes an entry, e.g. after its model was unpublished or deleted.
+     *
+     * @param entryId the marketplace entry ID
+     */
+    public void remove(String entryId) {
+        update(() -> index.remove(entryId));
+    }
+
+    /**
+     * Adds flushed download counts to the indexed entries, so search results show current counts.
+     *
+     * @param increments the number of new downloads per entry ID
+     */
+    public void addDownloads(Map<String, Long> increments) {
+        // not replayed after a rebuild, which may already have read the new counts
+        lock.writeLock().lock();
+        try {
+            increments.forEach((entryId, count) -> {
+                IndexedEntry indexed = index.entries.get(entryId);
+                if (indexed != null) {
+                    indexed.entry().setDownloadCount(indexed.entry().getDownloadCount() + Math.toIntExact(count));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the index, most relevant first, in {@code (score desc, id desc)} order.
+     * The returned entries are copies with the relevance set as score.
+     *
+     * @param searchText     the search text
+     * @param publishedAfter only entries published after this time (optional)
+     * @param tagIds         only entries with at least one of these tags (optional)
+     * @param afterScore     score of the last entry of the previous page, or null for the first page
+     * @param afterId        ID of the last entry of the previous page, or null for the first page
+     * @param limit          maximum number of entries to return
+     * @return the matching entries
+     */
+    public List<MarketplaceEntry> search(String searchText, LocalDateTime publishedAfter, List<String> tagIds,
+                                         Double afterScore, String afterId, int limit) {
+        ensureLoaded();
+        List<String> queryTerms = tokenize(searchText).stream().distinct().toList();
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        Set<String> wantedTags = tagIds == null || tagIds.isEmpty() ? null : new HashSet<>(tagIds);
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::score).thenComparing(Hit::entryId);
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = index.score(queryTerms);
+            // min-heap of the best hits so far, so sorting is limited to one page
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, order);
+            for (Map.Entry<String, Double> score : scores.entrySet()) {
+                Hit hit = new Hit(score.getKey(), score.getValue());
+                if (afterScore != null && afterId != null
+                        && order.compare(hit, new Hit(afterId, afterScore)) >= 0) {
+                    continue;
+                }
+                MarketplaceEntry entry = index.entries.get(hit.entryId()).entry();
+                if (publishedAfter != null && (entry.getPublishedAt() == null || !entry.getPublishedAt().isAfter(publishedAfter))) {
+                    continue;
+                }
+                if (wantedTags != null && (entry.getTagIds() == null || entry.getTagIds().stream().noneMatch(wantedTags::contains))) {
+                    continue;
+                }
+                best.add(hit);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<MarketplaceEntry> page = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                Hit hit = best.poll();
+                page.add(copy(index.entries.get(hit.entryId()).entry(), hit.score()));
+            }
+            Collections.reverse(page);
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (this) {
+            lock.readLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            rebuild();
+        }
+    }
+
+    private void update(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the weighted terms of an entry; a term occurring in several fields gets the sum of their weights.
+     */
+    static Map<String, Float> entryTerms(MarketplaceEntry entry, AASModel model, Map<String, String> tagNames) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, entry.getName(), NAME_WEIGHT);
+        addTerms(terms, entry.getAuthor(), AUTHOR_WEIGHT);
+        addTerms(terms, entry.getShortDescription(), DESCRIPTION_WEIGHT);
+        if (entry.getTagIds() != null) {
+            entry.getTagIds().forEach(tagId -> addTerms(terms, tagNames.get(tagId), TAG_WEIGHT));
+        }
+        if (model != null) {
+            if (model.getAas() != null) {
+                addTerms(terms, model.getAas().getIdShort(), ID_SHORT_WEIGHT);
+            }
+            if (model.getSubmodels() != null) {
+                model.getSubmodels().stream()
+                        .map(Submodel::getSemanticId)
+                        .filter(Objects::nonNull)
+                        .flatMap(reference -> reference.getKeys().stream())
+                        .map(Key::getValue)
+                        .forEach(value -> addTerms(terms, value, SEMANTIC_ID_WEIGHT));
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        // each field counts once per term, however often the term occurs in it
+        new HashSet<>(tokenize(text)).forEach(term -> terms.merge(term, weight, Float::sum));
+    }
+
+    /**
+     * Splits a text into lower-case terms at non-alphanumeric characters; camel-case words such as idShorts
+     * additionally yield their parts, e.g. {@code TechnicalData} gives {@code technicaldata}, {@code technical} and {@code data}.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String word : NON_WORD.split(text)) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            terms.add(word.toLowerCase(Locale.ROOT));
+            String[] parts = CAMEL_CASE.split(word);
+            if (parts.length > 1) {
+                for (String part : parts) {
+                    terms.add(part.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Optimal string alignment distance of two terms, or {@code maxEdits + 1} if it exceeds {@code maxEdits}.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, d[i][j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+        }
+        return Math.min(d[a.length()][b.length()], maxEdits + 1);
+    }
+
+    private static MarketplaceEntry copy(MarketplaceEntry entry, double score) {
+        return MarketplaceEntry.builder()
+                .id(entry.getId())
+                .name(entry.getName())
+                .author(entry.getAuthor())
+                .shortDescription(entry.getShortDescription())
+                .tagIds(entry.getTagIds())
+                .publishedAt(entry.getPublishedAt())
+                .downloadCount(entry.getDownloadCount())
+                .trendingScore(entry.getTrendingScore())
+                .score(score)
+                .build();
+    }
+
+    private record IndexedEntry(MarketplaceEntry entry, Map<String, Float> terms) {
+    }
+
+    private record Hit(String entryId, double score) {
+    }
+
+    /**
+     * The index data: the entries and, per term in sorted order, the weight of the term in each entry containing it.
+     * Not thread-safe; guarded by the lock of the enclosing index.
+     */
+    private static final class Index {
+
+        private final Map<String, IndexedEntry> entries = new HashMap<>();
+        private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+
+        void put(MarketplaceEntry entry, Map<String, Float> terms) {
+            remove(entry.getId());
+            entries.put(entry.getId(), new IndexedEntry(entry, terms));
+            terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(entry.getId(), weight));
+        }
+
+        void remove(String entryId) {
+            IndexedEntry removed = entries.remove(entryId);
+            if (removed == null) {
+                return;
+            }
+            removed.terms().keySet().forEach(term -> {
+                Map<String, Float> posting = postings.get(term);
+                posting.remove(entryId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            });
+        }
+
+        /**
+         * Scores all entries matching at least one query term. Per query term the best matching index term counts,
+         * weighted by its match quality and inverse document frequency; entries matching only part of the query are
+         * scaled down by the share of matched terms.
+         */
+        Map<String, Double> score(List<String> queryTerms) {
+            Map<String, Double> scores = new HashMap<>();
+            Map<String, Integer> matchedTerms = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                Map<String, Double> termScores = new HashMap<>();
+                matches(queryTerm).forEach((term, factor) -> {
+                    Map<String, Float> posting = postings.get(term);
+                    double idf = Math.log(1 + (double) entries.size() / posting.size());
+                    posting.forEach((entryId, weight) -> termScores.merge(entryId, factor * weight * idf, Math::max));
+                });
+                termScores.forEach((entryId, score) -> {
+                    scores.merge(entryId, score, Double::sum);
+                    matchedTerms.merge(entryId, 1, Integer::sum);
+                });
+            }
+            scores.replaceAll((entryId, score) -> score * matchedTerms.get(entryId) / queryTerms.size());
+            return scores;
+        }
+
+        // index terms matching a query term, with their match quality
+        private Map<String, Float> matches(String queryTerm) {
+            Map<String, Float> matches = new HashMap<>();
+            if (queryTerm.length() >= 2) {
+                postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()
+                        .forEach(term -> matches.put(term, PREFIX_FACTOR));
+            }
+            if (queryTerm.length() >= 4) {
+                int maxEdits = queryTerm.length() >= 8 ? 2 : 1;
+                // typos rarely hit the first character, so only terms starting with the same one are compared
+                String first = queryTerm.substring(0, 1);
+                postings.subMap(first, true, first + Character.MAX_VALUE, false).keySet().forEach(term -> {
+                    int distance = editDistance(queryTerm, term, maxEdits);
+                    if (distance > 0 && distance <= maxEdits) {
+                        matches.merge(term, FUZZY_FACTOR / distance, Math::max);
+                    }
+                });
+            }
+            if (postings.containsKey(queryTerm)) {
+                matches.put(queryTerm, 1f);
+            }
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SuggestionType;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.SuggestionDto;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory typeahead suggestions for the marketplace search box.
+ * <p>
+ * Entry names, authors and tag names are kept in a prefix trie; every word of a suggestion starts a path, so
+ * {@code pu} suggests {@code Heat Pump}. Each trie node stores its {@value #MAX_SUGGESTIONS} most popular
+ * suggestions, ranked by download count (entries, and authors by the sum over their entries) or usage count (tags),
+ * so a lookup only walks the typed prefix and never touches the database.
+ * </p>
+ * <p>
+ * The trie is immutable and replaced as a whole: publishing, unpublishing and deleting mark it stale, and a stale or
+ * older than {@code digitwin.suggestions.max-age} trie is rebuilt from the database by a scheduled job.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MarketplaceSuggestions {
+
+    static final int MAX_SUGGESTIONS = 10;
+
+    // longer prefixes are rarely typed; cuts the trie depth for long names
+    private static final int MAX_KEY_LENGTH = 40;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Comparator<SuggestionDto> RANKING = Comparator
+            .comparingLong(SuggestionDto::getPopularity).reversed()
+            .thenComparingInt(suggestion -> suggestion.getText().length())
+            .thenComparing(SuggestionDto::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final MarketPlaceEntryRepository marketPlaceEntryRepository;
+    private final TagRepository tagRepository;
+
+    @Value("${digitwin.suggestions.max-age:PT10M}")
+    private Duration maxAge = Duration.ofMinutes(10);
+
+    private volatile Node root = new Node(new char[0], new Node[0], new SuggestionDto[0]);
+    private volatile Instant builtAt = Instant.MIN;
+    private volatile boolean stale = true;
+
+    /**
+     * Returns the most popular suggestions starting with the typed text at a word boundary.
+     *
+     * @param query the typed text
+     * @param limit maximum number of suggestions, capped at {@value #MAX_SUGGESTIONS}
+     * @return the suggestions, most popular first; empty for a blank query
+     */
+    public List<SuggestionDto> suggest(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && i < MAX_KEY_LENGTH && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        List<SuggestionDto> suggestions = Arrays.asList(node.top());
+        if (key.length() > MAX_KEY_LENGTH) {
+            // the trie stops at MAX_KEY_LENGTH characters, so the rest of the query is checked here
+            suggestions = suggestions.stream()
+                    .filter(suggestion -> (" " + normalize(suggestion.getText())).contains(" " + key))
+                    .toList();
+        }
+        return List.copyOf(suggestions.subList(0, Math.min(Math.clamp(limit, 1, MAX_SUGGESTIONS), suggestions.size())));
+    }
+
+    /**
+     * Marks the suggestions as outdated, e.g. after an entry was published or removed; they are rebuilt shortly after.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Builds the suggestions when the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        refreshIfStale();
+    }
+
+    /**
+     * Scheduled rebuild of stale or expired suggestions.
+     */
+    @Scheduled(fixedDelayString = "${digitwin.suggestions.refresh-delay:2000}")
+    public void refreshIfStale() {
+        if (!stale && builtAt.plus(maxAge).isAfter(Instant.now())) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing marketplace suggestions failed, keeping the current ones.", e);
+        }
+    }
+
+    /**
+     * Rebuilds the suggestion trie from all marketplace entries and tags.
+     */
+    public synchronized void refresh() {
+        // cleared first, so a change during the rebuild marks the result stale again
+        stale = false;
+        List<MarketplaceEntry> entries;
+        List<Tag> tags;
+        try {
+            entries = marketPlaceEntryRepository.findAll();
+            tags = tagRepository.findAll();
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+
+        List<SuggestionDto> suggestions = new ArrayList<>();
+        Map<String, Long> authorDownloads = new HashMap<>();
+        Map<String, String> authorNames = new HashMap<>();
+        for (MarketplaceEntry entry : entries) {
+            if (entry.getName() != null && !entry.getName().isBlank()) {
+                suggestions.add(new SuggestionDto(entry.getName().trim(), SuggestionType.ENTRY, entry.getId(), entry.getDownloadCount()));
+            }
+            if (entry.getAuthor() != null && !entry.getAuthor().isBlank()) {
+                String author = normalize(entry.getAuthor());
+                authorNames.putIfAbsent(author, entry.getAuthor().trim());
+                authorDownloads.merge(author, (long) entry.getDownloadCount(), Long::sum);
+            }
+        }
+        authorDownloads.forEach((author, downloads) ->
+                suggestions.add(new SuggestionDto(authorNames.get(author), SuggestionType.AUTHOR, null, downloads)));
+        for (Tag tag : tags) {
+            if (tag.getName() != null && !tag.getName().isBlank()) {
+                suggestions.add(new SuggestionDto(tag.getName().trim(), SuggestionType.TAG, tag.getId(), tag.getUsageCount()));
+            }
+        }
+
+        // offered in ranking order, so every node keeps the first MAX_SUGGESTIONS distinct suggestions it sees
+        suggestions.sort(RANKING);
+        NodeBuilder trie = new NodeBuilder();
+        for (SuggestionDto suggestion : suggestions) {
+            String text = normalize(suggestion.getText());
+            for (int start = 0; start < text.length(); start++) {
+                if (start == 0 || text.charAt(start - 1) == ' ') {
+                    trie.insert(text, start, suggestion);
+                }
+            }
+        }
+        root = trie.build();
+        builtAt = Instant.now();
+        log.debug("Built marketplace suggestions from {} entries and {} tags.", entries.size(), tags.size());
+    }
+
+    // lower case with single spaces, so typed text and suggestions compare independent of case and spacing
+    static String normalize(String text) {
+        return text == null ? "" : WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable trie node: children in sorted character order for binary search, and the best suggestions below it.
+     */
+    private record Node(char[] keys, Node[] children, SuggestionDto[] top) {
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    private static final class NodeBuilder {
+
+        private final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        private final List<SuggestionDto> top = new ArrayList<>(MAX_SUGGESTIONS);
+
+        void insert(String text, int start, SuggestionDto suggestion) {
+            NodeBuilder node = this;
+            int end = Math.min(text.length(), start + MAX_KEY_LENGTH);
+            for (int i = start; i < end; i++) {
+                node = node.children.computeIfAbsent(text.charAt(i), key -> new NodeBuilder());
+                // suggestions arrive in ranking order; the same one may arrive again through another of its words
+                if (node.top.size() < MAX_SUGGESTIONS && !node.top.contains(suggestion)) {
+                    node.top.add(suggestion);
+                }
+            }
+        }
+
+        Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node(keys, nodes, top.toArray(SuggestionDto[]::new));
+        }
+    }
+}
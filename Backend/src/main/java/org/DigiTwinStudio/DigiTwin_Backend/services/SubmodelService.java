@@ -33,6 +33,7 @@ public class SubmodelService {
     private final SubmodelMapper submodelMapper;
     private final TemplateRepository templateRepository;
     private final AASModelRepository aasModelRepository;
+    private final SubmodelStorageService submodelStorageService;
     private final JsonDeserializer jsonDeserializer = new JsonDeserializer();
 
     /**
@@ -67,16 +68,28 @@ public class SubmodelService {
      * @throws NotFoundException if the model or submodel is not found
      */
     public SubmodelDto getSubmodel(String modelId, String submodelId) {
-        AASModel model = aasModelRepository.findById(modelId)
+        AASModel header = aasModelRepository.findHeaderById(modelId)
                 .orElseThrow(() -> new NotFoundException("AASModel not found: " + modelId));
 
-        return model.getSubmodels().stream()
-                .filter(sm -> submodelId.equals(sm.getIdShort()))
-                .findFirst()
+        return submodelStorageService.findSubmodelByIdShort(header, submodelId)
                 .map(submodelMapper::toDto)
                 .orElseThrow(() -> new NotFoundException("Submodel not found: " + submodelId));
     }
 
+    /**
+     * Returns the current version of a model without loading its content.
+     * Every change of a submodel increments the version of its model.
+     *
+     * @param modelId the model ID
+     * @return the model version
+     * @throws NotFoundException if the model is not found
+     */
+    public long getModelVersion(String modelId) {
+        return aasModelRepository.findVersionById(modelId)
+                .map(AASModel::getVersion)
+                .orElseThrow(() -> new NotFoundException("AASModel not found: " + modelId));
+    }
+
     /**
      * Validates a submodel DTO using AAS4J structural rules.
      *
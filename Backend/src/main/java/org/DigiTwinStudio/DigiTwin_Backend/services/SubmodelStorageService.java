@@ -0,0 +1,491 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SubmodelDocument;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.SubmodelDocumentRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.FileReferenceUtil;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Reads and writes the submodels of AAS models independent of their storage layout.
+ * <p>
+ * Submodels are either embedded in the model document or, for models with {@code submodelRefs},
+ * stored one per document in the submodel collection. Externalized submodels are loaded lazily
+ * in small batches, so large models never have to be materialized as one document.
+ * Changed submodels are written as new documents before the model references them, so a failed or rejected
+ * model write leaves the stored content intact; documents left behind are removed by {@link #removeOrphanedSubmodels()}.
+ * Models adopted from the marketplace ({@code sourceSnapshotId}) read the submodels of their published snapshot
+ * until they are materialized on the first edit.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubmodelStorageService {
+
+    // number of externalized submodels fetched per round trip while streaming
+    static final int STREAM_BATCH_SIZE = 16;
+
+    // unreferenced submodel documents younger than this may belong to a write that has not switched the model yet
+    static final Duration ORPHAN_GRACE_PERIOD = Duration.ofHours(1);
+
+    private final AASModelRepository aasModelRepository;
+    private final SubmodelDocumentRepository submodelDocumentRepository;
+    private final PublishedSnapshotRepository publishedSnapshotRepository;
+    private final UploadedFileRepository uploadedFileRepository;
+
+    /**
+     * Checks whether a model stores its submodels in the submodel collection.
+     *
+     * @param model the model or model header
+     * @return true if the submodels are stored externally
+     */
+    public boolean isExternal(AASModel model) {
+        return model.getSubmodelRefs() != null;
+    }
+
+    /**
+     * Checks whether a model was adopted from the marketplace and still shares the submodels of a published snapshot.
+     *
+     * @param model the model or model header
+     * @return true if the submodels are read from the snapshot
+     */
+    public boolean isAdopted(AASModel model) {
+        return model.getSourceSnapshotId() != null;
+    }
+
+    /**
+     * Loads the externally stored submodels into the model, so it can be used like a model with embedded submodels.
+     * Does nothing for models with embedded submodels or already loaded submodels.
+     *
+     * @param model the model loaded from the database
+     */
+    public void resolveSubmodels(AASModel model) {
+        if (isAdopted(model) && model.getSubmodels() == null) {
+            model.setSubmodels(new ArrayList<>(snapshotSubmodels(model)));
+        } else if (isExternal(model) && model.getSubmodels() == null) {
+            model.setSubmodels(streamSubmodels(model).collect(Collectors.toCollection(ArrayList::new)));
+        }
+    }
+
+    /**
+     * Streams the submodels of a model in their stored order.
+     * Externally stored submodels are fetched lazily in batches while the stream is consumed.
+     *
+     * @param model the model or model header
+     * @return stream of submodels
+     */
+    public Stream<DefaultSubmodel> streamSubmodels(AASModel model) {
+        if (isAdopted(model) && model.getSubmodels() == null) {
+            return snapshotSubmodels(model).stream();
+        }
+        if (!isExternal(model) || model.getSubmodels() != null) {
+            return model.getSubmodels() == null ? Stream.empty() : model.getSubmodels().stream();
+        }
+        List<String> refs = model.getSubmodelRefs();
+        List<String> documentIds = documentIds(model);
+        int batches = (refs.size() + STREAM_BATCH_SIZE - 1) / STREAM_BATCH_SIZE;
+        return IntStream.range(0, batches).boxed().flatMap(i -> {
+            int from = i * STREAM_BATCH_SIZE;
+            int to = Math.min(refs.size(), from + STREAM_BATCH_SIZE);
+            return loadBatch(model.getId(), refs.subList(from, to), documentIds.subList(from, to)).stream();
+        });
+    }
+
+    /**
+     * Loads a single submodel by its ID.
+     *
+     * @param header     the model header
+     * @param submodelId the submodel ID
+     * @return an Optional containing the submodel, or empty if it does not exist
+     */
+    public Optional<DefaultSubmodel> findSubmodel(AASModel header, String submodelId) {
+        if (isAdopted(header)) {
+            return snapshotSubmodels(header).stream().filter(submodel -> Objects.equals(submodel.getId(), submodelId)).findFirst();
+        }
+        if (isExternal(header)) {
+            int index = header.getSubmodelRefs().indexOf(submodelId);
+            return index < 0
+                    ? Optional.empty()
+                    : submodelDocumentRepository.findById(documentIds(header).get(index)).map(SubmodelDocument::getSubmodel);
+        }
+        return aasModelRepository.findSubmodel(header.getId(), submodelId);
+    }
+
+    /**
+     * Loads a single submodel by its idShort.
+     *
+     * @param header  the model header
+     * @param idShort the submodel idShort
+     * @return an Optional containing the submodel, or empty if it does not exist
+     */
+    public Optional<DefaultSubmodel> findSubmodelByIdShort(AASModel header, String idShort) {
+        if (isAdopted(header)) {
+            return snapshotSubmodels(header).stream().filter(submodel -> Objects.equals(submodel.getIdShort(), idShort)).findFirst();
+        }
+        if (isExternal(header)) {
+            // older or not yet referenced versions of a submodel are stored under the same idShort
+            Set<String> referenced = new HashSet<>(documentIds(header));
+            return submodelDocumentRepository.findByModelIdAndIdShort(header.getId(), idShort).stream()
+                    .filter(document -> referenced.contains(document.getId()))
+                    .findFirst()
+                    .map(SubmodelDocument::getSubmodel);
+        }
+        return aasModelRepository.findSubmodelByIdShort(header.getId(), idShort);
+    }
+
+    /**
+     * Appends a submodel to a model if the model still has the version of the header.
+     *
+     * @param header    the model header the caller has read
+     * @param submodel  the submodel to append
+     * @param updatedAt the new modification timestamp
+     * @return true if the submodel was appended, false if the model was modified concurrently
+     */
+    public boolean pushSubmodel(AASModel header, DefaultSubmodel submodel, LocalDateTime updatedAt) {
+        if (!isExternal(header)) {
+            return aasModelRepository.pushSubmodel(header.getId(), header.getVersion(), submodel, updatedAt);
+        }
+        if (header.getSubmodelRefs().contains(submodel.getId())) {
+            return false;
+        }
+        List<String> written = write(header.getId(), List.of(submodel), header.getVersion() + 1);
+        List<String> refs = new ArrayList<>(header.getSubmodelRefs());
+        List<String> documentIds = new ArrayList<>(documentIds(header));
+        refs.add(submodel.getId());
+        documentIds.addAll(written);
+        return commit(header, null, refs, documentIds, written, updatedAt);
+    }
+
+    /**
+     * Replaces a submodel of a model if the model still has the version of the header.
+     *
+     * @param header     the model header the caller has read
+     * @param submodelId the ID of the submodel to replace
+     * @param submodel   the new submodel
+     * @param updatedAt  the new modification timestamp
+     * @return true if the submodel was replaced, false if the model was modified concurrently
+     */
+    public boolean setSubmodel(AASModel header, String submodelId, DefaultSubmodel submodel, LocalDateTime updatedAt) {
+        if (!isExternal(header)) {
+            return aasModelRepository.setSubmodel(header.getId(), header.getVersion(), submodelId, submodel, updatedAt);
+        }
+        int index = header.getSubmodelRefs().indexOf(submodelId);
+        if (index < 0) {
+            return false;
+        }
+        List<String> written = write(header.getId(), List.of(submodel), header.getVersion() + 1);
+        List<String> refs = new ArrayList<>(header.getSubmodelRefs());
+        List<String> documentIds = new ArrayList<>(documentIds(header));
+        refs.set(index, submodel.getId());
+        documentIds.set(index, written.getFirst());
+        return commit(header, null, refs, documentIds, written, updatedAt);
+    }
+
+    /**
+     * Removes a submodel from a model if the model still has the version of the header.
+     *
+     * @param header     the model header the caller has read
+     * @param submodelId the ID of the submodel to remove
+     * @param updatedAt  the new modification timestamp
+     * @return true if the submodel was removed, false if the model was modified concurrently
+     */
+    public boolean pullSubmodel(AASModel header, String submodelId, LocalDateTime updatedAt) {
+        if (!isExternal(header)) {
+            return aasModelRepository.pullSubmodel(header.getId(), header.getVersion(), submodelId, updatedAt);
+        }
+        int index = header.getSubmodelRefs().indexOf(submodelId);
+        if (index < 0) {
+            return false;
+        }
+        List<String> refs = new ArrayList<>(header.getSubmodelRefs());
+        List<String> documentIds = new ArrayList<>(documentIds(header));
+        refs.remove(index);
+        documentIds.remove(index);
+        return commit(header, null, refs, documentIds, List.of(), updatedAt);
+    }
+
+    /**
+     * Replaces shell and submodels of a model owned by the given user, keeping its ID, creation date and publish state.
+     * Models with embedded submodels are replaced with a single conditional write; for externalized models the
+     * new submodel documents are written first and the model is switched to them afterwards.
+     *
+     * @param modelId         the model ID
+     * @param ownerId         the owner the model must belong to
+     * @param expectedVersion the version the caller has read, or null to overwrite unconditionally
+     * @param aas             the new asset administration shell
+     * @param submodels       the new submodels
+     * @param updatedAt       the new modification timestamp
+     * @return an Optional containing the updated model, or empty if the model is missing, owned by someone else
+     *         or its version did not match
+     */
+    public Optional<AASModel> replaceContent(String modelId, String ownerId, Long expectedVersion,
+                                             DefaultAssetAdministrationShell aas, List<DefaultSubmodel> submodels,
+                                             LocalDateTime updatedAt) {
+        Optional<AASModel> replaced = aasModelRepository.replaceContent(modelId, ownerId, expectedVersion, aas, submodels, updatedAt);
+        if (replaced.isPresent()) {
+            return replaced;
+        }
+
+        // nothing matched: either the precondition failed, the model was adopted or it stores its submodels externally
+        Optional<AASModel> header = aasModelRepository.findHeaderById(modelId);
+        if (header.isPresent() && isAdopted(header.get()) && Objects.equals(header.get().getOwnerId(), ownerId)) {
+            materialize(header.get());
+            return aasModelRepository.replaceContent(modelId, ownerId, expectedVersion, aas, submodels, updatedAt);
+        }
+        if (header.isEmpty() || !isExternal(header.get()) || !Objects.equals(header.get().getOwnerId(), ownerId)) {
+            return Optional.empty();
+        }
+        List<DefaultSubmodel> newSubmodels = submodels == null ? List.of() : submodels;
+        List<String> refs = newSubmodels.stream().map(DefaultSubmodel::getId).toList();
+        List<String> documentIds = write(modelId, newSubmodels, header.get().getVersion() + 1);
+        Optional<AASModel> updated = aasModelRepository.replaceExternalContent(modelId, ownerId, expectedVersion, aas,
+                refs, documentIds, updatedAt);
+        if (updated.isEmpty()) {
+            discard(documentIds);
+            return updated;
+        }
+        // without an expected version the model may have changed after the header was read; its documents are left to the orphan cleanup
+        discard(superseded(header.get(), documentIds));
+        updated.get().setSubmodels(new ArrayList<>(newSubmodels));
+        return updated;
+    }
+
+    /**
+     * Returns the submodel IDs of a model header in their stored order.
+     *
+     * @param header the model header
+     * @return the submodel IDs
+     */
+    public List<String> submodelIds(AASModel header) {
+        if (isAdopted(header)) {
+            return snapshotSubmodels(header).stream().map(DefaultSubmodel::getId).toList();
+        }
+        if (isExternal(header)) {
+            return header.getSubmodelRefs();
+        }
+        return header.getSubmodels() == null ? List.of() : header.getSubmodels().stream().map(DefaultSubmodel::getId).toList();
+    }
+
+    /**
+     * Replaces the shell and/or individual submodels of a model if it still has the version of the header.
+     * Submodels that are not part of {@code submodels} are neither read nor written.
+     *
+     * @param header    the model header the caller has read
+     * @param aas       the new asset administration shell, or null to keep the stored one
+     * @param submodels the new submodels by the ID of the submodel they replace
+     * @param updatedAt the new modification timestamp
+     * @return true if the model was updated, false if the model was modified concurrently
+     */
+    public boolean patchContent(AASModel header, DefaultAssetAdministrationShell aas,
+                                Map<String, DefaultSubmodel> submodels, LocalDateTime updatedAt) {
+        if (!isExternal(header)) {
+            return aasModelRepository.patchEmbeddedContent(header.getId(), header.getVersion(), aas, submodels, updatedAt);
+        }
+        List<String> refs = new ArrayList<>(header.getSubmodelRefs());
+        List<String> documentIds = new ArrayList<>(documentIds(header));
+        List<Integer> indexes = new ArrayList<>(submodels.size());
+        for (String submodelId : submodels.keySet()) {
+            int index = refs.indexOf(submodelId);
+            if (index < 0) {
+                return false;
+            }
+            indexes.add(index);
+        }
+        List<DefaultSubmodel> changed = new ArrayList<>(submodels.values());
+        List<String> written = write(header.getId(), changed, header.getVersion() + 1);
+        for (int i = 0; i < changed.size(); i++) {
+            refs.set(indexes.get(i), changed.get(i).getId());
+            documentIds.set(indexes.get(i), written.get(i));
+        }
+        return commit(header, aas, refs, documentIds, written, updatedAt);
+    }
+
+    /**
+     * Gives an adopted model its own copy of the snapshot submodels, so it can be modified like any other model.
+     * The files referenced by the submodels gain one shared reference for the new copy.
+     * Version and modification date are kept, since the content of the model does not change.
+     *
+     * @param header the header of an adopted model
+     * @return true if the model was materialized, false if it was materialized concurrently
+     */
+    public boolean materialize(AASModel header) {
+        List<DefaultSubmodel> submodels = snapshotSubmodels(header);
+        if (!aasModelRepository.materializeSnapshot(header.getId(), header.getSourceSnapshotId(), submodels)) {
+            return false;
+        }
+        uploadedFileRepository.acquireSharedReferences(FileReferenceUtil.collectFileIds(submodels));
+        return true;
+    }
+
+    /**
+     * Deletes all externally stored submodels of a model.
+     *
+     * @param modelId the model ID
+     */
+    public void deleteSubmodels(String modelId) {
+        submodelDocumentRepository.deleteByModelId(modelId);
+    }
+
+    /**
+     * Moves the embedded submodels of a model into the submodel collection.
+     *
+     * @param modelId the model ID
+     * @return true if the model was converted, false if it is missing, already externalized or was modified meanwhile
+     */
+    public boolean externalize(String modelId) {
+        Optional<AASModel> found = aasModelRepository.findById(modelId);
+        if (found.isEmpty() || isExternal(found.get())) {
+            return false;
+        }
+        AASModel model = found.get();
+        List<DefaultSubmodel> submodels = model.getSubmodels() == null ? List.of() : model.getSubmodels();
+        List<String> documentIds = write(modelId, submodels, model.getVersion() + 1);
+
+        List<String> refs = submodels.stream().map(DefaultSubmodel::getId).toList();
+        if (!aasModelRepository.externalizeSubmodels(modelId, model.getVersion(), refs, documentIds)) {
+            // the model changed while it was copied; drop the copies, the next run picks it up again
+            discard(documentIds);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the embedded submodels of all models into the submodel collection.
+     *
+     * @return the number of converted models
+     */
+    public int externalizeAll() {
+        List<String> modelIds = aasModelRepository.findIdsWithEmbeddedSubmodels();
+        int converted = 0;
+        for (String modelId : modelIds) {
+            if (externalize(modelId)) {
+                converted++;
+            } else {
+                log.warn("Skipped submodel migration of model {}", modelId);
+            }
+        }
+        log.info("Externalized submodels of {} of {} models.", converted, modelIds.size());
+        return converted;
+    }
+
+    /**
+     * Deletes submodel documents that no model references, e.g. because the model write that should have switched
+     * to them failed or the model was deleted meanwhile. Documents written within {@link #ORPHAN_GRACE_PERIOD}
+     * are kept, since their write may still be in progress.
+     *
+     * @return the number of deleted documents
+     */
+    @Scheduled(fixedDelayString = "${digitwin.submodel-storage.orphan-cleanup-interval:3600000}")
+    public long removeOrphanedSubmodels() {
+        LocalDateTime writtenBefore = LocalDateTime.now().minus(ORPHAN_GRACE_PERIOD);
+        long removed = 0;
+        for (String modelId : submodelDocumentRepository.findModelIdsWithDocumentsBefore(writtenBefore)) {
+            List<String> referenced = aasModelRepository.findHeaderById(modelId)
+                    .filter(this::isExternal)
+                    .map(this::documentIds)
+                    .orElse(List.of());
+            removed += submodelDocumentRepository.deleteUnreferenced(modelId, referenced, writtenBefore);
+        }
+        if (removed > 0) {
+            log.info("Removed {} orphaned submodel documents.", removed);
+        }
+        return removed;
+    }
+
+    // the document IDs of an externalized model in the order of its submodel IDs
+    private List<String> documentIds(AASModel header) {
+        if (header.getSubmodelDocumentIds() != null) {
+            return header.getSubmodelDocumentIds();
+        }
+        return header.getSubmodelRefs().stream().map(id -> SubmodelDocument.idOf(header.getId(), id)).toList();
+    }
+
+    private List<String> write(String modelId, List<DefaultSubmodel> submodels, long version) {
+        List<SubmodelDocument> documents = submodels.stream().map(submodel -> SubmodelDocument.of(modelId, submodel, version)).toList();
+        submodelDocumentRepository.insert(documents);
+        return documents.stream().map(SubmodelDocument::getId).toList();
+    }
+
+    // switches the model to the written documents; the documents are dropped again if the model was modified meanwhile
+    private boolean commit(AASModel header, DefaultAssetAdministrationShell aas, List<String> refs, List<String> documentIds,
+                           List<String> written, LocalDateTime updatedAt) {
+        if (!aasModelRepository.patchExternalContent(header.getId(), header.getVersion(), aas, refs, documentIds, updatedAt)) {
+            discard(written);
+            return false;
+        }
+        discard(superseded(header, documentIds));
+        return true;
+    }
+
+    private List<String> superseded(AASModel header, List<String> documentIds) {
+        Set<String> kept = new HashSet<>(documentIds);
+        return documentIds(header).stream().filter(id -> !kept.contains(id)).toList();
+    }
+
+    private void discard(Collection<String> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        try {
+            submodelDocumentRepository.deleteAllById(documentIds);
+        } catch (DataAccessException e) {
+            log.warn("Could not delete {} unreferenced submodel documents, leaving them to the orphan cleanup.", documentIds.size(), e);
+        }
+    }
+
+    private List<DefaultSubmodel> snapshotSubmodels(AASModel model) {
+        Optional<PublishedSnapshot> snapshot = publishedSnapshotRepository.findById(model.getSourceSnapshotId());
+        if (snapshot.isEmpty()) {
+            log.warn("Published snapshot {} of model {} is referenced but not stored.", model.getSourceSnapshotId(), model.getId());
+            return List.of();
+        }
+        return snapshot.get().getSubmodels() == null ? List.of() : snapshot.get().getSubmodels();
+    }
+
+    private List<DefaultSubmodel> loadBatch(String modelId, List<String> submodelIds, List<String> documentIds) {
+        Map<String, DefaultSubmodel> byDocumentId = new HashMap<>();
+        for (SubmodelDocument document : submodelDocumentRepository.findAllById(documentIds)) {
+            byDocumentId.put(document.getId(), document.getSubmodel());
+        }
+        List<DefaultSubmodel> ordered = new ArrayList<>(submodelIds.size());
+        for (int i = 0; i < submodelIds.size(); i++) {
+            DefaultSubmodel submodel = byDocumentId.get(documentIds.get(i));
+            if (submodel == null) {
+                log.warn("Submodel {} of model {} is referenced but not stored.", submodelIds.get(i), modelId);
+            } else {
+                ordered.add(submodel);
+            }
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,52 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Contains Help-Methods to build and read opaque keyset pagination cursors.
+ * A cursor holds the sort key values of the last item of a page, e.g. its timestamp and ID,
+ * encoded as URL-safe Base64 so clients treat it as an opaque token.
+ */
+public final class CursorUtil {
+
+    // unit separator, cannot occur in IDs or ISO timestamps
+    private static final String SEPARATOR = "\u001F";
+
+    private CursorUtil() {
+    }
+
+    /**
+     * Encodes sort key values into an opaque cursor.
+     *
+     * @param parts the sort key values of the last item
+     * @return the URL-safe cursor token
+     */
+    public static String encode(String... parts) {
+        String raw = String.join(SEPARATOR, parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encode(String...)}.
+     *
+     * @param cursor        the cursor token
+     * @param expectedParts the number of sort key values the cursor must contain
+     * @return the sort key values
+     * @throws BadRequestException when the cursor is malformed
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != expectedParts) {
+                throw new BadRequestException("Invalid pagination cursor.");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid pagination cursor.", e);
+        }
+    }
+}
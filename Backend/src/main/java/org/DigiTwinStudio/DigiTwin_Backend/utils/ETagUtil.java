@@ -0,0 +1,142 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
+
+import org.springframework.http.CacheControl;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Contains Help-Methods to translate model versions to HTTP entity tags and back.
+ * A model version is exposed as strong ETag, e.g. {@code "3"}; pre-rendered files use their content digest instead.
+ */
+public final class ETagUtil {
+
+    /**
+     * How long clients and shared caches may use published marketplace content without revalidating.
+     * Published versions never change, but an entry can be unpublished or republished under the same URL.
+     */
+    public static final Duration PUBLISHED_MAX_AGE = Duration.ofDays(1);
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Formats a model version as strong ETag.
+     *
+     * @param version the model version
+     * @return the quoted ETag value (e.g., "\"3\"")
+     */
+    public static String toETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Formats a content digest as strong ETag.
+     *
+     * @param digest the hex encoded digest of the content
+     * @return the quoted ETag value
+     */
+    public static String toContentETag(String digest) {
+        return "\"" + digest + "\"";
+    }
+
+    /**
+     * Checks whether an If-None-Match header names the given version, so the client's copy is still current.
+     * Weak tags ({@code W/"3"}) match like strong ones, as required for If-None-Match.
+     *
+     * @param ifNoneMatch the raw If-None-Match header value, may be null
+     * @param version     the current model version
+     * @return true if a 304 Not Modified can be sent instead of the content
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, long version) {
+        return matchesIfNoneMatch(ifNoneMatch, toETag(version));
+    }
+
+    /**
+     * Checks whether an If-None-Match header names the given ETag, so the client's copy is still current.
+     *
+     * @param ifNoneMatch the raw If-None-Match header value, may be null
+     * @param current     the quoted ETag of the current content
+     * @return true if a 304 Not Modified can be sent instead of the content
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String current) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache-Control for user-specific model data: clients may keep a copy but have to revalidate it
+     * with its ETag before every use, so they never show an outdated model.
+     *
+     * @return the cache control ({@code no-cache, private})
+     */
+    public static CacheControl revalidate() {
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    /**
+     * Cache-Control for published marketplace content, which is the same for every user:
+     * clients and shared caches may keep it for {@link #PUBLISHED_MAX_AGE} and revalidate it with its ETag afterwards.
+     *
+     * @return the cache control ({@code max-age=86400, public})
+     */
+    public static CacheControl published() {
+        return CacheControl.maxAge(PUBLISHED_MAX_AGE).cachePublic();
+    }
+
+    /**
+     * Resolves the version a client expects from an If-Match header.
+     * The header may list several tags; the precondition holds if any strong version tag names the current version.
+     * Weak tags never match, as required for If-Match. The current version is only looked up for a list of tags.
+     *
+     * @param ifMatch        the raw If-Match header value, may be null
+     * @param currentVersion supplies the current model version
+     * @return the expected version, or null if the header is absent or "*" (no precondition)
+     * @throws PreconditionFailedException when no strong version tag in the header names the current version
+     */
+    public static Long parseIfMatch(String ifMatch, LongSupplier currentVersion) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        Set<Long> versions = new LinkedHashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*")) {
+                return null;
+            }
+            if (candidate.length() < 2 || !candidate.startsWith("\"") || !candidate.endsWith("\"")) {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(candidate.substring(1, candidate.length() - 1)));
+            } catch (NumberFormatException e) {
+                // not a version tag issued by this server, e.g. a content digest
+            }
+        }
+        if (versions.size() == 1) {
+            return versions.iterator().next();
+        }
+        if (!versions.isEmpty()) {
+            long current = currentVersion.getAsLong();
+            if (versions.contains(current)) {
+                return current;
+            }
+        }
+        throw new PreconditionFailedException("If-Match header does not match any model version: " + ifMatch);
+    }
+}
@@ -0,0 +1,71 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.Entity;
+import org.eclipse.digitaltwin.aas4j.v3.model.File;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementCollection;
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElementList;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Contains Help-Methods to find the uploaded files referenced by submodels.
+ * File elements store the ID of their {@code UploadedFile} as value; they may be nested at any depth
+ * inside collections, lists and entities.
+ */
+public final class FileReferenceUtil {
+
+    private FileReferenceUtil() {
+    }
+
+    /**
+     * Collects the IDs of all files referenced by the given submodels.
+     *
+     * @param submodels the submodels to scan, may be null
+     * @return the distinct, non-blank file IDs in encounter order
+     */
+    public static Set<String> collectFileIds(Collection<DefaultSubmodel> submodels) {
+        Set<String> fileIds = new LinkedHashSet<>();
+        if (submodels != null) {
+            for (DefaultSubmodel submodel : submodels) {
+                collect(submodel.getSubmodelElements(), fileIds);
+            }
+        }
+        return fileIds;
+    }
+
+    /**
+     * Collects the IDs of all files referenced by a single submodel.
+     *
+     * @param submodel the submodel to scan
+     * @return the distinct, non-blank file IDs in encounter order
+     */
+    public static Set<String> collectFileIds(DefaultSubmodel submodel) {
+        Set<String> fileIds = new LinkedHashSet<>();
+        collect(submodel.getSubmodelElements(), fileIds);
+        return fileIds;
+    }
+
+    private static void collect(Collection<SubmodelElement> elements, Set<String> fileIds) {
+        if (elements == null) {
+            return;
+        }
+        for (SubmodelElement element : elements) {
+            if (element instanceof File fileElem) {
+                String fileId = fileElem.getValue();
+                if (fileId != null && !fileId.isBlank()) {
+                    fileIds.add(fileId);
+                }
+            } else if (element instanceof SubmodelElementCollection collection) {
+                collect(collection.getValue(), fileIds);
+            } else if (element instanceof SubmodelElementList list) {
+                collect(list.getValue(), fileIds);
+            } else if (element instanceof Entity entity) {
+                collect(entity.getStatements(), fileIds);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Contains Help-Methods to apply JSON Patch documents (RFC 6902) to Jackson trees.
+ * Paths are JSON Pointers (RFC 6901); all operations of a patch are applied atomically to a copy of the document.
+ */
+public final class JsonPatchUtil {
+
+    /**
+     * A single parsed patch operation.
+     *
+     * @param op    the operation name (add, remove, replace, move, copy, test)
+     * @param path  the target location as pointer tokens
+     * @param from  the source location as pointer tokens (move and copy only), otherwise null
+     * @param value the operation value (add, replace and test only), otherwise null
+     */
+    public record Operation(String op, List<String> path, List<String> from, JsonNode value) {
+    }
+
+    // numbers compare by value, so a test for 1 matches a stored 1.0
+    private static final Comparator<JsonNode> NUMERIC_AWARE = (a, b) -> {
+        if (a.isNumber() && b.isNumber()) {
+            return a.decimalValue().compareTo(b.decimalValue());
+        }
+        return a.equals(b) ? 0 : 1;
+    };
+
+    private JsonPatchUtil() {
+    }
+
+    /**
+     * Parses and checks a JSON Patch document without applying it.
+     *
+     * @param patch the patch document (a JSON array of operations)
+     * @return the parsed operations in order
+     * @throws BadRequestException if the document is not a well-formed JSON Patch
+     */
+    public static List<Operation> parse(JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new BadRequestException("JSON Patch must be an array of operations");
+        }
+        List<Operation> operations = new ArrayList<>(patch.size());
+        for (JsonNode node : patch) {
+            if (!node.isObject()) {
+                throw new BadRequestException("JSON Patch operation must be an object: " + node);
+            }
+            String op = requiredText(node, "op");
+            List<String> path = parsePointer(requiredText(node, "path"));
+            List<String> from = null;
+            JsonNode value = null;
+            switch (op) {
+                case "add", "replace", "test" -> {
+                    if (!node.has("value")) {
+                        throw new BadRequestException("JSON Patch operation '" + op + "' requires a value");
+                    }
+                    value = node.get("value");
+                }
+                case "move", "copy" -> from = parsePointer(requiredText(node, "from"));
+                case "remove" -> {
+                    // no further members
+                }
+                default -> throw new BadRequestException("Unknown JSON Patch operation: " + op);
+            }
+            operations.add(new Operation(op, path, from, value));
+        }
+        return operations;
+    }
+
+    /**
+     * Applies parsed operations to a copy of the document.
+     *
+     * @param document   the document to patch (not modified)
+     * @param operations the operations to apply in order
+     * @return the patched document
+     * @throws BadRequestException if an operation targets a missing or invalid location or removes the whole document
+     * @throws ConflictException if a test operation fails
+     */
+    public static JsonNode apply(JsonNode document, List<Operation> operations) {
+        // the document is wrapped so that operations on the root ("") work like on any other member
+        ObjectNode holder = JsonNodeFactory.instance.objectNode();
+        holder.set("", document.deepCopy());
+        for (Operation operation : operations) {
+            List<String> path = rooted(operation.path());
+            switch (operation.op()) {
+                case "add" -> add(holder, path, operation.value().deepCopy());
+                case "remove" -> {
+                    if (operation.path().isEmpty()) {
+                        throw new BadRequestException("JSON Patch cannot remove the whole document");
+                    }
+                    remove(holder, path);
+                }
+                case "replace" -> {
+                    remove(holder, path);
+                    add(holder, path, operation.value().deepCopy());
+                }
+                case "move" -> {
+                    List<String> from = rooted(operation.from());
+                    if (!from.equals(path)) {
+                        if (isProperPrefix(from, path)) {
+                            throw new BadRequestException("JSON Patch cannot move " + toPointer(operation.from())
+                                    + " into one of its children");
+                        }
+                        add(holder, path, remove(holder, from));
+                    }
+                }
+                case "copy" -> add(holder, path, get(holder, rooted(operation.from())).deepCopy());
+                case "test" -> {
+                    JsonNode actual = get(holder, path);
+                    if (!actual.equals(NUMERIC_AWARE, operation.value())) {
+                        throw new ConflictException("JSON Patch test failed at " + toPointer(operation.path()));
+                    }
+                }
+                default -> throw new BadRequestException("Unknown JSON Patch operation: " + operation.op());
+            }
+        }
+        return holder.get("");
+    }
+
+    /**
+     * Parses a JSON Pointer into its unescaped reference tokens.
+     *
+     * @param pointer the pointer, e.g. {@code /submodels/0/idShort}
+     * @return the tokens, empty for the whole document
+     * @throws BadRequestException if the pointer is malformed
+     */
+    public static List<String> parsePointer(String pointer) {
+        if (pointer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!pointer.startsWith("/")) {
+            throw new BadRequestException("Invalid JSON Pointer: " + pointer);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String raw : pointer.substring(1).split("/", -1)) {
+            if (raw.matches(".*~([^01]|$).*")) {
+                throw new BadRequestException("Invalid escape in JSON Pointer: " + pointer);
+            }
+            tokens.add(raw.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    /**
+     * Parses an array index token; "-" (past the end) is not accepted.
+     *
+     * @param token the reference token
+     * @return the index, or -1 if the token is not a valid array index
+     */
+    public static int parseIndex(String token) {
+        if (!token.matches("0|[1-9][0-9]{0,8}")) {
+            return -1;
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static void add(ObjectNode holder, List<String> path, JsonNode value) {
+        JsonNode parent = get(holder, path.subList(0, path.size() - 1));
+        String last = path.getLast();
+        if (parent instanceof ObjectNode object) {
+            object.set(last, value);
+        } else if (parent instanceof ArrayNode array) {
+            if (last.equals("-")) {
+                array.add(value);
+                return;
+            }
+            int index = parseIndex(last);
+            if (index < 0 || index > array.size()) {
+                throw new BadRequestException("JSON Patch index out of range: " + toPointer(path.subList(1, path.size())));
+            }
+            array.insert(index, value);
+        } else {
+            throw new BadRequestException("JSON Patch target has no container: " + toPointer(path.subList(1, path.size())));
+        }
+    }
+
+    private static JsonNode remove(ObjectNode holder, List<String> path) {
+        JsonNode parent = get(holder, path.subList(0, path.size() - 1));
+        String last = path.getLast();
+        JsonNode removed = null;
+        if (parent instanceof ObjectNode object) {
+            removed = object.remove(last);
+        } else if (parent instanceof ArrayNode array) {
+            int index = parseIndex(last);
+            if (index >= 0 && index < array.size()) {
+                removed = array.remove(index);
+            }
+        }
+        if (removed == null) {
+            throw new BadRequestException("JSON Patch path does not exist: " + toPointer(path.subList(1, path.size())));
+        }
+        return removed;
+    }
+
+    private static JsonNode get(ObjectNode holder, List<String> path) {
+        JsonNode current = holder;
+        for (String token : path) {
+            if (current.isObject()) {
+                current = current.get(token);
+            } else if (current.isArray()) {
+                int index = parseIndex(token);
+                current = index < 0 ? null : current.get(index);
+            } else {
+                current = null;
+            }
+            if (current == null) {
+                throw new BadRequestException("JSON Patch path does not exist: " + toPointer(path.subList(1, path.size())));
+            }
+        }
+        return current;
+    }
+
+    private static List<String> rooted(List<String> tokens) {
+        List<String> path = new ArrayList<>(tokens.size() + 1);
+        path.add("");
+        path.addAll(tokens);
+        return path;
+    }
+
+    private static boolean isProperPrefix(List<String> prefix, List<String> path) {
+        return prefix.size() < path.size() && path.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static String toPointer(List<String> tokens) {
+        StringBuilder pointer = new StringBuilder();
+        for (String token : tokens) {
+            pointer.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    private static String requiredText(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new BadRequestException("JSON Patch operation requires a string '" + field + "': " + node);
+        }
+        return value.asText();
+    }
+}
@@ -0,0 +1,38 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Contains Help-Methods for the time-decayed download score behind the "trending" marketplace order.
+ * <p>
+ * Instead of decaying all scores over time, each download adds a weight that doubles every {@link #HALF_LIFE}
+ * after a fixed epoch. The order of the stored sums is the same as the order of the decayed scores at any point
+ * in time, so the score can be maintained with plain {@code $inc} updates and served from an index.
+ * A download counts as much as two downloads one half-life earlier.
+ * </p>
+ * <p>
+ * The weights stay within the range of a double for about 19 years after the epoch.
+ * </p>
+ */
+public final class TrendingScoreUtil {
+
+    public static final Duration HALF_LIFE = Duration.ofDays(7);
+
+    // changing the epoch or the half-life invalidates all stored scores
+    private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    private TrendingScoreUtil() {
+    }
+
+    /**
+     * Returns the score weight of one download at the given time.
+     *
+     * @param time the time of the download
+     * @return {@code 2^((time - epoch) / half-life)}
+     */
+    public static double weightAt(Instant time) {
+        double halfLives = (double) Duration.between(EPOCH, time).toSeconds() / HALF_LIFE.toSeconds();
+        return Math.pow(2, halfLives);
+    }
+}
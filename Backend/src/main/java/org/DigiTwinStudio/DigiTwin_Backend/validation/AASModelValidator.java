@@ -19,14 +19,14 @@ import java.util.List;
 /**
  * Component responsible for validating complete AASModel instances.
  * - Global AAS structure via FAAAST ModelValidator
- * - Per-submodel validation via SubmodelValidator
+ * - Per-submodel validation via SubmodelValidator, skipping submodels whose content was already validated
  * - Project-specific metadata validation
  */
 @Component
 @RequiredArgsConstructor
 public class AASModelValidator {
 
-    private final SubmodelValidator submodelValidator;
+    private final SubmodelValidationCache submodelValidationCache;
 
     /**
      * Validates the given AAS model, all submodels, and (if published) its publish metadata.
@@ -49,7 +49,7 @@ public class AASModelValidator {
             if (submodels != null && !submodels.isEmpty()) {
 
                 for (DefaultSubmodel sm : submodels) {
-                    submodelValidator.validate(sm);
+                    submodelValidationCache.validate(sm);
                 }
             }
 
@@ -62,6 +62,37 @@ public class AASModelValidator {
         }
     }
 
+    /**
+     * Validates a single submodel that is about to be added to or replaced in an existing model.
+     * The rest of the model is unchanged and therefore not revalidated.
+     *
+     * @param submodel the submodel to check
+     * @throws BadRequestException if validation fails
+     */
+    public void validateSubmodel(DefaultSubmodel submodel) {
+        if (submodel == null) {
+            throw new BadRequestException("Submodel must not be null");
+        }
+        submodelValidationCache.validate(submodel);
+    }
+
+    /**
+     * Validates an asset administration shell that is about to replace the shell of an existing model.
+     *
+     * @param aas the shell to check
+     * @throws BadRequestException if validation fails
+     */
+    public void validateAas(DefaultAssetAdministrationShell aas) {
+        if (aas == null) {
+            throw new BadRequestException("AASModel must contain an AssetAdministrationShell");
+        }
+        try {
+            ModelValidator.validate(aas);
+        } catch (de.fraunhofer.iosb.ilt.faaast.service.model.exception.ValidationException e) {
+            throw new BadRequestException("Not valid AssetAdministrationShell: " + e.getMessage(), e);
+        }
+    }
+
     private void validatePublishMetadata(PublishMetadata metadata) throws ValidationException {
         if (metadata == null) {
             throw new BadRequestException("PublishMetadata must be provided when publishing a model");
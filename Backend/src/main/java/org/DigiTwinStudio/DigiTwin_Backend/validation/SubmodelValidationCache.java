@@ -0,0 +1,96 @@
+package org.DigiTwinStudio.DigiTwin_Backend.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+
+import org.eclipse.digitaltwin.aas4j.v3.dataformat.json.JsonSerializer;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which submodels already passed {@link SubmodelValidator}, keyed by a SHA-256 hash of their AAS JSON.
+ * <p>
+ * Unchanged submodels of a model are therefore not revalidated when the model is saved or published again;
+ * only submodels whose content changed run through FAAAST validation. Only successful validations are cached,
+ * the least recently used hashes are evicted once {@code digitwin.validation-cache.max-entries} is reached.
+ * Hits and misses are exposed as {@code digitwin.validation.cache} counters with a {@code result} tag.
+ * </p>
+ */
+@Component
+public class SubmodelValidationCache {
+
+    private final SubmodelValidator submodelValidator;
+    private final JsonSerializer jsonSerializer = new JsonSerializer();
+    private final Map<String, Boolean> validHashes;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SubmodelValidationCache(SubmodelValidator submodelValidator, MeterRegistry meterRegistry,
+                                   @Value("${digitwin.validation-cache.max-entries:10000}") int maxEntries) {
+        this.submodelValidator = submodelValidator;
+        this.validHashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.hits = Counter.builder("digitwin.validation.cache")
+                .description("Submodel validations answered from the validation cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("digitwin.validation.cache")
+                .description("Submodel validations that had to run the validator")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("digitwin.validation.cache.size", validHashes, Map::size)
+                .description("Number of submodel hashes known to be valid")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates a submodel unless a submodel with identical content was validated successfully before.
+     *
+     * @param submodel the submodel to validate
+     * @throws BadRequestException if validation fails
+     */
+    public void validate(DefaultSubmodel submodel) {
+        String hash = contentHash(submodel);
+        if (validHashes.containsKey(hash)) {
+            hits.increment();
+            return;
+        }
+        misses.increment();
+        submodelValidator.validate(submodel);
+        validHashes.put(hash, Boolean.TRUE);
+    }
+
+    /**
+     * Removes all cached validation results, e.g. after the validation rules changed.
+     */
+    public void clear() {
+        validHashes.clear();
+    }
+
+    private String contentHash(DefaultSubmodel submodel) {
+        byte[] json = jsonSerializer.toNode(submodel).toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
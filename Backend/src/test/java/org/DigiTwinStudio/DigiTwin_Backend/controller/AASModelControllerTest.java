@@ -2,11 +2,17 @@ package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.BulkOperationType;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelSummaryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationResultDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
+import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelBulkService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,6 +65,9 @@ class AASModelControllerTest {
     @MockitoBean
     private AASModelService aasModelService; // Mocked service dependency
 
+    @MockitoBean
+    private AASModelBulkService aasModelBulkService;
+
     // ===== listAASModels =====
     @Test
     void listAASModels_WithAuth_ReturnsUserModels() throws Exception {
@@ -83,6 +92,39 @@ class AASModelControllerTest {
         verify(aasModelService, never()).getAllModelsForUser(anyString());
     }
 
+    // ===== listAASModelSummaries =====
+    @Test
+    void listAASModelSummaries_WithAuth_ReturnsPage() throws Exception {
+        String userId = "user-123";
+        var summary = AASModelSummaryDto.builder().id("m1").idShort("Pump").submodelCount(3).build();
+        var page = CursorPageDto.<AASModelSummaryDto>builder().items(List.of(summary)).nextCursor("next").build();
+        when(aasModelService.getModelSummariesForUser(userId, "abc", 10)).thenReturn(page);
+
+        mockMvc.perform(get("/models/summaries")
+                        .param("cursor", "abc")
+                        .param("limit", "10")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("m1"))
+                .andExpect(jsonPath("$.items[0].submodelCount").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(aasModelService, never()).getModelById(anyString(), anyString());
+    }
+
+    @Test
+    void listAASModelSummaries_DefaultsToFirstPage() throws Exception {
+        String userId = "user-123";
+        when(aasModelService.getModelSummariesForUser(userId, null, 20))
+                .thenReturn(CursorPageDto.<AASModelSummaryDto>builder().items(List.of()).build());
+
+        mockMvc.perform(get("/models/summaries").with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+
+        verify(aasModelService).getModelSummariesForUser(userId, null, 20);
+    }
+
     // ===== getAASModel =====
     @Test
     void getAASModel_WithAuth_ReturnsModel() throws Exception {
@@ -117,6 +159,37 @@ class AASModelControllerTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    void getAASModel_IfNoneMatchCurrent_Returns304WithoutLoadingModel() throws Exception {
+        String userId = "user-123";
+        when(aasModelService.getModelVersion("model-1", userId)).thenReturn(5L);
+
+        mockMvc.perform(get("/models/model-1")
+                        .header("If-None-Match", "W/\"5\"")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"5\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        verify(aasModelService, never()).getModelById(anyString(), anyString());
+    }
+
+    @Test
+    void getAASModel_IfNoneMatchStale_ReturnsModelWithETag() throws Exception {
+        String userId = "user-123";
+        when(aasModelService.getModelVersion("model-1", userId)).thenReturn(6L);
+        when(aasModelService.getModelById("model-1", userId))
+                .thenReturn(AASModelDto.builder().id("model-1").version(6L).build());
+
+        mockMvc.perform(get("/models/model-1")
+                        .header("If-None-Match", "\"5\"")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"6\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(jsonPath("$.id").value("model-1"));
+    }
+
     // ===== createNewModel =====
     @Test
     void createNewModel_WithAuth_ReturnsOk() throws Exception {
@@ -164,25 +237,69 @@ class AASModelControllerTest {
         String userId = "user-123";
         String modelId = "m1";
         var payload = AASModelDto.builder().id(modelId).build();
-        var saved = AASModelDto.builder().id(modelId).published(true).build();
+        var saved = AASModelDto.builder().id(modelId).published(true).version(4).build();
 
-        when(aasModelService.saveModel(eq(modelId), eq(userId), any(AASModelDto.class))).thenReturn(saved);
+        when(aasModelService.saveModel(eq(modelId), eq(userId), any(AASModelDto.class), eq(3L))).thenReturn(saved);
 
         mockMvc.perform(put("/models/{id}/save", modelId)
                         .with(jwt().jwt(j -> j.subject(userId)))
+                        .header("If-Match", "\"3\"")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(payload)))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
                 .andExpect(jsonPath("$.id").value(modelId))
                 .andExpect(jsonPath("$.published").value(true));
 
-        verify(aasModelService).saveModel(eq(modelId), eq(userId), any(AASModelDto.class));
+        verify(aasModelService).saveModel(eq(modelId), eq(userId), any(AASModelDto.class), eq(3L));
+    }
+
+    @Test
+    void saveAASModel_StaleVersion_Returns412() throws Exception {
+        String userId = "user-123";
+        when(aasModelService.saveModel(eq("m1"), eq(userId), any(AASModelDto.class), eq(1L)))
+                .thenThrow(new PreconditionFailedException("stale"));
+
+        mockMvc.perform(put("/models/{id}/save", "m1")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(AASModelDto.builder().build())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void saveAASModel_MalformedIfMatch_Returns412() throws Exception {
+        mockMvc.perform(put("/models/{id}/save", "m1")
+                        .with(jwt().jwt(j -> j.subject("user-123")))
+                        .header("If-Match", "W/\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(AASModelDto.builder().build())))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(aasModelService, never()).saveModel(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void saveAASModel_IfMatchList_SavesCurrentVersion() throws Exception {
+        String userId = "user-123";
+        var saved = AASModelDto.builder().id("m1").version(5).build();
+        when(aasModelService.getModelVersion("m1", userId)).thenReturn(4L);
+        when(aasModelService.saveModel(eq("m1"), eq(userId), any(AASModelDto.class), eq(4L))).thenReturn(saved);
+
+        mockMvc.perform(put("/models/{id}/save", "m1")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .header("If-Match", "\"3\", \"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(AASModelDto.builder().build())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""));
     }
 
     @Test
     void saveAASModel_Forbidden_Returns403() throws Exception {
         String userId = "user-123";
-        when(aasModelService.saveModel(eq("m1"), eq(userId), any(AASModelDto.class)))
+        when(aasModelService.saveModel(eq("m1"), eq(userId), any(AASModelDto.class), isNull()))
                 .thenThrow(new ForbiddenException("nope"));
 
         mockMvc.perform(put("/models/{id}/save", "m1")
@@ -192,6 +309,82 @@ class AASModelControllerTest {
                 .andExpect(status().isForbidden());
     }
 
+    // ===== patchAASModel =====
+    @Test
+    void patchAASModel_WithJsonPatch_Returns204WithNewETag() throws Exception {
+        String userId = "user-123";
+        String patch = "[{\"op\":\"replace\",\"path\":\"/submodels/0/idShort\",\"value\":\"renamed\"}]";
+        when(aasModelService.patchModel(eq("m1"), eq(userId), any(), eq(3L))).thenReturn(4L);
+
+        mockMvc.perform(patch("/models/{id}", "m1")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .header("If-Match", "\"3\"")
+                        .contentType("application/json-patch+json")
+                        .content(patch))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        verify(aasModelService).patchModel(eq("m1"), eq(userId),
+                argThat(node -> node.isArray() && node.get(0).get("op").asText().equals("replace")), eq(3L));
+    }
+
+    @Test
+    void patchAASModel_FailedTest_Returns409() throws Exception {
+        String userId = "user-123";
+        when(aasModelService.patchModel(eq("m1"), eq(userId), any(), isNull()))
+                .thenThrow(new ConflictException("test failed"));
+
+        mockMvc.perform(patch("/models/{id}", "m1")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .contentType("application/json-patch+json")
+                        .content("[{\"op\":\"test\",\"path\":\"/aas/idShort\",\"value\":\"x\"}]"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchAASModel_NoAuth_Returns401() throws Exception {
+        mockMvc.perform(patch("/models/{id}", "m1")
+                        .contentType("application/json-patch+json")
+                        .content("[]"))
+                .andExpect(status().isUnauthorized());
+
+        verify(aasModelService, never()).patchModel(anyString(), anyString(), any(), any());
+    }
+
+    // ===== bulkOperations =====
+    @Test
+    void bulkOperations_WithAuth_ReturnsPerItemResults() throws Exception {
+        String userId = "user-123";
+        String body = "[{\"type\":\"DELETE\",\"modelId\":\"m1\"},{\"type\":\"DELETE\",\"modelId\":\"m2\"}]";
+        when(aasModelBulkService.execute(eq(userId), anyList())).thenReturn(List.of(
+                BulkOperationResultDto.builder().index(0).type(BulkOperationType.DELETE).modelId("m1").status(204).build(),
+                BulkOperationResultDto.builder().index(1).type(BulkOperationType.DELETE).modelId("m2").status(403)
+                        .error("Access denied: model does not belong to user.").build()));
+
+        mockMvc.perform(post("/models/bulk")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(204))
+                .andExpect(jsonPath("$[1].status").value(403))
+                .andExpect(jsonPath("$[1].error").exists());
+
+        verify(aasModelBulkService).execute(eq(userId), argThat(operations -> operations.size() == 2
+                && operations.get(0).getType() == BulkOperationType.DELETE
+                && operations.get(1).getModelId().equals("m2")));
+    }
+
+    @Test
+    void bulkOperations_NoAuth_Returns401() throws Exception {
+        mockMvc.perform(post("/models/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isUnauthorized());
+
+        verify(aasModelBulkService, never()).execute(anyString(), anyList());
+    }
+
     // ===== deleteAASModel =====
     @Test
     void deleteAASModel_WithAuth_Returns204() throws Exception {
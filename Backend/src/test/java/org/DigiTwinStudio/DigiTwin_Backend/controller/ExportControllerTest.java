@@ -1,18 +1,30 @@
 package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJob;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJobStatus;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkExportRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.ExportJobDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ServiceUnavailableException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.TooManyRequestsException;
+import org.DigiTwinStudio.DigiTwin_Backend.services.BulkExportService;
+import org.DigiTwinStudio.DigiTwin_Backend.services.ExportJobService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.ExportService;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -20,11 +32,19 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ExportController.class)
@@ -39,7 +59,7 @@ class ExportControllerTest {
             http
                     .csrf(AbstractHttpConfigurer::disable)
                     .authorizeHttpRequests(a -> a
-                            .requestMatchers("/models/**").authenticated()
+                            .requestMatchers("/models/**", "/exports/**").authenticated()
                             .anyRequest().permitAll()
                     )
                     .oauth2ResourceServer(o -> o.jwt(Customizer.withDefaults()));
@@ -53,6 +73,12 @@ class ExportControllerTest {
     @MockitoBean
     private ExportService exportService;
 
+    @MockitoBean
+    private ExportJobService exportJobService;
+
+    @MockitoBean
+    private BulkExportService bulkExportService;
+
     // -------- GET /models/{id}/{name}/export/{format} (auth required)
     @Test
     void exportModel_WithValidJsonFormat_ReturnsOkWithJsonFile() throws Exception {
@@ -62,7 +88,7 @@ class ExportControllerTest {
         String fileName = "test-model";
         String jsonContent = "{\"assetAdministrationShells\": [], \"submodels\": []}";
         ExportedFile exportedFile = new ExportedFile(
-                jsonContent.getBytes(),
+                streamed(jsonContent.getBytes()),
                 "test-model.json",
                 "application/json"
         );
@@ -71,8 +97,11 @@ class ExportControllerTest {
                 .thenReturn(exportedFile);
 
         // Act & Assert
-        mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
+        MvcResult result = mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
                         .with(jwt().jwt(builder -> builder.subject(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"test-model.json\""))
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
@@ -89,7 +118,7 @@ class ExportControllerTest {
         String fileName = "test-model";
         byte[] aasxContent = "AASX binary content".getBytes();
         ExportedFile exportedFile = new ExportedFile(
-                aasxContent,
+                streamed(aasxContent),
                 "test-model.aasx",
                 "application/asset-administration-shell-package"
         );
@@ -98,8 +127,11 @@ class ExportControllerTest {
                 .thenReturn(exportedFile);
 
         // Act & Assert
-        mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "AASX")
+        MvcResult result = mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "AASX")
                         .with(jwt().jwt(builder -> builder.subject(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"test-model.aasx\""))
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/asset-administration-shell-package"))
@@ -198,7 +230,7 @@ class ExportControllerTest {
         String fileName = "test model with spaces";
         String jsonContent = "{\"assetAdministrationShells\": []}";
         ExportedFile exportedFile = new ExportedFile(
-                jsonContent.getBytes(),
+                streamed(jsonContent.getBytes()),
                 "test model with spaces.json",
                 "application/json"
         );
@@ -207,8 +239,11 @@ class ExportControllerTest {
                 .thenReturn(exportedFile);
 
         // Act & Assert
-        mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
+        MvcResult result = mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
                         .with(jwt().jwt(builder -> builder.subject(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"test model with spaces.json\""));
 
@@ -222,7 +257,7 @@ class ExportControllerTest {
         String modelId = "model-456";
         String fileName = "empty-model";
         ExportedFile exportedFile = new ExportedFile(
-                new byte[0],
+                streamed(new byte[0]),
                 "empty-model.json",
                 "application/json"
         );
@@ -231,8 +266,11 @@ class ExportControllerTest {
                 .thenReturn(exportedFile);
 
         // Act & Assert
-        mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
+        MvcResult result = mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "JSON")
                         .with(jwt().jwt(builder -> builder.subject(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().bytes(new byte[0]));
 
@@ -249,7 +287,7 @@ class ExportControllerTest {
         byte[] largeContent = new byte[1024 * 1024];
         java.util.Arrays.fill(largeContent, (byte) 'A');
         ExportedFile exportedFile = new ExportedFile(
-                largeContent,
+                streamed(largeContent),
                 "large-model.aasx",
                 "application/asset-administration-shell-package"
         );
@@ -258,11 +296,180 @@ class ExportControllerTest {
                 .thenReturn(exportedFile);
 
         // Act & Assert
-        mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "AASX")
+        MvcResult result = mockMvc.perform(get("/models/{id}/{name}/export/{format}", modelId, fileName, "AASX")
                         .with(jwt().jwt(builder -> builder.subject(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().bytes(largeContent));
 
         verify(exportService).export(eq(modelId), eq(fileName), eq(ExportFormat.AASX), eq(userId));
     }
-}
\ No newline at end of file
+
+    // -------- export jobs (auth required)
+    @Test
+    void startExportJob_ReturnsAcceptedWithJobLocation() throws Exception {
+        ExportJobDto job = ExportJobDto.builder()
+                .id("job-1")
+                .modelId("model-456")
+                .format(ExportFormat.AASX)
+                .status(ExportJobStatus.QUEUED)
+                .build();
+        when(exportJobService.start("model-456", "big", ExportFormat.AASX, "user-123")).thenReturn(job);
+
+        mockMvc.perform(post("/models/{id}/exports", "model-456")
+                        .param("format", "AASX")
+                        .param("name", "big")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/exports/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void startExportJob_WhenQueueIsFull_ReturnsServiceUnavailable() throws Exception {
+        when(exportJobService.start(any(), any(), any(), any()))
+                .thenThrow(new ServiceUnavailableException("Too many exports in progress, please try again later"));
+
+        mockMvc.perform(post("/models/{id}/exports", "model-456")
+                        .param("format", "AASX")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void startExportJob_WhenUserHasTooManyJobs_ReturnsTooManyRequests() throws Exception {
+        when(exportJobService.start(any(), any(), any(), any()))
+                .thenThrow(new TooManyRequestsException("Too many export jobs, please try again once earlier exports have expired"));
+
+        mockMvc.perform(post("/models/{id}/exports", "model-456")
+                        .param("format", "AASX")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void startExportJob_WithoutAuthentication_ReturnsUnauthorized() throws Exception {
+        mockMvc.perform(post("/models/{id}/exports", "model-456").param("format", "AASX"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(exportJobService);
+    }
+
+    @Test
+    void getExportJob_ReturnsProgress() throws Exception {
+        ExportJobDto job = ExportJobDto.builder()
+                .id("job-1")
+                .status(ExportJobStatus.RUNNING)
+                .filesPacked(3)
+                .bytesWritten(4096)
+                .build();
+        when(exportJobService.getJob("job-1", "user-123")).thenReturn(job);
+
+        mockMvc.perform(get("/exports/{jobId}", "job-1")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.filesPacked").value(3))
+                .andExpect(jsonPath("$.bytesWritten").value(4096));
+    }
+
+    @Test
+    void getExportJob_OfOtherUser_ReturnsNotFound() throws Exception {
+        when(exportJobService.getJob("job-1", "user-123"))
+                .thenThrow(new NotFoundException("Could not find export job with given Id"));
+
+        mockMvc.perform(get("/exports/{jobId}", "job-1")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void downloadExportJob_ReturnsFileOfCompletedJob(@TempDir Path directory) throws Exception {
+        Path file = Files.write(directory.resolve("job-1.aasx"), "AASX binary content".getBytes());
+        ExportJob job = new ExportJob("job-1", "model-456", "user-123", ExportFormat.AASX, "big.aasx", file);
+        job.markCompleted();
+        job.addBytesWritten(Files.size(file));
+        when(exportJobService.getCompletedJob("job-1", "user-123")).thenReturn(job);
+        when(exportJobService.openFile(job)).thenReturn(Files.newInputStream(file));
+
+        mockMvc.perform(get("/exports/{jobId}/download", "job-1")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, "AASX binary content".length()))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"big.aasx\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/asset-administration-shell-package"))
+                .andExpect(content().bytes("AASX binary content".getBytes()));
+    }
+
+    @Test
+    void downloadExportJob_WhenNotCompleted_ReturnsConflict() throws Exception {
+        when(exportJobService.getCompletedJob("job-1", "user-123"))
+                .thenThrow(new ConflictException("Export job has not completed, its status is RUNNING"));
+
+        mockMvc.perform(get("/exports/{jobId}/download", "job-1")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isConflict());
+    }
+
+    // -------- POST /models/bulk/export/{format} (auth required)
+    @Test
+    void exportModels_ReturnsOkWithZipArchive() throws Exception {
+        byte[] archive = "PK zip content".getBytes();
+        BulkExportRequestDto request = BulkExportRequestDto.builder().modelIds(List.of("m1", "m2")).build();
+        when(bulkExportService.export(request, ExportFormat.AASX, "user-123"))
+                .thenReturn(new ExportedFile(streamed(archive), "models.zip", "application/zip"));
+
+        MvcResult result = mockMvc.perform(post("/models/bulk/export/{format}", "AASX")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"modelIds\": [\"m1\", \"m2\"]}")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"models.zip\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(content().bytes(archive));
+    }
+
+    @Test
+    void exportModels_WithInvalidSelection_ReturnsBadRequest() throws Exception {
+        when(bulkExportService.export(any(), any(), any()))
+                .thenThrow(new BadRequestException("Either model IDs or all models must be selected for a bulk export."));
+
+        mockMvc.perform(post("/models/bulk/export/{format}", "JSON")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportModels_WithMissingModel_ReturnsNotFound() throws Exception {
+        when(bulkExportService.export(any(), any(), any()))
+                .thenThrow(new NotFoundException("Could not find models with given Ids: m2"));
+
+        mockMvc.perform(post("/models/bulk/export/{format}", "JSON")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"modelIds\": [\"m1\", \"m2\"]}")
+                        .with(jwt().jwt(builder -> builder.subject("user-123"))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportModels_WithoutAuthentication_ReturnsUnauthorized() throws Exception {
+        mockMvc.perform(post("/models/bulk/export/{format}", "JSON")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"allModels\": true}"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(bulkExportService);
+    }
+
+    private static StreamingResponseBody streamed(byte[] content) {
+        return out -> out.write(content);
+    }
+}
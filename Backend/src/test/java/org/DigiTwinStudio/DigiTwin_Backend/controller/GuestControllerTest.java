@@ -9,6 +9,7 @@ import org.DigiTwinStudio.DigiTwin_Backend.dtos.TemplateDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.UploadResponseDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.services.*;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -24,6 +25,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -109,15 +111,15 @@ class GuestControllerTest {
     }
 
     @Test
-    void addSubmodelToModel_ReturnsUpdatedModel() throws Exception {
-        var updated = AASModelDto.builder().id("m1").build();
-        when(aasModelService.attachSubmodel(eq("m1"), any(SubmodelDto.class), eq("GUEST"))).thenReturn(updated);
+    void addSubmodelToModel_ReturnsAttachedSubmodel() throws Exception {
+        var attached = SubmodelDto.builder().submodel(new DefaultSubmodel.Builder().id("s1").build()).build();
+        when(aasModelService.attachSubmodel(eq("m1"), any(SubmodelDto.class), eq("GUEST"))).thenReturn(attached);
 
         mockMvc.perform(post("/guest/models/{modelId}/submodels","m1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(SubmodelDto.builder().build())))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value("m1"));
+                .andExpect(jsonPath("$.submodel.id").value("s1"));
 
         verify(aasModelService).attachSubmodel(eq("m1"), any(SubmodelDto.class), eq("GUEST"));
     }
@@ -133,15 +135,15 @@ class GuestControllerTest {
     }
 
     @Test
-    void updateSubmodel_ReturnsUpdatedModel() throws Exception {
-        var updated = AASModelDto.builder().id("m1").build();
+    void updateSubmodel_ReturnsUpdatedSubmodel() throws Exception {
+        var updated = SubmodelDto.builder().submodel(new DefaultSubmodel.Builder().id("s1").build()).build();
         when(aasModelService.updateSubmodel(eq("m1"), eq("s1"), any(SubmodelDto.class), eq("GUEST"))).thenReturn(updated);
 
         mockMvc.perform(put("/guest/models/{mid}/submodels/{sid}","m1","s1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(SubmodelDto.builder().build())))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value("m1"));
+                .andExpect(jsonPath("$.submodel.id").value("s1"));
 
         verify(aasModelService).updateSubmodel(eq("m1"), eq("s1"), any(SubmodelDto.class), eq("GUEST"));
     }
@@ -169,16 +171,17 @@ class GuestControllerTest {
 
     @Test
     void saveAASModelAsGuest_ReturnsSaved() throws Exception {
-        var saved = AASModelDto.builder().id("m1").build();
-        when(aasModelService.saveModel(eq("m1"), eq("GUEST"), any())).thenReturn(saved);
+        var saved = AASModelDto.builder().id("m1").version(2).build();
+        when(aasModelService.saveModel(eq("m1"), eq("GUEST"), any(), isNull())).thenReturn(saved);
 
         mockMvc.perform(put("/guest/models/{id}/save","m1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(AASModelDto.builder().build())))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
                 .andExpect(jsonPath("$.id").value("m1"));
 
-        verify(aasModelService).saveModel(eq("m1"), eq("GUEST"), any());
+        verify(aasModelService).saveModel(eq("m1"), eq("GUEST"), any(), isNull());
     }
 
     @Test
@@ -206,10 +209,14 @@ class GuestControllerTest {
     void exportModel_ReturnsBytesAndHeaders() throws Exception {
         // Prepare mock exported file
         var bytes = "abc".getBytes(StandardCharsets.UTF_8);
-        var exported = new ExportedFile(bytes,"file.json","application/json");
+        var exported = new ExportedFile(out -> out.write(bytes),"file.json","application/json");
         when(exportService.export("m1","name", ExportFormat.JSON,"GUEST")).thenReturn(exported);
 
-        mockMvc.perform(get("/guest/models/{id}/{name}/export/{fmt}","m1","name","JSON"))
+        // the content is streamed asynchronously
+        MvcResult result = mockMvc.perform(get("/guest/models/{id}/{name}/export/{fmt}","m1","name","JSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,"attachment; filename=\"file.json\""))
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE,"application/json"))
@@ -1,10 +1,18 @@
 package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedArtifact;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SuggestionType;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.FacetCountDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceFacetedSearchDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.SuggestionDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.MarketPlaceService;
@@ -14,6 +22,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.MediaType;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -84,17 +93,18 @@ class MarketplaceControllerTest {
                 .downloadCount(10)
                 .build();
         List<MarketplaceEntryDto> entries = Collections.singletonList(entry);
-        when(marketPlaceService.listAllEntries()).thenReturn(entries);
+        when(marketPlaceService.listAllEntries(null, null, 20)).thenReturn(page(entries, null));
 
         // Act & Assert
         mockMvc.perform(get("/marketplace")
                         .with(jwt().jwt(j -> j.subject(userId))))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$[0].id").value("entry-1"))
-                .andExpect(jsonPath("$[0].name").value("Test Model"));
+                .andExpect(jsonPath("$.items[0].id").value("entry-1"))
+                .andExpect(jsonPath("$.items[0].name").value("Test Model"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
 
-        verify(marketPlaceService).listAllEntries();
+        verify(marketPlaceService).listAllEntries(null, null, 20);
     }
 
     @Test
@@ -103,23 +113,23 @@ class MarketplaceControllerTest {
         mockMvc.perform(get("/marketplace"))
                 .andExpect(status().isUnauthorized());
 
-        verify(marketPlaceService, never()).listAllEntries();
+        verify(marketPlaceService, never()).listAllEntries(any(), any(), anyInt());
     }
 
     @Test
     void listAllEntries_WhenEmpty_ReturnsEmptyList() throws Exception {
         // Arrange
         String userId = "user-1";
-        when(marketPlaceService.listAllEntries()).thenReturn(Collections.emptyList());
+        when(marketPlaceService.listAllEntries(null, null, 20)).thenReturn(page(Collections.emptyList(), null));
 
         // Act & Assert
         mockMvc.perform(get("/marketplace")
                         .with(jwt().jwt(j -> j.subject(userId))))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.items").isEmpty());
 
-        verify(marketPlaceService).listAllEntries();
+        verify(marketPlaceService).listAllEntries(null, null, 20);
     }
 
     @Test
@@ -132,20 +142,72 @@ class MarketplaceControllerTest {
                         .name("Model " + i)
                         .build())
                 .collect(Collectors.toList());
-        when(marketPlaceService.listAllEntries()).thenReturn(largeList);
+        when(marketPlaceService.listAllEntries(null, null, 20)).thenReturn(page(largeList, null));
 
         // Act
         long startTime = System.currentTimeMillis();
         mockMvc.perform(get("/marketplace")
                         .with(jwt().jwt(j -> j.subject(userId))))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(1000));
+                .andExpect(jsonPath("$.items.length()").value(1000));
         long duration = System.currentTimeMillis() - startTime;
 
         // Assert
         assertTrue(duration < 5000, "Response took too long: " + duration + "ms");
     }
 
+    @Test
+    void listAllEntries_WithCursor_PassesCursorAndReturnsNextCursor() throws Exception {
+        String userId = "user-1";
+        MarketplaceEntryDto entry = MarketplaceEntryDto.builder().id("entry-2").build();
+        when(marketPlaceService.listAllEntries(null, "abc", 1)).thenReturn(page(List.of(entry), "def"));
+
+        mockMvc.perform(get("/marketplace")
+                        .param("cursor", "abc")
+                        .param("limit", "1")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("entry-2"))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    void listAllEntries_WithInvalidCursor_Returns400() throws Exception {
+        String userId = "user-1";
+        when(marketPlaceService.listAllEntries(null, "broken", 20)).thenThrow(new BadRequestException("Invalid pagination cursor."));
+
+        mockMvc.perform(get("/marketplace")
+                        .param("cursor", "broken")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listAllEntries_WithSort_PassesSortOrder() throws Exception {
+        String userId = "user-1";
+        MarketplaceEntryDto entry = MarketplaceEntryDto.builder().id("entry-3").build();
+        when(marketPlaceService.listAllEntries("trending", null, 20)).thenReturn(page(List.of(entry), null));
+
+        mockMvc.perform(get("/marketplace")
+                        .param("sort", "trending")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("entry-3"));
+
+        verify(marketPlaceService).listAllEntries("trending", null, 20);
+    }
+
+    @Test
+    void listAllEntries_WithUnknownSort_Returns400() throws Exception {
+        String userId = "user-1";
+        when(marketPlaceService.listAllEntries("oldest", null, 20)).thenThrow(new BadRequestException("Unknown sort order: oldest"));
+
+        mockMvc.perform(get("/marketplace")
+                        .param("sort", "oldest")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isBadRequest());
+    }
+
     // -------- GET /marketplace/{entryId} (auth required)
     @Test
     void getModelByEntryId_WithAuth_ReturnsModel() throws Exception {
@@ -190,6 +252,53 @@ class MarketplaceControllerTest {
         verify(marketPlaceService).getPublishedModel("non-existent");
     }
 
+    @Test
+    void getModelByEntryId_WithMatchingETag_Returns304WithoutLoadingModel() throws Exception {
+        String userId = "user-1";
+        when(marketPlaceService.getPublishedVersion("entry-1")).thenReturn(4L);
+
+        mockMvc.perform(get("/marketplace/entry-1")
+                        .header("If-None-Match", "\"4\"")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        verify(marketPlaceService, never()).getPublishedModel(anyString());
+    }
+
+    // -------- GET /marketplace/{entryId}/export/{format} (auth required)
+    @Test
+    void downloadEntry_StreamsPreRenderedFile() throws Exception {
+        String userId = "user-1";
+        PublishedArtifact artifact = new PublishedArtifact("grid-1", 3, "Pump.json", "application/json", "abc123");
+        when(marketPlaceService.getPublishedArtifact("entry-1", ExportFormat.JSON)).thenReturn(artifact);
+        when(marketPlaceService.downloadPublishedArtifact("entry-1", artifact)).thenReturn(new ByteArrayResource("{ }".getBytes()));
+
+        mockMvc.perform(get("/marketplace/entry-1/export/JSON")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Cache-Control", "max-age=86400, public"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"Pump.json\""))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes("{ }".getBytes()));
+    }
+
+    @Test
+    void downloadEntry_WithMatchingETag_Returns304WithoutCountingDownload() throws Exception {
+        String userId = "user-1";
+        PublishedArtifact artifact = new PublishedArtifact("grid-1", 3, "Pump.aasx",
+                "application/asset-administration-shell-package", "abc123");
+        when(marketPlaceService.getPublishedArtifact("entry-1", ExportFormat.AASX)).thenReturn(artifact);
+
+        mockMvc.perform(get("/marketplace/entry-1/export/AASX")
+                        .header("If-None-Match", "\"abc123\"")
+                        .with(jwt().jwt(j -> j.subject(userId))))
+                .andExpect(status().isNotModified());
+
+        verify(marketPlaceService, never()).downloadPublishedArtifact(any(), any());
+    }
+
     // -------- GET /marketplace/tags (auth required)
     @Test
     void getAllTags_ReturnsTags() throws Exception {
@@ -226,7 +335,7 @@ class MarketplaceControllerTest {
                         .with(jwt().jwt(j -> j.subject(userId))))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.items").isEmpty());
 
         verify(marketPlaceService).getAllTags();
     }
@@ -244,7 +353,7 @@ class MarketplaceControllerTest {
                 .name("Test Model")
                 .build();
         List<MarketplaceEntryDto> results = Collections.singletonList(entry);
-        when(marketPlaceService.search(any(MarketplaceSearchRequest.class))).thenReturn(results);
+        when(marketPlaceService.search(any(MarketplaceSearchRequest.class), isNull(), eq(20))).thenReturn(page(results, null));
 
         // Act & Assert
         mockMvc.perform(post("/marketplace/search")
@@ -253,9 +362,9 @@ class MarketplaceControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$[0].id").value("entry-1"));
+                .andExpect(jsonPath("$.items[0].id").value("entry-1"));
 
-        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class));
+        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class), isNull(), eq(20));
     }
 
     @Test
@@ -264,7 +373,7 @@ class MarketplaceControllerTest {
         String userId = "user-1";
         MarketplaceSearchRequest request = MarketplaceSearchRequest.builder().build();
         List<MarketplaceEntryDto> results = Collections.emptyList();
-        when(marketPlaceService.search(any(MarketplaceSearchRequest.class))).thenReturn(results);
+        when(marketPlaceService.search(any(MarketplaceSearchRequest.class), isNull(), eq(20))).thenReturn(page(results, null));
 
         // Act & Assert
         mockMvc.perform(post("/marketplace/search")
@@ -272,9 +381,9 @@ class MarketplaceControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$.items").isEmpty());
 
-        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class));
+        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class), isNull(), eq(20));
     }
 
     @Test
@@ -290,8 +399,8 @@ class MarketplaceControllerTest {
                 .id("entry-1")
                 .name("Complex Model")
                 .build();
-        when(marketPlaceService.search(any(MarketplaceSearchRequest.class)))
-                .thenReturn(Collections.singletonList(entry));
+        when(marketPlaceService.search(any(MarketplaceSearchRequest.class), isNull(), eq(20)))
+                .thenReturn(page(Collections.singletonList(entry), null));
 
         // Act & Assert
         mockMvc.perform(post("/marketplace/search")
@@ -299,9 +408,99 @@ class MarketplaceControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].name").value("Complex Model"));
+                .andExpect(jsonPath("$.items[0].name").value("Complex Model"));
 
-        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class));
+        verify(marketPlaceService).search(any(MarketplaceSearchRequest.class), isNull(), eq(20));
+    }
+
+    @Test
+    void search_WithCursor_PassesCursorAndLimit() throws Exception {
+        String userId = "user-1";
+        MarketplaceSearchRequest request = MarketplaceSearchRequest.builder().searchText("pump").build();
+        when(marketPlaceService.search(any(MarketplaceSearchRequest.class), eq("abc"), eq(5)))
+                .thenReturn(page(Collections.emptyList(), null));
+
+        mockMvc.perform(post("/marketplace/search")
+                        .param("cursor", "abc")
+                        .param("limit", "5")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+
+        verify(marketPlaceService).search(argThat(r -> "pump".equals(r.getSearchText())), eq("abc"), eq(5));
+    }
+
+    // -------- GET /marketplace/suggest (auth required)
+    @Test
+    void suggest_ReturnsSuggestions() throws Exception {
+        when(marketPlaceService.suggest("pu", 8)).thenReturn(List.of(
+                new SuggestionDto("Heat Pump", SuggestionType.ENTRY, "e1", 42),
+                new SuggestionDto("Pumps", SuggestionType.TAG, "t1", 3)));
+
+        mockMvc.perform(get("/marketplace/suggest")
+                        .param("q", "pu")
+                        .with(jwt().jwt(j -> j.subject("user-1"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Heat Pump"))
+                .andExpect(jsonPath("$[0].type").value("ENTRY"))
+                .andExpect(jsonPath("$[1].id").value("t1"));
+
+        verify(marketPlaceService, never()).getPublishedModel(anyString());
+    }
+
+    @Test
+    void suggest_PassesLimit() throws Exception {
+        when(marketPlaceService.suggest("", 3)).thenReturn(List.of());
+
+        mockMvc.perform(get("/marketplace/suggest")
+                        .param("limit", "3")
+                        .with(jwt().jwt(j -> j.subject("user-1"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    // -------- POST /marketplace/search/facets (auth required)
+    @Test
+    void searchWithFacets_ReturnsPageAndFacets() throws Exception {
+        String userId = "user-1";
+        MarketplaceSearchRequest request = MarketplaceSearchRequest.builder().tagIds(List.of("t1")).build();
+        MarketplaceFacetedSearchDto result = MarketplaceFacetedSearchDto.builder()
+                .items(List.of(MarketplaceEntryDto.builder().id("e1").build()))
+                .nextCursor("next")
+                .total(7)
+                .tags(List.of(new FacetCountDto("t1", 7), new FacetCountDto("t2", 3)))
+                .publishedMonths(List.of(new FacetCountDto("2026-09", 7)))
+                .build();
+        when(marketPlaceService.searchWithFacets(any(MarketplaceSearchRequest.class), isNull(), eq(20))).thenReturn(result);
+
+        mockMvc.perform(post("/marketplace/search/facets")
+                        .with(jwt().jwt(j -> j.subject(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("e1"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.total").value(7))
+                .andExpect(jsonPath("$.tags[1].value").value("t2"))
+                .andExpect(jsonPath("$.tags[1].count").value(3))
+                .andExpect(jsonPath("$.publishedMonths[0].value").value("2026-09"));
+
+        verify(marketPlaceService).searchWithFacets(argThat(r -> List.of("t1").equals(r.getTagIds())), isNull(), eq(20));
+    }
+
+    @Test
+    void searchWithFacets_WithInvalidCursor_Returns400() throws Exception {
+        when(marketPlaceService.searchWithFacets(any(MarketplaceSearchRequest.class), eq("bad"), eq(20)))
+                .thenThrow(new BadRequestException("Invalid pagination cursor."));
+
+        mockMvc.perform(post("/marketplace/search/facets")
+                        .param("cursor", "bad")
+                        .with(jwt().jwt(j -> j.subject("user-1")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
     }
 
     // -------- POST /marketplace/{entryId}/add-to-user (auth required)
@@ -347,4 +546,8 @@ class MarketplaceControllerTest {
 
         verify(aasModelService).addEntryModelToUser(entryId, userId);
     }
+
+    private static CursorPageDto<MarketplaceEntryDto> page(List<MarketplaceEntryDto> items, String nextCursor) {
+        return CursorPageDto.<MarketplaceEntryDto>builder().items(items).nextCursor(nextCursor).build();
+    }
 }
\ No newline at end of file
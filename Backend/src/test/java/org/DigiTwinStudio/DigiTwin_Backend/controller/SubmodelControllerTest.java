@@ -1,7 +1,6 @@
 package org.DigiTwinStudio.DigiTwin_Backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.SubmodelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.TemplateDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
@@ -11,6 +10,7 @@ import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.services.AASModelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.TemplateService;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -119,19 +119,19 @@ class SubmodelControllerTest {
 
     // -------- POST /models/{modelId}/submodels (auth required)
     @Test
-    void addSubmodelToModel_WithAuth_ReturnsUpdatedModel() throws Exception {
+    void addSubmodelToModel_WithAuth_ReturnsAttachedSubmodel() throws Exception {
         String userId = "user-1";
         String modelId = "m1";
         var payload = SubmodelDto.builder().build();
-        var updated = AASModelDto.builder().id(modelId).build();
-        when(aasModelService.attachSubmodel(eq(modelId), any(SubmodelDto.class), eq(userId))).thenReturn(updated);
+        var attached = SubmodelDto.builder().submodel(new DefaultSubmodel.Builder().id("s1").build()).build();
+        when(aasModelService.attachSubmodel(eq(modelId), any(SubmodelDto.class), eq(userId))).thenReturn(attached);
 
         mockMvc.perform(post("/models/{modelId}/submodels", modelId)
                         .with(jwt().jwt(j -> j.subject(userId)))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(payload)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(modelId));
+                .andExpect(jsonPath("$.submodel.id").value("s1"));
 
         verify(aasModelService).attachSubmodel(eq(modelId), any(SubmodelDto.class), eq(userId));
     }
@@ -195,12 +195,47 @@ class SubmodelControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getSubmodel_IfNoneMatchCurrent_Returns304WithoutLoadingSubmodel() throws Exception {
+        when(submodelService.getModelVersion("m1")).thenReturn(3L);
+
+        mockMvc.perform(get("/models/{modelId}/submodels/{submodelId}", "m1", "s1")
+                        .header("If-None-Match", "\"2\", \"3\"")
+                        .with(jwt().jwt(j -> j.subject("user-1"))))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        verify(submodelService, never()).getSubmodel(anyString(), anyString());
+    }
+
+    @Test
+    void getSubmodel_WithoutIfNoneMatch_ReturnsModelVersionAsETag() throws Exception {
+        when(submodelService.getModelVersion("m1")).thenReturn(3L);
+        when(submodelService.getSubmodel("m1", "s1"))
+                .thenReturn(SubmodelDto.builder().submodel(new DefaultSubmodel.Builder().id("s1").build()).build());
+
+        mockMvc.perform(get("/models/{modelId}/submodels/{submodelId}", "m1", "s1")
+                        .with(jwt().jwt(j -> j.subject("user-1"))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+    }
+
+    @Test
+    void getSubmodel_ModelNotFound_Returns404() throws Exception {
+        when(submodelService.getModelVersion("missing")).thenThrow(new NotFoundException("model not found"));
+
+        mockMvc.perform(get("/models/{modelId}/submodels/{submodelId}", "missing", "s1")
+                        .with(jwt().jwt(j -> j.subject("user-1"))))
+                .andExpect(status().isNotFound());
+    }
+
     // -------- PUT /models/{modelId}/submodels/{submodelId} (auth required)
     @Test
-    void updateSubmodel_WithAuth_ReturnsUpdatedModel() throws Exception {
+    void updateSubmodel_WithAuth_ReturnsUpdatedSubmodel() throws Exception {
         String userId = "user-1";
         var payload = SubmodelDto.builder().build();
-        var updated = AASModelDto.builder().id("m1").build();
+        var updated = SubmodelDto.builder().submodel(new DefaultSubmodel.Builder().id("s1").build()).build();
         when(aasModelService.updateSubmodel(eq("m1"), eq("s1"), any(SubmodelDto.class), eq(userId))).thenReturn(updated);
 
         mockMvc.perform(put("/models/{modelId}/submodels/{submodelId}", "m1", "s1")
@@ -208,7 +243,7 @@ class SubmodelControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(payload)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value("m1"));
+                .andExpect(jsonPath("$.submodel.id").value("s1"));
 
         verify(aasModelService).updateSubmodel(eq("m1"), eq("s1"), any(SubmodelDto.class), eq(userId));
     }
@@ -253,9 +288,6 @@ class SubmodelControllerTest {
     void removeSubmodelFromModel_WithAuth_Returns204() throws Exception {
         String userId = "user-1";
 
-        var updated = AASModelDto.builder().id("m1").build();
-        when(aasModelService.removeSubmodel("m1", "s1", userId)).thenReturn(updated);
-
         mockMvc.perform(delete("/models/{modelId}/submodels/{submodelId}", "m1", "s1")
                         .with(jwt().jwt(j -> j.subject(userId))))
                 .andExpect(status().isNoContent());
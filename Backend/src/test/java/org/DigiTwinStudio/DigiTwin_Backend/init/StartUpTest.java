@@ -1,6 +1,7 @@
 package org.DigiTwinStudio.DigiTwin_Backend.init;
 
 import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.services.TemplateService;
 
@@ -27,6 +28,7 @@ class StartUpTest {
 
     @Mock private TemplateService templateService;
     @Mock private TagRepository tagRepository;
+    @Mock private MarketPlaceEntryRepository marketPlaceEntryRepository;
     @Mock private ApplicationReadyEvent applicationReadyEvent;
 
     @InjectMocks
@@ -50,6 +52,15 @@ class StartUpTest {
         // --- Assert ---
         verify(templateService).syncTemplatesFromRepo();
         verify(tagRepository, atLeastOnce()).count();
+        verify(marketPlaceEntryRepository).initializeTrendingScores();
+    }
+
+    @Test
+    void onApplicationEvent_shouldCompleteWhenTrendingScoreInitializationFails() {
+        when(tagRepository.count()).thenReturn(0L);
+        when(marketPlaceEntryRepository.initializeTrendingScores()).thenThrow(new RuntimeException("db down"));
+
+        assertDoesNotThrow(() -> startUp.onApplicationEvent(applicationReadyEvent));
     }
 
     @Test
@@ -4,13 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.DigiTwinStudio.DigiTwin_Backend.adapter.AAS4jAdapter;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
-import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
-import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.services.ExportService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.FileStorageService;
+import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelStorageService;
 import org.DigiTwinStudio.DigiTwin_Backend.util.TestModelFactory;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,7 +20,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
@@ -41,13 +44,13 @@ public class ExportServicePerformanceTest {
     @Mock
     private AASModelRepository aasModelRepository;
     @Mock
-    private MarketPlaceEntryRepository marketPlaceEntryRepository;
-    @Mock
     private AAS4jAdapter aas4jAdapter;
     @Mock
     private FileStorageService fileStorageService;
     @Mock
     private AASModelMapper aasModelMapper;
+    @Mock
+    private SubmodelStorageService submodelStorageService;
 
     // NFR thresholds
     private static final Duration FAST_RESPONSE_THRESHOLD = Duration.ofSeconds(3);  // WK60
@@ -56,7 +59,6 @@ public class ExportServicePerformanceTest {
 
     private static final String TEST_USER_ID = "test-user-123";
     private static final String TEST_MODEL_ID = "test-model-id-123";
-    private static final String TEST_ENTRY_ID = "test-marketplace-entry-123";
 
     private AASModel testModel;
 
@@ -69,8 +71,11 @@ public class ExportServicePerformanceTest {
         lenient().when(aas4jAdapter.aasModelToDefaultEnvironment(any(AASModel.class)))
                 .thenReturn(new DefaultEnvironment());
 
-        lenient().when(aas4jAdapter.serializeToJsonString(any()))
-                .thenReturn("{\"ok\":true}");
+        lenient().doAnswer(inv -> {
+            OutputStream os = inv.getArgument(1, OutputStream.class);
+            os.write("{\"ok\":true}".getBytes()); // fake JSON content
+            return null;
+        }).when(aas4jAdapter).serializeToJsonStream(any(), any());
 
         lenient().doAnswer(inv -> {
             OutputStream os = inv.getArgument(2, OutputStream.class);
@@ -78,94 +83,64 @@ public class ExportServicePerformanceTest {
             return null;
         }).when(aas4jAdapter).serializeToAASX(any(), any(), any());
 
-        lenient().when(fileStorageService.getInMemoryFilesByModelId(any()))
+        lenient().when(fileStorageService.getAasxAttachmentsByModelId(any()))
                 .thenReturn(Collections.emptyList());
 
         lenient().when(aasModelMapper.fromDto(any(), any()))
                 .thenReturn(testModel);
     }
 
-    // testing exportAsJson Performance
-    @Test void exportAsJson_fast() {
+    // testing writeAsJson Performance
+    @Test void writeAsJson_fast() {
         assertExecutesWithin(JSON_FAST_THRESHOLD,
-                () -> exportService.exportAsJson(testModel),
-                "exportAsJson");
-    }
-
-    // testing exportAsAasx Performance
-    @Test void exportAsAasx_under15s() {
-        assertExecutesWithin(MAX_EXPORT_TIME,
-                () -> exportService.exportAsAasx(testModel),
-                "exportAsAasx");
-    }
-
-    // testing exportStoredModel Performance
-    @Test void exportStoredModel_json_under3s() {
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
-        assertExecutesWithin(FAST_RESPONSE_THRESHOLD,
-                () -> exportService.exportStoredModel(TEST_MODEL_ID, ExportFormat.JSON, TEST_USER_ID),
-                "exportStoredModel(JSON)");
+                () -> exportService.writeAsJson(testModel, OutputStream.nullOutputStream()),
+                "writeAsJson");
     }
 
-    @Test void exportStoredModel_aasx_under15s() {
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
+    // testing writeAsAasx Performance
+    @Test void writeAsAasx_under15s() {
         assertExecutesWithin(MAX_EXPORT_TIME,
-                () -> exportService.exportStoredModel(TEST_MODEL_ID, ExportFormat.AASX, TEST_USER_ID),
-                "exportStoredModel(AASX)");
+                () -> exportService.writeAsAasx(testModel, OutputStream.nullOutputStream()),
+                "writeAsAasx");
     }
 
     // testing exportTransientModel Performance
     @Test void exportTransientModel_json_under3s() {
         assertExecutesWithin(FAST_RESPONSE_THRESHOLD,
-                () -> exportService.exportTransientModel(new AASModelDto(), ExportFormat.JSON),
+                () -> stream(exportService.exportTransientModel(new AASModelDto(), "file", ExportFormat.JSON)),
                 "exportTransientModel(JSON)");
     }
 
     @Test void exportTransientModel_aasx_under15s() {
         assertExecutesWithin(MAX_EXPORT_TIME,
-                () -> exportService.exportTransientModel(new AASModelDto(), ExportFormat.AASX),
+                () -> stream(exportService.exportTransientModel(new AASModelDto(), "file", ExportFormat.AASX)),
                 "exportTransientModel(AASX)");
     }
 
-    // testing exportMarketplaceModel Performance
-    @Test void exportMarketplaceModel_json_under3s() {
-        MarketplaceEntry entry = new MarketplaceEntry();
-        entry.setId(TEST_MODEL_ID);
-        when(marketPlaceEntryRepository.findById(TEST_ENTRY_ID)).thenReturn(Optional.of(entry));
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
-
-        assertExecutesWithin(FAST_RESPONSE_THRESHOLD,
-                () -> exportService.exportMarketplaceModel(TEST_ENTRY_ID, ExportFormat.JSON),
-                "exportMarketplaceModel(JSON)");
-    }
-
-    @Test void exportMarketplaceModel_aasx_under15s() {
-        MarketplaceEntry entry = new MarketplaceEntry();
-        entry.setId(TEST_MODEL_ID);
-        when(marketPlaceEntryRepository.findById(TEST_ENTRY_ID)).thenReturn(Optional.of(entry));
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
-
-        assertExecutesWithin(MAX_EXPORT_TIME,
-                () -> exportService.exportMarketplaceModel(TEST_ENTRY_ID, ExportFormat.AASX),
-                "exportMarketplaceModel(AASX)");
-    }
-
     // testing export method Performance
     @Test void export_json_under3s() {
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
+        when(aasModelRepository.findVersionById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
         assertExecutesWithin(FAST_RESPONSE_THRESHOLD,
                 () -> exportService.export(TEST_MODEL_ID, "file", ExportFormat.JSON, TEST_USER_ID),
                 "export(JSON)");
     }
 
     @Test void export_aasx_under15s() {
-        when(aasModelRepository.findById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
+        when(aasModelRepository.findVersionById(TEST_MODEL_ID)).thenReturn(Optional.of(testModel));
         assertExecutesWithin(MAX_EXPORT_TIME,
                 () -> exportService.export(TEST_MODEL_ID, "file", ExportFormat.AASX, TEST_USER_ID),
                 "export(AASX)");
     }
 
-    // helper method
+    // helper methods
+    private static void stream(ExportedFile file) {
+        try {
+            file.content().writeTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private void assertExecutesWithin(Duration limit, Runnable action, String label) {
         Instant start = Instant.now();
         action.run();
@@ -185,11 +160,11 @@ public class ExportServicePerformanceTest {
         // Act + Assert: JSON export should be very fast
         assertExecutesWithin(FAST_RESPONSE_THRESHOLD,
                 () -> {
-                    byte[] result = exportService.exportAsJson(largeModel);
-                    assertNotNull(result);
-                    assertTrue(result.length > 0);
+                    ByteArrayOutputStream result = new ByteArrayOutputStream();
+                    exportService.writeAsJson(largeModel, result);
+                    assertTrue(result.size() > 0);
                 },
-                "E2E exportAsJson");
+                "E2E writeAsJson");
     }
 
     @Test
@@ -200,11 +175,11 @@ public class ExportServicePerformanceTest {
         // Act + Assert: AASX export should complete within 15s
         assertExecutesWithin(MAX_EXPORT_TIME,
                 () -> {
-                    byte[] result = exportService.exportAsAasx(largeModel);
-                    assertNotNull(result);
-                    assertTrue(result.length > 0);
-                    log.info("E2E AASX export size: {} bytes", result.length);
+                    ByteArrayOutputStream result = new ByteArrayOutputStream();
+                    exportService.writeAsAasx(largeModel, result);
+                    assertTrue(result.size() > 0);
+                    log.info("E2E AASX export size: {} bytes", result.size());
                 },
-                "E2E exportAsAasx");
+                "E2E writeAsAasx");
     }
 }
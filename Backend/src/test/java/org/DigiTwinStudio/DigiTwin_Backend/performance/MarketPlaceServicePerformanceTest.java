@@ -1,21 +1,25 @@
 package org.DigiTwinStudio.DigiTwin_Backend.performance;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.MarketplaceMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.services.MarketPlaceService;
+import org.DigiTwinStudio.DigiTwin_Backend.services.MarketplaceCache;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.mongodb.core.MongoTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -23,7 +27,7 @@ import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,16 +42,16 @@ class MarketplaceServicePerformanceTest {
 
     @Mock private MarketPlaceEntryRepository entryRepository;
     @Mock private MarketplaceMapper mapper;
-    @Mock private MongoTemplate mongoTemplate;
+    @Spy private MarketplaceCache marketplaceCache = new MarketplaceCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
 
     // testing WK60: listAllEntries ≤ 3s
     @Test
     void listAllEntries_under3s() {
-        // Arrange: repo returns 500 entries
-        List<MarketplaceEntry> entries = IntStream.range(0, 500)
-                .mapToObj(i -> MarketplaceEntry.builder().id("id-" + i).name("name-" + i).build())
+        // Arrange: repo returns a full page of 100 entries plus the look-ahead entry
+        List<MarketplaceEntry> entries = IntStream.range(0, 101)
+                .mapToObj(i -> MarketplaceEntry.builder().id("id-" + i).name("name-" + i).publishedAt(LocalDateTime.now()).build())
                 .toList();
-        when(entryRepository.findAll()).thenReturn(entries);
+        when(entryRepository.findNewestPage(any(), any(), any(), any(), anyInt())).thenReturn(entries);
         when(mapper.toDto(any())).thenAnswer(inv -> {
             MarketplaceEntry e = inv.getArgument(0);
             return new MarketplaceEntryDto(e.getId(), e.getName(), null, null, null, null, 0);
@@ -55,8 +59,9 @@ class MarketplaceServicePerformanceTest {
 
         assertWithin(FAST_3S,
                 () -> {
-                    List<MarketplaceEntryDto> result = marketPlaceService.listAllEntries();
-                    assertEquals(500, result.size());
+                    CursorPageDto<MarketplaceEntryDto> result = marketPlaceService.listAllEntries(null, 100);
+                    assertEquals(100, result.getItems().size());
+                    assertNotNull(result.getNextCursor());
                 },
                 "listAllEntries");
     }
@@ -69,7 +74,7 @@ class MarketplaceServicePerformanceTest {
 
         // Return one real entry so mapper is used
         List<MarketplaceEntry> entries = List.of(MarketplaceEntry.builder().id("id-1").name("entry").build());
-        when(mongoTemplate.find(any(), eq(MarketplaceEntry.class))).thenReturn(entries);
+        when(entryRepository.findNewestPage(any(), any(), any(), any(), anyInt())).thenReturn(entries);
         when(mapper.toDto(any())).thenAnswer(inv -> {
             MarketplaceEntry e = inv.getArgument(0);
             return new MarketplaceEntryDto(e.getId(), e.getName(), null, null, null, null, 0);
@@ -77,8 +82,8 @@ class MarketplaceServicePerformanceTest {
 
         assertWithin(FAST_3S,
                 () -> {
-                    List<MarketplaceEntryDto> result = marketPlaceService.search(req);
-                    assertEquals(1, result.size());
+                    CursorPageDto<MarketplaceEntryDto> result = marketPlaceService.search(req, null, 20);
+                    assertEquals(1, result.getItems().size());
                 },
                 "search(single tag)");
     }
@@ -93,7 +98,7 @@ class MarketplaceServicePerformanceTest {
         List<MarketplaceEntry> entries = IntStream.range(0, 10)
                 .mapToObj(i -> MarketplaceEntry.builder().id("id-" + i).name("entry-" + i).build())
                 .toList();
-        when(mongoTemplate.find(any(), eq(MarketplaceEntry.class))).thenReturn(entries);
+        when(entryRepository.findNewestPage(any(), any(), any(), any(), anyInt())).thenReturn(entries);
         when(mapper.toDto(any())).thenAnswer(inv -> {
             MarketplaceEntry e = inv.getArgument(0);
             return new MarketplaceEntryDto(e.getId(), e.getName(), null, null, null, null, 0);
@@ -101,8 +106,8 @@ class MarketplaceServicePerformanceTest {
 
         assertWithin(FAST_3S,
                 () -> {
-                    List<MarketplaceEntryDto> result = marketPlaceService.search(req);
-                    assertEquals(10, result.size());
+                    CursorPageDto<MarketplaceEntryDto> result = marketPlaceService.search(req, null, 20);
+                    assertEquals(10, result.getItems().size());
                 },
                 "search(multiple tags)");
     }
@@ -110,12 +115,11 @@ class MarketplaceServicePerformanceTest {
     // testing WK90-lite: 20 concurrent list/search ops, 90% ≤ 3s
     @Test
     void concurrentListAndSearch_p90Under3s() throws Exception {
-        List<MarketplaceEntry> entries = IntStream.range(0, 200)
-                .mapToObj(i -> MarketplaceEntry.builder().id("id-" + i).name("name-" + i).build())
+        List<MarketplaceEntry> entries = IntStream.range(0, 21)
+                .mapToObj(i -> MarketplaceEntry.builder().id("id-" + i).name("name-" + i).publishedAt(LocalDateTime.now()).build())
                 .toList();
 
-        when(entryRepository.findAll()).thenReturn(entries);
-        when(mongoTemplate.find(any(), eq(MarketplaceEntry.class))).thenReturn(entries);
+        when(entryRepository.findNewestPage(any(), any(), any(), any(), anyInt())).thenReturn(entries);
         when(mapper.toDto(any())).thenAnswer(inv -> {
             MarketplaceEntry e = inv.getArgument(0);
             return new MarketplaceEntryDto(e.getId(), e.getName(), null, null, null, null, 0);
@@ -132,9 +136,9 @@ class MarketplaceServicePerformanceTest {
                 tasks.add(() -> {
                     long t0 = System.nanoTime();
                     if (finalI % 2 == 0) {
-                        marketPlaceService.listAllEntries();
+                        marketPlaceService.listAllEntries(null, 20);
                     } else {
-                        marketPlaceService.search(req);
+                        marketPlaceService.search(req, null, 20);
                     }
                     return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
                 });
@@ -2,6 +2,7 @@ package org.DigiTwinStudio.DigiTwin_Backend.performance;
 
 import lombok.extern.slf4j.Slf4j;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.SubmodelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.services.ExportService;
 import org.DigiTwinStudio.DigiTwin_Backend.services.FileStorageService;
@@ -14,6 +15,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.IntStream;
@@ -44,9 +46,9 @@ class ScalabilitySmokePerformanceTest {
     @Test
     void twentyConcurrent_ops_meetThresholds() throws Exception {
         AASModel model = new AASModel();
-        when(exportService.exportAsJson(any())).thenReturn("{}".getBytes());
+        doNothing().when(exportService).writeAsJson(any(), any());
 
-        when(marketPlaceService.listAllEntries()).thenReturn(Collections.emptyList());
+        when(marketPlaceService.listAllEntries(null, 20)).thenReturn(new CursorPageDto<>(Collections.emptyList(), null));
 
         DefaultSubmodel sub = new DefaultSubmodel.Builder().id("sm-1").idShort("sm1").build();
         doNothing().when(submodelService).validate(any(SubmodelDto.class));
@@ -61,9 +63,9 @@ class ScalabilitySmokePerformanceTest {
                         long t0 = System.nanoTime();
                         // Mix different operations
                         if (i % 4 == 0) {
-                            exportService.exportAsJson(model);
+                            exportService.writeAsJson(model, OutputStream.nullOutputStream());
                         } else if (i % 4 == 1) {
-                            marketPlaceService.listAllEntries();
+                            marketPlaceService.listAllEntries(null, 20);
                         } else if (i % 4 == 2) {
                             submodelService.validate(SubmodelDto.builder().submodel(sub).build());
                         } else {
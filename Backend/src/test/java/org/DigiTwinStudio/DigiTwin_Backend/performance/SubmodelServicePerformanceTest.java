@@ -10,6 +10,7 @@ import org.DigiTwinStudio.DigiTwin_Backend.mapper.SubmodelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.TemplateRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelService;
+import org.DigiTwinStudio.DigiTwin_Backend.services.SubmodelStorageService;
 import org.DigiTwinStudio.DigiTwin_Backend.validation.SubmodelValidator;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 import org.junit.jupiter.api.Test;
@@ -49,6 +50,7 @@ class SubmodelServicePerformanceTest {
     @Mock private SubmodelMapper submodelMapper;
     @Mock private TemplateRepository templateRepository;
     @Mock private AASModelRepository aasModelRepository;
+    @Mock private SubmodelStorageService submodelStorageService;
 
     // testing WK60: createEmptySubmodelFromTemplate ≤ 500ms
     @Test
@@ -103,7 +105,11 @@ class SubmodelServicePerformanceTest {
                 .toList();
         model.setSubmodels(subs);
 
-        when(aasModelRepository.findById(MODEL_ID)).thenReturn(Optional.of(model));
+        when(aasModelRepository.findHeaderById(MODEL_ID)).thenReturn(Optional.of(model));
+        when(submodelStorageService.findSubmodelByIdShort(eq(model), anyString())).thenAnswer(inv -> {
+            String idShort = inv.getArgument(1);
+            return subs.stream().filter(s -> idShort.equals(s.getIdShort())).findFirst();
+        });
         when(submodelMapper.toDto(any())).thenAnswer(inv -> {
             DefaultSubmodel s = inv.getArgument(0);
             return SubmodelDto.builder().submodel(s).build();
@@ -135,7 +141,11 @@ class SubmodelServicePerformanceTest {
                         .build())
                 .toList();
         model.setSubmodels(subs);
-        when(aasModelRepository.findById(MODEL_ID)).thenReturn(Optional.of(model));
+        when(aasModelRepository.findHeaderById(MODEL_ID)).thenReturn(Optional.of(model));
+        when(submodelStorageService.findSubmodelByIdShort(eq(model), anyString())).thenAnswer(inv -> {
+            String idShort = inv.getArgument(1);
+            return subs.stream().filter(s -> idShort.equals(s.getIdShort())).findFirst();
+        });
         when(submodelMapper.toDto(any())).thenAnswer(inv -> {
             DefaultSubmodel s = inv.getArgument(0);
             return SubmodelDto.builder().submodel(s).build();
@@ -0,0 +1,305 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.BulkOperationType;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkOperationResultDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepositoryCustom.Deletion;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.validation.AASModelValidator;
+import org.DigiTwinStudio.DigiTwin_Backend.validation.FileUploadValidator;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AASModelBulkServiceTest {
+
+    @Mock private AASModelRepository aasModelRepository;
+    @Mock private AASModelValidator aasModelValidator;
+    @Mock private UploadedFileRepository uploadedFileRepository;
+    @Mock private FileUploadValidator fileUploadValidator;
+    @Mock private MarketPlaceService marketPlaceService;
+    @Mock private MarketPlaceEntryRepository marketPlaceEntryRepository;
+    @Mock private MarketplaceCache marketplaceCache;
+    @Mock private MarketplaceSearchIndex marketplaceSearchIndex;
+    @Mock private MarketplaceSuggestions marketplaceSuggestions;
+    @Mock private SubmodelStorageService submodelStorageService;
+    @Mock private ExportCache exportCache;
+
+    @InjectMocks
+    private AASModelBulkService service;
+
+    private final String userId = "user-1";
+
+    @Test
+    void execute_writesMixedOperations_withOneInsertAndOneBulkWrite() {
+        AASModel saved = header("m1", userId, 2);
+        AASModel deleted = header("m2", userId, 0);
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(saved, deleted));
+        when(aasModelRepository.findAllById(List.of("m2"))).thenReturn(List.of(header("m2", userId, 0)));
+        BulkWriteResult written = bulkResult(1, 1);
+        when(aasModelRepository.replaceAndDeleteInBulk(eq(userId), anyList(), anyList(), any(LocalDateTime.class)))
+                .thenReturn(written);
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                create(),
+                BulkOperationDto.builder().type(BulkOperationType.SAVE).modelId("m1").model(modelDto()).build(),
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("m2").build()));
+
+        assertEquals(List.of(201, 200, 204), results.stream().map(BulkOperationResultDto::getStatus).toList());
+        assertEquals(3L, results.get(1).getVersion());
+        verify(aasModelRepository, times(1)).saveAll(argThat(models -> ((List<?>) models).size() == 1));
+        verify(aasModelRepository, times(1)).replaceAndDeleteInBulk(eq(userId),
+                argThat(replacements -> replacements.size() == 1 && replacements.getFirst().expectedVersion() == 2L),
+                eq(List.of(new Deletion("m2", 0L))), any(LocalDateTime.class));
+        verify(aasModelRepository, never()).save(any());
+    }
+
+    @Test
+    void execute_reportsFailuresPerItem_withoutWriting() {
+        when(aasModelRepository.findHeadersByIds(anyCollection()))
+                .thenReturn(List.of(header("mine", userId, 5), header("foreign", "someone-else", 0)));
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("missing").build(),
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("foreign").build(),
+                BulkOperationDto.builder().type(BulkOperationType.SAVE).modelId("mine").model(modelDto()).expectedVersion(4L).build(),
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("mine").build(),
+                BulkOperationDto.builder().modelId("mine").build()));
+
+        assertEquals(List.of(404, 403, 412, 400, 400), results.stream().map(BulkOperationResultDto::getStatus).toList());
+        results.forEach(result -> assertNotNull(result.getError()));
+        verify(aasModelRepository, never()).replaceAndDeleteInBulk(any(), anyList(), anyList(), any());
+        verify(aasModelRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void execute_invalidModel_doesNotStopOtherOperations() {
+        AASModelDto invalid = modelDto();
+        invalid.getAas().setIdShort("invalid");
+        doAnswer(inv -> {
+            if ("invalid".equals(inv.<AASModel>getArgument(0).getAas().getIdShort())) {
+                throw new BadRequestException("invalid model");
+            }
+            return null;
+        }).when(aasModelValidator).validate(any());
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                create(),
+                BulkOperationDto.builder().type(BulkOperationType.CREATE).model(invalid).build(),
+                create()));
+
+        assertEquals(List.of(201, 400, 201), results.stream().map(BulkOperationResultDto::getStatus).toList());
+        verify(aasModelRepository).saveAll(argThat(models -> ((List<?>) models).size() == 2));
+    }
+
+    @Test
+    void execute_validatesReferencedFiles_withOneLookup() {
+        AASModelDto withFile = modelDto();
+        withFile.setSubmodels(new ArrayList<>(List.of(submodelWithFile("file-1"))));
+        AASModelDto withOtherFile = modelDto();
+        withOtherFile.setSubmodels(new ArrayList<>(List.of(submodelWithFile("file-2"))));
+        when(uploadedFileRepository.findAllById(anyCollection())).thenReturn(List.of());
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.CREATE).model(withFile).build(),
+                BulkOperationDto.builder().type(BulkOperationType.CREATE).model(withOtherFile).build()));
+
+        assertEquals(List.of(404, 404), results.stream().map(BulkOperationResultDto::getStatus).toList());
+        verify(uploadedFileRepository, times(1)).findAllById(anyCollection());
+    }
+
+    @Test
+    void execute_reportsPreconditionFailed_forSavesThatDidNotMatch() {
+        AASModel first = header("m1", userId, 1);
+        AASModel second = header("m2", userId, 1);
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(first, second));
+        BulkWriteResult written = bulkResult(1, 0);
+        when(aasModelRepository.replaceAndDeleteInBulk(eq(userId), anyList(), anyList(), any(LocalDateTime.class)))
+                .thenAnswer(inv -> {
+                    // m1 was written by us, m2 was changed by someone else before the bulk write
+                    AASModel m1 = header("m1", userId, 2);
+                    m1.setUpdatedAt(inv.getArgument(3));
+                    AASModel m2 = header("m2", userId, 2);
+                    m2.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+                    when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(m1, m2));
+                    return written;
+                });
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.SAVE).modelId("m1").model(modelDto()).build(),
+                BulkOperationDto.builder().type(BulkOperationType.SAVE).modelId("m2").model(modelDto()).build()));
+
+        assertEquals(List.of(200, 412), results.stream().map(BulkOperationResultDto::getStatus).toList());
+    }
+
+    @Test
+    void execute_saveOfExternalizedModel_reportsPreconditionFailed_whenVersionDidNotMatch() {
+        AASModel external = header("m1", userId, 3);
+        external.setSubmodelRefs(new ArrayList<>());
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(external));
+        when(submodelStorageService.isExternal(external)).thenReturn(true);
+        when(submodelStorageService.replaceContent(eq("m1"), eq(userId), eq(3L), any(), any(), any())).thenReturn(Optional.empty());
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.SAVE).modelId("m1").model(modelDto()).build()));
+
+        assertEquals(412, results.getFirst().getStatus());
+    }
+
+    @Test
+    void execute_deletion_isGuardedByVersion_andReleasesOnlyDeletedModels() {
+        AASModel deleted = header("m1", userId, 2);
+        deleted.setSubmodels(new ArrayList<>(List.of(submodelWithFile("file-1"))));
+        AASModel changed = header("m2", userId, 4);
+        changed.setSubmodels(new ArrayList<>(List.of(submodelWithFile("file-2"))));
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(header("m1", userId, 2), header("m2", userId, 4)));
+        when(aasModelRepository.findAllById(List.of("m1", "m2"))).thenReturn(List.of(deleted, changed));
+        BulkWriteResult written = bulkResult(0, 1);
+        when(aasModelRepository.replaceAndDeleteInBulk(eq(userId), anyList(), anyList(), any(LocalDateTime.class)))
+                .thenAnswer(inv -> {
+                    // m2 was saved by someone else before the bulk write, so only m1 is deleted
+                    when(aasModelRepository.findHeadersByIds(List.of("m1", "m2"))).thenReturn(List.of(header("m2", userId, 5)));
+                    return written;
+                });
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("m1").build(),
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("m2").build()));
+
+        assertEquals(List.of(204, 412), results.stream().map(BulkOperationResultDto::getStatus).toList());
+        verify(aasModelRepository).replaceAndDeleteInBulk(eq(userId), eq(List.of()),
+                eq(List.of(new Deletion("m1", 2L), new Deletion("m2", 4L))), any(LocalDateTime.class));
+        verify(uploadedFileRepository).releaseSharedReference("file-1");
+        verify(uploadedFileRepository, never()).releaseSharedReference("file-2");
+        verify(exportCache, never()).invalidateModel("m2");
+    }
+
+    @Test
+    void execute_deletion_reportsPreconditionFailed_whenModelChangedBeforeLoading() {
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(header("m1", userId, 2)));
+        when(aasModelRepository.findAllById(List.of("m1"))).thenReturn(List.of(header("m1", userId, 3)));
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("m1").expectedVersion(2L).build()));
+
+        assertEquals(412, results.getFirst().getStatus());
+        verify(aasModelRepository, never()).replaceAndDeleteInBulk(any(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void execute_deletion_releasesSharedFiles_andDeletesUnusedOnes() {
+        AASModel model = header("m1", userId, 0);
+        model.setPublished(true);
+        model.setSubmodels(new ArrayList<>(List.of(submodelWithFile("shared"), submodelWithFile("own"))));
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(header("m1", userId, 0)));
+        when(aasModelRepository.findAllById(List.of("m1"))).thenReturn(List.of(model));
+        BulkWriteResult written = bulkResult(0, 1);
+        when(aasModelRepository.replaceAndDeleteInBulk(eq(userId), anyList(), anyList(), any(LocalDateTime.class)))
+                .thenReturn(written);
+        when(uploadedFileRepository.releaseSharedReference("shared")).thenReturn(true);
+
+        service.execute(userId, List.of(BulkOperationDto.builder().type(BulkOperationType.DELETE).modelId("m1").build()));
+
+        verify(uploadedFileRepository).deleteAllById(List.of("own"));
+        verify(marketPlaceEntryRepository).deleteById("m1");
+        verify(marketplaceSearchIndex).remove("m1");
+        verify(marketplaceSuggestions).markStale();
+        verify(marketplaceCache).invalidateCatalog();
+        verify(exportCache).invalidateModel("m1");
+    }
+
+    @Test
+    void execute_publish_usesMarketplacePerModel() {
+        AASModel model = header("m1", userId, 0);
+        model.setAas(new DefaultAssetAdministrationShell());
+        when(aasModelRepository.findHeadersByIds(anyCollection())).thenReturn(List.of(header("m1", userId, 0)));
+        when(aasModelRepository.findAllById(List.of("m1"))).thenReturn(List.of(model));
+        PublishRequestDto request = PublishRequestDto.builder().author("a").tagIds(List.of("t")).build();
+
+        List<BulkOperationResultDto> results = service.execute(userId, List.of(
+                BulkOperationDto.builder().type(BulkOperationType.PUBLISH).modelId("m1").publishRequest(request).build()));
+
+        assertEquals(200, results.getFirst().getStatus());
+        verify(aasModelValidator).validate(model);
+        verify(marketPlaceService).publish(request, model);
+    }
+
+    @Test
+    void execute_rejectsTooManyOperations() {
+        List<BulkOperationDto> operations = IntStream.range(0, AASModelBulkService.MAX_BULK_OPERATIONS + 1)
+                .mapToObj(i -> create())
+                .toList();
+
+        assertThrows(BadRequestException.class, () -> service.execute(userId, operations));
+        assertThrows(BadRequestException.class, () -> service.execute(userId, Collections.emptyList()));
+        verifyNoInteractions(aasModelRepository);
+    }
+
+    // ---------- Helper methods ----------
+
+    private static AASModel header(String id, String owner, long version) {
+        return AASModel.builder().id(id).ownerId(owner).version(version).build();
+    }
+
+    private static BulkOperationDto create() {
+        return BulkOperationDto.builder().type(BulkOperationType.CREATE).model(modelDto()).build();
+    }
+
+    private static AASModelDto modelDto() {
+        AASModelDto dto = new AASModelDto();
+        dto.setAas(new DefaultAssetAdministrationShell());
+        dto.setSubmodels(new ArrayList<>());
+        return dto;
+    }
+
+    private static DefaultSubmodel submodelWithFile(String fileId) {
+        DefaultFile file = new DefaultFile();
+        file.setValue(fileId);
+        DefaultSubmodel submodel = new DefaultSubmodel();
+        submodel.setId("sub-" + fileId);
+        submodel.setSubmodelElements(new ArrayList<>(List.of(file)));
+        return submodel;
+    }
+
+    private static BulkWriteResult bulkResult(int matched, int deleted) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getMatchedCount()).thenReturn(matched);
+        when(result.getDeletedCount()).thenReturn(deleted);
+        return result;
+    }
+}
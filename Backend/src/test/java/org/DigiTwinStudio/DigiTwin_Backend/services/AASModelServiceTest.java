@@ -1,19 +1,28 @@
 package org.DigiTwinStudio.DigiTwin_Backend.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.AASModelSummaryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.PublishRequestDto;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.SubmodelDto;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.SubmodelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.utils.CursorUtil;
 
 import org.DigiTwinStudio.DigiTwin_Backend.validation.AASModelValidator;
 import org.DigiTwinStudio.DigiTwin_Backend.validation.FileUploadValidator;
@@ -21,6 +30,8 @@ import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodelElementCollection;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodelElementList;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,7 +46,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.*;
@@ -66,6 +79,16 @@ public class AASModelServiceTest {
     private MarketPlaceService marketPlaceService;
     @Mock
     private MarketPlaceEntryRepository marketPlaceEntryRepository;
+    @Mock
+    private SubmodelStorageService submodelStorageService;
+    @Mock
+    private MarketplaceCache marketplaceCache;
+    @Mock
+    private MarketplaceSearchIndex marketplaceSearchIndex;
+    @Mock
+    private MarketplaceSuggestions marketplaceSuggestions;
+    @Mock
+    private ExportCache exportCache;
 
     private final String userId = "user-1";
     private final String otherUserId = "user-2";
@@ -105,6 +128,56 @@ public class AASModelServiceTest {
         verify(aasModelMapper, never()).toDto(any());
     }
 
+    // testing getModelSummariesForUser function
+    @Test
+    void getModelSummariesForUser_returnsFirstPage_withNextCursor() {
+        LocalDateTime t = LocalDateTime.of(2025, 7, 13, 15, 30);
+        AASModelSummary s1 = AASModelSummary.builder().id("m1").updatedAt(t.plusMinutes(2)).build();
+        AASModelSummary s2 = AASModelSummary.builder().id("m2").updatedAt(t.plusMinutes(1)).build();
+        AASModelSummary s3 = AASModelSummary.builder().id("m3").updatedAt(t).build();
+        when(aasModelRepository.findSummariesByOwnerId(userId, null, null, 3)).thenReturn(List.of(s1, s2, s3));
+        when(aasModelMapper.toSummaryDto(any())).thenAnswer(inv -> {
+            AASModelSummary s = inv.getArgument(0);
+            return AASModelSummaryDto.builder().id(s.getId()).build();
+        });
+
+        CursorPageDto<AASModelSummaryDto> page = service.getModelSummariesForUser(userId, null, 2);
+
+        assertEquals(List.of("m1", "m2"), page.getItems().stream().map(AASModelSummaryDto::getId).toList());
+        assertNotNull(page.getNextCursor());
+        verify(aasModelRepository, never()).findByOwnerId(any());
+
+        // the cursor points behind the last returned summary
+        service.getModelSummariesForUser(userId, page.getNextCursor(), 2);
+        verify(aasModelRepository).findSummariesByOwnerId(userId, t.plusMinutes(1), "m2", 3);
+    }
+
+    @Test
+    void getModelSummariesForUser_returnsNoCursor_onLastPage() {
+        when(aasModelRepository.findSummariesByOwnerId(eq(userId), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(AASModelSummary.builder().id("m1").build()));
+
+        CursorPageDto<AASModelSummaryDto> page = service.getModelSummariesForUser(userId, null, 500);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        verify(aasModelRepository).findSummariesByOwnerId(userId, null, null, AASModelService.MAX_SUMMARY_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void getModelSummariesForUser_throwsBadRequest_forMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> service.getModelSummariesForUser(userId, "not-a-cursor", 20));
+        verify(aasModelRepository, never()).findSummariesByOwnerId(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getModelSummariesForUser_throwsBadRequest_forCursorWithoutTimestamp() {
+        String cursor = CursorUtil.encode("", modelId);
+
+        assertThrows(BadRequestException.class, () -> service.getModelSummariesForUser(userId, cursor, 20));
+        verify(aasModelRepository, never()).findSummariesByOwnerId(any(), any(), any(), anyInt());
+    }
+
     // testing getModelById function
     @Test
     void getModelById_returnsDto_whenOwned() {
@@ -124,29 +197,74 @@ public class AASModelServiceTest {
         assertThrows(ForbiddenException.class, () -> service.getModelById(modelId, userId));
     }
 
+    // testing getModelVersion function
+    @Test
+    void getModelVersion_returnsVersion_withoutLoadingContent() {
+        when(aasModelRepository.findVersionById(modelId))
+                .thenReturn(Optional.of(AASModel.builder().id(modelId).ownerId(userId).version(7L).build()));
+
+        assertEquals(7L, service.getModelVersion(modelId, userId));
+        verify(aasModelRepository, never()).findById(any());
+        verify(submodelStorageService, never()).materialize(any());
+    }
+
+    @Test
+    void getModelVersion_throwsNotFound_whenMissing() {
+        when(aasModelRepository.findVersionById("missing")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> service.getModelVersion("missing", userId));
+    }
+
+    @Test
+    void getModelVersion_throwsForbidden_whenOwnedByAnotherUser() {
+        when(aasModelRepository.findVersionById(modelId))
+                .thenReturn(Optional.of(AASModel.builder().id(modelId).ownerId(otherUserId).version(7L).build()));
+        assertThrows(ForbiddenException.class, () -> service.getModelVersion(modelId, userId));
+    }
+
     // testing saveModel function
     @Test
-    void saveModel_updatesAas_validatesAndSaves() {
+    void saveModel_replacesInPlace_withSingleConditionalWrite() {
         AASModelDto updateDto = new AASModelDto();
         DefaultAssetAdministrationShell shell = new DefaultAssetAdministrationShell();
         updateDto.setAas(shell);
 
-        when(aasModelRepository.save(any(AASModel.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(aasModelMapper.toDto(any(AASModel.class))).thenReturn(existingDto);
+        when(submodelStorageService.replaceContent(eq(modelId), eq(userId), eq(2L), same(shell), any(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(existingModel));
 
-        AASModelDto result = service.saveModel(modelId, userId, updateDto);
+        AASModelDto result = service.saveModel(modelId, userId, updateDto, 2L);
 
         assertSame(existingDto, result);
         verify(aasModelValidator).validate(any(AASModel.class));
-        verify(aasModelRepository).save(argThat(m -> m.getAas() == shell));
+        verify(aasModelRepository, never()).save(any());
+        verify(aasModelRepository, never()).deleteById(any());
+        verify(aasModelRepository, never()).findHeaderById(any());
+    }
+
+    @Test
+    void saveModel_throwsPreconditionFailed_whenVersionIsStale() {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        header.setVersion(5);
+        when(submodelStorageService.replaceContent(eq(modelId), eq(userId), eq(4L), any(), any(), any())).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+
+        assertThrows(PreconditionFailedException.class, () -> service.saveModel(modelId, userId, new AASModelDto(), 4L));
+    }
+
+    @Test
+    void saveModel_throwsNotFound_whenModelMissing() {
+        when(submodelStorageService.replaceContent(eq("missing"), eq(userId), isNull(), any(), any(), any())).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.saveModel("missing", userId, new AASModelDto(), null));
     }
 
     @Test
     void saveModel_throwsForbidden_whenOwnedByAnotherUser() {
-        when(aasModelRepository.findById(modelId))
-                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), new DefaultAssetAdministrationShell())));
+        when(submodelStorageService.replaceContent(eq(modelId), eq(userId), isNull(), any(), any(), any())).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById(modelId))
+                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), null)));
 
-        assertThrows(ForbiddenException.class, () -> service.saveModel(modelId, userId, new AASModelDto()));
+        assertThrows(ForbiddenException.class, () -> service.saveModel(modelId, userId, new AASModelDto(), null));
         verify(aasModelRepository, never()).save(any());
     }
 
@@ -158,16 +276,16 @@ public class AASModelServiceTest {
         DefaultSubmodel sub = copySubmodel("sub-1");
         sub.setSubmodelElements(List.of(fileElem));
 
-        AASModel model = baseModel(modelId, userId, false, List.of(sub), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
-        UploadedFile uploadedFile = new UploadedFile(); // could be incomplete or mock
-        when(uploadedFileRepository.findById("invalid-file-id")).thenReturn(Optional.of(uploadedFile));
+        UploadedFile uploadedFile = UploadedFile.builder().id("invalid-file-id").build(); // could be incomplete or mock
+        when(uploadedFileRepository.findAllById(Set.of("invalid-file-id"))).thenReturn(List.of(uploadedFile));
         doThrow(new BadRequestException("Invalid file")).when(fileUploadValidator).validate(any());
 
         AASModelDto dto = new AASModelDto();
         dto.setAas(new DefaultAssetAdministrationShell());
+        dto.setSubmodels(List.of(sub));
 
-        assertThrows(BadRequestException.class, () -> service.saveModel(modelId, userId, dto));
+        assertThrows(BadRequestException.class, () -> service.saveModel(modelId, userId, dto, null));
+        verify(aasModelRepository, never()).replaceContent(any(), any(), any(), any(), any(), any());
     }
 
     // testing createModel function
@@ -198,13 +316,67 @@ public class AASModelServiceTest {
         dto.setAas(new DefaultAssetAdministrationShell());
         dto.setSubmodels(List.of(sub));
 
-        UploadedFile uploadedFile = new UploadedFile();
-        when(uploadedFileRepository.findById("bad-file-id")).thenReturn(Optional.of(uploadedFile));
+        UploadedFile uploadedFile = UploadedFile.builder().id("bad-file-id").build();
+        when(uploadedFileRepository.findAllById(Set.of("bad-file-id"))).thenReturn(List.of(uploadedFile));
         doThrow(new BadRequestException("File validation failed")).when(fileUploadValidator).validate(any());
 
         assertThrows(BadRequestException.class, () -> service.createModel(userId, dto));
     }
 
+    @Test
+    void createModel_resolvesNestedFileReferences_withSingleQuery() {
+        DefaultFile top = new DefaultFile();
+        top.setValue("file-top");
+        DefaultFile inCollection = new DefaultFile();
+        inCollection.setValue("file-smc");
+        DefaultFile inList = new DefaultFile();
+        inList.setValue("file-sml");
+
+        DefaultSubmodelElementList list = new DefaultSubmodelElementList();
+        list.setValue(new ArrayList<>(List.of(inList)));
+        DefaultSubmodelElementCollection collection = new DefaultSubmodelElementCollection();
+        collection.setValue(new ArrayList<>(List.of(inCollection, list)));
+
+        DefaultSubmodel sub = copySubmodel("sub-nested");
+        sub.setSubmodelElements(new ArrayList<>(List.of(top, collection)));
+
+        AASModelDto dto = new AASModelDto();
+        dto.setAas(new DefaultAssetAdministrationShell());
+        dto.setSubmodels(List.of(sub));
+
+        when(uploadedFileRepository.findAllById(Set.of("file-top", "file-smc", "file-sml"))).thenReturn(List.of(
+                UploadedFile.builder().id("file-top").build(),
+                UploadedFile.builder().id("file-smc").build(),
+                UploadedFile.builder().id("file-sml").build()));
+        when(aasModelRepository.save(any(AASModel.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.createModel(userId, dto);
+
+        verify(uploadedFileRepository, times(1)).findAllById(any());
+        verify(uploadedFileRepository, never()).findById(anyString());
+        verify(fileUploadValidator, times(3)).validate(any());
+    }
+
+    @Test
+    void createModel_throwsNotFound_whenReferencedFileIsMissing() {
+        DefaultFile fileElem = new DefaultFile();
+        fileElem.setValue("missing-file-id");
+
+        DefaultSubmodelElementCollection collection = new DefaultSubmodelElementCollection();
+        collection.setValue(new ArrayList<>(List.of(fileElem)));
+        DefaultSubmodel sub = copySubmodel("sub-missing");
+        sub.setSubmodelElements(new ArrayList<>(List.of(collection)));
+
+        AASModelDto dto = new AASModelDto();
+        dto.setAas(new DefaultAssetAdministrationShell());
+        dto.setSubmodels(List.of(sub));
+
+        when(uploadedFileRepository.findAllById(any())).thenReturn(List.of());
+
+        assertThrows(NotFoundException.class, () -> service.createModel(userId, dto));
+        verify(aasModelRepository, never()).save(any());
+    }
+
     // testing publishModel function
     @Test
     void publishModel_publishes_whenNotPublished() throws ConflictException {
@@ -245,7 +417,8 @@ public class AASModelServiceTest {
 
         AASModel model = baseModel(modelId, userId, false, List.of(sub), new DefaultAssetAdministrationShell());
         when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
-        when(uploadedFileRepository.findById("bad-file-id")).thenReturn(Optional.of(new UploadedFile()));
+        when(uploadedFileRepository.findAllById(Set.of("bad-file-id")))
+                .thenReturn(List.of(UploadedFile.builder().id("bad-file-id").build()));
         doThrow(new BadRequestException("Invalid file")).when(fileUploadValidator).validate(any());
 
         assertThrows(BadRequestException.class, () -> service.publishModel(modelId, userId, new PublishRequestDto()));
@@ -288,7 +461,8 @@ public class AASModelServiceTest {
 
         AASModel model = baseModel(modelId, userId, true, List.of(sub), new DefaultAssetAdministrationShell());
         when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
-        when(uploadedFileRepository.findById("bad-file-id")).thenReturn(Optional.of(new UploadedFile()));
+        when(uploadedFileRepository.findAllById(Set.of("bad-file-id")))
+                .thenReturn(List.of(UploadedFile.builder().id("bad-file-id").build()));
         doThrow(new BadRequestException("Invalid file")).when(fileUploadValidator).validate(any());
 
         assertThrows(BadRequestException.class, () -> service.unpublishModel(modelId, userId));
@@ -296,106 +470,179 @@ public class AASModelServiceTest {
 
     // testing addEntryModelToUser function
     @Test
-    void addEntryModelToUser_copiesPublishedEntry_savesAndIncrementsDownload() {
+    void addEntryModelToUser_referencesSnapshot_savesAndIncrementsDownload() {
         String entryId = "entry-1";
-        AASModelDto dto = new AASModelDto();
-
         DefaultAssetAdministrationShell shell = new DefaultAssetAdministrationShell();
         shell.setIdShort("TemplateAAS");
-        dto.setAas(shell);
-        dto.setSubmodels(new ArrayList<>());
+        // a snapshot header, loaded without its submodels
+        PublishedSnapshot snapshot = PublishedSnapshot.builder().id("entry-1:4").entryId(entryId).modelVersion(4).aas(shell)
+                .submodelCount(2).build();
 
-        when(marketPlaceService.getPublishedModel(entryId)).thenReturn(dto);
+        when(marketPlaceService.getOrCreateSnapshot(entryId)).thenReturn(snapshot);
 
         service.addEntryModelToUser(entryId, userId);
 
-        verify(aasModelRepository).save(any(AASModel.class));
+        // only the shell is stored with the new model, the submodels stay in the snapshot
+        verify(aasModelRepository).save(argThat(model -> model.getOwnerId().equals(userId)
+                && "entry-1:4".equals(model.getSourceSnapshotId())
+                && model.getSubmodels() == null
+                && model.getSnapshotSubmodelCount() == 2
+                && !model.isPublished()
+                && model.getAas().getIdShort().equals("TemplateAAS - ModelHub")));
         verify(marketPlaceService).incrementDownloadCount(entryId);
+        verify(marketPlaceService, never()).getPublishedModel(any());
+        verifyNoInteractions(uploadedFileRepository);
     }
 
-    // testing attachSubmodel function
     @Test
-    void attachSubmodel_addsNewSubmodel_andSaves() {
-        AASModel modelWithList = baseModel(modelId, userId, false, new ArrayList<>(), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(modelWithList));
+    void attachSubmodel_materializesAdoptedModel_beforeWriting() {
+        AASModel adopted = baseModel(modelId, userId, false, null, null);
+        adopted.setSourceSnapshotId("entry-1:4");
+        AASModel materialized = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(adopted), Optional.of(materialized));
+        when(submodelStorageService.isAdopted(adopted)).thenReturn(true);
 
         SubmodelDto subDto = new SubmodelDto();
-        DefaultSubmodel sub = new DefaultSubmodel();
-        sub.setId("sub-1");
-        sub.setSubmodelElements(new ArrayList<>());
+        DefaultSubmodel sub = copySubmodel("sub-1");
         when(submodelMapper.fromDto(subDto)).thenReturn(sub);
+        when(submodelStorageService.pushSubmodel(same(materialized), eq(sub), any(LocalDateTime.class))).thenReturn(true);
 
-        when(aasModelRepository.save(any(AASModel.class))).thenAnswer(inv -> inv.getArgument(0));
+        service.attachSubmodel(modelId, subDto, userId);
 
-        AASModelDto result = service.attachSubmodel(modelId, subDto, userId);
+        verify(submodelStorageService).materialize(adopted);
+        verify(submodelStorageService).pushSubmodel(same(materialized), eq(sub), any(LocalDateTime.class));
+    }
 
-        assertSame(existingDto, result);
-        verify(aasModelValidator).validate(any(AASModel.class));
-        verify(aasModelRepository).save(argThat(m -> m.getSubmodels().stream().anyMatch(s -> "sub-1".equals(s.getId()))));
+    @Test
+    void hardDeleteModel_keepsSnapshotFiles_ofUneditedAdoptedModel() {
+        existingModel.setSourceSnapshotId("entry-1:4");
+        existingModel.setSubmodels(new ArrayList<>(List.of(submodelWithFile("sub-1", "file-1"))));
+        when(submodelStorageService.isAdopted(existingModel)).thenReturn(true);
+
+        service.hardDeleteModel(modelId, userId);
+
+        verifyNoInteractions(uploadedFileRepository);
+        verify(aasModelRepository).deleteById(modelId);
+    }
+
+    @Test
+    void hardDeleteModel_onlyReleasesSharedFiles() {
+        existingModel.setSubmodels(new ArrayList<>(List.of(submodelWithFile("sub-1", "file-1"))));
+        when(uploadedFileRepository.releaseSharedReference("file-1")).thenReturn(true);
+
+        service.hardDeleteModel(modelId, userId);
+
+        verify(uploadedFileRepository, never()).deleteById(any());
+    }
+
+    // testing attachSubmodel function
+    @Test
+    void attachSubmodel_pushesNewSubmodel_inPlace() {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        header.setVersion(3);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+
+        SubmodelDto subDto = new SubmodelDto();
+        DefaultSubmodel sub = copySubmodel("sub-1");
+        SubmodelDto attachedDto = new SubmodelDto(sub);
+        when(submodelMapper.fromDto(subDto)).thenReturn(sub);
+        when(submodelMapper.toDto(sub)).thenReturn(attachedDto);
+        when(submodelStorageService.pushSubmodel(same(header), eq(sub), any(LocalDateTime.class))).thenReturn(true);
+
+        SubmodelDto result = service.attachSubmodel(modelId, subDto, userId);
+
+        assertSame(attachedDto, result);
+        verify(aasModelValidator).validateSubmodel(sub);
+        verify(aasModelValidator, never()).validate(any());
+        verify(aasModelRepository, never()).save(any());
     }
 
     @Test
     void attachSubmodel_throwsConflict_whenDuplicateId() {
-        DefaultSubmodel sub = new DefaultSubmodel();
-        sub.setId("sub-dup");
-        AASModel model = baseModel(modelId, userId, false, new ArrayList<>(List.of(sub)), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-dup"))), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
 
         SubmodelDto subDto = new SubmodelDto();
         when(submodelMapper.fromDto(subDto)).thenReturn(copySubmodel("sub-dup"));
 
         assertThrows(ConflictException.class, () -> service.attachSubmodel(modelId, subDto, userId));
-        verify(aasModelRepository, never()).save(any());
+        verify(aasModelRepository, never()).pushSubmodel(anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    void attachSubmodel_throwsConflict_whenModelChangedConcurrently() {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+
+        SubmodelDto subDto = new SubmodelDto();
+        when(submodelMapper.fromDto(subDto)).thenReturn(copySubmodel("sub-1"));
+        when(submodelStorageService.pushSubmodel(any(), any(), any())).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> service.attachSubmodel(modelId, subDto, userId));
     }
 
     @Test
     void attachSubmodel_throwsForbidden_whenOwnedByAnotherUser() {
-        when(aasModelRepository.findById(modelId))
-                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), new DefaultAssetAdministrationShell())));
+        when(aasModelRepository.findHeaderById(modelId))
+                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), null)));
 
         assertThrows(ForbiddenException.class, () -> service.attachSubmodel(modelId, new SubmodelDto(), userId));
-        verify(aasModelRepository, never()).save(any());
+        verify(aasModelRepository, never()).pushSubmodel(anyString(), anyLong(), any(), any());
     }
 
     // testing updateSubmodel function
     @Test
-    void updateSubmodel_replacesExisting_andSaves() {
-        DefaultSubmodel existingSub = copySubmodel("sub-1");
-        AASModel model = baseModel(modelId, userId, false, new ArrayList<>(List.of(existingSub)), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+    void updateSubmodel_replacesExisting_inPlace() {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"))), null);
+        header.setVersion(7);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
 
         SubmodelDto dto = new SubmodelDto();
         DefaultSubmodel updated = copySubmodel("sub-NEW");
+        SubmodelDto updatedDto = new SubmodelDto(updated);
         when(submodelMapper.fromDto(dto)).thenReturn(updated);
-        when(aasModelRepository.save(any(AASModel.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(submodelMapper.toDto(updated)).thenReturn(updatedDto);
+        when(submodelStorageService.setSubmodel(same(header), eq("sub-1"), eq(updated), any(LocalDateTime.class))).thenReturn(true);
 
-        AASModelDto result = service.updateSubmodel(modelId, "sub-1", dto, userId);
+        SubmodelDto result = service.updateSubmodel(modelId, "sub-1", dto, userId);
 
-        assertSame(existingDto, result);
-        assertEquals(1, model.getSubmodels().size());
-        assertEquals("sub-NEW", model.getSubmodels().get(0).getId());
+        assertSame(updatedDto, result);
+        verify(aasModelValidator).validateSubmodel(updated);
+        verify(aasModelRepository, never()).save(any());
     }
 
     @Test
     void updateSubmodel_throwsForbidden_whenOwnedByAnotherUser() {
-        when(aasModelRepository.findById(modelId))
-                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), new DefaultAssetAdministrationShell())));
+        when(aasModelRepository.findHeaderById(modelId))
+                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), null)));
 
         assertThrows(ForbiddenException.class, () -> service.updateSubmodel(modelId, "sub-1", new SubmodelDto(), userId));
-        verify(aasModelRepository, never()).save(any());
+        verify(aasModelRepository, never()).setSubmodel(anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
     void updateSubmodel_throwsNotFound_whenMissingTarget() {
-        AASModel model = baseModel(modelId, userId, false, new ArrayList<>(), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        when(aasModelRepository.findHeaderById(modelId))
+                .thenReturn(Optional.of(baseModel(modelId, userId, false, new ArrayList<>(), null)));
 
         assertThrows(NotFoundException.class, () -> service.updateSubmodel(modelId, "nope", new SubmodelDto(), userId));
     }
 
+    @Test
+    void updateSubmodel_throwsConflict_whenModelChangedConcurrently() {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"))), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+
+        SubmodelDto dto = new SubmodelDto();
+        when(submodelMapper.fromDto(dto)).thenReturn(copySubmodel("sub-1"));
+        when(submodelStorageService.setSubmodel(any(), anyString(), any(), any())).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> service.updateSubmodel(modelId, "sub-1", dto, userId));
+    }
+
     // testing removeSubmodel function
     @Test
-    void removeSubmodel_removesAndDeletesFiles_andSaves() {
+    void removeSubmodel_pullsSubmodel_andDeletesFiles() {
         DefaultFile fileElem = new DefaultFile();
         fileElem.setValue("file-1");
         List<SubmodelElement> elements = new ArrayList<>();
@@ -404,36 +651,136 @@ public class AASModelServiceTest {
         DefaultSubmodel sub = copySubmodel("sub-1");
         sub.setSubmodelElements(elements);
 
-        AASModel model = baseModel(modelId, userId, false, new ArrayList<>(List.of(sub)), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
-        when(aasModelRepository.save(any(AASModel.class))).thenAnswer(inv -> inv.getArgument(0));
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"))), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.findSubmodel(header, "sub-1")).thenReturn(Optional.of(sub));
+        when(submodelStorageService.pullSubmodel(same(header), eq("sub-1"), any(LocalDateTime.class))).thenReturn(true);
 
-        AASModelDto result = service.removeSubmodel(modelId, "sub-1", userId);
+        service.removeSubmodel(modelId, "sub-1", userId);
 
-        assertSame(existingDto, result);
         verify(uploadedFileRepository).deleteById("file-1");
-        assertTrue(model.getSubmodels().isEmpty());
+        verify(aasModelRepository, never()).save(any());
     }
 
     @Test
     void removeSubmodel_throwsNotFound_whenSubmodelMissing() {
-        DefaultSubmodel another = copySubmodel("sub-2");
-        AASModel model = baseModel(modelId, userId, false, new ArrayList<>(List.of(another)), new DefaultAssetAdministrationShell());
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-2"))), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.findSubmodel(header, "sub-1")).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> service.removeSubmodel(modelId, "sub-1", userId));
     }
 
+    @Test
+    void removeSubmodel_keepsFiles_whenModelChangedConcurrently() {
+        DefaultFile fileElem = new DefaultFile();
+        fileElem.setValue("file-1");
+        DefaultSubmodel sub = copySubmodel("sub-1");
+        sub.setSubmodelElements(new ArrayList<>(List.of(fileElem)));
+
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"))), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.findSubmodel(header, "sub-1")).thenReturn(Optional.of(sub));
+        when(submodelStorageService.pullSubmodel(any(), anyString(), any())).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> service.removeSubmodel(modelId, "sub-1", userId));
+        verify(uploadedFileRepository, never()).deleteById(anyString());
+    }
+
     @Test
     void removeSubmodel_throwsForbidden_whenOwnedByAnotherUser() {
-        when(aasModelRepository.findById(modelId))
-                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), new DefaultAssetAdministrationShell())));
+        when(aasModelRepository.findHeaderById(modelId))
+                .thenReturn(Optional.of(baseModel(modelId, otherUserId, false, new ArrayList<>(), null)));
 
         assertThrows(ForbiddenException.class, () -> service.removeSubmodel(modelId, "sub-1", userId));
-        verify(aasModelRepository, never()).save(any());
+        verify(aasModelRepository, never()).pullSubmodel(anyString(), anyLong(), anyString(), any());
         verify(uploadedFileRepository, never()).deleteById(anyString());
     }
 
+    // testing patchModel function
+    @Test
+    void patchModel_writesOnlyTouchedSubmodel() throws Exception {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"), copySubmodel("sub-2"))), null);
+        header.setVersion(3);
+        DefaultSubmodel stored = copySubmodel("sub-2");
+        stored.setIdShort("before");
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.submodelIds(header)).thenReturn(List.of("sub-1", "sub-2"));
+        when(submodelStorageService.findSubmodel(header, "sub-2")).thenReturn(Optional.of(stored));
+        when(submodelStorageService.patchContent(same(header), isNull(), any(), any(LocalDateTime.class))).thenReturn(true);
+
+        long version = service.patchModel(modelId, userId,
+                patch("[{\"op\":\"replace\",\"path\":\"/submodels/1/idShort\",\"value\":\"after\"}]"), 3L);
+
+        assertEquals(4L, version);
+        verify(submodelStorageService).patchContent(same(header), isNull(),
+                argThat((Map<String, DefaultSubmodel> changed) -> changed.size() == 1
+                        && "after".equals(changed.get("sub-2").getIdShort())), any(LocalDateTime.class));
+        verify(submodelStorageService, never()).findSubmodel(header, "sub-1");
+        verify(aasModelRepository, never()).findAas(any());
+        verify(aasModelValidator).validateSubmodel(any(DefaultSubmodel.class));
+        verify(aasModelValidator, never()).validate(any());
+    }
+
+    @Test
+    void patchModel_throwsConflict_whenTestOperationFails() throws Exception {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(List.of(copySubmodel("sub-1"))), null);
+        DefaultSubmodel stored = copySubmodel("sub-1");
+        stored.setIdShort("actual");
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.submodelIds(header)).thenReturn(List.of("sub-1"));
+        when(submodelStorageService.findSubmodel(header, "sub-1")).thenReturn(Optional.of(stored));
+
+        JsonNode patch = patch("[{\"op\":\"test\",\"path\":\"/submodels/0/idShort\",\"value\":\"expected\"},"
+                + "{\"op\":\"replace\",\"path\":\"/submodels/0/idShort\",\"value\":\"new\"}]");
+
+        assertThrows(ConflictException.class, () -> service.patchModel(modelId, userId, patch, null));
+        verify(submodelStorageService, never()).patchContent(any(), any(), any(), any());
+    }
+
+    @Test
+    void patchModel_throwsPreconditionFailed_whenVersionIsStale() throws Exception {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        header.setVersion(5);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+
+        JsonNode patch = patch("[{\"op\":\"replace\",\"path\":\"/aas/idShort\",\"value\":\"x\"}]");
+
+        assertThrows(PreconditionFailedException.class, () -> service.patchModel(modelId, userId, patch, 4L));
+        verify(submodelStorageService, never()).patchContent(any(), any(), any(), any());
+    }
+
+    @Test
+    void patchModel_rejectsPathsOutsideShellAndSubmodels() throws Exception {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.submodelIds(header)).thenReturn(List.of());
+
+        JsonNode patch = patch("[{\"op\":\"replace\",\"path\":\"/ownerId\",\"value\":\"someone-else\"}]");
+
+        assertThrows(BadRequestException.class, () -> service.patchModel(modelId, userId, patch, null));
+    }
+
+    @Test
+    void patchModel_savesWholeModel_whenSubmodelIsAdded() throws Exception {
+        AASModel header = baseModel(modelId, userId, false, new ArrayList<>(), null);
+        header.setVersion(2);
+        existingModel.setVersion(2);
+        existingDto.setVersion(3);
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(submodelStorageService.submodelIds(header)).thenReturn(List.of());
+        when(submodelStorageService.replaceContent(eq(modelId), eq(userId), eq(2L), any(),
+                argThat(submodels -> submodels.size() == 1 && "sub-new".equals(submodels.getFirst().getId())), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(existingModel));
+
+        long version = service.patchModel(modelId, userId,
+                patch("[{\"op\":\"add\",\"path\":\"/submodels/-\",\"value\":{\"modelType\":\"Submodel\",\"id\":\"sub-new\"}}]"), null);
+
+        assertEquals(3L, version);
+        verify(aasModelValidator).validate(any(AASModel.class));
+        verify(submodelStorageService, never()).patchContent(any(), any(), any(), any());
+    }
+
     // testing hardDeleteModel function
     @Test
     void hardDeleteModel_deletesModelAndFiles_andMarketplaceEntryIfPublished() {
@@ -448,8 +795,13 @@ public class AASModelServiceTest {
         service.hardDeleteModel(modelId, userId);
 
         verify(marketPlaceEntryRepository).deleteById(modelId);
+        verify(marketplaceSearchIndex).remove(modelId);
+        verify(marketplaceSuggestions).markStale();
+        verify(marketplaceCache).invalidateCatalog();
         verify(uploadedFileRepository).deleteById("file-1");
         verify(aasModelRepository).deleteById(modelId);
+        verify(submodelStorageService).deleteSubmodels(modelId);
+        verify(exportCache).invalidateModel(modelId);
     }
 
     @Test
@@ -472,6 +824,10 @@ public class AASModelServiceTest {
         verify(uploadedFileRepository, never()).deleteById(anyString());
     }
 
+    private static JsonNode patch(String json) throws Exception {
+        return new ObjectMapper().readTree(json);
+    }
+
     private static AASModel baseModel(String id, String owner, boolean published, List<DefaultSubmodel> subs, DefaultAssetAdministrationShell shell) {
         LocalDateTime now = LocalDateTime.now();
         return AASModel.builder()
@@ -491,4 +847,12 @@ public class AASModelServiceTest {
         s.setSubmodelElements(new ArrayList<>());
         return s;
     }
+
+    private static DefaultSubmodel submodelWithFile(String id, String fileId) {
+        DefaultFile file = new DefaultFile();
+        file.setValue(fileId);
+        var s = copySubmodel(id);
+        s.setSubmodelElements(new ArrayList<>(List.of(file)));
+        return s;
+    }
 }
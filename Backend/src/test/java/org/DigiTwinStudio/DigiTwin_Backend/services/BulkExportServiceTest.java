@@ -0,0 +1,215 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModelSummary;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.BulkExportRequestDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkExportServiceTest {
+
+    @Mock private ExportService exportService;
+    @Mock private AASModelRepository aasModelRepository;
+
+    private BulkExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkExportService(exportService, aasModelRepository, new SimpleMeterRegistry(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void export_writesOneEntryPerModel_inRequestOrder() throws Exception {
+        when(aasModelRepository.findSummariesByOwnerIdAndIds(eq("u1"), any()))
+                .thenReturn(List.of(summary("m2", "Pump"), summary("m1", "Motor"), summary("m3", "Valve")));
+        CountDownLatch firstDelayed = new CountDownLatch(1);
+        // the first model finishes last, its entry must still come first
+        stubExport("m1", ExportFormat.JSON, out -> {
+            awaitQuietly(firstDelayed);
+            out.write("{\"m\":1}".getBytes(StandardCharsets.UTF_8));
+        });
+        stubExport("m2", ExportFormat.JSON, out -> {
+            out.write("{\"m\":2}".getBytes(StandardCharsets.UTF_8));
+            firstDelayed.countDown();
+        });
+        stubExport("m3", ExportFormat.JSON, out -> out.write("{\"m\":3}".getBytes(StandardCharsets.UTF_8)));
+
+        ExportedFile exported = service.export(byIds("m1", "m2", "m3", "m1"), ExportFormat.JSON, "u1");
+
+        assertEquals("models.zip", exported.filename());
+        assertEquals("application/zip", exported.contentType());
+        Map<String, String> entries = unzip(exported);
+        assertEquals(List.of("Motor.json", "Pump.json", "Valve.json"), new ArrayList<>(entries.keySet()));
+        assertEquals("{\"m\":1}", entries.get("Motor.json"));
+        assertEquals("{\"m\":3}", entries.get("Valve.json"));
+        verify(exportService, times(1)).export("m1", "m1", ExportFormat.JSON, "u1");
+    }
+
+    @Test
+    void export_namesEntriesUniquely() throws Exception {
+        when(aasModelRepository.findSummariesByOwnerIdAndIds(eq("u1"), any()))
+                .thenReturn(List.of(summary("m1", "Pump"), summary("m2", "Pump"), summary("urn:m/3", null)));
+        stubExport("m1", ExportFormat.AASX, out -> out.write(1));
+        stubExport("m2", ExportFormat.AASX, out -> out.write(2));
+        stubExport("urn:m/3", ExportFormat.AASX, out -> out.write(3));
+
+        ExportedFile exported = service.export(byIds("m1", "m2", "urn:m/3"), ExportFormat.AASX, "u1");
+
+        assertEquals(List.of("Pump_m1.aasx", "Pump_m2.aasx", "urn_m_3.aasx"), new ArrayList<>(unzip(exported).keySet()));
+    }
+
+    @Test
+    void export_allModels_pagesThroughSummaries_andSkipsModelsReturnedTwice() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<AASModelSummary> firstPage = IntStream.range(0, 500)
+                .mapToObj(i -> AASModelSummary.builder().id("m" + i).idShort("Shell" + i).updatedAt(updatedAt).build())
+                .toList();
+        when(aasModelRepository.findSummariesByOwnerId("u1", null, null, 500)).thenReturn(firstPage);
+        // updated while paging, so the next page returns it again
+        when(aasModelRepository.findSummariesByOwnerId("u1", updatedAt, "m499", 500))
+                .thenReturn(List.of(firstPage.getLast()));
+        when(exportService.export(any(), any(), eq(ExportFormat.JSON), eq("u1")))
+                .thenReturn(exported(out -> out.write('{')));
+
+        ExportedFile exported = service.export(BulkExportRequestDto.builder().allModels(true).build(), ExportFormat.JSON, "u1");
+
+        Map<String, String> entries = unzip(exported);
+        assertEquals(500, entries.size());
+        assertTrue(entries.containsKey("Shell499.json"));
+        verify(exportService, times(1)).export("m499", "m499", ExportFormat.JSON, "u1");
+        verify(aasModelRepository, never()).findSummariesByOwnerIdAndIds(any(), any());
+    }
+
+    @Test
+    void export_allModels_rejectsMoreThanMaxModels() {
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<AASModelSummary> firstPage = IntStream.range(0, 500)
+                .mapToObj(i -> AASModelSummary.builder().id("m" + i).idShort("Shell" + i).updatedAt(updatedAt).build())
+                .toList();
+        when(aasModelRepository.findSummariesByOwnerId("u1", null, null, 500)).thenReturn(firstPage);
+        when(aasModelRepository.findSummariesByOwnerId("u1", updatedAt, "m499", 500))
+                .thenReturn(List.of(summary("m500", "Last")));
+
+        assertThrows(BadRequestException.class,
+                () -> service.export(BulkExportRequestDto.builder().allModels(true).build(), ExportFormat.JSON, "u1"));
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void export_rejectsInvalidSelections() {
+        assertThrows(BadRequestException.class, () -> service.export(new BulkExportRequestDto(), ExportFormat.JSON, "u1"));
+        assertThrows(BadRequestException.class, () -> service.export(null, ExportFormat.JSON, "u1"));
+        assertThrows(BadRequestException.class,
+                () -> service.export(new BulkExportRequestDto(List.of("m1"), true), ExportFormat.JSON, "u1"));
+        List<String> tooMany = IntStream.rangeClosed(0, BulkExportService.MAX_MODELS).mapToObj(i -> "m" + i).toList();
+        assertThrows(BadRequestException.class,
+                () -> service.export(new BulkExportRequestDto(tooMany, false), ExportFormat.JSON, "u1"));
+
+        verifyNoInteractions(aasModelRepository, exportService);
+    }
+
+    @Test
+    void export_throwsNotFound_forMissingOrForeignModels() {
+        when(aasModelRepository.findSummariesByOwnerIdAndIds(eq("u1"), any())).thenReturn(List.of(summary("m1", "Pump")));
+
+        NotFoundException ex = assertThrows(NotFoundException.class,
+                () -> service.export(byIds("m1", "m2"), ExportFormat.JSON, "u1"));
+
+        assertTrue(ex.getMessage().contains("m2"));
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void export_abortsArchive_whenAModelFails() {
+        when(aasModelRepository.findSummariesByOwnerIdAndIds(eq("u1"), any()))
+                .thenReturn(List.of(summary("m1", "Pump"), summary("m2", "Motor")));
+        stubExport("m1", ExportFormat.AASX, out -> out.write(1));
+        when(exportService.export("m2", "m2", ExportFormat.AASX, "u1"))
+                .thenThrow(new ForbiddenException("Access denied: model does not belong to user."));
+
+        ExportedFile exported = service.export(byIds("m1", "m2"), ExportFormat.AASX, "u1");
+
+        ExportException ex = assertThrows(ExportException.class,
+                () -> exported.content().writeTo(new ByteArrayOutputStream()));
+        assertTrue(ex.getMessage().contains("m2"));
+    }
+
+    private void stubExport(String modelId, ExportFormat format, StreamingResponseBody content) {
+        lenient().when(exportService.export(modelId, modelId, format, "u1")).thenReturn(exported(content));
+    }
+
+    private static Map<String, String> unzip(ExportedFile exported) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exported.content().writeTo(out);
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BulkExportRequestDto byIds(String... ids) {
+        return BulkExportRequestDto.builder().modelIds(List.of(ids)).build();
+    }
+
+    private static AASModelSummary summary(String id, String idShort) {
+        return AASModelSummary.builder().id(id).idShort(idShort).build();
+    }
+
+    private static ExportedFile exported(StreamingResponseBody content) {
+        return new ExportedFile(content, "file", "application/octet-stream");
+    }
+}
@@ -0,0 +1,114 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DownloadCountBufferTest {
+
+    @Mock
+    private MarketPlaceEntryRepository marketPlaceEntryRepository;
+    @Mock
+    private MarketplaceCache marketplaceCache;
+    @Mock
+    private MarketplaceSearchIndex marketplaceSearchIndex;
+
+    @InjectMocks
+    private DownloadCountBuffer buffer;
+
+    @Test
+    void flush_writesAllBufferedCounts_inOneBulkWrite() {
+        buffer.record("e1");
+        buffer.record("e1");
+        buffer.record("e2");
+
+        buffer.flush();
+
+        verify(marketPlaceEntryRepository).incrementDownloadCounts(Map.of("e1", 2L, "e2", 1L));
+        verify(marketplaceSearchIndex).addDownloads(Map.of("e1", 2L, "e2", 1L));
+        verify(marketplaceCache).invalidateDownloadCounts(Set.of("e1", "e2"));
+    }
+
+    @Test
+    void flush_writesNothing_withoutDownloads() {
+        buffer.flush();
+        buffer.record("e1");
+        buffer.flush();
+        buffer.flush();
+
+        verify(marketPlaceEntryRepository, times(1)).incrementDownloadCounts(anyMap());
+    }
+
+    @Test
+    void flush_keepsCounts_whenWriteFails() {
+        buffer.record("e1");
+        doThrow(new RuntimeException("db down")).doNothing()
+                .when(marketPlaceEntryRepository).incrementDownloadCounts(anyMap());
+
+        buffer.flush();
+        buffer.record("e1");
+        buffer.flush();
+
+        verify(marketPlaceEntryRepository).incrementDownloadCounts(Map.of("e1", 1L));
+        verify(marketPlaceEntryRepository).incrementDownloadCounts(Map.of("e1", 2L));
+        verify(marketplaceCache, times(1)).invalidateDownloadCounts(Set.of("e1"));
+        verify(marketplaceSearchIndex, times(1)).addDownloads(anyMap());
+    }
+
+    @Test
+    void record_countsEveryConcurrentDownload() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                pool.execute(() -> buffer.record("popular"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        buffer.flushOnShutdown();
+
+        verify(marketPlaceEntryRepository).incrementDownloadCounts(Map.of("popular", 10_000L));
+    }
+
+    @Test
+    void flush_losesNoDownload_recordedWhileFlushing() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                pool.execute(() -> buffer.record("popular"));
+                if (i % 100 == 0) {
+                    // idle and busy intervals interleave with the downloads
+                    buffer.flush();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        buffer.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Long>> increments = ArgumentCaptor.forClass(Map.class);
+        verify(marketPlaceEntryRepository, atLeastOnce()).incrementDownloadCounts(increments.capture());
+        assertEquals(10_000L, increments.getAllValues().stream().mapToLong(counts -> counts.get("popular")).sum());
+    }
+}
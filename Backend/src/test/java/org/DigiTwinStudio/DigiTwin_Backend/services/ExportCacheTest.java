@@ -0,0 +1,174 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExportCache cache;
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ExportCache(meterRegistry, directory.toString(), DataSize.ofBytes(100));
+    }
+
+    @Test
+    void write_rendersOnce_andServesRepeatsFromDisk() throws IOException {
+        ExportCache.Key key = new ExportCache.Key("m1", 3, ExportFormat.JSON);
+
+        assertEquals("{\"v\":3}", write(key, "{\"v\":3}"));
+        assertEquals("{\"v\":3}", write(key, "{\"v\":3}"));
+
+        assertEquals(1, renders.get());
+        assertEquals(1, files());
+        assertEquals(1.0, gets("hit"));
+        assertEquals(1.0, gets("miss"));
+        assertEquals(7.0, meterRegistry.get("digitwin.export.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void write_separatesVersionsAndFormats_andDropsOlderVersions() throws IOException {
+        write(new ExportCache.Key("m1", 1, ExportFormat.JSON), "v1");
+        write(new ExportCache.Key("m1", 1, ExportFormat.AASX), "aasx");
+        write(new ExportCache.Key("m1", 2, ExportFormat.JSON), "v2");
+
+        assertEquals(3, renders.get());
+        // only the file of the new version is left
+        assertEquals(1, files());
+        assertEquals("v2", write(new ExportCache.Key("m1", 2, ExportFormat.JSON), "other"));
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    void write_cachesExport_underTheVersionThatWasRendered() throws IOException {
+        ExportCache.Key stale = new ExportCache.Key("m1", 1, ExportFormat.JSON);
+
+        // the model was saved again between reading its version and loading it
+        cache.write(stale, new ByteArrayOutputStream(), out -> {
+            out.write("v2".getBytes(StandardCharsets.UTF_8));
+            return 2;
+        });
+
+        assertEquals("v1", write(stale, "v1"));
+        assertEquals("v2", write(new ExportCache.Key("m1", 2, ExportFormat.JSON), "other"));
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void write_doesNotCacheFailedRenders() throws IOException {
+        ExportCache.Key key = new ExportCache.Key("m1", 1, ExportFormat.AASX);
+
+        assertThrows(ExportException.class, () -> cache.write(key, new ByteArrayOutputStream(), out -> {
+            out.write(1);
+            throw new ExportException("Failed to serialize AAS object to AASX");
+        }));
+
+        assertEquals(0, files());
+        write(key, "ok");
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void write_evictsBySize() throws IOException {
+        write(new ExportCache.Key("m1", 1, ExportFormat.JSON), "a".repeat(60));
+        write(new ExportCache.Key("m2", 1, ExportFormat.JSON), "b".repeat(60));
+
+        assertEquals(1, files());
+        assertTrue(meterRegistry.get("digitwin.export.cache.bytes").gauge().value() <= 100);
+    }
+
+    @Test
+    void write_doesNotCacheExportsLargerThanTheCache() throws IOException {
+        ExportCache.Key key = new ExportCache.Key("m1", 1, ExportFormat.JSON);
+
+        assertEquals("x".repeat(150), write(key, "x".repeat(150)));
+
+        assertEquals(0, files());
+    }
+
+    @Test
+    void invalidateModel_dropsAllFilesOfTheModel() throws IOException {
+        ExportCache.Key json = new ExportCache.Key("m1", 1, ExportFormat.JSON);
+        write(json, "json");
+        write(new ExportCache.Key("m1", 1, ExportFormat.AASX), "aasx");
+        write(new ExportCache.Key("m2", 1, ExportFormat.JSON), "other");
+
+        cache.invalidateModel("m1");
+
+        assertEquals(1, files());
+        write(json, "json");
+        assertEquals(4, renders.get());
+    }
+
+    @Test
+    void write_doesNotKeepExport_invalidatedWhileRendering() throws IOException {
+        ExportCache.Key key = new ExportCache.Key("m1", 1, ExportFormat.AASX);
+
+        cache.write(key, new ByteArrayOutputStream(), out -> {
+            out.write(1);
+            // e.g. a file was uploaded to the model meanwhile
+            cache.invalidateModel("m1");
+            return 1;
+        });
+
+        assertEquals(0, files());
+    }
+
+    @Test
+    void constructor_clearsFilesOfPreviousRun() throws IOException {
+        write(new ExportCache.Key("m1", 1, ExportFormat.JSON), "json");
+
+        new ExportCache(new SimpleMeterRegistry(), directory.toString(), DataSize.ofBytes(100));
+
+        assertEquals(0, files());
+    }
+
+    private String write(ExportCache.Key key, String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.write(key, out, (OutputStream target) -> {
+            renders.incrementAndGet();
+            target.write(content.getBytes(StandardCharsets.UTF_8));
+            return key.version();
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "export.artifacts")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
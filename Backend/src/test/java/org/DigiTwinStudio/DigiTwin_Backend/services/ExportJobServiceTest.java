@@ -0,0 +1,223 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportFormat;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJob;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportJobStatus;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportProgress;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.ExportedFile;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.ExportJobDto;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ServiceUnavailableException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.TooManyRequestsException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTest {
+
+    @Mock private ExportService exportService;
+
+    @TempDir
+    Path directory;
+
+    private ExportJobService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void start_writesExportInBackground_andReportsProgress() throws Exception {
+        service = service(2, 10, Duration.ofHours(1));
+        byte[] content = "AASX binary content".getBytes(StandardCharsets.UTF_8);
+        when(exportService.export(eq("m1"), eq("big"), eq(ExportFormat.AASX), eq("u1"), any())).thenAnswer(inv -> {
+            ExportProgress progress = inv.getArgument(4);
+            return exported(out -> {
+                out.write(content);
+                progress.filePacked();
+                progress.filePacked();
+            });
+        });
+
+        ExportJobDto started = service.start("m1", "big", ExportFormat.AASX, "u1");
+
+        assertEquals("big.aasx", started.getFilename());
+        ExportJobDto finished = awaitFinished(started.getId(), "u1");
+        assertEquals(ExportJobStatus.COMPLETED, finished.getStatus());
+        assertEquals(2, finished.getFilesPacked());
+        assertEquals(content.length, finished.getBytesWritten());
+        assertNotNull(finished.getFinishedAt());
+        ExportJob job = service.getCompletedJob(started.getId(), "u1");
+        assertArrayEquals(content, Files.readAllBytes(job.getFile()));
+    }
+
+    @Test
+    void start_usesModelId_asDefaultFilename() {
+        service = service(1, 10, Duration.ofHours(1));
+        when(exportService.export(eq("m1"), eq("m1"), eq(ExportFormat.JSON), eq("u1"), any()))
+                .thenReturn(exported(out -> out.write('{')));
+
+        ExportJobDto started = service.start("m1", null, ExportFormat.JSON, "u1");
+
+        assertEquals("m1.json", started.getFilename());
+    }
+
+    @Test
+    void start_checksOwnership_beforeQueuing() {
+        service = service(1, 10, Duration.ofHours(1));
+        when(exportService.export(any(), any(), any(), any(), any()))
+                .thenThrow(new ForbiddenException("Access denied: model does not belong to user."));
+
+        assertThrows(ForbiddenException.class, () -> service.start("m1", "big", ExportFormat.AASX, "u1"));
+    }
+
+    @Test
+    void start_rejectsJobs_whenQueueIsFull() throws Exception {
+        service = service(1, 1, Duration.ofHours(1));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        service.start("m1", "a", ExportFormat.AASX, "u1");
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        service.start("m1", "b", ExportFormat.AASX, "u1");
+
+        assertThrows(ServiceUnavailableException.class, () -> service.start("m1", "c", ExportFormat.AASX, "u1"));
+        release.countDown();
+    }
+
+    @Test
+    void start_rejectsJobs_whenUserHasTooManyJobs() throws Exception {
+        service = service(1, 10, Duration.ofHours(1), 2);
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> out.write(1)));
+        awaitFinished(service.start("m1", "a", ExportFormat.AASX, "u1").getId(), "u1");
+        service.start("m1", "b", ExportFormat.AASX, "u1");
+
+        // finished jobs count as long as their files are retained
+        assertThrows(TooManyRequestsException.class, () -> service.start("m1", "c", ExportFormat.AASX, "u1"));
+        assertNotNull(service.start("m1", "c", ExportFormat.AASX, "u2"));
+    }
+
+    @Test
+    void failedExport_isReported_andLeavesNoFile() throws Exception {
+        service = service(1, 10, Duration.ofHours(1));
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> {
+            out.write(1);
+            throw new ExportException("Failed to serialize AAS object to AASX");
+        }));
+
+        ExportJobDto started = service.start("m1", "big", ExportFormat.AASX, "u1");
+
+        ExportJobDto finished = awaitFinished(started.getId(), "u1");
+        assertEquals(ExportJobStatus.FAILED, finished.getStatus());
+        assertNotNull(finished.getError());
+        assertThrows(ConflictException.class, () -> service.getCompletedJob(started.getId(), "u1"));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void getJob_hidesJobsOfOtherUsers() throws Exception {
+        service = service(1, 10, Duration.ofHours(1));
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> out.write(1)));
+
+        ExportJobDto started = service.start("m1", "big", ExportFormat.AASX, "u1");
+
+        assertThrows(NotFoundException.class, () -> service.getJob(started.getId(), "u2"));
+        assertThrows(NotFoundException.class, () -> service.getCompletedJob(started.getId(), "u2"));
+        assertThrows(NotFoundException.class, () -> service.getJob("unknown", "u1"));
+    }
+
+    @Test
+    void removeExpiredJobs_deletesFinishedJobsAndFiles() throws Exception {
+        service = service(1, 10, Duration.ZERO);
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> out.write(1)));
+        ExportJobDto started = service.start("m1", "big", ExportFormat.AASX, "u1");
+        Path file = service.getCompletedJob(awaitFinished(started.getId(), "u1").getId(), "u1").getFile();
+        Thread.sleep(5);
+
+        service.removeExpiredJobs();
+
+        assertFalse(Files.exists(file));
+        assertThrows(NotFoundException.class, () -> service.getJob(started.getId(), "u1"));
+    }
+
+    @Test
+    void removeExpiredJobs_keepsFileOfRunningDownload_untilItIsClosed() throws Exception {
+        service = service(1, 10, Duration.ZERO);
+        when(exportService.export(any(), any(), any(), any(), any())).thenReturn(exported(out -> out.write("{}".getBytes(StandardCharsets.UTF_8))));
+        ExportJobDto started = service.start("m1", "big", ExportFormat.JSON, "u1");
+        ExportJob job = service.getCompletedJob(awaitFinished(started.getId(), "u1").getId(), "u1");
+        Thread.sleep(5);
+
+        try (InputStream download = service.openFile(job)) {
+            service.removeExpiredJobs();
+
+            assertThrows(NotFoundException.class, () -> service.getJob(started.getId(), "u1"));
+            assertThrows(NotFoundException.class, () -> service.openFile(job));
+            assertEquals("{}", new String(download.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(job.getFile()));
+    }
+
+    private ExportJobService service(int threads, int queueCapacity, Duration retention) {
+        return service(threads, queueCapacity, retention, 5);
+    }
+
+    private ExportJobService service(int threads, int queueCapacity, Duration retention, int maxJobsPerUser) {
+        return new ExportJobService(exportService, new SimpleMeterRegistry(), directory.toString(), threads, queueCapacity,
+                retention, maxJobsPerUser);
+    }
+
+    private ExportJobDto awaitFinished(String jobId, String userId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ExportJobDto job = service.getJob(jobId, userId);
+        while (job.getStatus() != ExportJobStatus.COMPLETED && job.getStatus() != ExportJobStatus.FAILED) {
+            assertTrue(System.nanoTime() < deadline, "export job did not finish");
+            Thread.sleep(10);
+            job = service.getJob(jobId, userId);
+        }
+        return job;
+    }
+
+    private static ExportedFile exported(StreamingResponseBody content) {
+        return new ExportedFile(content, "file", "application/octet-stream");
+    }
+}
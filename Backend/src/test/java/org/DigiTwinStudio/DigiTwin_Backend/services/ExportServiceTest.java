@@ -8,9 +8,7 @@ import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
-import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
 
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
 import org.eclipse.digitaltwin.aas4j.v3.dataformat.core.SerializationException;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultEnvironment;
@@ -19,8 +17,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.*;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.core.io.ByteArrayResource;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
@@ -36,7 +39,8 @@ class ExportServiceTest {
     @Mock private AAS4jAdapter aas4jAdapter;
     @Mock private FileStorageService fileStorageService;
     @Mock private AASModelRepository aasModelRepository;
-    @Mock private MarketPlaceEntryRepository marketPlaceEntryRepository;
+    @Mock private SubmodelStorageService submodelStorageService;
+    @Mock private ExportCache exportCache;
 
     // InjectMocks automatically injects the above mocks into the service
     @InjectMocks
@@ -52,48 +56,49 @@ class ExportServiceTest {
                 .build();
     }
 
-    // ---------- exportAsJson tests ----------
+    // ---------- writeAsJson tests ----------
 
     @Test
-    void exportAsJson_returnsUtf8Bytes_onSuccess() throws Exception {
+    void writeAsJson_writesSerializedEnvironment() throws Exception {
         // Given: mock environment and JSON serialization
         AASModel m = model("m1", "u1");
         DefaultEnvironment env = new DefaultEnvironment();
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(env);
-        when(aas4jAdapter.serializeToJsonString(env)).thenReturn("{\"ok\":true}");
+        doAnswer(writes("{\"ok\":true}")).when(aas4jAdapter).serializeToJsonStream(eq(env), any());
 
         // When
-        byte[] out = service.exportAsJson(m);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeAsJson(m, out);
 
-        // Then: check returned bytes and verify calls
-        assertArrayEquals("{\"ok\":true}".getBytes(StandardCharsets.UTF_8), out);
+        // Then: check written bytes and verify calls
+        assertArrayEquals("{\"ok\":true}".getBytes(StandardCharsets.UTF_8), out.toByteArray());
         verify(aas4jAdapter).aasModelToDefaultEnvironment(m);
-        verify(aas4jAdapter).serializeToJsonString(env);
+        verify(aas4jAdapter).serializeToJsonStream(eq(env), any());
     }
 
     @Test
-    void exportAsJson_wrapsSerializationException() throws Exception {
+    void writeAsJson_wrapsSerializationException() throws Exception {
         // Given: serialization throws an exception
         AASModel m = model("m1", "u1");
         DefaultEnvironment env = new DefaultEnvironment();
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(env);
-        when(aas4jAdapter.serializeToJsonString(env)).thenThrow(new SerializationException("boom"));
+        doThrow(new SerializationException("boom")).when(aas4jAdapter).serializeToJsonStream(eq(env), any());
 
         // Expect: ExportException is thrown
-        assertThrows(ExportException.class, () -> service.exportAsJson(m));
+        assertThrows(ExportException.class, () -> service.writeAsJson(m, new ByteArrayOutputStream()));
     }
 
-    // ---------- exportAsAasx tests ----------
+    // ---------- writeAsAasx tests ----------
 
     @Test
-    void exportAsAasx_serializesEnvironmentAndFiles() throws Exception {
-        // Given: model, environment, and in-memory files
+    void writeAsAasx_serializesEnvironmentAndFiles() throws Exception {
+        // Given: model, environment, and attached files
         AASModel m = model("m1", "u1");
         DefaultEnvironment env = new DefaultEnvironment();
-        List<InMemoryFile> files = List.of(new InMemoryFile(new byte[]{1,2,3}, "/path/file1.bin"));
+        List<AasxAttachment> files = List.of(new AasxAttachment("/path/file1.bin", new ByteArrayResource(new byte[]{1,2,3})));
 
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(env);
-        when(fileStorageService.getInMemoryFilesByModelId("m1")).thenReturn(files);
+        when(fileStorageService.getAasxAttachmentsByModelId("m1")).thenReturn(files);
 
         // Stub the serializer to write test bytes into the output stream
         Mockito.doAnswer(inv -> {
@@ -103,144 +108,207 @@ class ExportServiceTest {
         }).when(aas4jAdapter).serializeToAASX(eq(env), eq(files), any());
 
         // When
-        byte[] out = service.exportAsAasx(m);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeAsAasx(m, out);
 
         // Then
-        assertArrayEquals(new byte[]{9,9,9}, out);
+        assertArrayEquals(new byte[]{9,9,9}, out.toByteArray());
         verify(aas4jAdapter).aasModelToDefaultEnvironment(m);
-        verify(fileStorageService).getInMemoryFilesByModelId("m1");
+        verify(fileStorageService).getAasxAttachmentsByModelId("m1");
         verify(aas4jAdapter).serializeToAASX(eq(env), eq(files), any());
     }
 
     @Test
-    void exportAsAasx_wrapsSerializationException() throws Exception {
+    void writeAsAasx_reportsEveryPackedFile() throws Exception {
+        AASModel m = model("m1", "u1");
+        DefaultEnvironment env = new DefaultEnvironment();
+        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(env);
+        when(fileStorageService.getAasxAttachmentsByModelId("m1")).thenReturn(List.of(
+                new AasxAttachment("/a.bin", new ByteArrayResource(new byte[]{1})),
+                new AasxAttachment("/b.bin", new ByteArrayResource(new byte[]{2}))));
+        // Stub the serializer to copy every file into the package like the adapter does
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(2);
+            for (AasxAttachment file : inv.<List<AasxAttachment>>getArgument(1)) {
+                try (var content = file.content().getInputStream()) {
+                    content.transferTo(out);
+                }
+            }
+            return null;
+        }).when(aas4jAdapter).serializeToAASX(eq(env), any(), any());
+        ExportProgress progress = mock(ExportProgress.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeAsAasx(m, out, progress);
+
+        assertArrayEquals(new byte[]{1, 2}, out.toByteArray());
+        verify(progress, times(2)).filePacked();
+    }
+
+    @Test
+    void writeAsAasx_wrapsSerializationException() throws Exception {
         // Given: serializer throws exception
         AASModel m = model("m1", "u1");
         DefaultEnvironment env = new DefaultEnvironment();
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(env);
-        when(fileStorageService.getInMemoryFilesByModelId("m1")).thenReturn(List.of());
+        when(fileStorageService.getAasxAttachmentsByModelId("m1")).thenReturn(List.of());
 
         doThrow(new SerializationException("fail"))
                 .when(aas4jAdapter).serializeToAASX(eq(env), any(), any());
 
         // Expect: ExportException
-        assertThrows(ExportException.class, () -> service.exportAsAasx(m));
+        assertThrows(ExportException.class, () -> service.writeAsAasx(m, new ByteArrayOutputStream()));
     }
 
-    // ---------- exportStoredModel tests ----------
-
-    @Test
-    void exportStoredModel_throwsNotFound_whenModelMissing() {
-        // Given: repository returns empty
-        when(aasModelRepository.findById("missing")).thenReturn(Optional.empty());
-
-        // Expect: NotFoundException
-        assertThrows(NotFoundException.class,
-                () -> service.exportStoredModel("missing", ExportFormat.JSON, "u1"));
-    }
+    // ---------- export() tests ----------
 
     @Test
-    void exportStoredModel_throwsForbidden_whenOwnerMismatch() {
-        // Given: model with different owner
-        AASModel m = model("m1", "other");
+    void export_buildsFilenameAndContentType_json() throws Exception {
+        // Given: JSON export of an uncached model
+        AASModel m = model("m1", "u1");
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(m));
         when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
+        doAnswer(rendersOnMiss()).when(exportCache).write(any(), any(), any());
+        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
+        doAnswer(writes("{}")).when(aas4jAdapter).serializeToJsonStream(any(), any());
+
+        // When
+        ExportedFile file = service.export("m1", "MyExport", ExportFormat.JSON, "u1");
 
-        // Expect: ForbiddenException
-        assertThrows(ForbiddenException.class,
-                () -> service.exportStoredModel("m1", ExportFormat.JSON, "u1"));
+        // Then: filename and content type should match format
+        assertEquals("MyExport.json", file.filename());
+        assertEquals("application/json", file.contentType());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), written(file));
     }
 
     @Test
-    void exportStoredModel_delegatesToJson() throws SerializationException {
-        // Given: model belongs to the user
+    void export_buildsFilenameAndContentType_aasx() throws Exception {
+        // Given: AASX export of an uncached model
         AASModel m = model("m1", "u1");
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(m));
         when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
+        doAnswer(rendersOnMiss()).when(exportCache).write(any(), any(), any());
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(aas4jAdapter.serializeToJsonString(any())).thenReturn("{ }");
+        when(fileStorageService.getAasxAttachmentsByModelId("m1")).thenReturn(List.of());
+        doAnswer(inv -> { ((ByteArrayOutputStream)inv.getArgument(2)).write(7); return null; })
+                .when(aas4jAdapter).serializeToAASX(any(), any(), any());
 
         // When
-        byte[] out = service.exportStoredModel("m1", ExportFormat.JSON, "u1");
+        ExportedFile file = service.export("m1", "MyExport", ExportFormat.AASX, "u1");
 
-        // Then
-        assertNotNull(out);
-        verify(aasModelRepository).findById("m1");
-        verify(aas4jAdapter).serializeToJsonString(any());
+        // Then: the package is only written while the content is streamed
+        verify(aas4jAdapter, never()).serializeToAASX(any(), any(), any());
+        assertEquals("MyExport.aasx", file.filename());
+        assertEquals("application/asset-administration-shell-package", file.contentType());
+        assertArrayEquals(new byte[]{7}, written(file));
     }
 
     @Test
-    void exportStoredModel_delegatesToAasx() throws Exception {
-        // Given: AASX format requested
-        AASModel m = model("m1", "u1");
-        when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
-        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(fileStorageService.getInMemoryFilesByModelId("m1")).thenReturn(List.of());
+    void export_checksOwner_beforeStreaming() {
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(model("m1", "other")));
+
+        assertThrows(ForbiddenException.class, () -> service.export("m1", "MyExport", ExportFormat.AASX, "u1"));
+        verifyNoInteractions(aas4jAdapter, fileStorageService, exportCache);
+    }
+
+    @Test
+    void export_throwsNotFound_whenModelMissing() {
+        when(aasModelRepository.findVersionById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.export("missing", "MyExport", ExportFormat.JSON, "u1"));
+        verifyNoInteractions(exportCache);
+    }
+
+    @Test
+    void export_servesCachedFile_withoutLoadingModel() throws Exception {
+        AASModel header = model("m1", "u1");
+        header.setVersion(4);
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(header));
         doAnswer(inv -> {
-            ByteArrayOutputStream baos = inv.getArgument(2);
-            baos.write(1);
+            inv.getArgument(1, OutputStream.class).write(9);
             return null;
-        }).when(aas4jAdapter).serializeToAASX(any(), any(), any());
+        }).when(exportCache).write(any(), any(), any());
 
-        // When
-        byte[] out = service.exportStoredModel("m1", ExportFormat.AASX, "u1");
+        ExportedFile file = service.export("m1", "MyExport", ExportFormat.AASX, "u1");
 
-        // Then
-        assertArrayEquals(new byte[]{1}, out);
+        assertArrayEquals(new byte[]{9}, written(file));
+        verify(exportCache).write(eq(new ExportCache.Key("m1", 4, ExportFormat.AASX)), any(), any());
+        verify(aasModelRepository, never()).findById(any());
+        verifyNoInteractions(aas4jAdapter, submodelStorageService);
     }
 
-    // ---------- export() tests ----------
-
     @Test
-    void export_buildsFilenameAndContentType_json() throws SerializationException {
-        // Given: JSON export
+    void export_writesJson_onlyWhileStreaming() throws Exception {
         AASModel m = model("m1", "u1");
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(m));
         when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
+        doAnswer(rendersOnMiss()).when(exportCache).write(any(), any(), any());
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(aas4jAdapter.serializeToJsonString(any())).thenReturn("{}");
+        doAnswer(writes("{}")).when(aas4jAdapter).serializeToJsonStream(any(), any());
 
-        // When
         ExportedFile file = service.export("m1", "MyExport", ExportFormat.JSON, "u1");
 
-        // Then: filename and content type should match format
-        assertEquals("MyExport.json", file.filename());
-        assertEquals("application/json", file.contentType());
-        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), file.bytes());
+        verify(aas4jAdapter, never()).serializeToJsonStream(any(), any());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), written(file));
     }
 
     @Test
-    void export_buildsFilenameAndContentType_aasx() throws Exception {
-        // Given: AASX export
-        AASModel m = model("m1", "u1");
-        when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
-        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(fileStorageService.getInMemoryFilesByModelId("m1")).thenReturn(List.of());
-        doAnswer(inv -> { ((ByteArrayOutputStream)inv.getArgument(2)).write(7); return null; })
-                .when(aas4jAdapter).serializeToAASX(any(), any(), any());
+    void export_reportsVersionOfLoadedModel_whenSavedAfterTheKeyWasBuilt() throws Exception {
+        AASModel header = model("m1", "u1");
+        header.setVersion(4);
+        AASModel saved = model("m1", "u1");
+        saved.setVersion(5);
+        when(aasModelRepository.findVersionById("m1")).thenReturn(Optional.of(header));
+        when(aasModelRepository.findById("m1")).thenReturn(Optional.of(saved));
+        when(aas4jAdapter.aasModelToDefaultEnvironment(saved)).thenReturn(new DefaultEnvironment());
+        ArgumentCaptor<ExportCache.Renderer> renderer = ArgumentCaptor.forClass(ExportCache.Renderer.class);
+
+        written(service.export("m1", "MyExport", ExportFormat.JSON, "u1"));
+
+        verify(exportCache).write(eq(new ExportCache.Key("m1", 4, ExportFormat.JSON)), any(), renderer.capture());
+        // the cache keeps the file under the version it contains
+        assertEquals(5, renderer.getValue().render(new ByteArrayOutputStream()));
+    }
 
-        // When
-        ExportedFile file = service.export("m1", "MyExport", ExportFormat.AASX, "u1");
+    // stubs a serializer writing the given JSON to the stream it gets
+    private static Answer<Void> writes(String json) {
+        return inv -> {
+            inv.getArgument(1, OutputStream.class).write(json.getBytes(StandardCharsets.UTF_8));
+            return null;
+        };
+    }
 
-        // Then
-        assertEquals("MyExport.aasx", file.filename());
-        assertEquals("application/asset-administration-shell-package", file.contentType());
-        assertArrayEquals(new byte[]{7}, file.bytes());
+    // stubs a cache miss: the export is rendered directly to the client
+    private static Answer<Void> rendersOnMiss() {
+        return inv -> {
+            inv.getArgument(2, ExportCache.Renderer.class).render(inv.getArgument(1, OutputStream.class));
+            return null;
+        };
+    }
+
+    private static byte[] written(ExportedFile file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        file.content().writeTo(out);
+        return out.toByteArray();
     }
 
     // ---------- exportTransientModel tests ----------
 
     @Test
-    void exportTransientModel_json_usesMapperAndDelegates() throws SerializationException {
+    void exportTransientModel_json_usesMapperAndDelegates() throws Exception {
         // Given: transient JSON export for guest
         AASModelDto dto = new AASModelDto();
         AASModel m = model("tmp", "GUEST");
         when(aasModelMapper.fromDto(dto, "GUEST")).thenReturn(m);
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(aas4jAdapter.serializeToJsonString(any())).thenReturn("{\"guest\":true}");
+        doAnswer(writes("{\"guest\":true}")).when(aas4jAdapter).serializeToJsonStream(any(), any());
 
         // When
-        byte[] out = service.exportTransientModel(dto, ExportFormat.JSON);
+        ExportedFile file = service.exportTransientModel(dto, "GuestExport", ExportFormat.JSON);
 
         // Then
-        assertArrayEquals("{\"guest\":true}".getBytes(StandardCharsets.UTF_8), out);
+        assertEquals("GuestExport.json", file.filename());
+        assertArrayEquals("{\"guest\":true}".getBytes(StandardCharsets.UTF_8), written(file));
         verify(aasModelMapper).fromDto(dto, "GUEST");
     }
 
@@ -251,75 +319,17 @@ class ExportServiceTest {
         AASModel m = model("tmp", "GUEST");
         when(aasModelMapper.fromDto(dto, "GUEST")).thenReturn(m);
         when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(fileStorageService.getInMemoryFilesByModelId("tmp")).thenReturn(List.of());
+        when(fileStorageService.getAasxAttachmentsByModelId("tmp")).thenReturn(List.of());
         doAnswer(inv -> { ((ByteArrayOutputStream)inv.getArgument(2)).write(3); return null; })
                 .when(aas4jAdapter).serializeToAASX(any(), any(), any());
 
         // When
-        byte[] out = service.exportTransientModel(dto, ExportFormat.AASX);
+        ExportedFile file = service.exportTransientModel(dto, "GuestExport", ExportFormat.AASX);
 
-        // Then
-        assertArrayEquals(new byte[]{3}, out);
+        // Then: the package is only written while the content is streamed
+        verify(aas4jAdapter, never()).serializeToAASX(any(), any(), any());
+        assertEquals("GuestExport.aasx", file.filename());
+        assertArrayEquals(new byte[]{3}, written(file));
         verify(aasModelMapper).fromDto(dto, "GUEST");
     }
-
-    // ---------- exportMarketplaceModel tests ----------
-
-    @Test
-    void exportMarketplaceModel_json_happy() throws SerializationException {
-        // Given: marketplace entry references an existing model
-        MarketplaceEntry entry = MarketplaceEntry.builder().id("m1").build();
-        AASModel m = model("m1", "owner");
-        when(marketPlaceEntryRepository.findById("e1")).thenReturn(Optional.of(entry));
-        when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
-        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(aas4jAdapter.serializeToJsonString(any())).thenReturn("{}");
-
-        // When
-        byte[] out = service.exportMarketplaceModel("e1", ExportFormat.JSON);
-
-        // Then
-        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), out);
-    }
-
-    @Test
-    void exportMarketplaceModel_aasx_happy() throws Exception {
-        // Given: marketplace entry references a model, AASX export
-        MarketplaceEntry entry = MarketplaceEntry.builder().id("m1").build();
-        AASModel m = model("m1", "owner");
-        when(marketPlaceEntryRepository.findById("e1")).thenReturn(Optional.of(entry));
-        when(aasModelRepository.findById("m1")).thenReturn(Optional.of(m));
-        when(aas4jAdapter.aasModelToDefaultEnvironment(m)).thenReturn(new DefaultEnvironment());
-        when(fileStorageService.getInMemoryFilesByModelId("m1")).thenReturn(List.of());
-        doAnswer(inv -> { ((ByteArrayOutputStream)inv.getArgument(2)).write(5); return null; })
-                .when(aas4jAdapter).serializeToAASX(any(), any(), any());
-
-        // When
-        byte[] out = service.exportMarketplaceModel("e1", ExportFormat.AASX);
-
-        // Then
-        assertArrayEquals(new byte[]{5}, out);
-    }
-
-    @Test
-    void exportMarketplaceModel_throwsWhenEntryMissing() {
-        // Given: entry not found
-        when(marketPlaceEntryRepository.findById("e1")).thenReturn(Optional.empty());
-
-        // Expect: NotFoundException
-        assertThrows(NotFoundException.class,
-                () -> service.exportMarketplaceModel("e1", ExportFormat.JSON));
-    }
-
-    @Test
-    void exportMarketplaceModel_throwsWhenModelMissing() {
-        // Given: entry found, but model not found
-        MarketplaceEntry entry = MarketplaceEntry.builder().id("m1").build();
-        when(marketPlaceEntryRepository.findById("e1")).thenReturn(Optional.of(entry));
-        when(aasModelRepository.findById("m1")).thenReturn(Optional.empty());
-
-        // Expect: NotFoundException
-        assertThrows(NotFoundException.class,
-                () -> service.exportMarketplaceModel("e1", ExportFormat.AASX));
-    }
 }
@@ -1,14 +1,17 @@
 package org.DigiTwinStudio.DigiTwin_Backend.services;
 
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSUploadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AasxAttachment;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SnapshotArtifact;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.UploadedFile;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.FileStorageException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
 
-import org.eclipse.digitaltwin.aas4j.v3.dataformat.aasx.InMemoryFile;
-
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -38,6 +41,8 @@ class FileStorageServiceTest {
 
     @Mock private UploadedFileRepository uploadedFileRepository;
     @Mock private GridFsTemplate gridFsTemplate;
+    @Mock private GridFSBucket gridFsBucket;
+    @Mock private ExportCache exportCache;
 
     @InjectMocks
     private FileStorageService service;
@@ -86,6 +91,8 @@ class FileStorageServiceTest {
         assertEquals(42L, toSave.getSize());
         assertEquals("u1", toSave.getOwnerId());
         assertEquals(gridId.toHexString(), toSave.getStoragePath());
+        // the AASX package of the model now contains the file
+        verify(exportCache).invalidateModel("m1");
     }
 
     @Test
@@ -105,6 +112,7 @@ class FileStorageServiceTest {
         // Given metadata exists and the caller is owner
         UploadedFile meta = UploadedFile.builder()
                 .id("fid")
+                .modelId("m1")
                 .ownerId("u1")
                 .storagePath(new ObjectId().toHexString())
                 .build();
@@ -112,6 +120,7 @@ class FileStorageServiceTest {
 
         // When
         service.delete("fid", "u1");
+        verify(exportCache).invalidateModel("m1");
 
         // Then: one delete in GridFS and one in collection
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
@@ -120,6 +129,23 @@ class FileStorageServiceTest {
         assertNotNull(queryCaptor.getValue()); // basic sanity check on query
     }
 
+    @Test
+    void delete_keepsSharedFile_andOnlyReleasesReference() {
+        UploadedFile meta = UploadedFile.builder()
+                .id("fid")
+                .ownerId("u1")
+                .storagePath(new ObjectId().toHexString())
+                .sharedRefs(1)
+                .build();
+        when(uploadedFileRepository.findById("fid")).thenReturn(Optional.of(meta));
+        when(uploadedFileRepository.releaseSharedReference("fid")).thenReturn(true);
+
+        service.delete("fid", "u1");
+
+        verify(gridFsTemplate, never()).delete(any());
+        verify(uploadedFileRepository, never()).deleteById(anyString());
+    }
+
     @Test
     void delete_throws_whenOwnerMismatch() {
         UploadedFile meta = UploadedFile.builder()
@@ -148,10 +174,10 @@ class FileStorageServiceTest {
         assertThrows(FileStorageException.class, () -> service.delete("fid", "u1"));
     }
 
-    // ---------- getInMemoryFilesByModelId() ----------
+    // ---------- getAasxAttachmentsByModelId() ----------
 
     @Test
-    void getInMemoryFilesByModelId_loadsFiles_fromGridFs() throws Exception {
+    void getAasxAttachmentsByModelId_streamsFiles_fromGridFs() throws Exception {
         // Two metadata rows for the model
         UploadedFile f1 = uf("m1", "file1.pdf", new ObjectId().toHexString());
         UploadedFile f2 = uf("m1", "file2.png", new ObjectId().toHexString());
@@ -166,24 +192,24 @@ class FileStorageServiceTest {
         when(gridFsTemplate.findOne(argThat(q -> q != null))).thenReturn(g1, g2);
         when(gridFsTemplate.getResource(g1)).thenReturn(r1);
         when(gridFsTemplate.getResource(g2)).thenReturn(r2);
-        when(r1.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{1,2}));
-        when(r2.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{3}));
 
         // When
-        List<InMemoryFile> out = service.getInMemoryFilesByModelId("m1");
+        List<AasxAttachment> out = service.getAasxAttachmentsByModelId("m1");
 
         // Then
         assertEquals(2, out.size());
         // path is prefixed with "aasx/"
-        assertTrue(out.get(0).getPath().startsWith("aasx/"));
-        assertTrue(out.get(1).getPath().startsWith("aasx/"));
-        // contents match
-        assertArrayEquals(new byte[]{1,2}, out.get(0).getFileContent());
-        assertArrayEquals(new byte[]{3}, out.get(1).getFileContent());
+        assertEquals("aasx/file1.pdf", out.get(0).path());
+        assertEquals("aasx/file2.png", out.get(1).path());
+        // contents are the GridFS resources, not read yet
+        assertSame(r1, out.get(0).content());
+        assertSame(r2, out.get(1).content());
+        verify(r1, never()).getInputStream();
+        verify(r2, never()).getInputStream();
     }
 
     @Test
-    void getInMemoryFilesByModelId_skipsMissingGridFsFile() throws Exception {
+    void getAasxAttachmentsByModelId_skipsMissingGridFsFile() {
         UploadedFile f1 = uf("m1", "a.txt", new ObjectId().toHexString());
         when(uploadedFileRepository.findAllByModelId("m1")).thenReturn(List.of(f1));
 
@@ -191,22 +217,16 @@ class FileStorageServiceTest {
         when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null);
 
         // Should not throw; just skip missing one → returns empty list
-        List<InMemoryFile> out = service.getInMemoryFilesByModelId("m1");
+        List<AasxAttachment> out = service.getAasxAttachmentsByModelId("m1");
         assertTrue(out.isEmpty());
     }
 
     @Test
-    void getInMemoryFilesByModelId_wrapsIOExceptions() throws Exception {
-        UploadedFile f1 = uf("m1", "a.txt", new ObjectId().toHexString());
+    void getAasxAttachmentsByModelId_rejectsInvalidStoragePath() {
+        UploadedFile f1 = uf("m1", "a.txt", "not-an-object-id");
         when(uploadedFileRepository.findAllByModelId("m1")).thenReturn(List.of(f1));
 
-        GridFSFile g1 = mock(GridFSFile.class);
-        GridFsResource r1 = mock(GridFsResource.class);
-        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(g1);
-        when(gridFsTemplate.getResource(g1)).thenReturn(r1);
-        when(r1.getInputStream()).thenThrow(new java.io.IOException("boom"));
-
-        assertThrows(RuntimeException.class, () -> service.getInMemoryFilesByModelId("m1"));
+        assertThrows(RuntimeException.class, () -> service.getAasxAttachmentsByModelId("m1"));
     }
 
     // ---------- getFileContentsByModelId() ----------
@@ -308,6 +328,50 @@ class FileStorageServiceTest {
         assertThrows(FileStorageException.class, () -> service.exists("fid"));
     }
 
+    // ---------- artifacts ----------
+
+    @Test
+    void storeArtifact_streamsContent_andReturnsSizeAndDigest() {
+        ObjectId gridId = new ObjectId();
+        GridFSUploadStream upload = mock(GridFSUploadStream.class);
+        when(gridFsBucket.openUploadStream(eq("e1:2.json"), any(GridFSUploadOptions.class))).thenReturn(upload);
+        when(upload.getObjectId()).thenReturn(gridId);
+
+        SnapshotArtifact artifact = service.storeArtifact(out -> {
+            out.write("ab".getBytes());
+            out.write('c');
+        }, "e1:2.json", "application/json");
+
+        assertEquals(gridId.toHexString(), artifact.getStoragePath());
+        assertEquals(3, artifact.getSize());
+        assertEquals("application/json", artifact.getContentType());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", artifact.getSha256());
+        verify(upload).close();
+        verify(upload, never()).abort();
+        verifyNoInteractions(uploadedFileRepository, gridFsTemplate);
+    }
+
+    @Test
+    void storeArtifact_abortsUpload_whenWritingFails() {
+        GridFSUploadStream upload = mock(GridFSUploadStream.class);
+        when(gridFsBucket.openUploadStream(eq("e1:2.aasx"), any(GridFSUploadOptions.class))).thenReturn(upload);
+
+        assertThrows(FileStorageException.class, () -> service.storeArtifact(out -> {
+            out.write(1);
+            throw new IOException("broken");
+        }, "e1:2.aasx", "application/asset-administration-shell-package"));
+
+        verify(upload).abort();
+        verify(upload, never()).close();
+    }
+
+    @Test
+    void loadArtifact_throwsNotFound_whenGridFsFileMissing() {
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> service.loadArtifact(new ObjectId().toHexString()));
+    }
+
     // ---------- helper ----------
 
     private static UploadedFile uf(String modelId, String filename, String storagePath) {
@@ -29,6 +29,8 @@ class GuestCleanupServiceTest {
     // Mock repositories
     @Mock private AASModelRepository aasModelRepository;
     @Mock private UploadedFileRepository uploadedFileRepository;
+    @Mock private SubmodelStorageService submodelStorageService;
+    @Mock private ExportCache exportCache;
 
     // Service under test
     @InjectMocks
@@ -66,6 +68,8 @@ class GuestCleanupServiceTest {
         verify(uploadedFileRepository).deleteById("file-1");
         verify(uploadedFileRepository).deleteById("file-2");
         verify(aasModelRepository).deleteById("m1");
+        verify(submodelStorageService).deleteSubmodels("m1");
+        verify(exportCache).invalidateModel("m1");
     }
 
     // --- 3) Null/empty submodels: only delete the model ---
@@ -3,24 +3,37 @@ package org.DigiTwinStudio.DigiTwin_Backend.services;
 import org.DigiTwinStudio.DigiTwin_Backend.domain.*;
 import org.DigiTwinStudio.DigiTwin_Backend.dtos.*;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ExportException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ForbiddenException;
 import org.DigiTwinStudio.DigiTwin_Backend.exceptions.NotFoundException;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.AASModelMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.mapper.MarketplaceMapper;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepositoryCustom;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
 import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.SubmodelElement;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.*;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -35,7 +48,15 @@ class MarketPlaceServiceTest {
     @Mock private TagRepository tagRepo;
     @Mock private MarketplaceMapper marketplaceMapper;
     @Mock private AASModelMapper aasModelMapper;
-    @Mock private MongoTemplate mongoTemplate;
+    @Mock private SubmodelStorageService submodelStorageService;
+    @Mock private PublishedSnapshotRepository snapshotRepo;
+    @Mock private UploadedFileRepository fileRepo;
+    @Mock private DownloadCountBuffer downloadCountBuffer;
+    @Mock private MarketplaceSearchIndex searchIndex;
+    @Mock private MarketplaceSuggestions suggestions;
+    @Mock private ExportService exportService;
+    @Mock private FileStorageService fileStorageService;
+    @Spy private MarketplaceCache marketplaceCache = new MarketplaceCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
 
     @InjectMocks
     private MarketPlaceService service;
@@ -82,28 +103,50 @@ class MarketPlaceServiceTest {
 
     // --- Publish ---
     @Test
-    void publish_shouldUpdateModelAndSaveMarketplaceEntry() {
+    void publish_shouldStorePublicationAndOutboxEventInOneWrite() {
         when(tagRepo.findByIdIn(List.of(tagId))).thenReturn(List.of(tag)); // valid tag exists
-        when(entryRepo.save(any())).thenReturn(null); // return value not important here
+        when(modelRepo.publishWithEvent(eq(modelId), eq(0L), any(), any(), any())).thenReturn(true);
 
         service.publish(publishRequest, model);
 
-        // Verify model saved with published = true and correct metadata
-        verify(modelRepo).save(argThat(savedModel ->
-                savedModel.isPublished() &&
-                        savedModel.getPublishMetadata() != null &&
-                        authorId.equals(savedModel.getPublishMetadata().getAuthor())
-        ));
+        // Verify the model is published together with the event carrying its metadata
+        ArgumentCaptor<PublishMetadata> metadata = ArgumentCaptor.forClass(PublishMetadata.class);
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(modelRepo).publishWithEvent(eq(modelId), eq(0L), metadata.capture(), event.capture(), any());
+        assertEquals(authorId, metadata.getValue().getAuthor());
+        assertEquals(OutboxEventType.PUBLISHED, event.getValue().getType());
+        assertSame(metadata.getValue(), event.getValue().getPublishMetadata());
+        assertEquals("TestModel", event.getValue().getName());
+        assertNotNull(event.getValue().getNextAttemptAt());
+        assertTrue(model.isPublished());
+        assertEquals(1L, model.getVersion());
+
+        // the published content is kept under the published version before the model is marked as published
+        assertEquals(1L, metadata.getValue().getModelVersion());
+        ArgumentCaptor<PublishedSnapshot> snapshot = ArgumentCaptor.forClass(PublishedSnapshot.class);
+        InOrder order = inOrder(snapshotRepo, fileRepo, modelRepo);
+        order.verify(snapshotRepo).insert(snapshot.capture());
+        order.verify(fileRepo).acquireSharedReferences(Set.of());
+        order.verify(modelRepo).publishWithEvent(eq(modelId), eq(0L), any(), any(), any());
+        assertEquals(modelId + ":1", snapshot.getValue().getId());
+        assertEquals(1L, snapshot.getValue().getModelVersion());
+        assertEquals(model.getSubmodels(), snapshot.getValue().getSubmodels());
+        assertEquals(1, snapshot.getValue().getSubmodelCount());
+
+        // marketplace entry, tags and search index are left to the outbox dispatcher
+        verify(modelRepo, never()).save(any());
+        verifyNoInteractions(entryRepo, searchIndex, suggestions);
+        verify(tagRepo, never()).incrementUsageCounts(any());
+    }
 
-        // Verify marketplace entry is saved
-        verify(entryRepo).save(any(MarketplaceEntry.class));
+    @Test
+    void publish_shouldThrowConflictWhenModelChangedConcurrently() {
+        when(tagRepo.findByIdIn(List.of(tagId))).thenReturn(List.of(tag));
+        when(modelRepo.publishWithEvent(eq(modelId), eq(0L), any(), any(), any())).thenReturn(false);
 
-        // Verify tag usageCount incremented and tags saved
-        verify(tagRepo).saveAll(argThat(tags -> {
-            List<Tag> tagList = new ArrayList<>();
-            tags.forEach(tagList::add);
-            return tagList.size() == 1 && tagList.getFirst().getUsageCount() == 1;
-        }));
+        assertThrows(ConflictException.class, () -> service.publish(publishRequest, model));
+        assertFalse(model.isPublished());
+        assertEquals(0L, model.getVersion());
     }
 
     @Test
@@ -129,28 +172,20 @@ class MarketPlaceServiceTest {
 
     // --- Unpublish ---
     @Test
-    void unpublish_shouldResetMetadataAndDeleteEntry() {
+    void unpublish_shouldResetMetadataAndStoreOutboxEvent() {
         // --- Arrange ---
 
         // Simulate a model that is already published, including full PublishMetadata
         model.setPublished(true);
-        model.setPublishMetadata(PublishMetadata.builder()
+        model.setVersion(3);
+        PublishMetadata metadata = PublishMetadata.builder()
                 .author("someAuthor")
                 .shortDescription("Test description")
                 .tagIds(List.of(tagId))
                 .publishedAt(LocalDateTime.now())
-                .build()
-        );
-
-        // Assume the tag already has a usage count of 5
-        tag.setUsageCount(5);
-
-        // Mock the repository to return the tag when looked up
-        when(tagRepo.findByIdIn(List.of(tagId))).thenReturn(List.of(tag));
-
-        // Mock the repository to return a MarketplaceEntry for the given model ID
-        MarketplaceEntry entry = MarketplaceEntry.builder().id(modelId).build();
-        when(entryRepo.findById(modelId)).thenReturn(Optional.of(entry));
+                .build();
+        model.setPublishMetadata(metadata);
+        when(modelRepo.unpublishWithEvent(eq(modelId), eq(3L), any(), any())).thenReturn(true);
 
         // --- Act ---
 
@@ -158,21 +193,18 @@ class MarketPlaceServiceTest {
 
         // --- Assert ---
 
-        // Verify that the model was saved with "unpublished" status and metadata removed
-        verify(modelRepo).save(argThat(m ->
-                !m.isPublished() &&
-                        m.getPublishMetadata() == null
-        ));
-
-        // Verify that the corresponding marketplace entry was deleted
-        verify(entryRepo).delete(entry);
-
-        // Verify that the tag's usage count was decremented and saved
-        verify(tagRepo).saveAll(argThat(tags -> {
-            List<Tag> tagList = new ArrayList<>();
-            tags.forEach(tagList::add);
-            return tagList.size() == 1 && tagList.getFirst().getUsageCount() == 4;
-        }));
+        // Verify that the event keeps the withdrawn metadata, so the dispatcher can uncount the tags
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(modelRepo).unpublishWithEvent(eq(modelId), eq(3L), event.capture(), any());
+        assertEquals(OutboxEventType.UNPUBLISHED, event.getValue().getType());
+        assertSame(metadata, event.getValue().getPublishMetadata());
+        assertFalse(model.isPublished());
+        assertNull(model.getPublishMetadata());
+        assertEquals(4L, model.getVersion());
+
+        // marketplace entry and tags are left to the outbox dispatcher
+        verify(modelRepo, never()).save(any());
+        verifyNoInteractions(entryRepo, tagRepo, searchIndex);
     }
 
     @Test
@@ -204,51 +236,36 @@ class MarketPlaceServiceTest {
     }
 
     @Test
-    void unpublish_shouldThrowWhenMarketplaceEntryIsMissing() {
-        // --- Arrange ---
-
-        // The model is published (required to trigger marketplace entry lookup)
+    void unpublish_shouldThrowConflictWhenModelChangedConcurrently() {
         model.setPublished(true);
-        model.setOwnerId(userId); // Ensure user is the owner to bypass ownership check
-
-        // Simulate the marketplace entry being absent
-        when(entryRepo.findById(modelId)).thenReturn(Optional.empty());
+        when(modelRepo.unpublishWithEvent(eq(modelId), eq(0L), any(), any())).thenReturn(false);
 
-        // --- Act & Assert ---
-
-        // Expect a NotFoundException because the model has no marketplace entry
-        assertThrows(NotFoundException.class, () ->
-                service.unpublish(userId, model)
-        );
+        assertThrows(ConflictException.class, () -> service.unpublish(userId, model));
+        assertTrue(model.isPublished());
     }
 
     @Test
-    void unpublish_shouldNotDecrementUsageBelowZero() {
-        // --- Arrange ---
-        model.setPublished(true);
-        model.setOwnerId(userId);
-        model.setPublishMetadata(PublishMetadata.builder()
-                .tagIds(List.of(tagId))
-                .author("author")
-                .shortDescription("desc")
-                .publishedAt(LocalDateTime.now())
-                .build());
+    void reconcileTagUsage_shouldInvalidateTagCache_whenCountsWereCorrected() {
+        when(tagRepo.findAll()).thenReturn(List.of(tag));
+        when(tagRepo.reconcileUsageCounts()).thenReturn(2L);
+        service.getAllTags();
 
-        tag.setUsageCount(0); // Already at 0
-        when(tagRepo.findByIdIn(List.of(tagId))).thenReturn(List.of(tag));
+        service.reconcileTagUsage();
+        service.getAllTags();
 
-        MarketplaceEntry entry = MarketplaceEntry.builder().id(modelId).build();
-        when(entryRepo.findById(modelId)).thenReturn(Optional.of(entry));
+        verify(tagRepo, times(2)).findAll();
+    }
 
-        // --- Act ---
-        service.unpublish(userId, model);
+    @Test
+    void reconcileTagUsage_shouldKeepCache_whenCountsWereCorrect() {
+        when(tagRepo.findAll()).thenReturn(List.of(tag));
+        when(tagRepo.reconcileUsageCounts()).thenReturn(0L);
+        service.getAllTags();
 
-        // --- Assert ---
-        verify(tagRepo).saveAll(argThat(tags -> {
-            List<Tag> tagList = new ArrayList<>();
-            tags.forEach(tagList::add);
-            return tagList.size() == 1 && tagList.getFirst().getUsageCount() == 0;
-        }));
+        service.reconcileTagUsage();
+        service.getAllTags();
+
+        verify(tagRepo, times(1)).findAll();
     }
 
     // --- List All Entries ---
@@ -263,43 +280,91 @@ class MarketPlaceServiceTest {
         MarketplaceEntryDto dto = new MarketplaceEntryDto();
 
         // Mock repository and mapper behavior
-        when(entryRepo.findAll()).thenReturn(List.of(entry));
+        when(entryRepo.findNewestPage(null, null, null, null, 21)).thenReturn(List.of(entry));
         when(marketplaceMapper.toDto(entry)).thenReturn(dto);
 
         // --- Act ---
 
-        List<MarketplaceEntryDto> result = service.listAllEntries();
+        CursorPageDto<MarketplaceEntryDto> result = service.listAllEntries(null, 20);
 
         // --- Assert ---
 
-        // Ensure one DTO is returned
-        assertEquals(1, result.size());
+        // Ensure one DTO is returned and no further page follows
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
 
         // Verify that mapping occurred as expected
         verify(marketplaceMapper).toDto(entry);
     }
 
+    @Test
+    void listAllEntries_shouldReturnCursor_andContinueAfterLastEntry() {
+        LocalDateTime publishedAt = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 123_000_000);
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e3").publishedAt(publishedAt.plusDays(1)).build();
+        MarketplaceEntry second = MarketplaceEntry.builder().id("e2").publishedAt(publishedAt).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").publishedAt(publishedAt).build();
+        when(entryRepo.findNewestPage(null, null, null, null, 3)).thenReturn(List.of(first, second, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+
+        CursorPageDto<MarketplaceEntryDto> page = service.listAllEntries(null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+
+        when(entryRepo.findNewestPage(null, null, publishedAt, "e2", 3)).thenReturn(List.of(extra));
+        CursorPageDto<MarketplaceEntryDto> next = service.listAllEntries(page.getNextCursor(), 2);
+
+        assertEquals(1, next.getItems().size());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void listAllEntries_shouldCapPageSize() {
+        when(entryRepo.findNewestPage(any(), any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        service.listAllEntries(null, 10_000);
+
+        verify(entryRepo).findNewestPage(null, null, null, null, MarketPlaceService.MAX_ENTRY_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void listAllEntries_shouldRejectMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> service.listAllEntries("not-a-cursor", 20));
+        verifyNoInteractions(entryRepo);
+    }
+
     // --- Get Published Model ---
     @Test
-    void getPublishedModel_shouldReturnDto() {
+    void getPublishedModel_shouldReturnPublishedSnapshot_notTheEditedModel() {
         // --- Arrange ---
 
-        // Simulate the repository returning a model for the given ID
+        // Version 3 was published, the owner has edited the model since
         model.setPublished(true);
-        when(modelRepo.findById("entryId")).thenReturn(Optional.of(model));
-
-        // Simulate the mapping of the model to its corresponding DTO
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().author(authorId).modelVersion(3L).build());
+        DefaultSubmodel published = new DefaultSubmodel.Builder().id("published-submodel").build();
+        PublishedSnapshot header = PublishedSnapshot.builder().id(modelId + ":3").build();
+        PublishedSnapshot content = PublishedSnapshot.builder().id(modelId + ":3").entryId(modelId).modelVersion(3)
+                .aas(model.getAas()).submodels(List.of(published)).createdAt(LocalDateTime.now()).build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":3")).thenReturn(Optional.of(header));
+        when(snapshotRepo.findById(modelId + ":3")).thenReturn(Optional.of(content));
+
+        // Simulate the mapping of the snapshot content to its corresponding DTO
         AASModelDto dto = new AASModelDto();
-        when(aasModelMapper.toDto(model)).thenReturn(dto);
+        when(aasModelMapper.toDto(argThat(m -> m.getVersion() == 3 && m.getSubmodels().equals(List.of(published))
+                && m.getPublishMetadata() == model.getPublishMetadata()))).thenReturn(dto);
 
         // --- Act ---
 
-        AASModelDto result = service.getPublishedModel("entryId");
+        AASModelDto result = service.getPublishedModel(modelId);
 
         // --- Assert ---
 
-        // Ensure the result is the expected DTO
+        // Ensure the result is the expected DTO and the edited model was not loaded
         assertEquals(dto, result);
+        verify(modelRepo, never()).findById(any());
+        verifyNoInteractions(submodelStorageService);
     }
 
     @Test
@@ -307,7 +372,7 @@ class MarketPlaceServiceTest {
         // --- Arrange ---
 
         // Simulate that no model exists for the given ID
-        when(modelRepo.findById("entryId")).thenReturn(Optional.empty());
+        when(modelRepo.findHeaderById("entryId")).thenReturn(Optional.empty());
 
         // --- Act & Assert ---
 
@@ -321,7 +386,7 @@ class MarketPlaceServiceTest {
     void getPublishedModel_shouldThrowIfModelNotPublished() {
         // --- Arrange ---
         model.setPublished(false); // Model exists but is not published
-        when(modelRepo.findById("entryId")).thenReturn(Optional.of(model));
+        when(modelRepo.findHeaderById("entryId")).thenReturn(Optional.of(model));
 
         // --- Act & Assert ---
         // Expect a BadRequestException because only published models are allowed
@@ -330,46 +395,278 @@ class MarketPlaceServiceTest {
         );
     }
 
-    // --- Increment Download Count ---
     @Test
-    void incrementDownloadCount_shouldIncreaseAndSave() {
-        // --- Arrange ---
+    void getPublishedVersion_shouldReturnPublishedVersion() {
+        model.setPublished(true);
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().modelVersion(3L).build());
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+
+        assertEquals(3L, service.getPublishedVersion(modelId));
+    }
+
+    // --- Published Snapshots ---
+    @Test
+    void getOrCreateSnapshot_shouldReturnSnapshotOfPublishedVersion() {
+        model.setPublished(true);
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().modelVersion(3L).build());
+        PublishedSnapshot existing = PublishedSnapshot.builder().id(modelId + ":3").build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":3")).thenReturn(Optional.of(existing));
+
+        assertSame(existing, service.getOrCreateSnapshot(modelId));
+
+        // no full model load and no additional file references
+        verify(modelRepo, never()).findById(any());
+        verifyNoInteractions(fileRepo);
+    }
+
+    @Test
+    void getOrCreateSnapshot_shouldThrow_whenSnapshotOfPublishedVersionIsMissing() {
+        model.setPublished(true);
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().modelVersion(3L).build());
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":3")).thenReturn(Optional.empty());
+
+        // the edited model must not be served in place of the published version
+        assertThrows(NotFoundException.class, () -> service.getOrCreateSnapshot(modelId));
+        verify(modelRepo, never()).findById(any());
+        verify(snapshotRepo, never()).insert(any(PublishedSnapshot.class));
+    }
+
+    @Test
+    void getOrCreateSnapshot_shouldCreateSnapshotOfCurrentVersion_forModelsPublishedWithoutVersion() {
+        model.setPublished(true);
+        model.setVersion(3);
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":3")).thenReturn(Optional.empty());
+        when(modelRepo.findById(modelId)).thenReturn(Optional.of(model));
+
+        PublishedSnapshot snapshot = service.getOrCreateSnapshot(modelId);
+
+        assertEquals(modelId + ":3", snapshot.getId());
+        assertEquals(model.getSubmodels(), snapshot.getSubmodels());
+        verify(snapshotRepo).insert(snapshot);
+        verify(fileRepo).acquireSharedReferences(Set.of());
+        verifyNoInteractions(exportService, fileStorageService);
+    }
+
+    @Test
+    void getOrCreateSnapshot_shouldNotReferenceFilesTwice_whenCreatedConcurrently() {
+        model.setPublished(true);
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":0")).thenReturn(Optional.empty());
+        when(modelRepo.findById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.insert(any(PublishedSnapshot.class))).thenThrow(new DuplicateKeyException("duplicate"));
 
-        // Create a MarketplaceEntry with a starting download count of 5
-        MarketplaceEntry entry = MarketplaceEntry.builder()
-                .id("entryId")
-                .downloadCount(5)
+        assertEquals(modelId + ":0", service.getOrCreateSnapshot(modelId).getId());
+        verifyNoInteractions(fileRepo);
+    }
+
+    @Test
+    void getOrCreateSnapshot_shouldThrowIfModelNotPublished() {
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+
+        assertThrows(BadRequestException.class, () -> service.getOrCreateSnapshot(modelId));
+        verifyNoInteractions(snapshotRepo);
+    }
+
+    @Test
+    void renderMissingArtifacts_shouldRenderFilesFromSnapshotContent() {
+        model.setPublished(true);
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().modelVersion(3L).build());
+        String snapshotId = modelId + ":3";
+        SnapshotArtifact aasx = artifact("grid-aasx", ExportFormat.AASX);
+        PublishedSnapshot header = PublishedSnapshot.builder().id(snapshotId)
+                .artifacts(Map.of(ExportFormat.JSON, artifact("grid-json", ExportFormat.JSON))).build();
+        PublishedSnapshot content = PublishedSnapshot.builder()
+                .id(snapshotId).entryId(modelId).modelVersion(3).aas(model.getAas()).submodels(model.getSubmodels()).build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(snapshotId)).thenReturn(Optional.of(header));
+        when(snapshotRepo.findById(snapshotId)).thenReturn(Optional.of(content));
+        when(fileStorageService.storeArtifact(any(), eq(snapshotId + ".aasx"), eq("application/asset-administration-shell-package")))
+                .thenAnswer(writeAndReturn(aasx));
+        when(snapshotRepo.setArtifactIfAbsent(snapshotId, ExportFormat.AASX, aasx)).thenReturn(true);
+
+        service.renderMissingArtifacts(modelId);
+
+        // only the missing format is rendered, streamed from the published content
+        verify(exportService).writeAsAasx(argThat(m -> m.getVersion() == 3), any());
+        verify(exportService, never()).writeAsJson(any(), any());
+        verify(snapshotRepo).setArtifactIfAbsent(snapshotId, ExportFormat.AASX, aasx);
+        verify(modelRepo, never()).findById(any());
+    }
+
+    @Test
+    void renderMissingArtifacts_shouldKeepSnapshot_whenRenderingFails() {
+        model.setPublished(true);
+        PublishedSnapshot header = PublishedSnapshot.builder().id(modelId + ":0").build();
+        PublishedSnapshot content = PublishedSnapshot.builder().id(modelId + ":0").entryId(modelId).aas(model.getAas()).build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":0")).thenReturn(Optional.of(header));
+        when(snapshotRepo.findById(modelId + ":0")).thenReturn(Optional.of(content));
+        when(fileStorageService.storeArtifact(any(), any(), any())).thenThrow(new ExportException("broken"));
+
+        assertDoesNotThrow(() -> service.renderMissingArtifacts(modelId));
+
+        verify(fileStorageService, times(2)).storeArtifact(any(), any(), any());
+        verify(snapshotRepo, never()).setArtifactIfAbsent(any(), any(), any());
+        verify(snapshotRepo, never()).deleteById(any());
+    }
+
+    // --- Published Export Files ---
+    @Test
+    void getPublishedArtifact_shouldReturnStoredFile_withoutRendering() {
+        model.setPublished(true);
+        model.setVersion(2);
+        PublishedSnapshot snapshot = PublishedSnapshot.builder()
+                .id(modelId + ":2")
+                .aas(model.getAas())
+                .artifacts(Map.of(ExportFormat.AASX, artifact("grid-aasx", ExportFormat.AASX)))
                 .build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(modelId + ":2")).thenReturn(Optional.of(snapshot));
 
-        // Mock the repository to return the entry when searched by ID
-        when(entryRepo.findById("entryId")).thenReturn(Optional.of(entry));
+        PublishedArtifact result = service.getPublishedArtifact(modelId, ExportFormat.AASX);
 
-        // --- Act ---
+        assertEquals(new PublishedArtifact("grid-aasx", 1, "TestModel.aasx",
+                "application/asset-administration-shell-package", "digest-grid-aasx"), result);
+        verifyNoInteractions(exportService, fileStorageService);
+    }
 
-        service.incrementDownloadCount("entryId");
+    @Test
+    void getPublishedArtifact_shouldRenderMissingFile_andKeepConcurrentlyAttachedOne() {
+        model.setPublished(true);
+        model.setVersion(2);
+        String snapshotId = modelId + ":2";
+        SnapshotArtifact rendered = artifact("grid-mine", ExportFormat.JSON);
+        SnapshotArtifact attached = artifact("grid-other", ExportFormat.JSON);
+        PublishedSnapshot header = PublishedSnapshot.builder().id(snapshotId).aas(model.getAas()).build();
+        PublishedSnapshot content = PublishedSnapshot.builder()
+                .id(snapshotId).entryId(modelId).modelVersion(2).aas(model.getAas()).submodels(model.getSubmodels()).build();
+        PublishedSnapshot updated = PublishedSnapshot.builder().id(snapshotId).artifacts(Map.of(ExportFormat.JSON, attached)).build();
+        when(modelRepo.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(snapshotRepo.findHeaderById(snapshotId)).thenReturn(Optional.of(header), Optional.of(updated));
+        when(snapshotRepo.findById(snapshotId)).thenReturn(Optional.of(content));
+        when(fileStorageService.storeArtifact(any(), eq(snapshotId + ".json"), eq("application/json"))).thenAnswer(writeAndReturn(rendered));
+        when(snapshotRepo.setArtifactIfAbsent(snapshotId, ExportFormat.JSON, rendered)).thenReturn(false);
+
+        PublishedArtifact result = service.getPublishedArtifact(modelId, ExportFormat.JSON);
+
+        verify(exportService).writeAsJson(argThat(m -> modelId.equals(m.getId()) && m.getSubmodels().equals(model.getSubmodels())), any());
+
+        assertEquals("grid-other", result.storagePath());
+        assertEquals("TestModel.json", result.filename());
+        verify(fileStorageService).deleteArtifact("grid-mine");
+    }
 
-        // --- Assert ---
+    @Test
+    void downloadPublishedArtifact_shouldOpenFile_andCountDownload() {
+        PublishedArtifact artifact = new PublishedArtifact("grid-json", 1, "TestModel.json", "application/json", "digest");
+        GridFsResource resource = mock(GridFsResource.class);
+        when(fileStorageService.loadArtifact("grid-json")).thenReturn(resource);
+
+        assertSame(resource, service.downloadPublishedArtifact(modelId, artifact));
+        verify(downloadCountBuffer).record(modelId);
+    }
+
+    private static SnapshotArtifact artifact(String storagePath, ExportFormat format) {
+        return new SnapshotArtifact(storagePath, format.getContentType(), 1, "digest-" + storagePath);
+    }
 
-        // The download count should now be incremented to 6
-        assertEquals(6, entry.getDownloadCount());
+    // runs the content writer handed to the file storage, as the GridFS upload does
+    private static Answer<SnapshotArtifact> writeAndReturn(SnapshotArtifact artifact) {
+        return invocation -> {
+            invocation.<StreamingResponseBody>getArgument(0).writeTo(new ByteArrayOutputStream());
+            return artifact;
+        };
+    }
 
-        // The updated entry should be saved back to the repository
-        verify(entryRepo).save(entry);
+    private static DefaultSubmodel submodelWithFiles(String... fileIds) {
+        List<SubmodelElement> files = new ArrayList<>();
+        for (String fileId : fileIds) {
+            DefaultFile file = new DefaultFile();
+            file.setValue(fileId);
+            files.add(file);
+        }
+        DefaultSubmodel submodel = new DefaultSubmodel();
+        submodel.setId("submodel-with-files");
+        submodel.setSubmodelElements(files);
+        return submodel;
     }
 
+    // --- Unreferenced Snapshots ---
     @Test
-    void incrementDownloadCount_shouldThrowIfNotFound() {
-        // --- Arrange ---
+    void removeUnreferencedSnapshots_shouldKeepPublishedAndAdoptedSnapshots() {
+        model.setPublished(true);
+        model.setVersion(5);
+        model.setPublishMetadata(PublishMetadata.builder().modelVersion(3L).build());
+        PublishedSnapshot old = PublishedSnapshot.builder().id(modelId + ":1").entryId(modelId).build();
+        PublishedSnapshot adopted = PublishedSnapshot.builder().id(modelId + ":2").entryId(modelId).build();
+        PublishedSnapshot published = PublishedSnapshot.builder().id(modelId + ":3").entryId(modelId).build();
+        when(snapshotRepo.findHeadersCreatedBefore(any(), isNull(), anyInt())).thenReturn(List.of(old, adopted, published));
+        when(modelRepo.findReferencedSnapshotIds(List.of(modelId + ":1", modelId + ":2", modelId + ":3")))
+                .thenReturn(Set.of(modelId + ":2"));
+        when(modelRepo.findHeadersByIds(Set.of(modelId))).thenReturn(List.of(model));
+        when(snapshotRepo.findById(modelId + ":1")).thenReturn(Optional.of(old));
+
+        assertEquals(1, service.removeUnreferencedSnapshots());
+
+        verify(snapshotRepo).deleteById(modelId + ":1");
+        verify(snapshotRepo, never()).deleteById(modelId + ":2");
+        verify(snapshotRepo, never()).deleteById(modelId + ":3");
+    }
 
-        // Simulate the repository returning nothing for the given ID
-        when(entryRepo.findById("missing")).thenReturn(Optional.empty());
+    @Test
+    void removeUnreferencedSnapshots_shouldDeleteExportFiles_andReleaseFileReferences() {
+        // the model was unpublished, so its snapshot is no longer served
+        PublishedSnapshot header = PublishedSnapshot.builder().id(modelId + ":1").entryId(modelId)
+                .artifacts(Map.of(ExportFormat.JSON, artifact("grid-json", ExportFormat.JSON))).build();
+        PublishedSnapshot content = PublishedSnapshot.builder().id(modelId + ":1").entryId(modelId)
+                .submodels(List.of(submodelWithFiles("shared-file", "unused-file"))).build();
+        when(snapshotRepo.findHeadersCreatedBefore(any(), isNull(), anyInt())).thenReturn(List.of(header));
+        when(modelRepo.findReferencedSnapshotIds(any())).thenReturn(Set.of());
+        when(modelRepo.findHeadersByIds(Set.of(modelId))).thenReturn(List.of(model));
+        when(snapshotRepo.findById(modelId + ":1")).thenReturn(Optional.of(content));
+        when(fileRepo.releaseSharedReference("shared-file")).thenReturn(true);
+        when(fileRepo.releaseSharedReference("unused-file")).thenReturn(false);
+
+        assertEquals(1, service.removeUnreferencedSnapshots());
+
+        InOrder order = inOrder(snapshotRepo, fileStorageService, fileRepo);
+        order.verify(snapshotRepo).deleteById(modelId + ":1");
+        order.verify(fileStorageService).deleteArtifact("grid-json");
+        verify(fileRepo).deleteAllById(List.of("unused-file"));
+    }
 
-        // --- Act & Assert ---
+    @Test
+    void removeUnreferencedSnapshots_shouldPageThroughSnapshots() {
+        List<PublishedSnapshot> firstPage = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            firstPage.add(PublishedSnapshot.builder().id(modelId + ":" + String.format("%03d", i)).entryId(modelId).build());
+        }
+        when(snapshotRepo.findHeadersCreatedBefore(any(), isNull(), eq(500))).thenReturn(firstPage);
+        when(snapshotRepo.findHeadersCreatedBefore(any(), eq(modelId + ":499"), eq(500))).thenReturn(List.of());
+        // every snapshot is still read by an adopted model
+        when(modelRepo.findReferencedSnapshotIds(any())).thenAnswer(invocation -> new HashSet<String>(invocation.getArgument(0)));
+        when(modelRepo.findHeadersByIds(Set.of(modelId))).thenReturn(List.of());
+
+        assertEquals(0, service.removeUnreferencedSnapshots());
+
+        verify(snapshotRepo).findHeadersCreatedBefore(any(), eq(modelId + ":499"), eq(500));
+        verify(snapshotRepo, never()).deleteById(any());
+    }
 
-        // Expect a BadRequestException because the entry does not exist
-        assertThrows(BadRequestException.class, () ->
-                service.incrementDownloadCount("missing")
-        );
+    // --- Increment Download Count ---
+    @Test
+    void incrementDownloadCount_shouldOnlyBufferTheDownload() {
+        service.incrementDownloadCount("entryId");
+
+        verify(downloadCountBuffer).record("entryId");
+        verifyNoInteractions(entryRepo);
     }
 
     // --- Get All Tags ---
@@ -393,6 +690,36 @@ class MarketPlaceServiceTest {
         assertEquals(tags, result);
     }
 
+    @Test
+    void getAllTags_shouldBeServedFromCache_untilPublish() {
+        when(tagRepo.findAll()).thenReturn(List.of(tag));
+        when(tagRepo.findByIdIn(List.of(tagId))).thenReturn(List.of(tag));
+
+        service.getAllTags();
+        service.getAllTags();
+        verify(tagRepo, times(1)).findAll();
+
+        service.publish(publishRequest, model);
+        service.getAllTags();
+        verify(tagRepo, times(2)).findAll();
+    }
+
+    // --- Caching ---
+    @Test
+    void listAllEntries_shouldBeServedFromCache_untilUnpublish() {
+        when(entryRepo.findNewestPage(null, null, null, null, 21)).thenReturn(List.of());
+        service.listAllEntries(null, 20);
+        service.listAllEntries(null, 20);
+        verify(entryRepo, times(1)).findNewestPage(null, null, null, null, 21);
+
+        model.setPublished(true);
+        when(entryRepo.findById(modelId)).thenReturn(Optional.of(MarketplaceEntry.builder().id(modelId).build()));
+        service.unpublish(userId, model);
+
+        service.listAllEntries(null, 20);
+        verify(entryRepo, times(2)).findNewestPage(null, null, null, null, 21);
+    }
+
     // --- Search  ---
     @Test
     void search_withoutText_shouldUseBasicQuery() {
@@ -403,22 +730,24 @@ class MarketPlaceServiceTest {
         req.setTagIds(List.of("t1"));
         req.setPublishedAfter(LocalDateTime.now().minusDays(10));
 
-        // Simulate MongoTemplate returning an empty list
-        when(mongoTemplate.find(any(Query.class), eq(MarketplaceEntry.class)))
+        // Simulate the repository returning an empty page
+        when(entryRepo.findNewestPage(req.getPublishedAfter(), req.getTagIds(), null, null, 21))
                 .thenReturn(Collections.emptyList());
 
         // --- Act ---
 
-        List<MarketplaceEntryDto> results = service.search(req);
+        CursorPageDto<MarketplaceEntryDto> results = service.search(req, null, 20);
 
         // --- Assert ---
 
-        // The Result should be an empty list since no entries matched
-        assertTrue(results.isEmpty());
+        // The Result should be an empty page since no entries matched
+        assertTrue(results.getItems().isEmpty());
+        assertNull(results.getNextCursor());
+        verify(searchIndex, never()).search(any(), any(), any(), any(), any(), anyInt());
     }
 
     @Test
-    void search_withText_shouldUseTextSearchQuery() {
+    void search_withText_shouldUseSearchIndex() {
         // --- Arrange ---
         MarketplaceSearchRequest req = new MarketplaceSearchRequest();
         req.setSearchText("test-model");
@@ -426,16 +755,189 @@ class MarketPlaceServiceTest {
         MarketplaceEntry entry = MarketplaceEntry.builder().id("e1").build();
         MarketplaceEntryDto dto = new MarketplaceEntryDto();
 
-        when(mongoTemplate.find(any(Query.class), eq(MarketplaceEntry.class)))
+        when(searchIndex.search("test-model", null, null, null, null, 21))
                 .thenReturn(List.of(entry));
         when(marketplaceMapper.toDto(entry)).thenReturn(dto);
 
         // --- Act ---
-        List<MarketplaceEntryDto> results = service.search(req);
+        CursorPageDto<MarketplaceEntryDto> results = service.search(req, null, 20);
 
         // --- Assert ---
-        assertEquals(1, results.size()); // Expect a result due to matching text
+        assertEquals(1, results.getItems().size()); // Expect a result due to matching text
         verify(marketplaceMapper).toDto(entry); // Ensure mapper is called
+        verifyNoInteractions(entryRepo); // answered from memory
     }
-}
 
+    @Test
+    void search_withText_shouldContinueAfterScoreAndIdOfLastEntry() {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSearchText("pump");
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").score(1.7333333333333334).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").score(0.75).build();
+        when(searchIndex.search("pump", null, null, null, null, 2)).thenReturn(List.of(first, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+
+        CursorPageDto<MarketplaceEntryDto> page = service.search(req, null, 1);
+        service.search(req, page.getNextCursor(), 1);
+
+        verify(searchIndex).search("pump", null, null, 1.7333333333333334, "e2", 2);
+    }
+
+    @Test
+    void search_shouldRejectCursorOfOtherOrdering() {
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").publishedAt(LocalDateTime.now()).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").publishedAt(LocalDateTime.now()).build();
+        when(entryRepo.findNewestPage(null, null, null, null, 2)).thenReturn(List.of(first, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+        String newestCursor = service.listAllEntries(null, 1).getNextCursor();
+
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSearchText("pump");
+
+        assertThrows(BadRequestException.class, () -> service.search(req, newestCursor, 1));
+        verifyNoInteractions(searchIndex);
+    }
+
+    @Test
+    void listAllEntries_shouldSortByDownloads_andContinueAfterLastEntry() {
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e3").downloadCount(40).build();
+        MarketplaceEntry second = MarketplaceEntry.builder().id("e2").downloadCount(12).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").downloadCount(12).build();
+        when(entryRepo.findMostDownloadedPage(null, null, null, null, 3)).thenReturn(List.of(first, second, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+
+        CursorPageDto<MarketplaceEntryDto> page = service.listAllEntries("Downloads", null, 2);
+        service.listAllEntries("downloads", page.getNextCursor(), 2);
+
+        assertEquals(2, page.getItems().size());
+        verify(entryRepo).findMostDownloadedPage(null, null, 12, "e2", 3);
+        verify(entryRepo, never()).findNewestPage(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void search_shouldSortByTrendingScore_andContinueAfterLastEntry() {
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").trendingScore(8.5).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").trendingScore(2.0).build();
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSort("trending");
+        req.setTagIds(List.of("t1"));
+        when(entryRepo.findTrendingPage(null, List.of("t1"), null, null, 2)).thenReturn(List.of(first, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+
+        CursorPageDto<MarketplaceEntryDto> page = service.search(req, null, 1);
+        service.search(req, page.getNextCursor(), 1);
+
+        verify(entryRepo).findTrendingPage(null, List.of("t1"), 8.5, "e2", 2);
+    }
+
+    @Test
+    void listAllEntries_shouldRejectCursorOfOtherSortOrder() {
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").downloadCount(5).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").downloadCount(3).build();
+        when(entryRepo.findMostDownloadedPage(null, null, null, null, 2)).thenReturn(List.of(first, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+        String downloadsCursor = service.listAllEntries("downloads", null, 1).getNextCursor();
+
+        assertThrows(BadRequestException.class, () -> service.listAllEntries("trending", downloadsCursor, 1));
+        verify(entryRepo, never()).findTrendingPage(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void search_shouldRejectUnknownOrMismatchingSortOrder() {
+        MarketplaceSearchRequest unknown = new MarketplaceSearchRequest();
+        unknown.setSort("oldest");
+        MarketplaceSearchRequest textByDownloads = new MarketplaceSearchRequest();
+        textByDownloads.setSearchText("pump");
+        textByDownloads.setSort("downloads");
+        MarketplaceSearchRequest relevanceWithoutText = new MarketplaceSearchRequest();
+        relevanceWithoutText.setSort("relevance");
+
+        assertThrows(BadRequestException.class, () -> service.search(unknown, null, 20));
+        assertThrows(BadRequestException.class, () -> service.search(textByDownloads, null, 20));
+        assertThrows(BadRequestException.class, () -> service.search(relevanceWithoutText, null, 20));
+        assertThrows(BadRequestException.class, () -> service.searchWithFacets(unknown, null, 20));
+        verifyNoInteractions(entryRepo, searchIndex);
+    }
+
+    @Test
+    void searchWithFacets_shouldRejectPopularitySortOrders() {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSort("trending");
+
+        assertThrows(BadRequestException.class, () -> service.searchWithFacets(req, null, 20));
+        verifyNoInteractions(entryRepo);
+    }
+
+    // --- Suggestions ---
+    @Test
+    void suggest_shouldDelegateToSuggestions() {
+        List<SuggestionDto> expected = List.of(new SuggestionDto("Pump", SuggestionType.ENTRY, "e1", 5));
+        when(suggestions.suggest("pu", 5)).thenReturn(expected);
+
+        assertEquals(expected, service.suggest("pu", 5));
+        verifyNoInteractions(entryRepo, tagRepo);
+    }
+
+    // --- Faceted search ---
+    @Test
+    void searchWithFacets_shouldReturnPageAndFacetCounts() {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setTagIds(List.of("t1"));
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").publishedAt(LocalDateTime.of(2026, 3, 2, 10, 0)).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").publishedAt(LocalDateTime.of(2026, 2, 1, 10, 0)).build();
+        Map<String, Long> tagCounts = new LinkedHashMap<>();
+        tagCounts.put("t1", 2L);
+        tagCounts.put("t2", 1L);
+        when(entryRepo.findFacetedPage(null, null, List.of("t1"), null, null, null, 2))
+                .thenReturn(new MarketPlaceEntryRepositoryCustom.FacetedPage(List.of(first, extra), 2, tagCounts, Map.of("2026-02", 1L)));
+        when(marketplaceMapper.toDto(first)).thenReturn(new MarketplaceEntryDto());
+
+        MarketplaceFacetedSearchDto result = service.searchWithFacets(req, null, 1);
+
+        assertEquals(1, result.getItems().size());
+        assertNotNull(result.getNextCursor());
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of(new FacetCountDto("t1", 2), new FacetCountDto("t2", 1)), result.getTags());
+        assertEquals(List.of(new FacetCountDto("2026-02", 1)), result.getPublishedMonths());
+        verify(marketplaceMapper, never()).toDto(extra);
+    }
+
+    @Test
+    void searchWithFacets_withText_shouldContinueAfterTextScore() {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSearchText("pump");
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").score(1.5).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").score(0.5).build();
+        when(entryRepo.findFacetedPage("pump", null, null, null, null, null, 2))
+                .thenReturn(new MarketPlaceEntryRepositoryCustom.FacetedPage(List.of(first, extra), 2, Map.of(), Map.of()));
+        when(entryRepo.findFacetedPage("pump", null, null, 1.5, null, "e2", 2))
+                .thenReturn(new MarketPlaceEntryRepositoryCustom.FacetedPage(List.of(extra), 2, Map.of(), Map.of()));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+        String cursor = service.searchWithFacets(req, null, 1).getNextCursor();
+
+        MarketplaceFacetedSearchDto result = service.searchWithFacets(req, cursor, 1);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void searchWithFacets_shouldRejectCursorOfIndexSearch() {
+        MarketplaceSearchRequest req = new MarketplaceSearchRequest();
+        req.setSearchText("pump");
+        MarketplaceEntry first = MarketplaceEntry.builder().id("e2").score(1.5).build();
+        MarketplaceEntry extra = MarketplaceEntry.builder().id("e1").score(0.5).build();
+        when(searchIndex.search("pump", null, null, null, null, 2)).thenReturn(List.of(first, extra));
+        when(marketplaceMapper.toDto(any())).thenReturn(new MarketplaceEntryDto());
+        String cursor = service.search(req, null, 1).getNextCursor();
+
+        assertThrows(BadRequestException.class, () -> service.searchWithFacets(req, cursor, 1));
+        verifyNoInteractions(entryRepo);
+    }
+
+    @Test
+    void searchWithFacets_shouldRejectMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> service.searchWithFacets(new MarketplaceSearchRequest(), "not-a-cursor", 20));
+        verifyNoInteractions(entryRepo);
+    }
+}
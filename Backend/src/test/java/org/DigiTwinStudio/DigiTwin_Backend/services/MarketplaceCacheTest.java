@@ -0,0 +1,131 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.CursorPageDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceEntryDto;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.MarketplaceSearchRequest;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketplaceCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MarketplaceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new MarketplaceCache(meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void getPage_loadsOnce_forEquivalentRequests() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest first = MarketplaceSearchRequest.builder().searchText(" pump ").tagIds(List.of("b", "a")).build();
+        MarketplaceSearchRequest second = MarketplaceSearchRequest.builder().searchText("pump").tagIds(List.of("a", "b")).build();
+
+        cache.getPage(first, null, 20, () -> page(loads, "e1"));
+        cache.getPage(second, "", 20, () -> page(loads, "e1"));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, gets("hit"));
+        assertEquals(1.0, gets("miss"));
+    }
+
+    @Test
+    void getPage_separatesCursorsAndPageSizes() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest request = new MarketplaceSearchRequest();
+
+        cache.getPage(request, null, 20, () -> page(loads, "e1"));
+        cache.getPage(request, "next", 20, () -> page(loads, "e2"));
+        cache.getPage(request, null, 10, () -> page(loads, "e1"));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void getPage_doesNotCacheFailures() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest request = new MarketplaceSearchRequest();
+
+        assertThrows(BadRequestException.class, () -> cache.getPage(request, "broken", 20, () -> {
+            throw new BadRequestException("Invalid pagination cursor.");
+        }));
+        cache.getPage(request, "broken", 20, () -> page(loads, "e1"));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateCatalog_dropsPagesAndTags() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest request = new MarketplaceSearchRequest();
+        cache.getPage(request, null, 20, () -> page(loads, "e1"));
+        cache.getTags(() -> { loads.incrementAndGet(); return List.of(new Tag()); });
+
+        cache.invalidateCatalog();
+        cache.getPage(request, null, 20, () -> page(loads, "e1"));
+        cache.getTags(() -> { loads.incrementAndGet(); return List.of(new Tag()); });
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidateDownloadCounts_dropsOnlyPagesContainingTheEntry() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest containing = new MarketplaceSearchRequest();
+        MarketplaceSearchRequest other = MarketplaceSearchRequest.builder().searchText("other").build();
+        cache.getPage(containing, null, 20, () -> page(loads, "e1"));
+        cache.getPage(other, null, 20, () -> page(loads, "e2"));
+
+        cache.invalidateDownloadCounts(Set.of("e1"));
+        cache.getPage(containing, null, 20, () -> page(loads, "e1"));
+        cache.getPage(other, null, 20, () -> page(loads, "e2"));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidateDownloadCounts_dropsPagesOrderedByDownloads() {
+        AtomicInteger loads = new AtomicInteger();
+        MarketplaceSearchRequest downloads = MarketplaceSearchRequest.builder().sort("downloads").build();
+        MarketplaceSearchRequest trending = MarketplaceSearchRequest.builder().sort("Trending").build();
+        MarketplaceSearchRequest newest = MarketplaceSearchRequest.builder().sort("newest").build();
+        cache.getPage(downloads, null, 20, () -> page(loads, "e2"));
+        cache.getPage(trending, null, 20, () -> page(loads, "e2"));
+        cache.getPage(newest, null, 20, () -> page(loads, "e2"));
+
+        // e1 is on none of the pages, but may now rank onto the download and trending pages
+        cache.invalidateDownloadCounts(Set.of("e1"));
+        cache.getPage(downloads, null, 20, () -> page(loads, "e2"));
+        cache.getPage(trending, null, 20, () -> page(loads, "e2"));
+        cache.getPage(newest, null, 20, () -> page(loads, "e2"));
+
+        assertEquals(5, loads.get());
+    }
+
+    private static CursorPageDto<MarketplaceEntryDto> page(AtomicInteger loads, String entryId) {
+        loads.incrementAndGet();
+        return new CursorPageDto<>(List.of(MarketplaceEntryDto.builder().id(entryId).build()), null);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "marketplace.pages")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
@@ -0,0 +1,241 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEvent;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.OutboxEventType;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MarketplaceOutboxDispatcherTest {
+
+    @Mock private AASModelRepository aasModelRepository;
+    @Mock private MarketPlaceEntryRepository marketPlaceEntryRepository;
+    @Mock private PublishedSnapshotRepository publishedSnapshotRepository;
+    @Mock private TagRepository tagRepository;
+    @Mock private SubmodelStorageService submodelStorageService;
+    @Mock private MarketplaceSearchIndex marketplaceSearchIndex;
+    @Mock private MarketplaceSuggestions marketplaceSuggestions;
+    @Mock private MarketplaceCache marketplaceCache;
+    @Mock private MarketPlaceService marketPlaceService;
+
+    @InjectMocks
+    private MarketplaceOutboxDispatcher dispatcher;
+
+    private final Tag tag = Tag.builder().id("t1").name("Robotics").build();
+
+    @Test
+    void dispatch_appliesPublishedEvent_andRemovesIt() {
+        AASModel model = model("m1", event("ev1", OutboxEventType.PUBLISHED, 0));
+        when(aasModelRepository.findWithDueEvents(any(), eq(MarketplaceOutboxDispatcher.BATCH_SIZE))).thenReturn(List.of(model));
+        when(tagRepository.findByIdIn(List.of("t1"))).thenReturn(List.of(tag));
+        when(marketPlaceEntryRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        BulkWriteResult removed = bulkResult(1);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<MarketplaceEntry> entry = ArgumentCaptor.forClass(MarketplaceEntry.class);
+        verify(marketPlaceEntryRepository).save(entry.capture());
+        assertEquals("m1", entry.getValue().getId());
+        assertEquals("Model m1", entry.getValue().getName());
+        assertEquals("author", entry.getValue().getAuthor());
+        verify(submodelStorageService).resolveSubmodels(model);
+        verify(marketplaceSearchIndex).put(entry.getValue(), model, List.of(tag));
+        verify(tagRepository).applyUsageCountDeltas(Map.of("t1", 1));
+        verify(aasModelRepository).removeEvents(Map.of("m1", List.of("ev1")));
+        verify(marketplaceSuggestions).markStale();
+        verify(marketplaceCache).invalidateCatalog();
+        verify(marketPlaceService).renderMissingArtifacts("m1");
+        verify(aasModelRepository, never()).findHeadersByIds(any());
+    }
+
+    @Test
+    void dispatch_indexesPublishedSnapshot_andCountsDuplicateTagsOnce() {
+        OutboxEvent event = event("ev1", OutboxEventType.PUBLISHED, 0);
+        event.getPublishMetadata().setModelVersion(4L);
+        event.getPublishMetadata().setTagIds(List.of("t1", "t1"));
+        AASModel model = model("m1", event);
+        PublishedSnapshot snapshot = PublishedSnapshot.builder()
+                .id("m1:4")
+                .entryId("m1")
+                .modelVersion(4)
+                .aas(new DefaultAssetAdministrationShell.Builder().id("aas-m1").idShort("Published").build())
+                .submodels(List.of())
+                .build();
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(List.of(model));
+        when(tagRepository.findByIdIn(List.of("t1"))).thenReturn(List.of(tag));
+        when(marketPlaceEntryRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(publishedSnapshotRepository.findById("m1:4")).thenReturn(Optional.of(snapshot));
+        BulkWriteResult removed = bulkResult(1);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<MarketplaceEntry> entry = ArgumentCaptor.forClass(MarketplaceEntry.class);
+        verify(marketPlaceEntryRepository).save(entry.capture());
+        assertEquals(List.of("t1"), entry.getValue().getTagIds());
+        ArgumentCaptor<AASModel> indexed = ArgumentCaptor.forClass(AASModel.class);
+        verify(marketplaceSearchIndex).put(eq(entry.getValue()), indexed.capture(), eq(List.of(tag)));
+        assertEquals("Published", indexed.getValue().getAas().getIdShort());
+        // the live model may have been edited since it was published
+        verifyNoInteractions(submodelStorageService);
+        verify(tagRepository).applyUsageCountDeltas(Map.of("t1", 1));
+    }
+
+    @Test
+    void dispatch_appliesEventsInOrder_andNetsTagCounts() {
+        AASModel model = model("m1", event("ev1", OutboxEventType.PUBLISHED, 0), event("ev2", OutboxEventType.UNPUBLISHED, 0));
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(List.of(model));
+        when(tagRepository.findByIdIn(any())).thenReturn(List.of(tag));
+        when(marketPlaceEntryRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        BulkWriteResult removed = bulkResult(1);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+
+        dispatcher.dispatch();
+
+        var inOrder = inOrder(marketPlaceEntryRepository, marketplaceSearchIndex);
+        inOrder.verify(marketPlaceEntryRepository).save(any());
+        inOrder.verify(marketplaceSearchIndex).put(any(), eq(model), any());
+        inOrder.verify(marketPlaceEntryRepository).deleteById("m1");
+        inOrder.verify(marketplaceSearchIndex).remove("m1");
+        verify(tagRepository).applyUsageCountDeltas(Map.of("t1", 0));
+        verify(aasModelRepository).removeEvents(Map.of("m1", List.of("ev1", "ev2")));
+        // no longer published, so no snapshot is created
+        verifyNoInteractions(marketPlaceService);
+    }
+
+    @Test
+    void dispatch_defersFailedModel_withBackoff_andDispatchesTheOthers() {
+        AASModel failing = model("m1", event("ev1", OutboxEventType.UNPUBLISHED, 3));
+        AASModel healthy = model("m2", event("ev2", OutboxEventType.UNPUBLISHED, 0));
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(List.of(failing, healthy));
+        doThrow(new RuntimeException("db down")).when(marketPlaceEntryRepository).deleteById("m1");
+        BulkWriteResult removed = bulkResult(1);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(aasModelRepository).deferEvents(eq("m1"), nextAttemptAt.capture(), eq("db down"));
+        assertFalse(nextAttemptAt.getValue().isBefore(before.plus(Duration.ofSeconds(8))));
+        verify(marketplaceSearchIndex, never()).remove("m1");
+        verify(aasModelRepository).removeEvents(Map.of("m2", List.of("ev2")));
+        verify(tagRepository).applyUsageCountDeltas(Map.of("t1", -1));
+    }
+
+    @Test
+    void dispatch_capsBackoff() {
+        AASModel failing = model("m1", event("ev1", OutboxEventType.UNPUBLISHED, 40));
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(List.of(failing));
+        doThrow(new RuntimeException("db down")).when(marketPlaceEntryRepository).deleteById("m1");
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(aasModelRepository).deferEvents(eq("m1"), nextAttemptAt.capture(), any());
+        assertFalse(nextAttemptAt.getValue().isAfter(LocalDateTime.now().plus(MarketplaceOutboxDispatcher.MAX_BACKOFF)));
+        assertFalse(nextAttemptAt.getValue().isBefore(before.plus(MarketplaceOutboxDispatcher.MAX_BACKOFF)));
+        // nothing was dispatched, so nothing is written
+        verify(aasModelRepository, never()).removeEvents(any());
+        verify(tagRepository, never()).applyUsageCountDeltas(any());
+    }
+
+    @Test
+    void dispatch_removesEntryOfModelDeletedMeanwhile() {
+        AASModel model = model("m1", event("ev1", OutboxEventType.PUBLISHED, 0));
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(List.of(model));
+        when(tagRepository.findByIdIn(any())).thenReturn(List.of(tag));
+        when(marketPlaceEntryRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        BulkWriteResult removed = bulkResult(0);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+        when(aasModelRepository.findHeadersByIds(any())).thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        verify(marketPlaceEntryRepository).deleteById("m1");
+        verify(marketplaceSearchIndex).remove("m1");
+    }
+
+    @Test
+    void dispatch_loadsNextBatch_onlyAfterFullBatch() {
+        List<AASModel> full = new ArrayList<>();
+        for (int i = 0; i < MarketplaceOutboxDispatcher.BATCH_SIZE; i++) {
+            full.add(model("m" + i, event("ev" + i, OutboxEventType.UNPUBLISHED, 0)));
+        }
+        when(aasModelRepository.findWithDueEvents(any(), anyInt())).thenReturn(full, List.of());
+        BulkWriteResult removed = bulkResult(MarketplaceOutboxDispatcher.BATCH_SIZE);
+        when(aasModelRepository.removeEvents(anyMap())).thenReturn(removed);
+
+        dispatcher.dispatch();
+
+        verify(aasModelRepository, times(2)).findWithDueEvents(any(), anyInt());
+        verify(aasModelRepository, times(1)).removeEvents(anyMap());
+    }
+
+    private static AASModel model(String id, OutboxEvent... events) {
+        return AASModel.builder()
+                .id(id)
+                .aas(new DefaultAssetAdministrationShell.Builder().id("aas-" + id).idShort("Model " + id).build())
+                .submodels(List.of())
+                .published(events[events.length - 1].getType() == OutboxEventType.PUBLISHED)
+                .pendingEvents(List.of(events))
+                .build();
+    }
+
+    private static OutboxEvent event(String id, OutboxEventType type, int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+        return OutboxEvent.builder()
+                .id(id)
+                .type(type)
+                .publishMetadata(PublishMetadata.builder()
+                        .author("author")
+                        .shortDescription("description")
+                        .tagIds(List.of("t1"))
+                        .publishedAt(now)
+                        .build())
+                .name("Model " + id.replace("ev", "m"))
+                .createdAt(now)
+                .attempts(attempts)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    private static BulkWriteResult bulkResult(int matched) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getMatchedCount()).thenReturn(matched);
+        return result;
+    }
+}
@@ -0,0 +1,251 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishMetadata;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.KeyTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.ReferenceTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultKey;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultReference;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MarketplaceSearchIndexTest {
+
+    @Mock private MarketPlaceEntryRepository entryRepo;
+    @Mock private AASModelRepository modelRepo;
+    @Mock private PublishedSnapshotRepository snapshotRepo;
+    @Mock private TagRepository tagRepo;
+    @Mock private SubmodelStorageService submodelStorageService;
+
+    @InjectMocks
+    private MarketplaceSearchIndex index;
+
+    private final Tag battery = Tag.builder().id("t-battery").name("Battery").build();
+    private final Tag robotics = Tag.builder().id("t-robotics").name("Robotics").build();
+
+    @BeforeEach
+    void setup() {
+        // start from an empty, loaded index
+        when(tagRepo.findAll()).thenReturn(List.of());
+        when(entryRepo.findAll()).thenReturn(List.of());
+        index.rebuild();
+    }
+
+    @Test
+    void search_shouldMatchExactPrefixAndTypo() {
+        put("e1", "Heat Pump", "ACME", "Industrial heat pump", battery);
+
+        assertEquals(List.of("e1"), ids(search("pump")));
+        assertEquals(List.of("e1"), ids(search("pu")));
+        assertEquals(List.of("e1"), ids(search("pumpe")));
+        assertEquals(List.of("e1"), ids(search("industrail")));
+        assertTrue(search("compressor").isEmpty());
+    }
+
+    @Test
+    void search_shouldRankExactNameMatchFirst_andDescriptionMatchLast() {
+        put("e1", "Controller", "ACME", "Drives a pump", battery);
+        put("e2", "Pump", "ACME", "Standard unit", battery);
+        put("e3", "Pumping station", "ACME", "Standard unit", battery);
+
+        List<MarketplaceEntry> results = search("pump");
+
+        assertEquals(List.of("e2", "e3", "e1"), ids(results));
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    }
+
+    @Test
+    void search_shouldPreferEntriesMatchingAllTerms() {
+        put("e1", "Battery Pack", "ACME", "Lithium cells", robotics);
+        put("e2", "Battery Charger", "ACME", "Charges packs", robotics);
+
+        assertEquals("e1", search("battery lithium").getFirst().getId());
+    }
+
+    @Test
+    void search_shouldIndexTagNamesIdShortAndSemanticIds() {
+        AASModel model = AASModel.builder()
+                .id("e1")
+                .aas(new DefaultAssetAdministrationShell.Builder().id("aas").idShort("ElectricMotor").build())
+                .submodels(List.of(new DefaultSubmodel.Builder()
+                        .id("sm")
+                        .semanticId(new DefaultReference.Builder()
+                                .type(ReferenceTypes.EXTERNAL_REFERENCE)
+                                .keys(new DefaultKey.Builder()
+                                        .type(KeyTypes.GLOBAL_REFERENCE)
+                                        .value("https://admin-shell.io/zvei/nameplate/2/0/Nameplate")
+                                        .build())
+                                .build())
+                        .build()))
+                .build();
+        index.put(entry("e1", "Drive", "ACME", null, robotics), model, List.of(robotics));
+
+        assertEquals(List.of("e1"), ids(search("robotics")));
+        assertEquals(List.of("e1"), ids(search("motor")));
+        assertEquals(List.of("e1"), ids(search("nameplate")));
+    }
+
+    @Test
+    void search_shouldApplyTagAndDateFilters() {
+        MarketplaceEntry old = entry("e1", "Pump", "ACME", null, battery);
+        old.setPublishedAt(LocalDateTime.of(2025, 1, 1, 0, 0));
+        index.put(old, null, List.of(battery));
+        put("e2", "Pump", "ACME", null, robotics);
+
+        assertEquals(List.of("e2"), ids(index.search("pump", null, List.of("t-robotics"), null, null, 10)));
+        assertEquals(List.of("e2"), ids(index.search("pump", LocalDateTime.of(2026, 1, 1, 0, 0), null, null, null, 10)));
+    }
+
+    @Test
+    void search_shouldContinueAfterCursorPosition() {
+        for (int i = 0; i < 5; i++) {
+            put("e" + i, "Pump", "ACME", null, battery);
+        }
+
+        List<MarketplaceEntry> first = index.search("pump", null, null, null, null, 2);
+        MarketplaceEntry last = first.getLast();
+        List<MarketplaceEntry> second = index.search("pump", null, null, last.getScore(), last.getId(), 10);
+
+        assertEquals(List.of("e4", "e3"), ids(first));
+        assertEquals(List.of("e2", "e1", "e0"), ids(second));
+    }
+
+    @Test
+    void remove_shouldDropEntryFromResults() {
+        put("e1", "Pump", "ACME", null, battery);
+        put("e2", "Pump", "ACME", null, battery);
+
+        index.remove("e1");
+
+        assertEquals(List.of("e2"), ids(search("pump")));
+    }
+
+    @Test
+    void addDownloads_shouldUpdateReturnedCounts() {
+        put("e1", "Pump", "ACME", null, battery);
+
+        index.addDownloads(Map.of("e1", 3L, "unknown", 1L));
+
+        assertEquals(3, search("pump").getFirst().getDownloadCount());
+    }
+
+    @Test
+    void search_shouldReturnTrendingScoreOfEntries() {
+        MarketplaceEntry entry = entry("e1", "Pump", "ACME", null, battery);
+        entry.setTrendingScore(12.5);
+        index.put(entry, null, List.of(battery));
+
+        assertEquals(12.5, search("pump").getFirst().getTrendingScore());
+    }
+
+    @Test
+    void rebuild_shouldLoadEntriesTagsAndPublishedSnapshots() {
+        MarketplaceEntry entry = entry("e1", "Drive", "ACME", null, battery);
+        // edited after publishing: the index holds the published version
+        AASModel header = AASModel.builder()
+                .id("e1")
+                .version(5)
+                .publishMetadata(PublishMetadata.builder().modelVersion(3L).build())
+                .build();
+        PublishedSnapshot snapshot = PublishedSnapshot.builder()
+                .id("e1:3")
+                .entryId("e1")
+                .modelVersion(3)
+                .aas(new DefaultAssetAdministrationShell.Builder().idShort("ServoUnit").build())
+                .build();
+        when(tagRepo.findAll()).thenReturn(List.of(battery));
+        when(entryRepo.findAll()).thenReturn(List.of(entry));
+        when(modelRepo.findHeadersByIds(List.of("e1"))).thenReturn(List.of(header));
+        when(snapshotRepo.findSearchFieldsByIds(List.of("e1:3"))).thenReturn(List.of(snapshot));
+
+        index.rebuild();
+
+        assertEquals(List.of("e1"), ids(search("battery")));
+        assertEquals(List.of("e1"), ids(search("servo")));
+        verify(modelRepo, never()).findAllById(anyList());
+        verifyNoInteractions(submodelStorageService);
+    }
+
+    @Test
+    void rebuild_shouldReadModelsWithoutSnapshot_inBatches() {
+        List<MarketplaceEntry> entries = new ArrayList<>();
+        for (int i = 0; i <= MarketplaceSearchIndex.REBUILD_BATCH_SIZE; i++) {
+            entries.add(entry("e" + i, "Drive " + i, "ACME", null, battery));
+        }
+        AASModel legacy = AASModel.builder()
+                .id("e0")
+                .aas(new DefaultAssetAdministrationShell.Builder().idShort("ServoUnit").build())
+                .build();
+        when(entryRepo.findAll()).thenReturn(entries);
+        when(modelRepo.findHeadersByIds(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).contains("e0")
+                ? List.of(AASModel.builder().id("e0").version(2).build()) : List.of());
+        when(snapshotRepo.findSearchFieldsByIds(List.of("e0:2"))).thenReturn(List.of());
+        when(modelRepo.findAllById(List.of("e0"))).thenReturn(List.of(legacy));
+
+        index.rebuild();
+
+        assertEquals(List.of("e0"), ids(search("servo")));
+        verify(modelRepo, times(2)).findHeadersByIds(anyList());
+        verify(submodelStorageService).resolveSubmodels(legacy);
+    }
+
+    @Test
+    void tokenize_shouldSplitWordsAndCamelCase() {
+        assertEquals(List.of("technicaldata", "technical", "data", "v2", "v", "2"),
+                MarketplaceSearchIndex.tokenize("TechnicalData, v2"));
+    }
+
+    @Test
+    void editDistance_shouldCountTranspositionAsOneEdit() {
+        assertEquals(1, MarketplaceSearchIndex.editDistance("pmup", "pump", 2));
+        assertEquals(2, MarketplaceSearchIndex.editDistance("motro", "meter", 1));
+    }
+
+    private void put(String id, String name, String author, String description, Tag tag) {
+        index.put(entry(id, name, author, description, tag), null, List.of(tag));
+    }
+
+    private static MarketplaceEntry entry(String id, String name, String author, String description, Tag tag) {
+        return MarketplaceEntry.builder()
+                .id(id)
+                .name(name)
+                .author(author)
+                .shortDescription(description)
+                .tagIds(List.of(tag.getId()))
+                .publishedAt(LocalDateTime.of(2026, 6, 1, 0, 0))
+                .build();
+    }
+
+    private List<MarketplaceEntry> search(String text) {
+        return index.search(text, null, null, null, null, 10);
+    }
+
+    private static List<String> ids(List<MarketplaceEntry> entries) {
+        return entries.stream().map(MarketplaceEntry::getId).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.MarketplaceEntry;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SuggestionType;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.Tag;
+import org.DigiTwinStudio.DigiTwin_Backend.dtos.SuggestionDto;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.MarketPlaceEntryRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.TagRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MarketplaceSuggestionsTest {
+
+    @Mock private MarketPlaceEntryRepository entryRepo;
+    @Mock private TagRepository tagRepo;
+
+    @InjectMocks
+    private MarketplaceSuggestions suggestions;
+
+    @Test
+    void suggest_shouldMatchWordStarts_rankedByPopularity() {
+        when(entryRepo.findAll()).thenReturn(List.of(
+                entry("e1", "Heat Pump", "ACME", 5),
+                entry("e2", "Pump Controller", "Pumpenwerk", 40),
+                entry("e3", "Compressor", "ACME", 100)));
+        when(tagRepo.findAll()).thenReturn(List.of(Tag.builder().id("t1").name("Pumps").usageCount(12).build()));
+        suggestions.refresh();
+
+        List<SuggestionDto> result = suggestions.suggest("  PU ", 10);
+
+        assertEquals(List.of("Pumpenwerk", "Pump Controller", "Pumps", "Heat Pump"),
+                result.stream().map(SuggestionDto::getText).toList());
+        assertEquals(SuggestionType.TAG, result.get(2).getType());
+        assertTrue(suggestions.suggest("ump", 10).isEmpty());
+    }
+
+    @Test
+    void suggest_shouldRankAuthorsBySumOfTheirDownloads() {
+        when(entryRepo.findAll()).thenReturn(List.of(
+                entry("e1", "Motor", "ACME", 5),
+                entry("e2", "Drive", "acme ", 7),
+                entry("e3", "Acme Adapter", "Other", 10)));
+        when(tagRepo.findAll()).thenReturn(List.of());
+        suggestions.refresh();
+
+        List<SuggestionDto> result = suggestions.suggest("acme", 10);
+
+        assertEquals(2, result.size());
+        assertEquals(new SuggestionDto("ACME", SuggestionType.AUTHOR, null, 12), result.get(0));
+        assertEquals("e3", result.get(1).getId());
+    }
+
+    @Test
+    void suggest_shouldApplyLimit_andListEntryOnlyOnce() {
+        when(entryRepo.findAll()).thenReturn(IntStream.range(0, 20)
+                .mapToObj(i -> entry("e" + i, "Pump pump " + i, "ACME", i))
+                .toList());
+        when(tagRepo.findAll()).thenReturn(List.of());
+        suggestions.refresh();
+
+        List<SuggestionDto> result = suggestions.suggest("pump", 50);
+
+        assertEquals(MarketplaceSuggestions.MAX_SUGGESTIONS, result.size());
+        assertEquals("e19", result.getFirst().getId());
+        assertEquals(result.size(), result.stream().distinct().count());
+        assertEquals(3, suggestions.suggest("pump", 3).size());
+    }
+
+    @Test
+    void suggest_shouldReturnNothing_forBlankOrUnknownPrefix_withoutDatabaseAccess() {
+        when(entryRepo.findAll()).thenReturn(List.of(entry("e1", "Pump", "ACME", 1)));
+        when(tagRepo.findAll()).thenReturn(List.of());
+        suggestions.refresh();
+        clearInvocations(entryRepo, tagRepo);
+
+        assertTrue(suggestions.suggest(" ", 10).isEmpty());
+        assertTrue(suggestions.suggest("valve", 10).isEmpty());
+        assertEquals(1, suggestions.suggest("p", 10).size());
+        verifyNoInteractions(entryRepo, tagRepo);
+    }
+
+    @Test
+    void refreshIfStale_shouldOnlyRebuildAfterMarkStale() {
+        when(entryRepo.findAll()).thenReturn(List.of(entry("e1", "Pump", "ACME", 1)));
+        when(tagRepo.findAll()).thenReturn(List.of());
+
+        suggestions.refreshIfStale();
+        suggestions.refreshIfStale();
+        verify(entryRepo, times(1)).findAll();
+
+        suggestions.markStale();
+        suggestions.refreshIfStale();
+        verify(entryRepo, times(2)).findAll();
+    }
+
+    @Test
+    void refreshIfStale_shouldKeepSuggestions_whenLoadingFails() {
+        when(entryRepo.findAll())
+                .thenReturn(List.of(entry("e1", "Pump", "ACME", 1)))
+                .thenThrow(new RuntimeException("db down"));
+        when(tagRepo.findAll()).thenReturn(List.of());
+        suggestions.refresh();
+
+        suggestions.markStale();
+        suggestions.refreshIfStale();
+        suggestions.refreshIfStale();
+
+        assertEquals(1, suggestions.suggest("pump", 10).size());
+        // still stale, so every scheduled run retries
+        verify(entryRepo, times(3)).findAll();
+    }
+
+    private static MarketplaceEntry entry(String id, String name, String author, int downloads) {
+        return MarketplaceEntry.builder().id(id).name(name).author(author).downloadCount(downloads).build();
+    }
+}
@@ -49,6 +49,8 @@ public class SubmodelServiceTest {
     private TemplateRepository templateRepository;
     @Mock
     private AASModelRepository aasModelRepository;
+    @Mock
+    private SubmodelStorageService submodelStorageService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -60,7 +62,8 @@ public class SubmodelServiceTest {
                 uploadedFileRepository,
                 submodelMapper,
                 templateRepository,
-                aasModelRepository
+                aasModelRepository,
+                submodelStorageService
         );
     }
 
@@ -109,6 +112,21 @@ public class SubmodelServiceTest {
         verifyNoInteractions(submodelMapper);
     }
 
+    // testing getModelVersion function
+    @Test
+    void getModelVersion_returnsVersionOfModel() {
+        when(aasModelRepository.findVersionById("model-1"))
+                .thenReturn(Optional.of(AASModel.builder().id("model-1").version(4L).build()));
+
+        assertEquals(4L, service.getModelVersion("model-1"));
+    }
+
+    @Test
+    void getModelVersion_throwsNotFound_whenModelMissing() {
+        when(aasModelRepository.findVersionById("missing")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> service.getModelVersion("missing"));
+    }
+
     // testing getSubmodel function
     @Test
     void getSubmodel_returnsDto_whenFoundByIdShort() {
@@ -127,7 +145,8 @@ public class SubmodelServiceTest {
                 .submodels(new ArrayList<>(List.of(sm)))
                 .build();
 
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(submodelStorageService.findSubmodelByIdShort(model, idShort)).thenReturn(Optional.of(sm));
 
         SubmodelDto mapped = SubmodelDto.builder().submodel(sm).build();
         when(submodelMapper.toDto(sm)).thenReturn(mapped);
@@ -140,7 +159,7 @@ public class SubmodelServiceTest {
 
     @Test
     void getSubmodel_throwsNotFound_whenModelMissing() {
-        when(aasModelRepository.findById("nope")).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById("nope")).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> service.getSubmodel("nope", "s1"));
     }
 
@@ -156,7 +175,8 @@ public class SubmodelServiceTest {
                 .submodels(new ArrayList<>())
                 .build();
 
-        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(model));
+        when(submodelStorageService.findSubmodelByIdShort(model, "s-missing")).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> service.getSubmodel(modelId, "s-missing"));
         verify(submodelMapper, never()).toDto(any());
@@ -0,0 +1,361 @@
+package org.DigiTwinStudio.DigiTwin_Backend.services;
+
+import org.DigiTwinStudio.DigiTwin_Backend.domain.AASModel;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.PublishedSnapshot;
+import org.DigiTwinStudio.DigiTwin_Backend.domain.SubmodelDocument;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.AASModelRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.PublishedSnapshotRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.SubmodelDocumentRepository;
+import org.DigiTwinStudio.DigiTwin_Backend.repositories.UploadedFileRepository;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAssetAdministrationShell;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultFile;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubmodelStorageServiceTest {
+
+    @Mock private AASModelRepository aasModelRepository;
+    @Mock private SubmodelDocumentRepository submodelDocumentRepository;
+    @Mock private PublishedSnapshotRepository publishedSnapshotRepository;
+    @Mock private UploadedFileRepository uploadedFileRepository;
+
+    @InjectMocks
+    private SubmodelStorageService service;
+
+    private final String modelId = "model-1";
+
+    // --- embedded layout delegates to the positional updates of the model document ---
+    @Test
+    void pushSubmodel_embedded_updatesModelDocument() {
+        AASModel header = embeddedHeader(2);
+        DefaultSubmodel sub = submodel("sub-1");
+        when(aasModelRepository.pushSubmodel(eq(modelId), eq(2L), eq(sub), any(LocalDateTime.class))).thenReturn(true);
+
+        assertTrue(service.pushSubmodel(header, sub, LocalDateTime.now()));
+        verifyNoInteractions(submodelDocumentRepository);
+    }
+
+    @Test
+    void resolveSubmodels_embedded_leavesModelUntouched() {
+        AASModel model = embeddedHeader(0);
+        model.setSubmodels(new ArrayList<>(List.of(submodel("sub-1"))));
+
+        service.resolveSubmodels(model);
+
+        assertEquals(1, model.getSubmodels().size());
+        verifyNoInteractions(submodelDocumentRepository);
+    }
+
+    // --- external layout: new submodel document first, then the model switches to it ---
+    @Test
+    void pushSubmodel_external_storesDocumentBeforeSwitchingModel() {
+        AASModel header = externalHeader(3, List.of());
+        DefaultSubmodel sub = submodel("sub-1");
+        when(aasModelRepository.patchExternalContent(eq(modelId), eq(3L), isNull(), eq(List.of("sub-1")), anyList(),
+                any(LocalDateTime.class))).thenReturn(true);
+
+        assertTrue(service.pushSubmodel(header, sub, LocalDateTime.now()));
+
+        InOrder order = inOrder(submodelDocumentRepository, aasModelRepository);
+        order.verify(submodelDocumentRepository).insert(argThat((List<SubmodelDocument> docs) -> docs.size() == 1
+                && docs.getFirst().getSubmodel() == sub && docs.getFirst().getId().startsWith(modelId + ":sub-1:4:")));
+        order.verify(aasModelRepository).patchExternalContent(eq(modelId), eq(3L), isNull(), eq(List.of("sub-1")),
+                argThat(ids -> ids.size() == 1 && ids.getFirst().startsWith(modelId + ":sub-1:4:")), any(LocalDateTime.class));
+        verify(submodelDocumentRepository, never()).deleteAllById(any());
+    }
+
+    @Test
+    void pushSubmodel_external_discardsDocument_whenModelChangedConcurrently() {
+        AASModel header = externalHeader(3, List.of());
+        when(aasModelRepository.patchExternalContent(any(), anyLong(), any(), anyList(), anyList(), any())).thenReturn(false);
+
+        assertFalse(service.pushSubmodel(header, submodel("sub-1"), LocalDateTime.now()));
+        verify(submodelDocumentRepository).deleteAllById(argThat(ids -> ids.iterator().next().startsWith(modelId + ":sub-1:4:")));
+    }
+
+    @Test
+    void pushSubmodel_external_rejectsDuplicateId() {
+        assertFalse(service.pushSubmodel(externalHeader(3, List.of("sub-1")), submodel("sub-1"), LocalDateTime.now()));
+        verifyNoInteractions(submodelDocumentRepository);
+        verify(aasModelRepository, never()).patchExternalContent(any(), anyLong(), any(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void setSubmodel_external_referencesNewDocument_andDropsSupersededOne() {
+        AASModel header = externalHeader(1, List.of("sub-keep", "sub-old"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-keep", "doc-old")));
+        DefaultSubmodel updated = submodel("sub-new");
+        when(aasModelRepository.patchExternalContent(eq(modelId), eq(1L), isNull(), eq(List.of("sub-keep", "sub-new")),
+                argThat(ids -> ids.getFirst().equals("doc-keep") && ids.get(1).startsWith(modelId + ":sub-new:2:")),
+                any(LocalDateTime.class))).thenReturn(true);
+
+        assertTrue(service.setSubmodel(header, "sub-old", updated, LocalDateTime.now()));
+        verify(submodelDocumentRepository).insert(argThat((List<SubmodelDocument> docs) -> docs.getFirst().getSubmodel() == updated));
+        verify(submodelDocumentRepository).deleteAllById(List.of("doc-old"));
+    }
+
+    @Test
+    void setSubmodel_external_keepsStoredDocument_whenModelChangedConcurrently() {
+        AASModel header = externalHeader(1, List.of("sub-old"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-old")));
+        when(aasModelRepository.patchExternalContent(any(), anyLong(), any(), anyList(), anyList(), any())).thenReturn(false);
+
+        assertFalse(service.setSubmodel(header, "sub-old", submodel("sub-new"), LocalDateTime.now()));
+        verify(submodelDocumentRepository).deleteAllById(argThat(ids -> !ids.iterator().next().equals("doc-old")));
+    }
+
+    @Test
+    void pullSubmodel_external_removesRef_andThenDocument() {
+        // a model externalized before documents were versioned references them by their legacy IDs
+        AASModel header = externalHeader(4, List.of("sub-1", "sub-2"));
+        when(aasModelRepository.patchExternalContent(eq(modelId), eq(4L), isNull(), eq(List.of("sub-2")),
+                eq(List.of(SubmodelDocument.idOf(modelId, "sub-2"))), any(LocalDateTime.class))).thenReturn(true);
+
+        assertTrue(service.pullSubmodel(header, "sub-1", LocalDateTime.now()));
+        verify(submodelDocumentRepository).deleteAllById(List.of(SubmodelDocument.idOf(modelId, "sub-1")));
+        verify(submodelDocumentRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void patchContent_external_failsWithoutWriting_forUnknownSubmodel() {
+        AASModel header = externalHeader(2, List.of("sub-1"));
+
+        assertFalse(service.patchContent(header, null, Map.of("sub-x", submodel("sub-x")), LocalDateTime.now()));
+        verifyNoInteractions(submodelDocumentRepository);
+    }
+
+    @Test
+    void replaceContent_external_writesDocumentsFirst_andChecksOwner() {
+        AASModel header = externalHeader(6, List.of("sub-old"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-old")));
+        DefaultAssetAdministrationShell aas = new DefaultAssetAdministrationShell();
+        AASModel replaced = externalHeader(7, List.of("sub-new"));
+        when(aasModelRepository.replaceContent(eq(modelId), eq("user-1"), eq(6L), same(aas), anyList(), any())).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(aasModelRepository.replaceExternalContent(eq(modelId), eq("user-1"), eq(6L), same(aas), eq(List.of("sub-new")),
+                anyList(), any())).thenReturn(Optional.of(replaced));
+
+        Optional<AASModel> result = service.replaceContent(modelId, "user-1", 6L, aas, List.of(submodel("sub-new")), LocalDateTime.now());
+
+        assertEquals(List.of("sub-new"), result.orElseThrow().getSubmodels().stream().map(DefaultSubmodel::getId).toList());
+        InOrder order = inOrder(submodelDocumentRepository, aasModelRepository);
+        order.verify(submodelDocumentRepository).insert(anyList());
+        order.verify(aasModelRepository).replaceExternalContent(any(), any(), any(), any(), anyList(), anyList(), any());
+        order.verify(submodelDocumentRepository).deleteAllById(List.of("doc-old"));
+    }
+
+    @Test
+    void replaceContent_external_discardsWrittenDocuments_whenVersionDidNotMatch() {
+        AASModel header = externalHeader(6, List.of("sub-old"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-old")));
+        when(aasModelRepository.replaceContent(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(aasModelRepository.replaceExternalContent(any(), any(), any(), any(), anyList(), anyList(), any())).thenReturn(Optional.empty());
+
+        assertTrue(service.replaceContent(modelId, "user-1", 5L, null, List.of(submodel("sub-new")), LocalDateTime.now()).isEmpty());
+        verify(submodelDocumentRepository).deleteAllById(argThat(ids -> ids.iterator().next().startsWith(modelId + ":sub-new:7:")));
+    }
+
+    @Test
+    void findSubmodelByIdShort_external_ignoresUnreferencedDocuments() {
+        AASModel header = externalHeader(2, List.of("sub-1"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-current")));
+        SubmodelDocument orphan = SubmodelDocument.builder().id("doc-orphan").submodel(submodel("orphan")).build();
+        SubmodelDocument current = SubmodelDocument.builder().id("doc-current").submodel(submodel("sub-1")).build();
+        when(submodelDocumentRepository.findByModelIdAndIdShort(modelId, "sub-1")).thenReturn(List.of(orphan, current));
+
+        assertEquals("sub-1", service.findSubmodelByIdShort(header, "sub-1").orElseThrow().getId());
+    }
+
+    // --- orphan cleanup ---
+    @Test
+    void removeOrphanedSubmodels_keepsReferencedDocuments() {
+        AASModel header = externalHeader(2, List.of("sub-1"));
+        header.setSubmodelDocumentIds(new ArrayList<>(List.of("doc-1")));
+        when(submodelDocumentRepository.findModelIdsWithDocumentsBefore(any())).thenReturn(List.of(modelId, "deleted-model"));
+        when(aasModelRepository.findHeaderById(modelId)).thenReturn(Optional.of(header));
+        when(aasModelRepository.findHeaderById("deleted-model")).thenReturn(Optional.empty());
+        when(submodelDocumentRepository.deleteUnreferenced(eq(modelId), eq(List.of("doc-1")), any())).thenReturn(2L);
+        when(submodelDocumentRepository.deleteUnreferenced(eq("deleted-model"), eq(List.of()), any())).thenReturn(3L);
+
+        assertEquals(5, service.removeOrphanedSubmodels());
+    }
+
+    @Test
+    void removeOrphanedSubmodels_sparesRecentlyWrittenDocuments() {
+        LocalDateTime before = LocalDateTime.now().minus(SubmodelStorageService.ORPHAN_GRACE_PERIOD);
+        when(submodelDocumentRepository.findModelIdsWithDocumentsBefore(any())).thenReturn(List.of());
+
+        service.removeOrphanedSubmodels();
+
+        verify(submodelDocumentRepository).findModelIdsWithDocumentsBefore(argThat(cutoff -> !cutoff.isBefore(before)
+                && cutoff.isBefore(LocalDateTime.now().minusMinutes(59))));
+    }
+
+    // --- lazy loading keeps the stored order and fetches in batches ---
+    @Test
+    void streamSubmodels_loadsInBatches_inStoredOrder() {
+        int count = SubmodelStorageService.STREAM_BATCH_SIZE + 3;
+        List<String> refs = IntStream.range(0, count).mapToObj(i -> "sub-" + i).toList();
+        AASModel header = externalHeader(0, refs);
+        header.setSubmodelDocumentIds(refs.stream().map(ref -> "doc-" + ref).toList());
+        when(submodelDocumentRepository.findAllById(anyList())).thenAnswer(inv -> {
+            List<String> ids = new ArrayList<>(inv.<List<String>>getArgument(0));
+            // the database does not guarantee the order of the requested IDs
+            Collections.reverse(ids);
+            return ids.stream()
+                    .map(id -> SubmodelDocument.builder().id(id).submodel(submodel(id.substring("doc-".length()))).build())
+                    .toList();
+        });
+
+        List<String> streamed = service.streamSubmodels(header).map(DefaultSubmodel::getId).toList();
+
+        assertEquals(refs, streamed);
+        verify(submodelDocumentRepository, times(2)).findAllById(anyList());
+    }
+
+    @Test
+    void streamSubmodels_isLazy() {
+        AASModel header = externalHeader(0, IntStream.range(0, 40).mapToObj(i -> "sub-" + i).toList());
+        when(submodelDocumentRepository.findAllById(anyList())).thenAnswer(inv -> {
+            List<String> ids = inv.getArgument(0);
+            return ids.stream()
+                    .map(id -> SubmodelDocument.builder().id(id).submodel(submodel(id.substring(modelId.length() + 1))).build())
+                    .toList();
+        });
+
+        Optional<DefaultSubmodel> first = service.streamSubmodels(header).findFirst();
+
+        assertEquals("sub-0", first.orElseThrow().getId());
+        verify(submodelDocumentRepository, times(1)).findAllById(anyList());
+    }
+
+    // --- adopted models read the snapshot until they are materialized ---
+    @Test
+    void resolveSubmodels_adopted_readsSnapshotSubmodels() {
+        AASModel model = adoptedHeader();
+        when(publishedSnapshotRepository.findById("entry-1:2")).thenReturn(Optional.of(snapshot(submodel("a"), submodel("b"))));
+
+        service.resolveSubmodels(model);
+
+        assertEquals(List.of("a", "b"), model.getSubmodels().stream().map(DefaultSubmodel::getId).toList());
+        verifyNoInteractions(submodelDocumentRepository);
+    }
+
+    @Test
+    void findSubmodel_adopted_readsSnapshot() {
+        when(publishedSnapshotRepository.findById("entry-1:2")).thenReturn(Optional.of(snapshot(submodel("a"), submodel("b"))));
+
+        assertEquals("b", service.findSubmodel(adoptedHeader(), "b").orElseThrow().getId());
+        verify(aasModelRepository, never()).findSubmodel(any(), any());
+    }
+
+    @Test
+    void materialize_copiesSnapshot_andReferencesFiles() {
+        DefaultSubmodel withFile = submodel("a");
+        DefaultFile file = new DefaultFile();
+        file.setValue("file-1");
+        withFile.setSubmodelElements(new ArrayList<>(List.of(file)));
+        when(publishedSnapshotRepository.findById("entry-1:2")).thenReturn(Optional.of(snapshot(withFile)));
+        when(aasModelRepository.materializeSnapshot(modelId, "entry-1:2", List.of(withFile))).thenReturn(true);
+
+        assertTrue(service.materialize(adoptedHeader()));
+        verify(uploadedFileRepository).acquireSharedReferences(Set.of("file-1"));
+    }
+
+    @Test
+    void materialize_referencesNoFiles_whenMaterializedConcurrently() {
+        when(publishedSnapshotRepository.findById("entry-1:2")).thenReturn(Optional.of(snapshot(submodel("a"))));
+        when(aasModelRepository.materializeSnapshot(eq(modelId), eq("entry-1:2"), anyList())).thenReturn(false);
+
+        assertFalse(service.materialize(adoptedHeader()));
+        verifyNoInteractions(uploadedFileRepository);
+    }
+
+    // --- migration ---
+    @Test
+    void externalize_copiesSubmodels_andSwitchesModel() {
+        AASModel model = embeddedHeader(5);
+        model.setSubmodels(new ArrayList<>(List.of(submodel("a"), submodel("b"))));
+        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        when(aasModelRepository.externalizeSubmodels(eq(modelId), eq(5L), eq(List.of("a", "b")), anyList())).thenReturn(true);
+
+        assertTrue(service.externalize(modelId));
+        verify(submodelDocumentRepository).insert(argThat((List<SubmodelDocument> docs) -> docs.size() == 2
+                && docs.getFirst().getSubmodel() == model.getSubmodels().getFirst()));
+        verify(submodelDocumentRepository, never()).deleteAllById(any());
+    }
+
+    @Test
+    void externalize_dropsCopies_whenModelChangedMeanwhile() {
+        AASModel model = embeddedHeader(5);
+        model.setSubmodels(new ArrayList<>(List.of(submodel("a"))));
+        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(model));
+        when(aasModelRepository.externalizeSubmodels(eq(modelId), eq(5L), eq(List.of("a")), anyList())).thenReturn(false);
+
+        assertFalse(service.externalize(modelId));
+        // only the copies are dropped, documents of a concurrent externalization are kept
+        verify(submodelDocumentRepository).deleteAllById(argThat(ids -> ids.iterator().next().startsWith(modelId + ":a:6:")));
+        verify(submodelDocumentRepository, never()).deleteByModelId(any());
+    }
+
+    @Test
+    void externalize_skipsAlreadyExternalizedModel() {
+        when(aasModelRepository.findById(modelId)).thenReturn(Optional.of(externalHeader(1, List.of())));
+
+        assertFalse(service.externalize(modelId));
+        verifyNoInteractions(submodelDocumentRepository);
+    }
+
+    // ---------- Helper methods ----------
+
+    private AASModel embeddedHeader(long version) {
+        return AASModel.builder().id(modelId).ownerId("user-1").version(version).build();
+    }
+
+    private AASModel externalHeader(long version, List<String> refs) {
+        return AASModel.builder().id(modelId).ownerId("user-1").version(version).submodelRefs(new ArrayList<>(refs)).build();
+    }
+
+    private AASModel adoptedHeader() {
+        return AASModel.builder().id(modelId).ownerId("user-1").sourceSnapshotId("entry-1:2").build();
+    }
+
+    private static PublishedSnapshot snapshot(DefaultSubmodel... submodels) {
+        return PublishedSnapshot.builder().id("entry-1:2").entryId("entry-1").modelVersion(2).submodels(List.of(submodels)).build();
+    }
+
+    private static DefaultSubmodel submodel(String id) {
+        DefaultSubmodel sub = new DefaultSubmodel();
+        sub.setId(id);
+        sub.setIdShort(id);
+        return sub;
+    }
+}
@@ -0,0 +1,47 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorUtilTest {
+
+    @Test
+    void encode_roundTripsSortKeys() {
+        String cursor = CursorUtil.encode("2025-01-01T10:15:30", "model/1?ä");
+
+        assertArrayEquals(new String[]{"2025-01-01T10:15:30", "model/1?ä"}, CursorUtil.decode(cursor, 2));
+    }
+
+    @Test
+    void encode_producesUrlSafeTokenWithoutPadding() {
+        String cursor = CursorUtil.encode("??>>", "~~~");
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    void decode_keepsEmptyParts() {
+        assertArrayEquals(new String[]{"", "id"}, CursorUtil.decode(CursorUtil.encode("", "id"), 2));
+    }
+
+    @Test
+    void decode_rejectsWrongNumberOfParts() {
+        String cursor = CursorUtil.encode("a", "b", "c");
+
+        assertThrows(BadRequestException.class, () -> CursorUtil.decode(cursor, 2));
+    }
+
+    @Test
+    void decode_rejectsMalformedTokens() {
+        assertThrows(BadRequestException.class, () -> CursorUtil.decode("not base64!", 2));
+        // standard Base64 alphabet instead of the URL-safe one
+        String standard = Base64.getEncoder().encodeToString("??>\u001F>".getBytes(StandardCharsets.UTF_8));
+        assertThrows(BadRequestException.class, () -> CursorUtil.decode(standard, 2));
+    }
+}
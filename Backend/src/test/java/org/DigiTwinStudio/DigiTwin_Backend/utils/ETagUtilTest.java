@@ -0,0 +1,63 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.PreconditionFailedException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagUtilTest {
+
+    private static final LongSupplier NOT_NEEDED = () -> {
+        throw new AssertionError("current version must not be looked up");
+    };
+
+    @Test
+    void toETag_quotesVersion() {
+        assertEquals("\"3\"", ETagUtil.toETag(3));
+        assertEquals("\"abc\"", ETagUtil.toContentETag("abc"));
+    }
+
+    @Test
+    void parseIfMatch_returnsNull_withoutPrecondition() {
+        assertNull(ETagUtil.parseIfMatch(null, NOT_NEEDED));
+        assertNull(ETagUtil.parseIfMatch("  ", NOT_NEEDED));
+        assertNull(ETagUtil.parseIfMatch("*", NOT_NEEDED));
+    }
+
+    @Test
+    void parseIfMatch_returnsSingleStrongVersion_withoutLookup() {
+        assertEquals(3L, ETagUtil.parseIfMatch("\"3\"", NOT_NEEDED));
+        assertEquals(3L, ETagUtil.parseIfMatch(" \"3\" ", NOT_NEEDED));
+    }
+
+    @Test
+    void parseIfMatch_matchesAnyTagOfAList() {
+        assertEquals(4L, ETagUtil.parseIfMatch("\"3\", \"4\"", () -> 4L));
+        // weak and foreign tags in the list are ignored
+        assertEquals(3L, ETagUtil.parseIfMatch("W/\"4\", \"3\", \"abc\"", NOT_NEEDED));
+    }
+
+    @Test
+    void parseIfMatch_rejectsList_withoutCurrentVersion() {
+        assertThrows(PreconditionFailedException.class, () -> ETagUtil.parseIfMatch("\"3\", \"4\"", () -> 5L));
+    }
+
+    @Test
+    void parseIfMatch_rejectsWeakAndForeignTags() {
+        assertThrows(PreconditionFailedException.class, () -> ETagUtil.parseIfMatch("W/\"3\"", NOT_NEEDED));
+        assertThrows(PreconditionFailedException.class, () -> ETagUtil.parseIfMatch("\"abc\"", NOT_NEEDED));
+        assertThrows(PreconditionFailedException.class, () -> ETagUtil.parseIfMatch("3", NOT_NEEDED));
+    }
+
+    @Test
+    void matchesIfNoneMatch_usesWeakComparison() {
+        assertTrue(ETagUtil.matchesIfNoneMatch("W/\"3\"", 3));
+        assertTrue(ETagUtil.matchesIfNoneMatch("\"1\", \"3\"", 3));
+        assertTrue(ETagUtil.matchesIfNoneMatch("*", 3));
+        assertFalse(ETagUtil.matchesIfNoneMatch("\"1\"", 3));
+        assertFalse(ETagUtil.matchesIfNoneMatch(null, 3));
+    }
+}
@@ -0,0 +1,164 @@
+package org.DigiTwinStudio.DigiTwin_Backend.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.ConflictException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPatchUtilTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // ===== parsePointer / parseIndex =====
+    @Test
+    void parsePointer_unescapesTokens() {
+        assertEquals(List.of(), JsonPatchUtil.parsePointer(""));
+        assertEquals(List.of("a/b", "m~n", "~1", ""), JsonPatchUtil.parsePointer("/a~1b/m~0n/~01/"));
+    }
+
+    @Test
+    void parsePointer_rejectsMalformedPointers() {
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parsePointer("a/b"));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parsePointer("/a~2"));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parsePointer("/a~"));
+    }
+
+    @Test
+    void parseIndex_acceptsOnlyCanonicalIndexes() {
+        assertEquals(0, JsonPatchUtil.parseIndex("0"));
+        assertEquals(12, JsonPatchUtil.parseIndex("12"));
+        assertEquals(-1, JsonPatchUtil.parseIndex("-"));
+        assertEquals(-1, JsonPatchUtil.parseIndex("01"));
+        assertEquals(-1, JsonPatchUtil.parseIndex("-1"));
+        assertEquals(-1, JsonPatchUtil.parseIndex("9999999999"));
+    }
+
+    // ===== parse =====
+    @Test
+    void parse_rejectsMalformedDocuments() {
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parse(json("{\"op\":\"add\"}")));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parse(json("[{\"op\":\"add\",\"path\":\"/a\"}]")));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parse(json("[{\"op\":\"move\",\"path\":\"/a\"}]")));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parse(json("[{\"op\":\"frob\",\"path\":\"/a\"}]")));
+        assertThrows(BadRequestException.class, () -> JsonPatchUtil.parse(json("[{\"op\":\"remove\",\"path\":1}]")));
+    }
+
+    @Test
+    void parse_keepsNullValues() {
+        List<JsonPatchUtil.Operation> operations = JsonPatchUtil.parse(json("[{\"op\":\"add\",\"path\":\"/a\",\"value\":null}]"));
+
+        assertTrue(operations.getFirst().value().isNull());
+    }
+
+    // ===== apply =====
+    @Test
+    void apply_addsToObjectsAndArrays() {
+        assertEquals(json("{\"a\":[0,1,2,3],\"b\":{\"c\":true}}"), apply("{\"a\":[1,3],\"b\":{}}",
+                "[{\"op\":\"add\",\"path\":\"/a/1\",\"value\":2},"
+                        + "{\"op\":\"add\",\"path\":\"/a/0\",\"value\":0},"
+                        + "{\"op\":\"add\",\"path\":\"/b/c\",\"value\":true}]"));
+    }
+
+    @Test
+    void apply_appendsWithDash() {
+        assertEquals(json("{\"a\":[1,2]}"), apply("{\"a\":[1]}", "[{\"op\":\"add\",\"path\":\"/a/-\",\"value\":2}]"));
+    }
+
+    @Test
+    void apply_rejectsOutOfRangeAndDashIndexes() {
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":[1]}", "[{\"op\":\"add\",\"path\":\"/a/2\",\"value\":2}]"));
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":[1]}", "[{\"op\":\"remove\",\"path\":\"/a/1\"}]"));
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":[1]}", "[{\"op\":\"remove\",\"path\":\"/a/-\"}]"));
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":[1]}", "[{\"op\":\"replace\",\"path\":\"/a/01\",\"value\":2}]"));
+    }
+
+    @Test
+    void apply_usesEscapedKeys() {
+        assertEquals(json("{\"a/b\":2,\"m~n\":3}"), apply("{\"a/b\":1,\"m~n\":1}",
+                "[{\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":2},"
+                        + "{\"op\":\"replace\",\"path\":\"/m~0n\",\"value\":3}]"));
+    }
+
+    @Test
+    void apply_replacesAndRemoves() {
+        assertEquals(json("{\"a\":{\"x\":1}}"), apply("{\"a\":1,\"b\":2}",
+                "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":{\"x\":1}},{\"op\":\"remove\",\"path\":\"/b\"}]"));
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"/b\",\"value\":1}]"));
+    }
+
+    @Test
+    void apply_replacesTheRoot() {
+        assertEquals(json("[1]"), apply("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":[1]}]"));
+    }
+
+    @Test
+    void apply_rejectsRemovingTheRoot() {
+        assertThrows(BadRequestException.class, () -> apply("{\"a\":1}", "[{\"op\":\"remove\",\"path\":\"\"}]"));
+    }
+
+    @Test
+    void apply_movesAndCopies() {
+        assertEquals(json("{\"b\":{\"x\":[2,1]},\"c\":[2,1]}"), apply("{\"a\":[1,2],\"b\":{}}",
+                "[{\"op\":\"move\",\"path\":\"/a/0\",\"from\":\"/a/1\"},"
+                        + "{\"op\":\"move\",\"path\":\"/b/x\",\"from\":\"/a\"},"
+                        + "{\"op\":\"copy\",\"path\":\"/c\",\"from\":\"/b/x\"}]"));
+    }
+
+    @Test
+    void apply_rejectsMovingIntoOwnChild() {
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":{\"b\":{}}}", "[{\"op\":\"move\",\"path\":\"/a/b/c\",\"from\":\"/a\"}]"));
+        assertThrows(BadRequestException.class,
+                () -> apply("{\"a\":{}}", "[{\"op\":\"move\",\"path\":\"/a\",\"from\":\"\"}]"));
+    }
+
+    @Test
+    void apply_moveToSameLocation_isNoOp() {
+        assertEquals(json("{\"a\":1}"), apply("{\"a\":1}", "[{\"op\":\"move\",\"path\":\"/a\",\"from\":\"/a\"}]"));
+    }
+
+    @Test
+    void apply_comparesNumbersByValueInTests() {
+        assertEquals(json("{\"a\":1.0,\"b\":[1]}"), apply("{\"a\":1.0,\"b\":[1]}",
+                "[{\"op\":\"test\",\"path\":\"/a\",\"value\":1},{\"op\":\"test\",\"path\":\"/b\",\"value\":[1.00]}]"));
+        assertThrows(ConflictException.class,
+                () -> apply("{\"a\":1}", "[{\"op\":\"test\",\"path\":\"/a\",\"value\":\"1\"}]"));
+        assertThrows(ConflictException.class,
+                () -> apply("{\"a\":{\"x\":1}}", "[{\"op\":\"test\",\"path\":\"/a\",\"value\":{\"x\":2}}]"));
+    }
+
+    @Test
+    void apply_isAtomic_andLeavesTheInputUnchanged() {
+        JsonNode document = json("{\"a\":1}");
+
+        assertThrows(ConflictException.class, () -> JsonPatchUtil.apply(document, JsonPatchUtil.parse(json(
+                "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2},{\"op\":\"test\",\"path\":\"/a\",\"value\":3}]"))));
+        JsonPatchUtil.apply(document, JsonPatchUtil.parse(json("[{\"op\":\"remove\",\"path\":\"/a\"}]")));
+
+        assertEquals(json("{\"a\":1}"), document);
+    }
+
+    private JsonNode apply(String document, String patch) {
+        return JsonPatchUtil.apply(json(document), JsonPatchUtil.parse(json(patch)));
+    }
+
+    private JsonNode json(String content) {
+        try {
+            return objectMapper.readTree(content);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(content, e);
+        }
+    }
+}
@@ -32,7 +32,7 @@ public class AASModelValidatorTest {
     private AASModelValidator validator;
 
     @Mock
-    private SubmodelValidator submodelValidator;
+    private SubmodelValidationCache submodelValidationCache;
 
     // testing validate() function for AAS structure
     @Test
@@ -49,7 +49,7 @@ public class AASModelValidatorTest {
 
             // Verify ModelValidator was called
             modelValidatorMock.verify(() -> ModelValidator.validate(model.getAas()));
-            verify(submodelValidator, never()).validate(any());
+            verify(submodelValidationCache, never()).validate(any());
         }
     }
 
@@ -93,8 +93,8 @@ public class AASModelValidatorTest {
 
             validator.validate(model);
 
-            verify(submodelValidator).validate(sub1);
-            verify(submodelValidator).validate(sub2);
+            verify(submodelValidationCache).validate(sub1);
+            verify(submodelValidationCache).validate(sub2);
         }
     }
 
@@ -109,7 +109,7 @@ public class AASModelValidatorTest {
 
             validator.validate(model);
 
-            verify(submodelValidator, never()).validate(any());
+            verify(submodelValidationCache, never()).validate(any());
         }
     }
 
@@ -125,7 +125,7 @@ public class AASModelValidatorTest {
             // When
             validator.validate(model);
 
-            verify(submodelValidator, never()).validate(any());
+            verify(submodelValidationCache, never()).validate(any());
         }
     }
 
@@ -140,7 +140,7 @@ public class AASModelValidatorTest {
                     .then(invocation -> null);
 
             doThrow(new BadRequestException("Invalid submodel structure"))
-                    .when(submodelValidator).validate(submodel);
+                    .when(submodelValidationCache).validate(submodel);
 
             BadRequestException ex = assertThrows(BadRequestException.class,
                     () -> validator.validate(model));
@@ -311,7 +311,7 @@ public class AASModelValidatorTest {
 
             // Then: all validations should be performed
             modelValidatorMock.verify(() -> ModelValidator.validate(model.getAas()));
-            verify(submodelValidator).validate(submodel);
+            verify(submodelValidationCache).validate(submodel);
         }
     }
 
@@ -332,7 +332,7 @@ public class AASModelValidatorTest {
             assertTrue(ex.getMessage().contains("Not Valid submodel"));
 
             // Submodel validation should not be called when AAS validation fails
-            verify(submodelValidator, never()).validate(any());
+            verify(submodelValidationCache, never()).validate(any());
         }
     }
 
@@ -0,0 +1,100 @@
+package org.DigiTwinStudio.DigiTwin_Backend.validation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.DigiTwinStudio.DigiTwin_Backend.exceptions.BadRequestException;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultProperty;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSubmodel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubmodelValidationCacheTest {
+
+    @Mock
+    private SubmodelValidator submodelValidator;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SubmodelValidationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SubmodelValidationCache(submodelValidator, meterRegistry, 2);
+    }
+
+    @Test
+    void validate_skipsValidator_forUnchangedContent() {
+        cache.validate(submodel("sm-1", "42"));
+        // a different instance with the same content is a hit
+        cache.validate(submodel("sm-1", "42"));
+
+        verify(submodelValidator, times(1)).validate(any());
+        assertEquals(1.0, count("hit"));
+        assertEquals(1.0, count("miss"));
+    }
+
+    @Test
+    void validate_revalidates_whenContentChanged() {
+        cache.validate(submodel("sm-1", "42"));
+        cache.validate(submodel("sm-1", "43"));
+
+        verify(submodelValidator, times(2)).validate(any());
+        assertEquals(0.0, count("hit"));
+        assertEquals(2.0, count("miss"));
+    }
+
+    @Test
+    void validate_doesNotCacheFailures() {
+        DefaultSubmodel invalid = submodel("sm-1", "bad");
+        doThrow(new BadRequestException("invalid")).when(submodelValidator).validate(any());
+
+        assertThrows(BadRequestException.class, () -> cache.validate(invalid));
+        assertThrows(BadRequestException.class, () -> cache.validate(invalid));
+
+        verify(submodelValidator, times(2)).validate(invalid);
+    }
+
+    @Test
+    void validate_evictsLeastRecentlyUsedHashes() {
+        cache.validate(submodel("a", "1"));
+        cache.validate(submodel("b", "1"));
+        cache.validate(submodel("a", "1")); // touch "a", so "b" is the eldest
+        cache.validate(submodel("c", "1")); // evicts "b"
+
+        cache.validate(submodel("a", "1"));
+        cache.validate(submodel("b", "1"));
+
+        // a, b, c and b again reached the validator
+        verify(submodelValidator, times(4)).validate(any());
+        assertEquals(2.0, meterRegistry.get("digitwin.validation.cache.size").gauge().value());
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("digitwin.validation.cache").tag("result", result).counter().count();
+    }
+
+    private static DefaultSubmodel submodel(String id, String value) {
+        DefaultProperty property = new DefaultProperty();
+        property.setIdShort("p");
+        property.setValue(value);
+        DefaultSubmodel submodel = new DefaultSubmodel();
+        submodel.setId(id);
+        submodel.setIdShort(id);
+        submodel.setSubmodelElements(new ArrayList<>(List.of(property)));
+        return submodel;
+    }
+}
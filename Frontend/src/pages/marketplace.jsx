@@ -10,6 +10,10 @@ import { authenticatedFetch } from "../utils/tokenManager";
 export default function Marketplace() {
     const { keycloak, authenticated } = useContext(KeycloakContext);
     const [entries, setEntries] = useState([]);
+    // cursor of the next backend page, null when all entries are loaded
+    const [nextCursor, setNextCursor] = useState(null);
+    // search request of the loaded entries, null for the plain listing
+    const [activeSearch, setActiveSearch] = useState(null);
     const [tags, setTags] = useState([]);
     const [searchText, setSearchText] = useState("");
     const [selectedTags, setSelectedTags] = useState([]);
@@ -71,24 +75,54 @@ export default function Marketplace() {
         setLoading(true);
         try {
             console.log('Performing search with:', { searchText, tagIds });
-            const response = await authenticatedFetch(`${API_URL}/marketplace/search`, {
+            const search = {
+                searchText: searchText || undefined,
+                tagIds: tagIds.length > 0 ? tagIds : undefined
+            };
+            const data = await fetchEntriesPage(search, null);
+            setActiveSearch(search);
+            setEntries(data.items);
+            setNextCursor(data.nextCursor);
+        } catch (error) {
+            console.error('Search failed:', error);
+            showToast("Search failed", "Failed to search marketplace. Please try again.", true);
+        } finally {
+            setLoading(false);
+        }
+    };
+
+    // Loads one page of entries, from the listing or from a search
+    const fetchEntriesPage = async (search, cursor) => {
+        const params = new URLSearchParams({ limit: "100" });
+        if (cursor) {
+            params.set("cursor", cursor);
+        }
+        const response = search
+            ? await authenticatedFetch(`${API_URL}/marketplace/search?${params}`, {
                 method: "POST",
                 headers: { "Content-Type": "application/json" },
-                body: JSON.stringify({
-                    searchText: searchText || undefined,
-                    tagIds: tagIds.length > 0 ? tagIds : undefined
-                })
+                body: JSON.stringify(search)
+            }, keycloak)
+            : await authenticatedFetch(`${API_URL}/marketplace?${params}`, {
+                method: "GET"
             }, keycloak);
-            
-            if (!response.ok) {
-                throw new Error('Search failed');
-            }
-            
-            const data = await response.json();
-            setEntries(data);
+
+        if (!response.ok) {
+            throw new Error('Loading entries failed');
+        }
+        return response.json();
+    };
+
+    // Appends the next backend page to the loaded entries
+    const loadMoreEntries = async () => {
+        setLoading(true);
+        try {
+            const data = await fetchEntriesPage(activeSearch, nextCursor);
+            setEntries(prev => [...prev, ...data.items]);
+            setNextCursor(data.nextCursor);
         } catch (error) {
-            console.error('Search failed:', error);
-            showToast("Search failed", "Failed to search marketplace. Please try again.", true);
+            console.error('Failed to load more entries:', error);
+            showToast("Loading failed", "Failed to load more entries. Please try again.", true);
         } finally {
             setLoading(false);
         }
@@ -105,14 +139,9 @@ export default function Marketplace() {
 
             try {
                 // Load marketplace entries
-                const entriesResponse = await authenticatedFetch(`${API_URL}/marketplace`, {
-                    method: "GET"
-                }, keycloak);
-                
-                if (entriesResponse.ok) {
-                    const entriesData = await entriesResponse.json();
-                    setEntries(entriesData);
-                }
+                const entriesData = await fetchEntriesPage(null, null);
+                setEntries(entriesData.items);
+                setNextCursor(entriesData.nextCursor);
 
                 // Load tags
                 const tagsResponse = await authenticatedFetch(`${API_URL}/marketplace/tags`, {
@@ -453,6 +482,16 @@ export default function Marketplace() {
                     </Row>
                 )}
 
+                {!loading && nextCursor && (
+                    <Row className="mt-2">
+                        <Col className="d-flex justify-content-center">
+                            <Button variant="outline-light" onClick={loadMoreEntries}>
+                                Load more entries
+                            </Button>
+                        </Col>
+                    </Row>
+                )}
+
             </Container>
             
             <ToastContainer position="top-end" className="position-fixed" style={{ top: '20px', right: '20px', zIndex: 1050 }}>